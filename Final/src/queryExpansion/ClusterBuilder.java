@@ -0,0 +1,794 @@
+package queryExpansion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Offline job computing association, metric and scalar cluster neighbours of every stem over a whole collection, written to a {@link ClusterTable}.
+ * Co-occurrence counting is split into partitions of anchor stems that run in parallel; each partition only holds the rows of its own anchors and reduces
+ * them to the top neighbours before the next one starts on its thread, so memory is bounded by the number of threads rather than by V x V.
+ *
+ * @author Ekal.Golas
+ */
+public class ClusterBuilder {
+	private static final int			SCALAR_TERMS	= 50;
+
+	private final Parser				parser;
+	private final WordNet				wordnet;
+	private final int					minDf;
+	private final int					window;
+	private final Map<String, Integer>	ids;
+	private final List<String>			allStems;
+	private final List<Set<String>>		variants;
+	private final List<long[]>			rawDocuments;
+	private String[]					stems;
+	private int[]						variantCount;
+	private long[]						self;
+	private Document[]					documents;
+
+	/**
+	 * Stems of a document, with the positions of each stem grouped together
+	 */
+	private static class Document {
+		private final int[]	stems;
+		private final int[]	offsets;
+		private final int[]	positions;
+
+		/**
+		 * Constructor
+		 *
+		 * @param stems
+		 *            Distinct stem IDs in ascending order
+		 * @param offsets
+		 *            Start of the positions of each stem, with the end as the last element
+		 * @param positions
+		 *            Ascending positions of each stem
+		 */
+		Document(final int[] stems, final int[] offsets, final int[] positions) {
+			this.stems = stems;
+			this.offsets = offsets;
+			this.positions = positions;
+		}
+
+		/**
+		 * @param i
+		 *            Index of the stem in the document
+		 * @return Term frequency of the stem
+		 */
+		int getTermFreq(final int i) {
+			return this.offsets[i + 1] - this.offsets[i];
+		}
+	}
+
+	/**
+	 * Sparse row of co-occurrence counts of an anchor stem, as an open addressing table of stem IDs
+	 */
+	private static class Row {
+		private int[]		keys;
+		private double[]	association;
+		private double[]	metric;
+		private int			size;
+
+		/**
+		 * Default constructor
+		 */
+		Row() {
+			this.keys = new int[16];
+			this.association = new double[16];
+			this.metric = new double[16];
+			Arrays.fill(this.keys, -1);
+		}
+
+		/**
+		 * Adds counts for a neighbour
+		 *
+		 * @param stem
+		 *            Neighbour stem ID
+		 * @param association
+		 *            Co-occurrence count to add
+		 * @param metric
+		 *            Inverse distance sum to add
+		 */
+		void add(final int stem, final double association, final double metric) {
+			if (2 * (this.size + 1) > this.keys.length) {
+				this.grow();
+			}
+
+			final int slot = this.slot(stem);
+			if (this.keys[slot] < 0) {
+				this.keys[slot] = stem;
+				this.size++;
+			}
+
+			this.association[slot] += association;
+			this.metric[slot] += metric;
+		}
+
+		/**
+		 * @param stem
+		 *            Stem ID
+		 * @return Slot holding the stem, or the empty slot where it belongs
+		 */
+		private int slot(final int stem) {
+			final int mask = this.keys.length - 1;
+			int slot = stem * 0x9E3779B9 >>> 16 & mask;
+			while (this.keys[slot] >= 0 && this.keys[slot] != stem) {
+				slot = slot + 1 & mask;
+			}
+
+			return slot;
+		}
+
+		/**
+		 * Doubles the capacity of the table
+		 */
+		private void grow() {
+			final int[] oldKeys = this.keys;
+			final double[] oldAssociation = this.association;
+			final double[] oldMetric = this.metric;
+			this.keys = new int[oldKeys.length * 2];
+			this.association = new double[oldKeys.length * 2];
+			this.metric = new double[oldKeys.length * 2];
+			Arrays.fill(this.keys, -1);
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] >= 0) {
+					final int slot = this.slot(oldKeys[i]);
+					this.keys[slot] = oldKeys[i];
+					this.association[slot] = oldAssociation[i];
+					this.metric[slot] = oldMetric[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param stopwords
+	 *            Stop words file
+	 * @param wordnet
+	 *            Path to the WordNet dict folder
+	 * @param minDf
+	 *            Minimum document frequency of a stem to be kept
+	 * @param window
+	 *            Largest distance between positions counted for metric clusters
+	 * @throws IOException
+	 */
+	public ClusterBuilder(final File stopwords, final String wordnet, final int minDf, final int window) throws IOException {
+		this.parser = new Parser(stopwords);
+		this.wordnet = WordNet.get(wordnet);
+		this.minDf = minDf;
+		this.window = window;
+		this.ids = new HashMap<>();
+		this.allStems = new ArrayList<>();
+		this.variants = new ArrayList<>();
+		this.rawDocuments = new ArrayList<>();
+	}
+
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Command line arguments
+	 * @throws IOException
+	 */
+	public static void main(final String args[]) throws IOException {
+		final CommandLine cmd = validateArguments(args);
+		final int threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		final ClusterBuilder builder = new ClusterBuilder(new File(cmd.getOptionValue("stop")),
+				cmd.getOptionValue("wordnet"),
+				Integer.parseInt(cmd.getOptionValue("minDf", "2")),
+				Integer.parseInt(cmd.getOptionValue("window", String.valueOf(Integer.MAX_VALUE))));
+
+		// Read and stem the collection
+		long start = System.currentTimeMillis();
+		builder.add(new File(cmd.getOptionValue("docs")));
+		builder.prepare();
+		System.out.println("Read " + builder.documents.length + " documents with " + builder.stems.length + " stems in " +
+				(System.currentTimeMillis() - start) + " ms");
+
+		// Compute and write the table
+		start = System.currentTimeMillis();
+		final ClusterTable table = builder.build(Integer.parseInt(cmd.getOptionValue("top", "10")),
+				threads,
+				Integer.parseInt(cmd.getOptionValue("partitions", String.valueOf(4 * threads))));
+		final File output = new File(cmd.getOptionValue("output"));
+		table.write(output);
+		System.out.println("Built clusters on " + threads + " threads in " + (System.currentTimeMillis() - start) + " ms");
+		System.out.println("Wrote " + output + " (" + output.length() + " bytes)");
+	}
+
+	/**
+	 * Reads and stems all the files in the path and its subdirectories
+	 *
+	 * @param file
+	 *            File or folder to read
+	 * @throws IOException
+	 */
+	public void add(final File file) throws IOException {
+		if (file.isDirectory()) {
+			final File[] files = file.listFiles();
+			if (files != null) {
+				for (final File child : files) {
+					this.add(child);
+				}
+			}
+
+			return;
+		}
+
+		// Keep each occurrence as the stem ID in the high half and the position in the low half
+		final String content = new String(Files.readAllBytes(file.toPath()));
+		final Set<String> stopwords = this.parser.getStopwords();
+		final List<Long> occurrences = new ArrayList<>();
+		int num = 0;
+		for (final String word : this.parser.transformText(content).split(" ")) {
+			num++;
+			if (word.length() < 3 || stopwords.contains(word)) {
+				continue;
+			}
+
+			final String stem = this.wordnet.getStem(word);
+			Integer id = this.ids.get(stem);
+			if (id == null) {
+				id = this.allStems.size();
+				this.ids.put(stem, id);
+				this.allStems.add(stem);
+				this.variants.add(new HashSet<String>());
+			}
+
+			this.variants.get(id).add(word);
+			occurrences.add((long) id << 32 | num);
+		}
+
+		final long[] document = new long[occurrences.size()];
+		for (int i = 0; i < document.length; i++) {
+			document[i] = occurrences.get(i);
+		}
+
+		Arrays.sort(document);
+		this.rawDocuments.add(document);
+	}
+
+	/**
+	 * Drops rare stems, renumbers the rest and groups the positions of each document by stem
+	 */
+	public void prepare() {
+		// Count document frequencies
+		final int[] df = new int[this.allStems.size()];
+		for (final long[] document : this.rawDocuments) {
+			for (int i = 0; i < document.length; i++) {
+				if (i == 0 || document[i] >>> 32 != document[i - 1] >>> 32) {
+					df[(int) (document[i] >>> 32)]++;
+				}
+			}
+		}
+
+		// Renumber the stems that are frequent enough
+		final int[] remap = new int[df.length];
+		final List<String> kept = new ArrayList<>();
+		for (int i = 0; i < df.length; i++) {
+			remap[i] = df[i] >= this.minDf ? kept.size() : -1;
+			if (remap[i] >= 0) {
+				kept.add(this.allStems.get(i));
+			}
+		}
+
+		this.stems = kept.toArray(new String[kept.size()]);
+		this.variantCount = new int[this.stems.length];
+		this.self = new long[this.stems.length];
+		for (int i = 0; i < df.length; i++) {
+			if (remap[i] >= 0) {
+				this.variantCount[remap[i]] = this.variants.get(i).size();
+			}
+		}
+
+		// Group positions by stem
+		this.documents = new Document[this.rawDocuments.size()];
+		for (int d = 0; d < this.documents.length; d++) {
+			final long[] raw = this.rawDocuments.get(d);
+			final int[] stemIds = new int[raw.length];
+			final int[] offsets = new int[raw.length + 1];
+			final int[] positions = new int[raw.length];
+			int count = 0;
+			int size = 0;
+			for (int i = 0; i < raw.length; i++) {
+				final int stem = remap[(int) (raw[i] >>> 32)];
+				if (stem < 0) {
+					continue;
+				}
+
+				if (count == 0 || stemIds[count - 1] != stem) {
+					stemIds[count] = stem;
+					offsets[count++] = size;
+				}
+
+				positions[size++] = (int) raw[i];
+			}
+
+			offsets[count] = size;
+			final Document document = new Document(Arrays.copyOf(stemIds, count), Arrays.copyOf(offsets, count + 1), Arrays.copyOf(positions, size));
+			for (int i = 0; i < count; i++) {
+				this.self[document.stems[i]] += (long) document.getTermFreq(i) * document.getTermFreq(i);
+			}
+
+			this.documents[d] = document;
+		}
+
+		this.rawDocuments.clear();
+	}
+
+	/**
+	 * Computes the cluster table
+	 *
+	 * @param n
+	 *            Number of neighbours to keep per stem and kind
+	 * @param threads
+	 *            Number of threads
+	 * @param partitions
+	 *            Number of partitions of anchor stems
+	 * @return Cluster table
+	 * @throws IOException
+	 */
+	public ClusterTable build(final int n, final int threads, final int partitions) throws IOException {
+		final int size = this.stems.length;
+		final int kinds = ClusterTable.Kind.values().length;
+		final int[][][] neighbours = new int[kinds][size][];
+		final float[][][] scores = new float[kinds][size][];
+		final int[][] vectors = new int[size][];
+		final float[][] weights = new float[size][];
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// Association and metric clusters, one partition of anchors per task
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int p = 0; p < partitions; p++) {
+				final int partition = p;
+				futures.add(executor.submit(() -> this.countPartition(partition, partitions, n, neighbours, scores, vectors, weights)));
+			}
+
+			waitFor(futures);
+
+			// Scalar clusters over the pruned association vectors
+			final int[][] inverted = invert(vectors, size);
+			final float[][] invertedWeights = invert(vectors, weights, inverted, size);
+			final float[] norms = new float[size];
+			for (int u = 0; u < size; u++) {
+				double sum = 0.0;
+				for (final float weight : weights[u]) {
+					sum += weight * weight;
+				}
+
+				norms[u] = (float) Math.sqrt(sum);
+			}
+
+			futures.clear();
+			for (int p = 0; p < partitions; p++) {
+				final int partition = p;
+				futures.add(executor.submit(() -> {
+					final double[] dot = new double[size];
+					final int[] touched = new int[size];
+					for (int u = partition; u < size; u += partitions) {
+						this.scalarRow(u, n, vectors, weights, inverted, invertedWeights, norms, dot, touched, neighbours, scores);
+					}
+				}));
+			}
+
+			waitFor(futures);
+		} finally {
+			executor.shutdown();
+		}
+
+		return new ClusterTable(this.stems, neighbours, scores);
+	}
+
+	/**
+	 * Counts co-occurrences of the anchors of one partition over all documents and reduces them to the top neighbours
+	 *
+	 * @param partition
+	 *            Partition number
+	 * @param partitions
+	 *            Number of partitions; the partition holds the stems whose ID modulo this is the partition number
+	 * @param n
+	 *            Number of neighbours to keep
+	 * @param neighbours
+	 *            Neighbours to fill for each kind and stem
+	 * @param scores
+	 *            Scores to fill for each kind and stem
+	 * @param vectors
+	 *            Pruned association vectors to fill
+	 * @param weights
+	 *            Weights of the pruned association vectors to fill
+	 */
+	private void countPartition(final int partition,
+			final int partitions,
+			final int n,
+			final int[][][] neighbours,
+			final float[][][] scores,
+			final int[][] vectors,
+			final float[][] weights) {
+		final Row[] rows = new Row[(this.stems.length - partition + partitions - 1) / partitions];
+		for (final Document document : this.documents) {
+			for (int a = 0; a < document.stems.length; a++) {
+				final int u = document.stems[a];
+				if (u % partitions != partition) {
+					continue;
+				}
+
+				if (rows[u / partitions] == null) {
+					rows[u / partitions] = new Row();
+				}
+
+				final Row row = rows[u / partitions];
+				final int tfU = document.getTermFreq(a);
+				for (int b = 0; b < document.stems.length; b++) {
+					if (a != b) {
+						final double metric = PositionalIndex.sweep(document.positions, document.offsets[a], tfU, document.positions,
+								document.offsets[b], document.getTermFreq(b), this.window);
+						row.add(document.stems[b], (double) tfU * document.getTermFreq(b), metric);
+					}
+				}
+			}
+		}
+
+		// Normalize and keep the best neighbours of each anchor
+		final int association = ClusterTable.Kind.ASSOCIATION.ordinal();
+		final int metric = ClusterTable.Kind.METRIC.ordinal();
+		for (int slot = 0; slot < rows.length; slot++) {
+			final int u = slot * partitions + partition;
+			final Row row = rows[slot];
+			rows[slot] = null;
+			if (row == null) {
+				neighbours[association][u] = neighbours[metric][u] = vectors[u] = new int[0];
+				scores[association][u] = scores[metric][u] = weights[u] = new float[0];
+				continue;
+			}
+
+			final int[] keys = new int[row.size];
+			final double[] associationScores = new double[row.size];
+			final double[] metricScores = new double[row.size];
+			int k = 0;
+			for (int i = 0; i < row.keys.length; i++) {
+				final int v = row.keys[i];
+				if (v >= 0) {
+					keys[k] = v;
+					associationScores[k] = row.association[i] / (this.self[u] + this.self[v] - row.association[i]);
+					metricScores[k++] = row.metric[i] / ((double) this.variantCount[u] * this.variantCount[v]);
+				}
+			}
+
+			int[] top = top(associationScores, k, n);
+			neighbours[association][u] = select(keys, top);
+			scores[association][u] = select(associationScores, top);
+			top = top(metricScores, k, n);
+			neighbours[metric][u] = select(keys, top);
+			scores[metric][u] = select(metricScores, top);
+			top = top(associationScores, k, Math.max(n, SCALAR_TERMS));
+			vectors[u] = select(keys, top);
+			weights[u] = select(associationScores, top);
+		}
+	}
+
+	/**
+	 * Computes the scalar neighbours of a stem, the cosine of its pruned association vector with those of the stems sharing a neighbour with it
+	 *
+	 * @param u
+	 *            Stem ID
+	 * @param n
+	 *            Number of neighbours to keep
+	 * @param vectors
+	 *            Pruned association vectors
+	 * @param weights
+	 *            Weights of the pruned association vectors
+	 * @param inverted
+	 *            Stems having each stem in their vector
+	 * @param invertedWeights
+	 *            Weights of the inverted entries
+	 * @param norms
+	 *            Norms of the vectors
+	 * @param dot
+	 *            Scratch array of dot products, all zero
+	 * @param touched
+	 *            Scratch array of stem IDs
+	 * @param neighbours
+	 *            Neighbours to fill for each kind and stem
+	 * @param scores
+	 *            Scores to fill for each kind and stem
+	 */
+	private void scalarRow(final int u,
+			final int n,
+			final int[][] vectors,
+			final float[][] weights,
+			final int[][] inverted,
+			final float[][] invertedWeights,
+			final float[] norms,
+			final double[] dot,
+			final int[] touched,
+			final int[][][] neighbours,
+			final float[][][] scores) {
+		// Accumulate dot products through the shared neighbours
+		int count = 0;
+		for (int i = 0; i < vectors[u].length; i++) {
+			final int v = vectors[u][i];
+			for (int j = 0; j < inverted[v].length; j++) {
+				final int x = inverted[v][j];
+				if (x == u) {
+					continue;
+				}
+
+				if (dot[x] == 0.0) {
+					touched[count++] = x;
+				}
+
+				dot[x] += weights[u][i] * invertedWeights[v][j];
+			}
+		}
+
+		// Turn them into cosines, clearing the scratch array
+		final int[] keys = new int[count];
+		final double[] cosines = new double[count];
+		for (int i = 0; i < count; i++) {
+			final int x = touched[i];
+			keys[i] = x;
+			cosines[i] = dot[x] / (norms[u] * norms[x]);
+			dot[x] = 0.0;
+		}
+
+		final int scalar = ClusterTable.Kind.SCALAR.ordinal();
+		final int[] top = top(cosines, count, n);
+		neighbours[scalar][u] = select(keys, top);
+		scores[scalar][u] = select(cosines, top);
+	}
+
+	/**
+	 * Builds the inverted lists of the pruned vectors
+	 *
+	 * @param vectors
+	 *            Pruned association vectors
+	 * @param size
+	 *            Number of stems
+	 * @return For each stem, the stems having it in their vector
+	 */
+	private static int[][] invert(final int[][] vectors, final int size) {
+		final int[] counts = new int[size];
+		for (final int[] vector : vectors) {
+			for (final int v : vector) {
+				counts[v]++;
+			}
+		}
+
+		final int[][] inverted = new int[size][];
+		for (int v = 0; v < size; v++) {
+			inverted[v] = new int[counts[v]];
+			counts[v] = 0;
+		}
+
+		for (int u = 0; u < size; u++) {
+			for (final int v : vectors[u]) {
+				inverted[v][counts[v]++] = u;
+			}
+		}
+
+		return inverted;
+	}
+
+	/**
+	 * Gets the weights of the inverted lists, in the order {@link #invert(int[][], int)} fills them
+	 *
+	 * @param vectors
+	 *            Pruned association vectors
+	 * @param weights
+	 *            Weights of the vectors
+	 * @param inverted
+	 *            Inverted lists
+	 * @param size
+	 *            Number of stems
+	 * @return Weights of the inverted entries
+	 */
+	private static float[][] invert(final int[][] vectors, final float[][] weights, final int[][] inverted, final int size) {
+		final float[][] invertedWeights = new float[size][];
+		final int[] counts = new int[size];
+		for (int v = 0; v < size; v++) {
+			invertedWeights[v] = new float[inverted[v].length];
+		}
+
+		for (int u = 0; u < size; u++) {
+			for (int i = 0; i < vectors[u].length; i++) {
+				final int v = vectors[u][i];
+				invertedWeights[v][counts[v]++] = weights[u][i];
+			}
+		}
+
+		return invertedWeights;
+	}
+
+	/**
+	 * Selects the indexes of the highest scores with a bounded min-heap
+	 *
+	 * @param scores
+	 *            Scores
+	 * @param count
+	 *            Number of scores
+	 * @param n
+	 *            Number of indexes to select
+	 * @return Indexes in descending order of score
+	 */
+	private static int[] top(final double[] scores, final int count, final int n) {
+		final int[] heap = new int[Math.min(n, count)];
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			if (size < heap.length) {
+				// Sift up
+				int position = size++;
+				while (position > 0 && scores[heap[position - 1 >>> 1]] > scores[i]) {
+					heap[position] = heap[position - 1 >>> 1];
+					position = position - 1 >>> 1;
+				}
+
+				heap[position] = i;
+			} else if (size > 0 && scores[i] > scores[heap[0]]) {
+				heap[0] = i;
+				siftDown(heap, size, scores);
+			}
+		}
+
+		// Drain the heap from the worst to the best
+		final int[] top = new int[size];
+		while (size > 0) {
+			top[--size] = heap[0];
+			heap[0] = heap[size];
+			siftDown(heap, size, scores);
+		}
+
+		return top;
+	}
+
+	/**
+	 * @param heap
+	 *            Heap of indexes
+	 * @param size
+	 *            Number of elements in the heap
+	 * @param scores
+	 *            Scores of the indexes
+	 */
+	private static void siftDown(final int[] heap, final int size, final double[] scores) {
+		if (size == 0) {
+			return;
+		}
+
+		final int index = heap[0];
+		int position = 0;
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+				child++;
+			}
+
+			if (scores[index] <= scores[heap[child]]) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		heap[position] = index;
+	}
+
+	/**
+	 * @param values
+	 *            Values
+	 * @param indexes
+	 *            Indexes to select
+	 * @return Selected values
+	 */
+	private static int[] select(final int[] values, final int[] indexes) {
+		final int[] selected = new int[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			selected[i] = values[indexes[i]];
+		}
+
+		return selected;
+	}
+
+	/**
+	 * @param values
+	 *            Values
+	 * @param indexes
+	 *            Indexes to select
+	 * @return Selected values
+	 */
+	private static float[] select(final double[] values, final int[] indexes) {
+		final float[] selected = new float[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			selected[i] = (float) values[indexes[i]];
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Waits for tasks to finish
+	 *
+	 * @param futures
+	 *            Futures of the tasks
+	 * @throws IOException
+	 */
+	private static void waitFor(final List<Future<?>> futures) throws IOException {
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building clusters", e);
+		} catch (final ExecutionException e) {
+			throw new IOException("Failed to build clusters", e.getCause());
+		}
+	}
+
+	/**
+	 * Validates and gets the command line arguments provided
+	 *
+	 * @param args
+	 *            Command-line arguments
+	 * @return Validated arguments
+	 */
+	static CommandLine validateArguments(final String[] args) {
+		// Get options
+		final Options options = new Options();
+		options.addOption("docs", "documents", true, "Folder of the collection to build clusters from");
+		options.addOption("stop", "stopWords", true, "Absolute or relative path to the Stop Words file");
+		options.addOption("wordnet", "wordnet", true, "Absolute or relative path to the WordNet dict folder");
+		options.addOption("output", "output", true, "File to write the cluster table to");
+		options.addOption("top", "top", true, "Number of neighbours to keep per stem and kind (default 10)");
+		options.addOption("minDf", "minDocFreq", true, "Minimum document frequency of a stem (default 2)");
+		options.addOption("window", "window", true, "Largest distance between positions counted for metric clusters (default no limit)");
+		options.addOption("threads", "threads", true, "Number of threads (default number of processors)");
+		options.addOption("partitions", "partitions", true, "Number of partitions of stems, more partitions use less memory (default 4 per thread)");
+
+		// Parse arguments
+		final CommandLineParser commandLineParser = new DefaultParser();
+		CommandLine cmd = null;
+		try {
+			cmd = commandLineParser.parse(options, args, false);
+		} catch (final ParseException e1) {
+			System.out.println("Invalid arguments provided");
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("ClusterBuilder", options);
+			System.exit(1);
+		}
+
+		// Validate
+		if (!cmd.hasOption("docs") || !cmd.hasOption("stop") || !cmd.hasOption("wordnet") || !cmd.hasOption("output")) {
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("ClusterBuilder", options);
+			System.exit(2);
+		}
+
+		return cmd;
+	}
+}
\ No newline at end of file
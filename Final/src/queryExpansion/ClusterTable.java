@@ -0,0 +1,205 @@
+package queryExpansion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precomputed term-correlation neighbours of every stem, for association, metric and scalar clusters. The table is built offline by
+ * {@link ClusterBuilder} and stored as a compact binary file: a string table of the stems, then for each stem and cluster kind the count of neighbours
+ * followed by (stem ID, score) pairs in descending order of score.
+ *
+ * @author Ekal.Golas
+ */
+public class ClusterTable {
+	private static final int			MAGIC	= 0x434c5354;
+	private static final int			VERSION	= 1;
+
+	/**
+	 * Kinds of clusters
+	 */
+	public enum Kind {
+		/** Normalized co-occurrence counts in documents */
+		ASSOCIATION,
+		/** Normalized sum of inverse distances between positions */
+		METRIC,
+		/** Cosine similarity of association neighbourhoods */
+		SCALAR
+	}
+
+	private final String[]				stems;
+	private final Map<String, Integer>	ids;
+	private final int[][][]				neighbours;
+	private final float[][][]			scores;
+
+	/**
+	 * Constructor
+	 *
+	 * @param stems
+	 *            Stems, indexed by stem ID
+	 * @param neighbours
+	 *            Neighbour IDs for each kind and stem
+	 * @param scores
+	 *            Neighbour scores for each kind and stem
+	 */
+	public ClusterTable(final String[] stems, final int[][][] neighbours, final float[][][] scores) {
+		this.stems = stems;
+		this.neighbours = neighbours;
+		this.scores = scores;
+		this.ids = new HashMap<>(stems.length * 4 / 3 + 1);
+		for (int i = 0; i < stems.length; i++) {
+			this.ids.put(stems[i], i);
+		}
+	}
+
+	/**
+	 * Reads a table from disk
+	 *
+	 * @param file
+	 *            Table file
+	 * @return Table
+	 * @throws IOException
+	 */
+	public static ClusterTable read(final File file) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a cluster table: " + file);
+			}
+
+			final String[] stems = new String[input.readInt()];
+			for (int i = 0; i < stems.length; i++) {
+				stems[i] = input.readUTF();
+			}
+
+			final int kinds = Kind.values().length;
+			final int[][][] neighbours = new int[kinds][stems.length][];
+			final float[][][] scores = new float[kinds][stems.length][];
+			for (int i = 0; i < stems.length; i++) {
+				for (int kind = 0; kind < kinds; kind++) {
+					final int count = input.readUnsignedShort();
+					neighbours[kind][i] = new int[count];
+					scores[kind][i] = new float[count];
+					for (int j = 0; j < count; j++) {
+						neighbours[kind][i][j] = input.readInt();
+						scores[kind][i][j] = input.readFloat();
+					}
+				}
+			}
+
+			return new ClusterTable(stems, neighbours, scores);
+		}
+	}
+
+	/**
+	 * Writes the table to disk
+	 *
+	 * @param file
+	 *            Table file
+	 * @throws IOException
+	 */
+	public void write(final File file) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(this.stems.length);
+			for (final String stem : this.stems) {
+				output.writeUTF(stem);
+			}
+
+			for (int i = 0; i < this.stems.length; i++) {
+				for (int kind = 0; kind < this.neighbours.length; kind++) {
+					final int count = Math.min(this.neighbours[kind][i].length, 0xffff);
+					output.writeShort(count);
+					for (int j = 0; j < count; j++) {
+						output.writeInt(this.neighbours[kind][i][j]);
+						output.writeFloat(this.scores[kind][i][j]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the neighbours of a stem
+	 *
+	 * @param stem
+	 *            Stem
+	 * @param kind
+	 *            Kind of cluster
+	 * @param n
+	 *            Maximum number of neighbours
+	 * @return Neighbours in descending order of score, empty if the stem is not in the table
+	 */
+	public List<String> getNeighbours(final String stem, final Kind kind, final int n) {
+		final List<String> list = new ArrayList<>();
+		final Integer id = this.ids.get(stem);
+		if (id != null) {
+			final int[] row = this.neighbours[kind.ordinal()][id];
+			for (int j = 0; j < row.length && j < n; j++) {
+				list.add(this.stems[row[j]]);
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * Expands a query by looking up the top neighbours of each of its stems, leaving out the query stems themselves
+	 *
+	 * @param queryStems
+	 *            Stems of the query
+	 * @param kind
+	 *            Kind of cluster
+	 * @param n
+	 *            Number of neighbours per query stem
+	 * @return Expansion terms in descending order of score
+	 */
+	public List<String> expand(final Collection<String> queryStems, final Kind kind, final int n) {
+		// Gather the neighbours of every query stem
+		final List<int[]> candidates = new ArrayList<>();
+		for (final String stem : queryStems) {
+			final Integer id = this.ids.get(stem);
+			if (id == null) {
+				continue;
+			}
+
+			final int[] row = this.neighbours[kind.ordinal()][id];
+			int taken = 0;
+			for (int j = 0; j < row.length && taken < n; j++) {
+				if (!queryStems.contains(this.stems[row[j]])) {
+					candidates.add(new int[] { id, j });
+					taken++;
+				}
+			}
+		}
+
+		// Order them by score across query stems
+		final float[][] kindScores = this.scores[kind.ordinal()];
+		candidates.sort((a, b) -> Float.compare(kindScores[b[0]][b[1]], kindScores[a[0]][a[1]]));
+		final Set<String> terms = new LinkedHashSet<>();
+		for (final int[] candidate : candidates) {
+			terms.add(this.stems[this.neighbours[kind.ordinal()][candidate[0]][candidate[1]]]);
+		}
+
+		return new ArrayList<>(terms);
+	}
+
+	/**
+	 * @return the number of stems
+	 */
+	public int size() {
+		return this.stems.length;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+package queryExpansion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Bounded cache of query expansions, keyed on the sorted set of query stems so that repeated and reordered queries share an entry. Entries are evicted
+ * least recently used first once the cache is full, and expire after a time to live. All entries are dropped when the version of the feedback index
+ * changes. A cache serves one stop words file and one WordNet dictionary.
+ *
+ * @author Ekal.Golas
+ */
+public class ExpansionCache {
+	private final Parser							parser;
+	private final WordNet							wordnet;
+	private final int								maxSize;
+	private final long								ttl;
+	private final LinkedHashMap<String, Entry>		entries;
+	private long									version;
+	private long									hits;
+	private long									misses;
+	private long									evictions;
+	private long									expirations;
+	private long									invalidations;
+
+	/**
+	 * Cached expansion
+	 */
+	private static class Entry {
+		private final List<String>	terms;
+		private final long			created;
+
+		/**
+		 * Constructor
+		 *
+		 * @param terms
+		 *            Expansion terms
+		 * @param created
+		 *            Time the entry was created in milliseconds
+		 */
+		Entry(final List<String> terms, final long created) {
+			this.terms = terms;
+			this.created = created;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param stopwords
+	 *            Stop words file
+	 * @param wordnet
+	 *            Path to the WordNet dict folder
+	 * @param maxSize
+	 *            Maximum number of entries
+	 * @param ttl
+	 *            Time to live of an entry in milliseconds
+	 * @throws IOException
+	 */
+	public ExpansionCache(final File stopwords, final String wordnet, final int maxSize, final long ttl) throws IOException {
+		this.parser = new Parser(stopwords);
+		this.wordnet = WordNet.get(wordnet);
+		this.maxSize = maxSize;
+		this.ttl = ttl;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Normalizes a query into its cache key, the sorted set of stems of its words, each word reduced by {@link WordNet#getStem(String)}
+	 *
+	 * @param query
+	 *            Query to normalize
+	 * @return Cache key
+	 */
+	public String getKey(final String query) {
+		return getKey(this.parser, this.wordnet, query);
+	}
+
+	/**
+	 * Normalizes a query into its cache key, for expanding a query the same way without a cache
+	 *
+	 * @param parser
+	 *            Parser with the stop words of the cache
+	 * @param wordnet
+	 *            WordNet dictionary of the cache
+	 * @param query
+	 *            Query to normalize
+	 * @return Cache key
+	 */
+	public static String getKey(final Parser parser, final WordNet wordnet, final String query) {
+		final Set<String> stems = new TreeSet<>(parser.getStems(query, wordnet));
+		return String.join(" ", stems);
+	}
+
+	/**
+	 * Gets a cached expansion
+	 *
+	 * @param key
+	 *            Cache key of the query
+	 * @param version
+	 *            Current version of the feedback index
+	 * @return Expansion terms, null if not cached
+	 */
+	public synchronized List<String> get(final String key, final long version) {
+		this.checkVersion(version);
+
+		final Entry entry = this.entries.get(key);
+		if (entry != null && System.currentTimeMillis() - entry.created > this.ttl) {
+			this.entries.remove(key);
+			this.expirations++;
+		} else if (entry != null) {
+			this.hits++;
+			return entry.terms;
+		}
+
+		this.misses++;
+		return null;
+	}
+
+	/**
+	 * Caches an expansion
+	 *
+	 * @param key
+	 *            Cache key of the query
+	 * @param version
+	 *            Version of the feedback index the expansion was computed on
+	 * @param terms
+	 *            Expansion terms
+	 */
+	public synchronized void put(final String key, final long version, final List<String> terms) {
+		this.checkVersion(version);
+		this.entries.put(key, new Entry(terms, System.currentTimeMillis()));
+
+		// Drop expired entries first, then the least recently used ones
+		final long now = System.currentTimeMillis();
+		final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+		while (this.entries.size() > this.maxSize && iterator.hasNext()) {
+			if (now - iterator.next().getValue().created > this.ttl) {
+				iterator.remove();
+				this.expirations++;
+			}
+		}
+
+		final Iterator<String> keys = this.entries.keySet().iterator();
+		while (this.entries.size() > this.maxSize && keys.hasNext()) {
+			keys.next();
+			keys.remove();
+			this.evictions++;
+		}
+	}
+
+	/**
+	 * Drops all entries if the feedback index has changed
+	 *
+	 * @param version
+	 *            Current version of the feedback index
+	 */
+	private void checkVersion(final long version) {
+		if (version != this.version) {
+			this.invalidate();
+			this.version = version;
+		}
+	}
+
+	/**
+	 * Drops all entries
+	 */
+	public synchronized void invalidate() {
+		if (!this.entries.isEmpty()) {
+			this.entries.clear();
+			this.invalidations++;
+		}
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * @return the number of lookups answered from the cache
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * @return the number of lookups not answered from the cache
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * @return the fraction of lookups answered from the cache
+	 */
+	public synchronized double getHitRate() {
+		final long total = this.hits + this.misses;
+		return total == 0 ? 0.0 : this.hits / (double) total;
+	}
+
+	/**
+	 * @return the number of entries evicted to stay within the size
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * @return the number of entries dropped after their time to live
+	 */
+	public synchronized long getExpirations() {
+		return this.expirations;
+	}
+
+	/**
+	 * @return the number of times the cache was cleared
+	 */
+	public synchronized long getInvalidations() {
+		return this.invalidations;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("Expansion cache: %d entries, %d hits, %d misses, hit rate %.1f%%, %d evicted, %d expired, %d invalidations", this.entries.size(),
+				this.hits, this.misses, 100.0 * this.getHitRate(), this.evictions, this.expirations, this.invalidations);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package queryExpansion;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Retrieves the top ranked documents for a query, to be used as pseudo-relevance feedback for query expansion
+ *
+ * @author Ekal.Golas
+ */
+public interface FeedbackRetriever {
+	/**
+	 * Retrieves the top documents for a query
+	 *
+	 * @param query
+	 *            Query string
+	 * @param k
+	 *            Number of documents to retrieve
+	 * @return Content of the top documents, best first
+	 * @throws IOException
+	 */
+	List<String> retrieve(String query, int k) throws IOException;
+
+	/**
+	 * Gets the version of the index behind the retriever, which changes whenever the documents it can return change. Caches of results derived from the
+	 * retriever are dropped when it changes.
+	 *
+	 * @return Version of the index
+	 */
+	default long getVersion() {
+		return 0L;
+	}
+}
\ No newline at end of file
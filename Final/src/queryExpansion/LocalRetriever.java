@@ -0,0 +1,164 @@
+package queryExpansion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retrieves feedback documents in-process from an inverted index over a local collection, ranked by BM25. The collection is indexed once when the
+ * retriever is built, so each query only walks the postings of its own terms.
+ *
+ * @author Ekal.Golas
+ */
+public class LocalRetriever implements FeedbackRetriever {
+	private static final double		K1			= 1.2;
+	private static final double		B			= 0.75;
+	private static final AtomicLong	versions	= new AtomicLong();
+
+	private final Parser			parser;
+	private final Set<String>		stopwords;
+	private final PositionalIndex	index;
+	private final List<String>		documents;
+	private final List<Integer>		lengths;
+	private final double			avgdoclen;
+	private final long				version;
+
+	/**
+	 * Builds the index of a collection
+	 *
+	 * @param root
+	 *            Folder of the collection, one document per file
+	 * @param stopwords
+	 *            Stop words file
+	 * @throws IOException
+	 */
+	public LocalRetriever(final File root, final File stopwords) throws IOException {
+		this.parser = new Parser(stopwords);
+		this.stopwords = this.parser.getStopwords();
+		this.index = new PositionalIndex();
+		this.documents = new ArrayList<>();
+		this.lengths = new ArrayList<>();
+		this.add(root);
+
+		long total = 0;
+		for (final int length : this.lengths) {
+			total += length;
+		}
+
+		this.avgdoclen = this.lengths.isEmpty() ? 0.0 : total / (double) this.lengths.size();
+		this.version = versions.incrementAndGet();
+	}
+
+	/**
+	 * Indexes all the files in the path and its subdirectories
+	 *
+	 * @param file
+	 *            File or folder to index
+	 * @throws IOException
+	 */
+	private void add(final File file) throws IOException {
+		if (file.isDirectory()) {
+			final File[] files = file.listFiles();
+			if (files != null) {
+				for (final File child : files) {
+					this.add(child);
+				}
+			}
+
+			return;
+		}
+
+		// Index the document under its position in the list
+		final String content = new String(Files.readAllBytes(file.toPath()));
+		final int doc = this.documents.size();
+		this.documents.add(content);
+
+		int num = 0;
+		int length = 0;
+		for (final String word : this.parser.transformText(content).split(" ")) {
+			num++;
+			if (this.isTerm(word)) {
+				this.index.add(word, doc, num);
+				length++;
+			}
+		}
+
+		this.lengths.add(length);
+	}
+
+	/**
+	 * @param word
+	 *            Transformed word
+	 * @return true if the word is indexed, with the same rules as {@link Parser}
+	 */
+	private boolean isTerm(final String word) {
+		return word != null && word.length() >= 3 && !this.stopwords.contains(word);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see queryExpansion.FeedbackRetriever#retrieve(java.lang.String, int)
+	 */
+	@Override
+	public List<String> retrieve(final String query, final int k) {
+		final int size = this.documents.size();
+		if (size == 0 || k <= 0) {
+			return Collections.emptyList();
+		}
+
+		// Accumulate BM25 scores over the postings of each query term
+		final double[] scores = new double[size];
+		for (final String word : this.parser.transformText(query).split(" ")) {
+			final PositionalIndex.Postings postings = this.isTerm(word) ? this.index.getPostings(word) : null;
+			if (postings == null) {
+				continue;
+			}
+
+			final int df = postings.getDocFreq();
+			final double idf = Math.log(1.0 + (size - df + 0.5) / (df + 0.5));
+			for (int i = 0; i < df; i++) {
+				final int doc = postings.getDoc(i);
+				final int tf = postings.getPositionCount(i);
+				final double norm = K1 * (1 - B + B * this.lengths.get(doc) / this.avgdoclen);
+				scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+			}
+		}
+
+		// Select the top k documents that matched
+		final List<Integer> ranked = new ArrayList<>();
+		for (int doc = 0; doc < size; doc++) {
+			if (scores[doc] > 0) {
+				ranked.add(doc);
+			}
+		}
+
+		Collections.sort(ranked, (a, b) -> Double.compare(scores[b], scores[a]));
+		final List<String> top = new ArrayList<>();
+		for (int i = 0; i < k && i < ranked.size(); i++) {
+			top.add(this.documents.get(ranked.get(i)));
+		}
+
+		return top;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see queryExpansion.FeedbackRetriever#getVersion()
+	 */
+	@Override
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * @return the number of documents indexed
+	 */
+	public int size() {
+		return this.documents.size();
+	}
+}
\ No newline at end of file
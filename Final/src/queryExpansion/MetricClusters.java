@@ -0,0 +1,163 @@
+package queryExpansion;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import queryExpansion.QueryExpansion.Element;
+
+/**
+ * Query-anchored metric clusters. Only the rows of the correlation matrix for the query stems are computed, into a primitive score array, and each row keeps
+ * its best neighbours in a bounded heap, so expanding a query costs |query| x V correlations instead of V x V.
+ *
+ * @author Ekal.Golas
+ */
+public class MetricClusters {
+	private final PositionalIndex		positionalIndex;
+	private final String[]				stems;
+	private final String[][]			tokens;
+	private final Map<String, Integer>	ids;
+	private final double[]				scores;
+
+	/**
+	 * Constructor
+	 *
+	 * @param positionalIndex
+	 *            Positional index of the documents
+	 * @param stemsMap
+	 *            Map of stems to their tokens
+	 */
+	public MetricClusters(final PositionalIndex positionalIndex, final Map<String, Set<String>> stemsMap) {
+		this.positionalIndex = positionalIndex;
+		this.stems = stemsMap.keySet().toArray(new String[stemsMap.size()]);
+		this.tokens = new String[this.stems.length][];
+		this.ids = new HashMap<>();
+		for (int i = 0; i < this.stems.length; i++) {
+			this.tokens[i] = stemsMap.get(this.stems[i]).toArray(new String[0]);
+			this.ids.putIfAbsent(this.stems[i].toLowerCase(), i);
+		}
+
+		this.scores = new double[this.stems.length];
+	}
+
+	/**
+	 * Gets the stems most correlated with a query stem
+	 *
+	 * @param stem
+	 *            Query stem
+	 * @param excluded
+	 *            Stems to leave out, like the other query stems
+	 * @param n
+	 *            Number of stems to return
+	 * @return Array of n elements in descending order of normalized correlation, padded with null. Stems that are not tokens themselves are represented by
+	 *         one of their tokens. Null if the stem is unknown.
+	 */
+	public Element[] getTopN(final String stem, final Set<String> excluded, final int n) {
+		final Integer id = this.ids.get(stem.toLowerCase());
+		if (id == null) {
+			return null;
+		}
+
+		// Compute the normalized correlation of the row
+		final int i = id;
+		final int[] heap = new int[n];
+		int size = 0;
+		for (int j = 0; j < this.stems.length; j++) {
+			if (i == j || excluded.contains(this.stems[j]) && !this.stems[j].equals(stem)) {
+				continue;
+			}
+
+			double cuv = 0.0;
+			for (final String string1 : this.tokens[i]) {
+				for (final String string2 : this.tokens[j]) {
+					cuv += this.positionalIndex.inverseDistanceSum(string1, string2);
+				}
+			}
+
+			this.scores[j] = cuv / (this.tokens[i].length * this.tokens[j].length);
+
+			// Keep the best n, the worst of them at the root
+			if (size < n) {
+				heap[size] = j;
+				this.siftUp(heap, size++);
+			} else if (n > 0 && this.scores[j] > this.scores[heap[0]]) {
+				heap[0] = j;
+				this.siftDown(heap, size);
+			}
+		}
+
+		// Drain the heap from the worst to the best
+		final Element[] elements = new Element[n];
+		while (size > 0) {
+			final int j = heap[0];
+			final String v = this.positionalIndex.getPostings(this.stems[j]) != null ? this.stems[j] : this.tokens[j][0];
+			elements[--size] = new Element(this.stems[i], v, this.scores[j]);
+			heap[0] = heap[size];
+			this.siftDown(heap, size);
+		}
+
+		return elements;
+	}
+
+	/**
+	 * @param heap
+	 *            Heap of stem IDs
+	 * @param position
+	 *            Position of the new element
+	 */
+	private void siftUp(final int[] heap, int position) {
+		final int j = heap[position];
+		while (position > 0) {
+			final int parent = position - 1 >>> 1;
+			if (this.scores[heap[parent]] <= this.scores[j]) {
+				break;
+			}
+
+			heap[position] = heap[parent];
+			position = parent;
+		}
+
+		heap[position] = j;
+	}
+
+	/**
+	 * @param heap
+	 *            Heap of stem IDs
+	 * @param size
+	 *            Number of elements in the heap
+	 */
+	private void siftDown(final int[] heap, final int size) {
+		if (size == 0) {
+			return;
+		}
+
+		final int j = heap[0];
+		int position = 0;
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && this.scores[heap[child + 1]] < this.scores[heap[child]]) {
+				child++;
+			}
+
+			if (this.scores[j] <= this.scores[heap[child]]) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		heap[position] = j;
+	}
+
+	/**
+	 * @return the number of stems
+	 */
+	public int size() {
+		return this.stems.length;
+	}
+}
\ No newline at end of file
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,7 +23,8 @@ public class Parser {
 	private final LinkedHashMap<String, Map<Integer, Integer>>	tokenMap;
 	private final Set<String>									stopwords;
 	private final List<HashMap<String, Integer>>				documentMap;
-	private static int											index;
+	private final PositionalIndex								positionalIndex;
+	private int													index;
 
 	/**
 	 * Default constructor
@@ -36,6 +38,7 @@ public class Parser {
 		this.tokenMap = new LinkedHashMap<>();
 		this.stopwords = new HashSet<>();
 		this.documentMap = new ArrayList<>();
+		this.positionalIndex = new PositionalIndex();
 		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
 			for (String line; (line = reader.readLine()) != null;) {
 				this.stopwords.add(line.trim());
@@ -73,7 +76,7 @@ public class Parser {
 		// Create document map
 		this.documentMap.add(new HashMap<String, Integer>());
 
-		index++;
+		this.index++;
 		int num = 0;
 		// Transform the word in order to tokenize it
 		final String line = this.transformText(string);
@@ -93,8 +96,9 @@ public class Parser {
 				this.tokenMap.put(word, new HashMap<Integer, Integer>());
 			}
 
-			this.tokenMap.get(word).put(index, num);
-			this.documentMap.get(index - 1).put(word, this.documentMap.get(index - 1).getOrDefault(word, 0) + 1);
+			this.tokenMap.get(word).put(this.index, num);
+			this.positionalIndex.add(word, this.index, num);
+			this.documentMap.get(this.index - 1).put(word, this.documentMap.get(this.index - 1).getOrDefault(word, 0) + 1);
 		}
 	}
 
@@ -139,6 +143,26 @@ public class Parser {
 		return text;
 	}
 
+	/**
+	 * Gets the stems of the words of a query, leaving out stop words
+	 *
+	 * @param query
+	 *            Query
+	 * @param wordnet
+	 *            WordNet to stem with
+	 * @return Stems in the order of the query
+	 */
+	public Set<String> getStems(final String query, final WordNet wordnet) {
+		final Set<String> stems = new LinkedHashSet<>();
+		for (final String word : this.transformText(query).split(" ")) {
+			if (!word.isEmpty() && !this.stopwords.contains(word)) {
+				stems.add(wordnet.getStem(word));
+			}
+		}
+
+		return stems;
+	}
+
 	/**
 	 * @return the token map
 	 */
@@ -146,6 +170,20 @@ public class Parser {
 		return this.tokenMap;
 	}
 
+	/**
+	 * @return the stop words
+	 */
+	public final Set<String> getStopwords() {
+		return this.stopwords;
+	}
+
+	/**
+	 * @return the positional index, with every position of each word
+	 */
+	public final PositionalIndex getPositionalIndex() {
+		return this.positionalIndex;
+	}
+
 	/**
 	 * @return the documentMap
 	 */
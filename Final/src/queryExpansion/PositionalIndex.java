@@ -0,0 +1,303 @@
+package queryExpansion;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Positional index keeping every position of a word in every document. Each word has one postings list: the ascending document numbers, and for each
+ * document its positions as a delta-encoded run in a shared int array (the first position absolute, the rest as gaps from the previous one).
+ *
+ * @author Ekal.Golas
+ */
+public class PositionalIndex {
+	private final Map<String, Postings>	postings;
+
+	/**
+	 * Postings list of a word. Documents and positions must be added in ascending order, which is the order the parser reads them in.
+	 */
+	public static class Postings {
+		private int[]	docs;
+		private int[]	offsets;
+		private int[]	positions;
+		private int		docCount;
+		private int		positionCount;
+		private int		lastPosition;
+
+		/**
+		 * Default constructor
+		 */
+		Postings() {
+			this.docs = new int[4];
+			this.offsets = new int[5];
+			this.positions = new int[8];
+		}
+
+		/**
+		 * Adds a position of the word
+		 *
+		 * @param doc
+		 *            Document number
+		 * @param position
+		 *            Position of the word in the document
+		 */
+		void add(final int doc, final int position) {
+			// Start a new run for a new document
+			if (this.docCount == 0 || this.docs[this.docCount - 1] != doc) {
+				if (this.docCount == this.docs.length) {
+					this.docs = grow(this.docs, this.docs.length * 2);
+					this.offsets = grow(this.offsets, this.docs.length + 1);
+				}
+
+				this.docs[this.docCount++] = doc;
+				this.lastPosition = 0;
+			}
+
+			if (this.positionCount == this.positions.length) {
+				this.positions = grow(this.positions, this.positions.length * 2);
+			}
+
+			this.positions[this.positionCount++] = position - this.lastPosition;
+			this.offsets[this.docCount] = this.positionCount;
+			this.lastPosition = position;
+		}
+
+		/**
+		 * @return the number of documents containing the word
+		 */
+		public int getDocFreq() {
+			return this.docCount;
+		}
+
+		/**
+		 * @return the number of occurrences of the word
+		 */
+		public int getTermFreq() {
+			return this.positionCount;
+		}
+
+		/**
+		 * @param i
+		 *            Index of the document in the postings list
+		 * @return Document number
+		 */
+		public int getDoc(final int i) {
+			return this.docs[i];
+		}
+
+		/**
+		 * Decodes the positions of a document into a buffer
+		 *
+		 * @param i
+		 *            Index of the document in the postings list
+		 * @param buffer
+		 *            Buffer to decode into, replaced if it is too small
+		 * @return Buffer holding the absolute positions from index 0
+		 */
+		public int[] decode(final int i, int[] buffer) {
+			final int from = this.offsets[i];
+			final int length = this.offsets[i + 1] - from;
+			if (buffer.length < length) {
+				buffer = new int[length];
+			}
+
+			int position = 0;
+			for (int k = 0; k < length; k++) {
+				position += this.positions[from + k];
+				buffer[k] = position;
+			}
+
+			return buffer;
+		}
+
+		/**
+		 * @param i
+		 *            Index of the document in the postings list
+		 * @return Number of positions of the word in the document
+		 */
+		public int getPositionCount(final int i) {
+			return this.offsets[i + 1] - this.offsets[i];
+		}
+	}
+
+	/**
+	 * Default constructor
+	 */
+	public PositionalIndex() {
+		this.postings = new HashMap<>();
+	}
+
+	/**
+	 * Adds a position of a word
+	 *
+	 * @param word
+	 *            Word
+	 * @param doc
+	 *            Document number
+	 * @param position
+	 *            Position of the word in the document
+	 */
+	public void add(final String word, final int doc, final int position) {
+		Postings list = this.postings.get(word);
+		if (list == null) {
+			list = new Postings();
+			this.postings.put(word, list);
+		}
+
+		list.add(doc, position);
+	}
+
+	/**
+	 * @param word
+	 *            Word
+	 * @return Postings list of the word, null if the word is not indexed
+	 */
+	public Postings getPostings(final String word) {
+		return this.postings.get(word);
+	}
+
+	/**
+	 * Computes the metric correlation of two words, the sum of 1 / |pos_u - pos_v| over every pair of positions in every document containing both
+	 *
+	 * @param u
+	 *            First word
+	 * @param v
+	 *            Second word
+	 * @return Sum of inverse distances
+	 */
+	public double inverseDistanceSum(final String u, final String v) {
+		return this.inverseDistanceSum(u, v, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Computes the metric correlation of two words, only counting pairs of positions at most a window apart
+	 *
+	 * @param u
+	 *            First word
+	 * @param v
+	 *            Second word
+	 * @param window
+	 *            Largest distance to count
+	 * @return Sum of inverse distances
+	 */
+	public double inverseDistanceSum(final String u, final String v, final int window) {
+		final Postings uList = this.postings.get(u);
+		final Postings vList = this.postings.get(v);
+		if (uList == null || vList == null) {
+			return 0.0;
+		}
+
+		// Intersect the document lists
+		double sum = 0.0;
+		int[] uPositions = new int[16];
+		int[] vPositions = new int[16];
+		int i = 0;
+		int j = 0;
+		while (i < uList.docCount && j < vList.docCount) {
+			if (uList.docs[i] < vList.docs[j]) {
+				i++;
+			} else if (uList.docs[i] > vList.docs[j]) {
+				j++;
+			} else {
+				uPositions = uList.decode(i, uPositions);
+				vPositions = vList.decode(j, vPositions);
+				sum += sweep(uPositions, uList.getPositionCount(i), vPositions, vList.getPositionCount(j), window);
+				i++;
+				j++;
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Sums 1 / |a - b| over all pairs of two sorted position lists. The lists are merged in position order, and each position is paired with the positions
+	 * of the other list already passed, walking back only as far as the window, so every pair is visited once and far pairs are not visited at all.
+	 *
+	 * @param a
+	 *            Ascending positions of the first word
+	 * @param aLength
+	 *            Number of positions of the first word
+	 * @param b
+	 *            Ascending positions of the second word
+	 * @param bLength
+	 *            Number of positions of the second word
+	 * @param window
+	 *            Largest distance to count
+	 * @return Sum of inverse distances
+	 */
+	public static double sweep(final int[] a, final int aLength, final int[] b, final int bLength, final int window) {
+		return sweep(a, 0, aLength, b, 0, bLength, window);
+	}
+
+	/**
+	 * Sums 1 / |a - b| over all pairs of two sorted runs of positions held in larger arrays
+	 *
+	 * @param a
+	 *            Array holding the ascending positions of the first word
+	 * @param aFrom
+	 *            Index of the first position of the first word
+	 * @param aLength
+	 *            Number of positions of the first word
+	 * @param b
+	 *            Array holding the ascending positions of the second word
+	 * @param bFrom
+	 *            Index of the first position of the second word
+	 * @param bLength
+	 *            Number of positions of the second word
+	 * @param window
+	 *            Largest distance to count
+	 * @return Sum of inverse distances
+	 */
+	public static double sweep(final int[] a, final int aFrom, final int aLength, final int[] b, final int bFrom, final int bLength, final int window) {
+		double sum = 0.0;
+		final int aEnd = aFrom + aLength;
+		final int bEnd = bFrom + bLength;
+		int i = aFrom;
+		int j = bFrom;
+		while (i < aEnd || j < bEnd) {
+			if (j == bEnd || i < aEnd && a[i] < b[j]) {
+				// a[i] comes next, pair it with the positions of b before it
+				for (int k = j - 1; k >= bFrom && a[i] - b[k] <= window; k--) {
+					if (a[i] != b[k]) {
+						sum += 1.0 / (a[i] - b[k]);
+					}
+				}
+
+				i++;
+			} else {
+				// b[j] comes next, pair it with the positions of a before it
+				for (int k = i - 1; k >= aFrom && b[j] - a[k] <= window; k--) {
+					if (b[j] != a[k]) {
+						sum += 1.0 / (b[j] - a[k]);
+					}
+				}
+
+				j++;
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * @return the number of indexed words
+	 */
+	public int size() {
+		return this.postings.size();
+	}
+
+	/**
+	 * Helper to grow an array
+	 *
+	 * @param array
+	 *            Array to grow
+	 * @param length
+	 *            New length
+	 * @return Copy of the array with the new length
+	 */
+	private static int[] grow(final int[] array, final int length) {
+		final int[] grown = new int[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
\ No newline at end of file
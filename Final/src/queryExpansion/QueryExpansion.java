@@ -3,9 +3,7 @@ package queryExpansion;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,8 +13,8 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -24,10 +22,6 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.apache.commons.io.IOUtils;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  * Class to gather information about tokens in the Cranfield database
@@ -42,37 +36,160 @@ public class QueryExpansion
 	 * @param args
 	 *            Command line arguments
 	 * @throws IOException
-	 * @throws JSONException
 	 */
-	public static void main(final String args[]) throws IOException, JSONException
+	public static void main(final String args[]) throws IOException
 	{
 		// Validate command line arguments
 		final CommandLine cmd = validateArguments(args);
 		final File stopwords = new File(cmd.getOptionValue("stop"));
-		final String wordnet = "F:\\home\\ekal\\Softwares\\NLP\\WordNet-3.0\\dict";
+		final String wordnet = cmd.getOptionValue("wordnet", "F:\\home\\ekal\\Softwares\\NLP\\WordNet-3.0\\dict");
+		final List<String> queries = new ArrayList<>();
+		if (cmd.hasOption("queries")) {
+			for (final String line : Files.readAllLines(new File(cmd.getOptionValue("queries")).toPath())) {
+				if (!line.trim().isEmpty()) {
+					queries.add(line.trim());
+				}
+			}
+		} else {
+			queries.add(cmd.getOptionValue("query", "dr strange"));
+		}
+
+		// Look the expansions up in a precomputed cluster table if one is given
+		if (cmd.hasOption("clusters")) {
+			expandFromTable(cmd, stopwords, wordnet, queries);
+			return;
+		}
+
+		// Retrieve feedback documents from the local collection, or from Solr if asked to
+		long start = System.currentTimeMillis();
+		final FeedbackRetriever retriever = cmd.hasOption("docs") ? new LocalRetriever(new File(cmd.getOptionValue("docs")), stopwords)
+				: new SolrRetriever(cmd.getOptionValue("solr", SolrRetriever.DEFAULT_URL));
+		System.out.println("Time taken to open the collection: " + (System.currentTimeMillis() - start) + " ms");
+		System.out.println("Time taken to load WordNet: " + WordNet.get(wordnet).getLoadTime() + " ms");
+
+		// Expand each query through the cache
+		final ExpansionCache cache = new ExpansionCache(stopwords, wordnet, Integer.parseInt(cmd.getOptionValue("cacheSize", "1000")),
+				TimeUnit.SECONDS.toMillis(Long.parseLong(cmd.getOptionValue("cacheTtl", "600"))));
+		for (final String query : queries) {
+			start = System.currentTimeMillis();
+			final String expanded = getExpandedQueryString(cache, retriever, stopwords, query, wordnet);
+			System.out.println("\nTime taken: " + (System.currentTimeMillis() - start) + " ms\n");
+			System.out.println(expanded);
+		}
+
+		System.out.println("\n" + cache);
+	}
 
-		final String query = "dr strange";
-		final long start = System.currentTimeMillis();
-		final String expanded = getExpandedQueryString(stopwords, query, wordnet);
-		System.out.println("Time taken: " + (System.currentTimeMillis() - start) + " ms\n");
-		System.out.println(expanded);
+	/**
+	 * Expands queries with the top 3 neighbours of each query stem in a cluster table built by {@link ClusterBuilder}
+	 *
+	 * @param cmd
+	 *            Command line arguments
+	 * @param stopwords
+	 *            Stop words file
+	 * @param wordnet
+	 *            Path to the WordNet dict folder
+	 * @param queries
+	 *            Queries to expand
+	 * @throws IOException
+	 */
+	private static void expandFromTable(final CommandLine cmd, final File stopwords, final String wordnet, final List<String> queries) throws IOException {
+		long start = System.currentTimeMillis();
+		final ClusterTable table = ClusterTable.read(new File(cmd.getOptionValue("clusters")));
+		final ClusterTable.Kind kind = ClusterTable.Kind.valueOf(cmd.getOptionValue("kind", "metric").toUpperCase());
+		final Parser parser = new Parser(stopwords);
+		final WordNet dictionary = WordNet.get(wordnet);
+		System.out.println("Time taken to load " + table.size() + " stems: " + (System.currentTimeMillis() - start) + " ms");
+
+		for (final String query : queries) {
+			start = System.nanoTime();
+			final List<String> terms = table.expand(parser.getStems(query, dictionary), kind, 3);
+			System.out.println("\nTime taken: " + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " us\n");
+			System.out.println(query + " " + String.join(" ", terms));
+		}
 	}
 
 	/**
+	 * Expands a query by the stems of its words, reusing the expansion of an earlier query with the same stems. Feedback documents are retrieved for
+	 * the cache key of the query, its sorted WordNet stems joined by spaces, rather than for the words as typed, and the clusters are built around
+	 * those stems, so that every query with the same stems gets the same expansion whether it is cached or not.
+	 *
+	 * @param cache
+	 *            Expansion cache
+	 * @param retriever
+	 *            Retriever of the feedback documents
 	 * @param stopwords
 	 * @param query
 	 * @return
 	 * @throws IOException
-	 * @throws MalformedURLException
-	 * @throws JSONException
 	 * @throws FileNotFoundException
 	 */
-	public static String getExpandedQueryString(final File stopwords, final String query, final String wordnet)
+	public static String getExpandedQueryString(final ExpansionCache cache,
+			final FeedbackRetriever retriever,
+			final File stopwords,
+			final String query,
+			final String wordnet)
 			throws IOException,
-			MalformedURLException,
-			JSONException,
 			FileNotFoundException {
-		final Element[][] elements = getExpandedQuery(stopwords, query, wordnet);
+		final String key = cache.getKey(query);
+		final long version = retriever.getVersion();
+		List<String> terms = cache.get(key, version);
+		if (terms == null) {
+			terms = Collections.unmodifiableList(expandStems(retriever, stopwords, key, wordnet));
+			cache.put(key, version, terms);
+		}
+
+		return query + " " + String.join(" ", terms);
+	}
+
+	/**
+	 * Expands a query by the stems of its words without a cache, the same way as
+	 * {@link #getExpandedQueryString(ExpansionCache, FeedbackRetriever, File, String, String)}
+	 *
+	 * @param retriever
+	 *            Retriever of the feedback documents
+	 * @param stopwords
+	 * @param query
+	 * @return
+	 * @throws IOException
+	 * @throws FileNotFoundException
+	 */
+	public static String getExpandedQueryString(final FeedbackRetriever retriever, final File stopwords, final String query, final String wordnet)
+			throws IOException,
+			FileNotFoundException {
+		final String stems = ExpansionCache.getKey(new Parser(stopwords), WordNet.get(wordnet), query);
+		return query + " " + String.join(" ", expandStems(retriever, stopwords, stems, wordnet));
+	}
+
+	/**
+	 * @param retriever
+	 *            Retriever of the feedback documents
+	 * @param stopwords
+	 * @param stems
+	 *            Sorted stems of a query joined by spaces, as given by {@link ExpansionCache#getKey(String)}
+	 * @return Expansion terms, none for a query of stop words only
+	 * @throws IOException
+	 */
+	private static List<String> expandStems(final FeedbackRetriever retriever, final File stopwords, final String stems, final String wordnet)
+			throws IOException {
+		return stems.isEmpty() ? Collections.<String> emptyList() : getExpansionTerms(retriever, stopwords, stems, wordnet);
+	}
+
+	/**
+	 * Gets the terms to expand a query with, best first
+	 *
+	 * @param retriever
+	 *            Retriever of the feedback documents
+	 * @param stopwords
+	 * @param query
+	 * @return
+	 * @throws IOException
+	 * @throws FileNotFoundException
+	 */
+	public static List<String> getExpansionTerms(final FeedbackRetriever retriever, final File stopwords, final String query, final String wordnet)
+			throws IOException,
+			FileNotFoundException {
+		final Element[][] elements = getExpandedQuery(retriever, stopwords, query, wordnet);
 
 		final List<Element> list = new ArrayList<>();
 		for (final Element[] elements2 : elements) {
@@ -95,44 +212,23 @@ public class QueryExpansion
 			set.add(list.get(i).v);
 		}
 
-		return query + " " + String.join(" ", set);
+		return new ArrayList<>(set);
 	}
 
 	/**
+	 * @param retriever
+	 *            Retriever of the feedback documents
 	 * @param stopwords
 	 * @param query
 	 * @return
 	 * @throws IOException
-	 * @throws MalformedURLException
-	 * @throws JSONException
 	 * @throws FileNotFoundException
 	 */
-	public static Element[][] getExpandedQuery(final File stopwords, final String query, final String wordnet)
+	public static Element[][] getExpandedQuery(final FeedbackRetriever retriever, final File stopwords, final String query, final String wordnet)
 			throws IOException,
-			MalformedURLException,
-			JSONException,
 			FileNotFoundException {
-		final InputStream inputStream = new URL("http://ec2-54-191-183-57.us-west-2.compute.amazonaws.com:8983/solr/collection1/select?q=title%3A" +
-				String.join("+", query.split(" ")) + "~10&wt=json&indent=true").openStream();
-
-		String parsed = "";
-		try {
-			parsed = IOUtils.toString(inputStream);
-		} finally {
-			IOUtils.closeQuietly(inputStream);
-		}
-
-		final JSONObject json = new JSONObject(parsed);
-		final JSONArray arr = json.getJSONObject("response").getJSONArray("docs");
-		final String[] documents = new String[10];
-		for (int i = 0; i < 10; i++)
-		{
-			try {
-				documents[i] = arr.getJSONObject(i).getString("content");
-			} catch (final Exception e) {
-				break;
-			}
-		}
+		final List<String> feedback = retriever.retrieve(query, 10);
+		final String[] documents = feedback.toArray(new String[feedback.size()]);
 
 		// Call document parser
 		final Parser parser = new Parser(stopwords);
@@ -145,109 +241,32 @@ public class QueryExpansion
 		stemming.stem(tokenMap);
 		final Map<String, Set<String>> stemsMap = stemming.getStemsMap();
 
-		return metricClusters(tokenMap, stemsMap, query);
-	}
-
-	/**
-	 * @param tokenMap
-	 * @param stemsMap
-	 * @return
-	 */
-	public static Element[][] metricClusters(final HashMap<String, Map<Integer, Integer>> tokenMap, final Map<String, Set<String>> stemsMap, final String query) {
-		final Element[][] matrix = new Element[stemsMap.size()][stemsMap.size()];
-		final String[] stems = stemsMap.keySet().toArray(new String[stemsMap.size()]);
-		for (int i = 0; i < stems.length; i++) {
-			for (int j = 0; j < stems.length; j++) {
-				if (i == j) {
-					continue;
-				}
-
-				double cuv = 0.0;
-				final Set<String> iStrings = stemsMap.get(stems[i]);
-				final Set<String> jStrings = stemsMap.get(stems[j]);
-				for (final String string1 : iStrings) {
-					for (final String string2 : jStrings) {
-						final Map<Integer, Integer> iMap = tokenMap.get(string1);
-						final Map<Integer, Integer> jMap = tokenMap.get(string2);
-						for (final Integer integer : iMap.keySet()) {
-							if (jMap.containsKey(integer)) {
-								cuv += 1.0 / Math.abs(iMap.get(integer) - jMap.get(integer));
-							}
-						}
-					}
-				}
-
-				matrix[i][j] = new Element(stems[i], stems[j], cuv);
-			}
-		}
-
-		final Element[][] norm = new Element[stemsMap.size()][stemsMap.size()];
-		for (int i = 0; i < stems.length; i++) {
-			for (int j = 0; j < stems.length; j++) {
-				if (i == j) {
-					continue;
-				}
-
-				double cuv = 0.0;
-				if (matrix[i][j] != null) {
-					cuv = matrix[i][j].value / (stemsMap.get(stems[i]).size() * stemsMap.get(stems[j]).size());
-				}
-
-				norm[i][j] = new Element(stems[i], stems[j], cuv);
-			}
-		}
-
-		return printTopN(norm, stems, query, tokenMap, stemsMap);
+		return metricClusters(parser.getPositionalIndex(), stemsMap, query);
 	}
 
 	/**
-	 * @param metric
-	 * @param stems
+	 * Gets the top 3 metric clusters of each query stem. Only the rows of the query stems are computed.
+	 *
+	 * @param positionalIndex
+	 *            Positional index of the feedback documents
 	 * @param stemsMap
-	 * @param tokenMap
-	 * @return
+	 *            Map of stems to their tokens
+	 * @param query
+	 *            Query to expand
+	 * @return Top 3 elements for each query word
 	 */
-	static Element[][] printTopN(final Element[][] metric,
-			final String[] stems,
-			final String query,
-			final HashMap<String, Map<Integer, Integer>> tokenMap,
-			final Map<String, Set<String>> stemsMap) {
+	public static Element[][] metricClusters(final PositionalIndex positionalIndex, final Map<String, Set<String>> stemsMap, final String query) {
 		final Set<String> strings = new HashSet<>();
 		strings.addAll(Arrays.asList(query.split(" ")));
 
+		final MetricClusters clusters = new MetricClusters(positionalIndex, stemsMap);
 		final Element[][] elements = new Element[strings.size()][3];
 		int index = 0;
 		for (final String string : strings) {
-			final PriorityQueue<Element> queue = new PriorityQueue<>(3, new Comparator<Element>() {
-
-				@Override
-				public int compare(final Element o1, final Element o2) {
-					return o1.value >= o2.value ? 1 : -1;
-				}
-			});
-
-			final int i = find(stems, string);
-			if (i == -1) {
-				continue;
+			final Element[] row = clusters.getTopN(string, strings, 3);
+			if (row != null) {
+				elements[index++] = row;
 			}
-
-			for (int j = 0; j < metric[i].length; j++) {
-				if (metric[i][j] == null || strings.contains(metric[i][j].u) && !metric[i][j].u.equals(string) || strings.contains(metric[i][j].v) &&
-						!metric[i][j].v.equals(string)) {
-					continue;
-				}
-
-				if (tokenMap.containsKey(metric[i][j].v)) {
-					queue.add(metric[i][j]);
-				} else {
-					queue.add(new Element(metric[i][j].u, stemsMap.get(metric[i][j].v).iterator().next(), metric[i][j].value));
-				}
-				if (queue.size() > 3) {
-					queue.poll();
-				}
-			}
-
-			elements[index++] = queue.toArray(new Element[3]);
 		}
 
 		return elements;
@@ -294,6 +313,15 @@ public class QueryExpansion
 		// Get options
 		final Options options = new Options();
 		options.addOption("stop", "stopWords", true, "Absolute or relative path to the Stop Words file");
+		options.addOption("query", "query", true, "Query to expand (default \"dr strange\")");
+		options.addOption("queries", "queriesFile", true, "File of queries to expand, one per line");
+		options.addOption("cacheSize", "cacheSize", true, "Maximum number of cached expansions (default 1000)");
+		options.addOption("cacheTtl", "cacheTtl", true, "Time to live of a cached expansion in seconds (default 600)");
+		options.addOption("clusters", "clusterTable", true, "Cluster table built by ClusterBuilder to look expansions up in, instead of retrieving documents");
+		options.addOption("kind", "clusterKind", true, "Kind of clusters to look up: association, metric or scalar (default metric)");
+		options.addOption("wordnet", "wordnet", true, "Absolute or relative path to the WordNet dict folder");
+		options.addOption("docs", "documents", true, "Folder of the local collection to retrieve feedback documents from");
+		options.addOption("solr", "solr", true, "URL of a Solr collection to retrieve feedback documents from, when no local collection is given");
 
 		// Parse arguments
 		final CommandLineParser commandLineParser = new DefaultParser();
@@ -0,0 +1,69 @@
+package queryExpansion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Retrieves feedback documents from a remote Solr collection, matching the query against the title field
+ *
+ * @author Ekal.Golas
+ */
+public class SolrRetriever implements FeedbackRetriever {
+	/** Collection the expansion was originally run against */
+	public static final String	DEFAULT_URL	= "http://ec2-54-191-183-57.us-west-2.compute.amazonaws.com:8983/solr/collection1";
+
+	private final String		url;
+
+	/**
+	 * Constructor
+	 *
+	 * @param url
+	 *            URL of the Solr collection
+	 */
+	public SolrRetriever(final String url) {
+		this.url = url;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see queryExpansion.FeedbackRetriever#retrieve(java.lang.String, int)
+	 */
+	@Override
+	public List<String> retrieve(final String query, final int k) throws IOException {
+		final InputStream inputStream = new URL(this.url + "/select?q=title%3A" + String.join("+", query.split(" ")) + "~10&wt=json&indent=true")
+				.openStream();
+
+		String parsed = "";
+		try {
+			parsed = IOUtils.toString(inputStream);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+
+		final List<String> documents = new ArrayList<>();
+		try {
+			final JSONObject json = new JSONObject(parsed);
+			final JSONArray arr = json.getJSONObject("response").getJSONArray("docs");
+			for (int i = 0; i < k && i < arr.length(); i++) {
+				try {
+					documents.add(arr.getJSONObject(i).getString("content"));
+				} catch (final JSONException e) {
+					// Stop at the first document without content
+					break;
+				}
+			}
+		} catch (final JSONException e) {
+			throw new IOException("Invalid response from Solr", e);
+		}
+
+		return documents;
+	}
+}
\ No newline at end of file
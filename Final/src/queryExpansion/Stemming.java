@@ -1,6 +1,5 @@
 package queryExpansion;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -9,23 +8,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import edu.mit.jwi.Dictionary;
 import edu.mit.jwi.item.POS;
-import edu.mit.jwi.morph.WordnetStemmer;
 
 /**
  * @author Ekal.Golas
  */
 public class Stemming {
 	private final Map<String, Set<String>>	stemsMap;
-	private final WordnetStemmer			stemmer;
+	private final WordNet					wordnet;
 	private final Set<String>				unstemmedSet;
 
 	public Stemming(final String wordnet, final String query) throws IOException {
 		this.stemsMap = new HashMap<>();
-		final Dictionary dict = new Dictionary(new File(wordnet));
-		dict.open();
-		this.stemmer = new WordnetStemmer(dict);
+		this.wordnet = WordNet.get(wordnet);
 
 		this.unstemmedSet = new HashSet<>();
 		this.unstemmedSet.addAll(Arrays.asList(query.split(" ")));
@@ -52,14 +47,14 @@ public class Stemming {
 			}
 
 			for (final POS pos : values) {
-				stems.addAll(this.stemmer.findStems(string1, pos));
+				stems.addAll(this.wordnet.findStems(string1, pos));
 			}
 		}
 
 		for (final String string1 : keySet) {
 			boolean found = false;
 			for (final POS pos : values) {
-				final List<String> findStems = this.stemmer.findStems(string1, pos);
+				final List<String> findStems = this.wordnet.findStems(string1, pos);
 				for (final String string : findStems) {
 					if (stems.contains(string)) {
 						found = true;
@@ -0,0 +1,270 @@
+package queryExpansion;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.mit.jwi.item.POS;
+import edu.mit.jwi.morph.SimpleStemmer;
+
+/**
+ * Process-wide WordNet morphology. The lemmas of each part of speech and the exception lists are read once from the dict folder into memory and shared,
+ * and the stems of every (word, part of speech) pair are memoized, so repeated expansions neither touch the disk nor run the stemmer again. Stems are the
+ * same as JWI's WordnetStemmer gives: exception roots first, then the word itself and the suffix stripped candidates that are WordNet lemmas. Safe for use
+ * from many threads.
+ *
+ * @author Ekal.Golas
+ */
+public class WordNet {
+	private static final Map<String, WordNet>			instances	= new ConcurrentHashMap<>();
+	private static final POS[]							POS_ORDER	= new POS[] { POS.NOUN, POS.VERB, POS.ADJECTIVE, POS.ADVERB };
+
+	private final Map<POS, Set<String>>					lemmas;
+	private final Map<POS, Map<String, List<String>>>	exceptions;
+	private final SimpleStemmer							stemmer;
+	private final Map<POS, Map<String, List<String>>>	memo;
+	private final LongAdder								hits;
+	private final LongAdder								misses;
+	private final long									loadTime;
+
+	/**
+	 * Loads the index and exception files of a dict folder
+	 *
+	 * @param path
+	 *            Path to the WordNet dict folder
+	 * @throws IOException
+	 */
+	private WordNet(final String path) throws IOException {
+		final long start = System.currentTimeMillis();
+		this.lemmas = new EnumMap<>(POS.class);
+		this.exceptions = new EnumMap<>(POS.class);
+		this.memo = new EnumMap<>(POS.class);
+		for (final POS pos : POS.values()) {
+			this.lemmas.put(pos, readLemmas(new File(path, "index." + getSuffix(pos))));
+			this.exceptions.put(pos, readExceptions(new File(path, getSuffix(pos) + ".exc")));
+			this.memo.put(pos, new ConcurrentHashMap<String, List<String>>());
+		}
+
+		this.stemmer = new SimpleStemmer();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.loadTime = System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Gets the shared instance of a dictionary, loading it on first use
+	 *
+	 * @param path
+	 *            Path to the WordNet dict folder
+	 * @return Shared instance
+	 * @throws IOException
+	 */
+	public static WordNet get(final String path) throws IOException {
+		final String key = new File(path).getAbsolutePath();
+		WordNet wordnet = instances.get(key);
+		if (wordnet == null) {
+			synchronized (instances) {
+				wordnet = instances.get(key);
+				if (wordnet == null) {
+					wordnet = new WordNet(key);
+					instances.put(key, wordnet);
+				}
+			}
+		}
+
+		return wordnet;
+	}
+
+	/**
+	 * @param pos
+	 *            Part of speech
+	 * @return Suffix of the dict files of the part of speech
+	 */
+	private static String getSuffix(final POS pos) {
+		switch (pos) {
+			case NOUN:
+				return "noun";
+			case VERB:
+				return "verb";
+			case ADJECTIVE:
+				return "adj";
+			default:
+				return "adv";
+		}
+	}
+
+	/**
+	 * Reads the lemmas of an index file. A missing file gives no lemmas.
+	 *
+	 * @param file
+	 *            Index file
+	 * @return Set of lemmas
+	 * @throws IOException
+	 */
+	private static Set<String> readLemmas(final File file) throws IOException {
+		final Set<String> set = new HashSet<>();
+		if (!file.exists()) {
+			return set;
+		}
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			for (String line; (line = reader.readLine()) != null;) {
+				// Skip the license header, whose lines start with spaces
+				if (line.isEmpty() || line.charAt(0) == ' ') {
+					continue;
+				}
+
+				final int end = line.indexOf(' ');
+				set.add(end < 0 ? line : line.substring(0, end));
+			}
+		}
+
+		return set;
+	}
+
+	/**
+	 * Reads an exception file, each line an inflected form followed by its roots. A missing file gives no exceptions.
+	 *
+	 * @param file
+	 *            Exception file
+	 * @return Map of inflected forms to their roots
+	 * @throws IOException
+	 */
+	private static Map<String, List<String>> readExceptions(final File file) throws IOException {
+		final Map<String, List<String>> map = new HashMap<>();
+		if (!file.exists()) {
+			return map;
+		}
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			for (String line; (line = reader.readLine()) != null;) {
+				final String[] parts = line.trim().split(" ");
+				if (parts.length > 1) {
+					map.put(parts[0], Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(parts, 1, parts.length))));
+				}
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Finds the stems of a word
+	 *
+	 * @param word
+	 *            Word to stem
+	 * @param pos
+	 *            Part of speech
+	 * @return Unmodifiable list of stems
+	 */
+	public List<String> findStems(final String word, final POS pos) {
+		final Map<String, List<String>> stems = this.memo.get(pos);
+		List<String> list = stems.get(word);
+		if (list != null) {
+			this.hits.increment();
+			return list;
+		}
+
+		// The memo only grows, so a race at worst stems a word twice
+		this.misses.increment();
+		list = Collections.unmodifiableList(this.stem(word.trim().toLowerCase().replaceAll("\\s+", "_"), pos));
+		stems.put(word, list);
+		return list;
+	}
+
+	/**
+	 * Reduces a word to a single stem, the first stem found trying nouns, verbs, adjectives and adverbs in turn
+	 *
+	 * @param word
+	 *            Word to stem
+	 * @return Stem, or the word itself if WordNet has no stem for it
+	 */
+	public String getStem(final String word) {
+		for (final POS pos : POS_ORDER) {
+			final List<String> stems = this.findStems(word, pos);
+			if (!stems.isEmpty()) {
+				return stems.get(0);
+			}
+		}
+
+		return word;
+	}
+
+	/**
+	 * Stems a normalized word
+	 *
+	 * @param word
+	 *            Word to stem
+	 * @param pos
+	 *            Part of speech
+	 * @return List of stems
+	 */
+	private List<String> stem(final String word, final POS pos) {
+		final Set<String> lemmaSet = this.lemmas.get(pos);
+		final Set<String> result = new LinkedHashSet<>();
+
+		// Exception roots, and the word itself if it is a lemma
+		final List<String> roots = this.exceptions.get(pos).get(word);
+		if (roots != null) {
+			result.addAll(roots);
+		}
+
+		if (lemmaSet.contains(word)) {
+			result.add(word);
+		}
+
+		if (roots != null) {
+			return new ArrayList<>(result);
+		}
+
+		// Suffix stripped candidates that are lemmas
+		final List<String> possibles = new ArrayList<>(this.stemmer.findStems(word, pos));
+		possibles.remove("");
+		for (final String possible : possibles) {
+			if (lemmaSet.contains(possible)) {
+				result.add(possible);
+			}
+		}
+
+		// Fall back to all the candidates when none is a lemma
+		if (result.isEmpty()) {
+			return possibles;
+		}
+
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * @return the number of lookups answered from the memo
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups that ran the stemmer
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return the time taken to load the dictionary in milliseconds
+	 */
+	public long getLoadTime() {
+		return this.loadTime;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,139 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-stage and end-to-end benchmarks of the indexing pipeline. The CoreNLP models are loaded once per fork during setup, so they do not count towards any
+ * measurement.
+ *
+ * @author Ekal.Golas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexingBenchmark {
+	@Param({ "200" })
+	public int					documents;
+
+	@Param({ "../Final/data/dict" })
+	public String				dict;
+
+	private BenchmarkCorpus		corpus;
+	private Tokenizer			tokenizer;
+	private WordNetLemmatizer	wordnet;
+	private StorageManager		manager;
+	private File				file;
+	private String[]			lines;
+	private String[]			words;
+	private int[]				numbers;
+	private int					cursor;
+
+	/**
+	 * Generates the corpus and the inputs for every stage
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.corpus = new BenchmarkCorpus(this.documents, 0);
+		this.tokenizer = new Tokenizer();
+		this.wordnet = new WordNetLemmatizer(new File(this.dict));
+
+		final List<String> sample = this.corpus.getLines();
+		this.lines = sample.toArray(new String[sample.size()]);
+		this.words = this.corpus.getWords().toArray(new String[this.corpus.getWords().size()]);
+
+		// Gaps and counts of the size seen in postings lists
+		this.numbers = new int[1024];
+		for (int i = 0; i < this.numbers.length; i++) {
+			this.numbers[i] = 1 + i * 7 % 1400;
+		}
+
+		// Storage manager holding one tokenized document for the dictionary benchmark
+		this.file = this.corpus.getDocuments().listFiles()[0];
+		this.manager = new StorageManager(new Parser(this.corpus.getStopwords()).getStopwords());
+		for (final String line : this.lines) {
+			this.tokenizer.tokenize(this.file, line, this.manager);
+		}
+	}
+
+	/**
+	 * Deletes the generated corpus
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		this.corpus.delete();
+	}
+
+	/**
+	 * @param length
+	 *            Length of the input array
+	 * @return Index of the next input to use
+	 */
+	private int next(final int length) {
+		this.cursor = (this.cursor + 1) % length;
+		return this.cursor;
+	}
+
+	@Benchmark
+	public String transformText() {
+		return this.tokenizer.transformText(this.lines[this.next(this.lines.length)]);
+	}
+
+	@Benchmark
+	public String stem() {
+		return Stemming.stem(this.words[this.next(this.words.length)]);
+	}
+
+	@Benchmark
+	public List<String> lemmatize() {
+		return Tokenizer.getLemmatizer().lemmatize(this.words[this.next(this.words.length)]);
+	}
+
+	@Benchmark
+	public List<String> wordnetLemmatize() {
+		return this.wordnet.lemmatize(this.words[this.next(this.words.length)]);
+	}
+
+	@Benchmark
+	public Dictionary append() {
+		final Dictionary dictionary = new Dictionary();
+		dictionary.append(this.manager);
+		return dictionary;
+	}
+
+	@Benchmark
+	public byte[] gamma() throws IOException {
+		return Compressor.gamma(this.numbers[this.next(this.numbers.length)]);
+	}
+
+	@Benchmark
+	public byte[] delta() throws IOException {
+		return Compressor.delta(this.numbers[this.next(this.numbers.length)]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Dictionary index() throws IOException {
+		final Parser parser = new Parser(this.corpus.getStopwords());
+		parser.parse(this.corpus.getDocuments());
+		return parser.getDictionary();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,433 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Generates synthetic Cranfield-like SGML documents and query logs for scale testing. Words are drawn from a Zipf distribution over the vocabulary, and the
+ * query log repeats a pool of distinct queries with Zipf-distributed popularity. The same seed always produces the same output.
+ *
+ * @author Ekal.Golas
+ */
+public class CorpusGenerator {
+	private static final String[]	HEAD_WORDS		= { "flow", "pressure", "boundary", "layer", "number", "mach", "shock", "surface", "heat", "results", "theory",
+			"wing", "method", "velocity", "body", "solution", "transfer", "distribution", "equation", "supersonic", "temperature", "wave", "laminar",
+			"turbulent", "plate", "reynolds", "effects", "model", "problem", "stream", "hypersonic", "analysis", "experimental", "cylinder", "angle", "attack",
+			"cone", "jet", "nozzle", "lift", "drag", "buckling", "shell", "panel", "flutter", "aeroelastic", "load", "stress", "thermal", "conduction", "gas",
+			"chemical", "equilibrium", "density", "viscous", "compressible", "separation", "stability", "skin", "friction", "leading", "edge", "nasa",
+			"prandtl", "similarity", "slab", "composite", "aircraft", "speed", "subsonic" };
+	private static final String[]	SYLLABLES		= { "ba", "be", "bi", "bo", "ca", "ce", "co", "da", "de", "di", "do", "fa", "fe", "fi", "ga", "ge", "go",
+			"ha", "he", "hi", "ka", "ke", "la", "le", "li", "lo", "ma", "me", "mi", "mo", "na", "ne", "ni", "no", "pa", "pe", "pi", "po", "ra", "re", "ri",
+			"ro", "sa", "se", "si", "so", "ta", "te", "ti", "to", "va", "ve", "vi", "za", "tion", "ment", "ing", "er", "al", "ic", "ous", "ive" };
+	private static final String[]	SUFFIXES		= { "", "", "", "s", "ed", "ing" };
+	private static final String[]	STOPWORDS		= { "the", "of", "and", "a", "in", "to", "is", "for", "with", "on", "at", "by", "an", "are", "be",
+			"this", "that", "as", "from", "it", "which", "has", "have", "were", "was", "its", "or", "can", "been", "these" };
+	private static final int		FILES_PER_DIR	= 1000;
+
+	private final Random			random;
+	private final String[]			vocabulary;
+	private final Zipf				zipf;
+	private final String[]			stopwords;
+	private final double			stopwordRatio;
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed
+	 *            Seed of the random generator
+	 * @param vocabularySize
+	 *            Number of distinct words in the corpus
+	 * @param exponent
+	 *            Exponent of the Zipf distribution of the words, 1.0 for natural text
+	 * @param stopwords
+	 *            Stop words to mix into the text, built in list is used if null
+	 * @param stopwordRatio
+	 *            Fraction of the words that are stop words
+	 */
+	public CorpusGenerator(final long seed, final int vocabularySize, final double exponent, final Set<String> stopwords, final double stopwordRatio) {
+		this.random = new Random(seed);
+		this.vocabulary = buildVocabulary(new Random(seed), vocabularySize);
+		this.zipf = new Zipf(this.vocabulary.length, exponent);
+		this.stopwords = stopwords == null || stopwords.isEmpty() ? STOPWORDS : stopwords.toArray(new String[stopwords.size()]);
+		this.stopwordRatio = stopwordRatio;
+	}
+
+	/**
+	 * Builds the vocabulary in rank order. The most frequent ranks are Cranfield terms, the rest are made up of syllables with an inflectional suffix.
+	 *
+	 * @param random
+	 *            Random generator
+	 * @param size
+	 *            Size of the vocabulary
+	 * @return Vocabulary ordered by rank
+	 */
+	private static String[] buildVocabulary(final Random random, final int size) {
+		final Set<String> words = new LinkedHashSet<>();
+		for (int i = 0; i < HEAD_WORDS.length && words.size() < size; i++) {
+			words.add(HEAD_WORDS[i]);
+		}
+
+		while (words.size() < size) {
+			final StringBuilder builder = new StringBuilder();
+			final int syllables = 2 + random.nextInt(3);
+			for (int i = 0; i < syllables; i++) {
+				builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+
+			builder.append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+			words.add(builder.toString());
+		}
+
+		return words.toArray(new String[words.size()]);
+	}
+
+	/**
+	 * @return the next word of the text, either a stop word or a Zipf-distributed vocabulary word
+	 */
+	public String nextWord() {
+		if (this.random.nextDouble() < this.stopwordRatio) {
+			return this.stopwords[this.random.nextInt(this.stopwords.length)];
+		}
+
+		return this.vocabulary[this.zipf.sample(this.random)];
+	}
+
+	/**
+	 * Builds a line of text with occasional punctuation and hyphenation
+	 *
+	 * @param length
+	 *            Number of words in the line
+	 * @return Line as a string
+	 */
+	public String nextLine(final int length) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			if (i > 0) {
+				builder.append(this.random.nextInt(25) == 0 ? "-" : " ");
+			}
+
+			builder.append(this.nextWord());
+			if (this.random.nextInt(15) == 0) {
+				builder.append(this.random.nextBoolean() ? "," : ".");
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Writes one document in the Cranfield SGML layout
+	 *
+	 * @param writer
+	 *            Writer to write to
+	 * @param docno
+	 *            Document number
+	 * @param length
+	 *            Mean number of words in the text of the document
+	 * @throws IOException
+	 */
+	public void writeDocument(final Writer writer, final int docno, final int length) throws IOException {
+		writer.write("<DOC>\n<DOCNO>\n" + docno + "\n</DOCNO>\n");
+		writer.write("<TITLE>\n" + this.nextLine(5 + this.random.nextInt(10)) + "\n</TITLE>\n");
+		writer.write("<AUTHOR>\nauthor,a." + (char) ('a' + this.random.nextInt(26)) + ".\n</AUTHOR>\n");
+		writer.write("<BIBLIO>\nj. ae. scs. " + (20 + this.random.nextInt(10)) + ", 19" + (50 + this.random.nextInt(10)) + ", " + this.random.nextInt(900) +
+				".\n</BIBLIO>\n");
+		writer.write("<TEXT>\n");
+
+		// Document lengths vary between half and one and a half times the mean
+		int remaining = Math.max(1, length / 2 + this.random.nextInt(Math.max(1, length)));
+		while (remaining > 0) {
+			final int words = Math.min(remaining, 8 + this.random.nextInt(6));
+			writer.write(this.nextLine(words));
+			writer.write('\n');
+			remaining -= words;
+		}
+
+		writer.write("</TEXT>\n</DOC>\n");
+	}
+
+	/**
+	 * Writes a corpus of one document per file, named cranfieldNNNN. Files are spread over subdirectories of 1000 files each, so that directories stay
+	 * small at millions of documents.
+	 *
+	 * @param root
+	 *            Directory to write the corpus in
+	 * @param size
+	 *            Number of documents
+	 * @param length
+	 *            Mean number of words in the text of a document
+	 * @throws IOException
+	 */
+	public void writeCorpus(final File root, final int size, final int length) throws IOException {
+		for (int doc = 1; doc <= size; doc++) {
+			final File folder = size > FILES_PER_DIR ? new File(root, String.format("%05d", (doc - 1) / FILES_PER_DIR)) : root;
+			folder.mkdirs();
+
+			final File file = new File(folder, String.format("cranfield%04d", doc));
+			try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+				this.writeDocument(writer, doc, length);
+			}
+		}
+	}
+
+	/**
+	 * Writes a query log in the layout of the hw3.queries file. A pool of distinct queries is generated first, and every entry of the log picks a query of
+	 * the pool with Zipf-distributed popularity, so that popular queries repeat as they do in production logs.
+	 *
+	 * @param file
+	 *            Query file to write
+	 * @param entries
+	 *            Number of queries in the log
+	 * @param distinct
+	 *            Number of distinct queries
+	 * @param meanTerms
+	 *            Mean number of terms per query
+	 * @param exponent
+	 *            Exponent of the Zipf distribution of query popularity
+	 * @throws IOException
+	 */
+	public void writeQueryLog(final File file, final int entries, final int distinct, final double meanTerms, final double exponent) throws IOException {
+		// Generate the pool of distinct queries
+		final List<String> pool = new ArrayList<>();
+		final Set<String> seen = new HashSet<>();
+		int attempts = 0;
+		while (pool.size() < distinct && attempts++ < distinct * 10) {
+			final String query = this.nextQuery(meanTerms);
+			if (seen.add(query)) {
+				pool.add(query);
+			}
+		}
+
+		// Draw the log from the pool
+		final Zipf popularity = new Zipf(pool.size(), exponent);
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (int i = 1; i <= entries; i++) {
+				writer.write("Q" + i + ":\n" + pool.get(popularity.sample(this.random)) + "\n\n");
+			}
+		}
+	}
+
+	/**
+	 * Builds a query. The number of terms is one more than a Poisson variable, so that most queries are short and a few are long.
+	 *
+	 * @param meanTerms
+	 *            Mean number of terms
+	 * @return Query as a string
+	 */
+	private String nextQuery(final double meanTerms) {
+		// Knuth's method for sampling a Poisson variable
+		final double limit = Math.exp(-Math.max(0.0, meanTerms - 1.0));
+		int terms = 0;
+		for (double product = this.random.nextDouble(); product > limit; product *= this.random.nextDouble()) {
+			terms++;
+		}
+
+		// Queries are mostly content words, with an occasional stop word
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i <= terms; i++) {
+			builder.append(i > 0 ? " " : "");
+			if (this.random.nextDouble() < this.stopwordRatio / 4) {
+				builder.append(this.stopwords[this.random.nextInt(this.stopwords.length)]);
+			} else {
+				builder.append(this.vocabulary[this.zipf.sample(this.random)]);
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * @return the vocabulary in rank order
+	 */
+	public final String[] getVocabulary() {
+		return this.vocabulary;
+	}
+
+	/**
+	 * Samples ranks from a Zipf distribution by binary search over its cumulative distribution
+	 */
+	static class Zipf {
+		private final double[] cumulative;
+
+		/**
+		 * Constructor
+		 *
+		 * @param size
+		 *            Number of ranks
+		 * @param exponent
+		 *            Exponent of the distribution
+		 */
+		Zipf(final int size, final double exponent) {
+			this.cumulative = new double[size];
+			double sum = 0.0;
+			for (int rank = 0; rank < size; rank++) {
+				sum += 1.0 / Math.pow(rank + 1, exponent);
+				this.cumulative[rank] = sum;
+			}
+
+			for (int rank = 0; rank < size; rank++) {
+				this.cumulative[rank] /= sum;
+			}
+		}
+
+		/**
+		 * @param random
+		 *            Random generator
+		 * @return Rank starting at 0
+		 */
+		int sample(final Random random) {
+			final int index = Arrays.binarySearch(this.cumulative, random.nextDouble());
+			return Math.min(index >= 0 ? index : -index - 1, this.cumulative.length - 1);
+		}
+	}
+
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Command line arguments
+	 * @throws IOException
+	 */
+	public static void main(final String args[]) throws IOException {
+		final long start = System.currentTimeMillis();
+		final CommandLine cmd = validateArguments(args);
+
+		// Read the stop words, if given
+		final Set<String> stopwords = new HashSet<>();
+		if (cmd.hasOption("stop")) {
+			try (BufferedReader reader = new BufferedReader(new FileReader(cmd.getOptionValue("stop")))) {
+				for (String line; (line = reader.readLine()) != null;) {
+					stopwords.add(line.trim());
+				}
+			}
+		}
+
+		final CorpusGenerator generator = new CorpusGenerator(Long.parseLong(cmd.getOptionValue("seed", "6322")),
+				Integer.parseInt(cmd.getOptionValue("vocabulary", "10000")),
+				Double.parseDouble(cmd.getOptionValue("zipf", "1.0")),
+				stopwords,
+				0.35);
+
+		// Write the documents
+		final File root = new File(cmd.getOptionValue("path"));
+		final int docs = Integer.parseInt(cmd.getOptionValue("docs", "1400"));
+		generator.writeCorpus(new File(root, "Cranfield"), docs, Integer.parseInt(cmd.getOptionValue("length", "90")));
+
+		// Write the query log
+		final int queries = Integer.parseInt(cmd.getOptionValue("queries", "225"));
+		generator.writeQueryLog(new File(root, "queries"),
+				queries,
+				Integer.parseInt(cmd.getOptionValue("distinct", String.valueOf(Math.max(1, queries / 4)))),
+				Double.parseDouble(cmd.getOptionValue("terms", "3.0")),
+				1.0);
+
+		// Write the stop words used, if none were given
+		if (stopwords.isEmpty()) {
+			writeStopwords(new File(root, "stopwords"));
+		}
+
+		System.out.println("Generated " + docs + " documents and " + queries + " queries in " + (System.currentTimeMillis() - start) + " milliseconds");
+	}
+
+	/**
+	 * Writes the built in stop words list
+	 *
+	 * @param file
+	 *            File to write to
+	 * @throws FileNotFoundException
+	 */
+	public static void writeStopwords(final File file) throws FileNotFoundException {
+		try (PrintWriter writer = new PrintWriter(file)) {
+			for (final String string : STOPWORDS) {
+				writer.println(string);
+			}
+		}
+	}
+
+	/**
+	 * Validates and gets the command line arguments provided
+	 *
+	 * @param args
+	 *            Command-line arguments
+	 * @return Validates arguments
+	 */
+	private static CommandLine validateArguments(final String[] args) {
+		// Get options
+		final Options options = new Options();
+		options.addOption("path", "outputPath", true, "Directory to write the corpus, queries and stop words to");
+		options.addOption("docs", "documents", true, "Number of documents to generate (default 1400)");
+		options.addOption("length", "documentLength", true, "Mean number of words in a document (default 90)");
+		options.addOption("vocabulary", "vocabularySize", true, "Number of distinct words (default 10000)");
+		options.addOption("zipf", "zipfExponent", true, "Exponent of the word frequency distribution (default 1.0)");
+		options.addOption("queries", "queryCount", true, "Number of queries in the query log (default 225)");
+		options.addOption("distinct", "distinctQueries", true, "Number of distinct queries in the log (default a quarter of the queries)");
+		options.addOption("terms", "queryTerms", true, "Mean number of terms per query (default 3.0)");
+		options.addOption("seed", "seed", true, "Seed for the random generator (default 6322)");
+		options.addOption("stop", "stopWords", true, "Stop words to mix into the text (default built in list)");
+
+		// Parse arguments
+		final CommandLineParser commandLineParser = new DefaultParser();
+		CommandLine cmd = null;
+		try {
+			cmd = commandLineParser.parse(options, args, false);
+		} catch (final ParseException e1) {
+			System.out.println("Invalid arguments provided");
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("CorpusGenerator", options);
+			System.exit(1);
+		}
+
+		// Validate
+		if (!cmd.hasOption("path")) {
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("CorpusGenerator", options);
+			System.exit(2);
+		}
+
+		// Counts the generator divides by or draws from must be at least 1
+		for (final String option : new String[] { "docs", "vocabulary", "distinct" }) {
+			if (!isPositive(cmd, option)) {
+				System.out.println("Invalid arguments provided: " + option + " must be a whole number of at least 1");
+				final HelpFormatter formatter = new HelpFormatter();
+				formatter.printHelp("CorpusGenerator", options);
+				System.exit(1);
+			}
+		}
+
+		return cmd;
+	}
+
+	/**
+	 * @param cmd
+	 *            Parsed command line arguments
+	 * @param option
+	 *            Option of a count
+	 * @return True if the option is not given, or is a whole number of at least 1
+	 */
+	private static boolean isPositive(final CommandLine cmd, final String option) {
+		try {
+			return !cmd.hasOption(option) || Integer.parseInt(cmd.getOptionValue(option)) >= 1;
+		} catch (final NumberFormatException e) {
+			return false;
+		}
+	}
+}
\ No newline at end of file
@@ -1,6 +1,5 @@
 
 
-import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -27,13 +26,12 @@ public class Dictionary {
 	 *
 	 * @param manager
 	 *            Storage manager
-	 * @param file
-	 *            File for the map
 	 */
-	public void append(final StorageManager manager, final File file) {
-		final String doc = file.getName().replaceAll("[^\\d]", "");
-		this.appendToDictionary(this.stemsDictionary, manager.getStemsMap(), StorageManager.getDocProperties(), doc);
-		this.appendToDictionary(this.lemmaDictionary, manager.getLemmaMap(), StorageManager.getDocProperties(), doc);
+	public void append(final StorageManager manager) {
+		final String doc = manager.getDocument();
+		final DocumentProperty property = manager.getProperty();
+		this.appendToDictionary(this.stemsDictionary, manager.getStemsMap(), property, doc);
+		this.appendToDictionary(this.lemmaDictionary, manager.getLemmaMap(), property, doc);
 	}
 
 	/**
@@ -43,14 +41,14 @@ public class Dictionary {
 	 *            Dictionary to append to
 	 * @param appendFrom
 	 *            Map to append from
-	 * @param docProperties
-	 *            Document properties
+	 * @param property
+	 *            Properties of the document
 	 * @param file
 	 *            File name for this map
 	 */
 	private void appendToDictionary(final Map<String, Properties> appendTo,
 			final Map<String, Integer> appendFrom,
-			final Map<String, DocumentProperty> docProperties,
+			final DocumentProperty property,
 			final String file) {
 		for (final Entry<String, Integer> entry : appendFrom.entrySet()) {
 			Properties temp;
@@ -69,7 +67,6 @@ public class Dictionary {
 				temp.getTermFreq().put(file, entry.getValue());
 			}
 
-			final DocumentProperty property = docProperties.get(file);
 			temp.getPostingFile().put(file, property);
 			appendTo.put(entry.getKey(), temp);
 		}
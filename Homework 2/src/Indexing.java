@@ -2,6 +2,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -34,12 +36,34 @@ public class Indexing {
 		// Validate command line arguments
 		final long start = System.currentTimeMillis();
 		final CommandLine cmd = validateArguments(args);
+		if (cmd.hasOption("metrics")) {
+			Metrics.enable();
+		}
+
+		// Pick the analyzer of the index, the CoreNLP models are only loaded if a word needs them
+		final File lemmas = cmd.hasOption("lemmas") ? new File(cmd.getOptionValue("lemmas")) : null;
+		if (cmd.hasOption("analyzer")) {
+			Tokenizer.configure(cmd.getOptionValue("analyzer"), lemmas, new File(cmd.getOptionValue("dict", "../Final/data/dict")));
+		}
 
 		// Call parser
 		final File folder = new File(cmd.getOptionValue("path"));
 		final File stopwords = new File(cmd.getOptionValue("stop"));
 		final Parser parser = new Parser(stopwords);
-		parser.parse(folder);
+		if (cmd.hasOption("charset")) {
+			parser.setCharset(Charset.forName(cmd.getOptionValue("charset")));
+		}
+
+		IndexingPipeline pipeline = null;
+		if (cmd.hasOption("pipeline") || cmd.hasOption("readers")) {
+			pipeline = parser.parse(folder,
+					Integer.parseInt(cmd.getOptionValue("pipeline", "1")),
+					Integer.parseInt(cmd.getOptionValue("queue", "64")),
+					Integer.parseInt(cmd.getOptionValue("readers", "0")),
+					FileIngester.toBytes(cmd.getOptionValue("inflight", "64")));
+		} else {
+			parser.parse(folder);
+		}
 
 		// Display Index 1 uncompressed results
 		String fileName = "Index_Version1.uncompressed";
@@ -74,6 +98,11 @@ public class Indexing {
 		// Display tf, df and size of inverted list for terms
 		displayTermCharacteristics(parser);
 
+		// Save the lemmas of the index, so the next run with this table does not need CoreNLP
+		if (lemmas != null && Tokenizer.getLemmatizer() instanceof LemmaTable) {
+			((LemmaTable) Tokenizer.getLemmatizer()).save(lemmas);
+		}
+
 		// Display results for NASA
 		displayResultforNasa(parser);
 
@@ -91,36 +120,55 @@ public class Indexing {
 		System.out.println("\nDocuments with largest max_tf: " + StringUtils.join(characteristics.getDocsWithLargestMaxTF(), " "));
 		System.out.println("Documents with largest doclen: " + StringUtils.join(characteristics.getDocsWithLargestDoclen(), " "));
 		System.out.println("#################################################################################");
+
+		// Display the utilization of the indexing stages
+		if (pipeline != null) {
+			System.out.println("\nIndexing pipeline:\n");
+			System.out.println(pipeline.getReport());
+		}
+
 		System.out.println("\nTotal running time: " + (System.currentTimeMillis() - start) + " milliseconds");
+
+		// Display metrics
+		if (Metrics.isEnabled()) {
+			System.out.println("\nMetrics:\n");
+			System.out.println(Metrics.getReport());
+		}
 	}
 
 	/**
-	 * Display the terms with largest and smallest DF
+	 * Display the terms with largest and smallest DF. Rows are streamed to the console as they are produced, since the smallest DF terms can cover most of
+	 * the vocabulary.
 	 *
 	 * @param dictionary
 	 *            Dictionary to parse
+	 * @throws IOException
 	 */
-	static void displayPeakTerms(final Map<String, Properties> dictionary) {
+	static void displayPeakTerms(final Map<String, Properties> dictionary) throws IOException {
+		final Writer console = ReportWriter.console();
+
 		// Get largest terms
 		List<String> terms = characteristics.getTermsWithLargestDf(dictionary);
 
-		OutputFormatter formatter = new OutputFormatter();
-		formatter.addRow("Term with Largest DF", "DF");
+		ReportWriter report = new ReportWriter(console, ReportWriter.Format.TABLE);
+		report.addRow("Term with Largest DF", "DF");
 		for (final String string : terms) {
-			formatter.addRow(string, String.valueOf(dictionary.get(string).getDocFreq()));
+			report.addRow(string, String.valueOf(dictionary.get(string).getDocFreq()));
 		}
 
-		System.out.println(formatter);
+		report.flush();
+		System.out.println();
 
 		// Get smallest terms
 		terms = characteristics.getTermsWithSmallestDf(dictionary);
-		formatter = new OutputFormatter();
-		formatter.addRow("Term with Smallest DF", "DF");
+		report = new ReportWriter(console, ReportWriter.Format.TABLE);
+		report.addRow("Term with Smallest DF", "DF");
 		for (final String string : terms) {
-			formatter.addRow(string, String.valueOf(dictionary.get(string).getDocFreq()));
+			report.addRow(string, String.valueOf(dictionary.get(string).getDocFreq()));
 		}
 
-		System.out.println(formatter);
+		report.flush();
+		System.out.println();
 	}
 
 	/**
@@ -183,7 +231,7 @@ public class Indexing {
 		terms.add("boundary");
 		terms.add("shock");
 
-		final StanfordLemmatizer lemmatizer = Tokenizer.lemmatizer;
+		final Lemmatizer lemmatizer = Tokenizer.getLemmatizer();
 		final Set<String> lemmaSet = new HashSet<>();
 		for (final String string : terms) {
 			lemmaSet.addAll(lemmatizer.lemmatize(string));
@@ -250,6 +298,15 @@ public class Indexing {
 		final Options options = new Options();
 		options.addOption("path", "dataPath", true, "Absolute or relative path to the Cranfield database");
 		options.addOption("stop", "stopWords", true, "Absolute or relative path to the Stop Words file");
+		options.addOption("metrics", "metrics", false, "Collect per-stage metrics, print them at the end and expose them over JMX");
+		options.addOption("analyzer", "analyzer", true, "Analyzer of the lemma index: corenlp, table, wordnet or porter (default corenlp)");
+		options.addOption("lemmas", "lemmasFile", true, "Lemma table to load and save with the table analyzer");
+		options.addOption("pipeline", "pipeline", true, "Index with a pipeline of a reader, N analyzer threads and an inverter");
+		options.addOption("queue", "queueCapacity", true, "Capacity of the queues between the pipeline stages, in documents (default 64)");
+		options.addOption("readers", "readerThreads", true, "Read files concurrently on N reader threads of the pipeline");
+		options.addOption("inflight", "inFlightMegabytes", true, "Cap on the megabytes of files read by the reader threads and not yet indexed (default 64)");
+		options.addOption("charset", "charset", true, "Charset of the documents, which are then memory mapped and decoded without a string per line");
+		options.addOption("dict", "wordnetDict", true, "WordNet dict folder of the wordnet analyzer (default ../Final/data/dict)");
 
 		// Parse arguments
 		final CommandLineParser commandLineParser = new DefaultParser();
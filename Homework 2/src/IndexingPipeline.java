@@ -0,0 +1,509 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Indexes a collection in three stages connected by bounded queues. The reader stage walks the tree and reads each file into memory as a single
+ * string, on the calling thread or on the reader threads of a {@link FileIngester} that caps the bytes in flight, a pool of analyzer workers
+ * tokenizes, lemmatizes and counts the documents, and a single inverter thread appends the counted documents to the {@link Dictionary} in the order
+ * they were read, so the dictionary is never shared and ends up as a sequential parse leaves it. A full queue blocks the stage feeding it, so memory
+ * stays bounded by the queue capacities whatever the speed of each stage. Every stage records how long its threads were busy, waiting for input and
+ * blocked on a full output queue.
+ *
+ * @author Ekal.Golas
+ */
+public class IndexingPipeline {
+	private static final Document				END	= new Document(-1, null, null, null, 0L, 0);
+
+	private final Set<String>					stopwords;
+	private final Dictionary					dictionary;
+	private final int							analyzers;
+	private final FileIngester					ingester;
+	private final Charset						charset;
+	private final MappedFileReader				mappedReader;
+	private final BlockingQueue<Document>		documents;
+	private final BlockingQueue<Document>		batches;
+	private final Stage							reader;
+	private final Stage							analyzer;
+	private final Stage							inverter;
+	private final AtomicReference<Throwable>	failure;
+	private int									sequence;
+	private long								elapsed;
+
+	/**
+	 * Text of a file read by the reader stage, and its counts once the analyzer stage is done with them
+	 */
+	private static class Document {
+		private final int			sequence;
+		private final File			file;
+		private final String		docno;
+		private final String		text;
+		private final int			bytes;
+		private long				busy;
+		private StorageManager		storageManager;
+
+		/**
+		 * Constructor
+		 *
+		 * @param sequence
+		 *            Position of the document in reading order
+		 * @param file
+		 *            File of the document, null for a document of an archive
+		 * @param docno
+		 *            External ID of a document of an archive, null for a file
+		 * @param text
+		 *            Text of the document
+		 * @param busy
+		 *            Time taken to read the file in nanoseconds
+		 * @param bytes
+		 *            Bytes charged against the in-flight cap of the ingester, if any
+		 */
+		Document(final int sequence, final File file, final String docno, final String text, final long busy, final int bytes) {
+			this.sequence = sequence;
+			this.file = file;
+			this.docno = docno;
+			this.text = text;
+			this.busy = busy;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Time spent by the threads of a stage
+	 */
+	public static class Stage {
+		private final String	name;
+		private final int		threads;
+		private final LongAdder	items;
+		private final LongAdder	busy;
+		private final LongAdder	waiting;
+		private final LongAdder	blocked;
+
+		/**
+		 * Constructor
+		 *
+		 * @param name
+		 *            Name of the stage
+		 * @param threads
+		 *            Number of threads of the stage
+		 */
+		Stage(final String name, final int threads) {
+			this.name = name;
+			this.threads = threads;
+			this.items = new LongAdder();
+			this.busy = new LongAdder();
+			this.waiting = new LongAdder();
+			this.blocked = new LongAdder();
+		}
+
+		/**
+		 * @param elapsed
+		 *            Wall clock time of the run in nanoseconds
+		 * @return Share of the time of its threads the stage was busy
+		 */
+		public double getUtilization(final long elapsed) {
+			return elapsed == 0 ? 0.0 : (double) this.busy.sum() / (elapsed * this.threads);
+		}
+
+		/**
+		 * @return the name of the stage
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return the number of documents the stage processed
+		 */
+		public long getItems() {
+			return this.items.sum();
+		}
+
+		/**
+		 * @return the time the threads of the stage spent working, in nanoseconds
+		 */
+		public long getBusy() {
+			return this.busy.sum();
+		}
+
+		/**
+		 * @return the time the threads of the stage spent waiting for input, in nanoseconds
+		 */
+		public long getWaiting() {
+			return this.waiting.sum();
+		}
+
+		/**
+		 * @return the time the threads of the stage spent blocked on a full output queue, in nanoseconds
+		 */
+		public long getBlocked() {
+			return this.blocked.sum();
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param stopwords
+	 *            Set of stop words
+	 * @param dictionary
+	 *            Dictionary the documents are appended to
+	 * @param analyzers
+	 *            Number of analyzer threads
+	 * @param capacity
+	 *            Capacity of each queue, in documents
+	 * @param readers
+	 *            Number of reader threads, 0 to read on the calling thread
+	 * @param maxBytes
+	 *            Maximum bytes of files read and not yet in the dictionary, with reader threads
+	 * @param charset
+	 *            Charset of the files to decode them with a {@link MappedFileReader}, or null to read them with a {@link java.io.FileReader}
+	 */
+	public IndexingPipeline(final Set<String> stopwords, final Dictionary dictionary, final int analyzers, final int capacity, final int readers,
+			final int maxBytes, final Charset charset) {
+		this.stopwords = stopwords;
+		this.dictionary = dictionary;
+		this.analyzers = analyzers;
+		this.ingester = readers > 0 ? new FileIngester(readers, maxBytes, charset) : null;
+		this.charset = charset;
+		this.mappedReader = readers == 0 && charset != null ? new MappedFileReader(charset) : null;
+		this.documents = new ArrayBlockingQueue<>(capacity);
+		this.batches = new ArrayBlockingQueue<>(capacity);
+		this.reader = new Stage("Reader", Math.max(1, readers));
+		this.analyzer = new Stage("Analyzer", analyzers);
+		this.inverter = new Stage("Inverter", 1);
+		this.failure = new AtomicReference<>();
+	}
+
+	/**
+	 * Indexes every file in the path and its subdirectories, returning once all of them are in the dictionary
+	 *
+	 * @param rootFile
+	 *            Path to be parsed
+	 * @throws IOException
+	 */
+	public void run(final File rootFile) throws IOException {
+		final long start = System.nanoTime();
+
+		// Daemon workers, so a failed run does not keep the JVM alive
+		final AtomicInteger number = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "indexer-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(this.analyzers + 1, factory);
+		try {
+			for (int i = 0; i < this.analyzers; i++) {
+				executor.execute(this::analyze);
+			}
+
+			executor.execute(this::invert);
+
+			// Read on this thread or the reader threads, then tell every analyzer the collection is done
+			try {
+				if (this.ingester == null) {
+					this.read(rootFile);
+				} else {
+					this.ingester.read(rootFile, this::accept);
+				}
+			} catch (final IOException | RuntimeException e) {
+				this.failure.compareAndSet(null, e);
+			}
+
+			for (int i = 0; i < this.analyzers; i++) {
+				put(this.documents, END, this.reader);
+			}
+
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				continue;
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while indexing", e);
+		} finally {
+			executor.shutdownNow();
+			this.elapsed = System.nanoTime() - start;
+		}
+
+		// Surface the first failure of any stage
+		final Throwable cause = this.failure.get();
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		} else if (cause != null) {
+			throw new IOException("Indexing failed", cause);
+		}
+	}
+
+	/**
+	 * Reader stage without reader threads: reads every file in the path and its subdirectories into memory on the calling thread, and streams the
+	 * documents of archives
+	 *
+	 * @param rootFile
+	 *            Path to be read
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void read(final File rootFile) throws IOException, InterruptedException {
+		if (this.failure.get() != null) {
+			return;
+		}
+
+		if (rootFile.isDirectory()) {
+			for (final File file : rootFile.listFiles()) {
+				this.read(file);
+			}
+
+			return;
+		}
+
+		if (TrecArchiveReader.isArchive(rootFile)) {
+			final long[] begin = { System.nanoTime() };
+			new TrecArchiveReader(this.charset).read(rootFile, (docno, text) -> {
+				final long busy = System.nanoTime() - begin[0];
+				this.reader.busy.add(busy);
+				this.reader.items.increment();
+				put(this.documents, new Document(this.sequence++, null, docno, text, busy, 0), this.reader);
+				begin[0] = System.nanoTime();
+			});
+			return;
+		}
+
+		final long begin = System.nanoTime();
+		final String text = FileIngester.readText(rootFile, this.mappedReader);
+		final long busy = System.nanoTime() - begin;
+		this.reader.busy.add(busy);
+		this.reader.items.increment();
+		put(this.documents, new Document(this.sequence++, rootFile, null, text, busy, 0), this.reader);
+	}
+
+	/**
+	 * Reader stage with reader threads: queues a file read by the ingester
+	 *
+	 * @param sequence
+	 *            Position of the file or document in walk order
+	 * @param file
+	 *            File read, null for a document of an archive
+	 * @param docno
+	 *            External ID of a document of an archive, null for a file
+	 * @param text
+	 *            Text of the file or document
+	 * @param busy
+	 *            Time taken to read the file in nanoseconds
+	 * @param bytes
+	 *            Bytes charged against the in-flight cap
+	 * @throws InterruptedException
+	 */
+	private void accept(final int sequence, final File file, final String docno, final String text, final long busy, final int bytes)
+			throws InterruptedException {
+		// After a failure stop the walk instead of queueing more documents
+		if (this.failure.get() != null) {
+			this.ingester.abort(this.failure.get());
+			this.ingester.release(bytes);
+			return;
+		}
+
+		this.reader.busy.add(busy);
+		this.reader.items.increment();
+		put(this.documents, new Document(sequence, file, docno, text, busy, bytes), this.reader);
+	}
+
+	/**
+	 * Analyzer stage: tokenizes and counts documents until the reader is done
+	 */
+	private void analyze() {
+		final Tokenizer tokenizer = new Tokenizer();
+		try {
+			for (Document document; (document = take(this.documents, this.analyzer)) != END;) {
+				// After a failure only drain the queue, so the reader never blocks
+				if (this.failure.get() != null) {
+					this.release(document);
+					continue;
+				}
+
+				final long begin = System.nanoTime();
+				final StorageManager storageManager = new StorageManager(this.stopwords);
+				try {
+					// Tokenize the lines as ranges of the text, without a string for each. Documents of archives have no file and are named by their DOCNO.
+					final File file = document.file;
+					if (file == null) {
+						storageManager.setSource(document.docno);
+					}
+
+					MappedFileReader.lines(document.text, (text, start, end) -> tokenizer.tokenize(file, text, start, end, storageManager));
+				} catch (final IOException | RuntimeException e) {
+					this.failure.compareAndSet(null, e);
+					this.release(document);
+					continue;
+				}
+
+				final long busy = System.nanoTime() - begin;
+				this.analyzer.busy.add(busy);
+				this.analyzer.items.increment();
+				document.busy += busy;
+				document.storageManager = storageManager;
+				put(this.batches, document, this.analyzer);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// Tell the inverter this analyzer is done, even if it failed
+			try {
+				put(this.batches, END, this.analyzer);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Inverter stage: appends the counted documents to the dictionary in reading order until every analyzer is done. Documents that overtake an earlier
+	 * one are held back until it arrives; there are never more of them than fit in the queues and the analyzers, or under the in-flight cap of the ingester.
+	 */
+	private void invert() {
+		try {
+			final Map<Integer, Document> pending = new HashMap<>();
+			int next = 0;
+			int done = 0;
+			while (done < this.analyzers) {
+				final Document arrived = take(this.batches, this.inverter);
+				if (arrived == END) {
+					done++;
+					continue;
+				}
+
+				if (this.failure.get() != null) {
+					this.release(arrived);
+					pending.values().forEach(this::release);
+					pending.clear();
+					continue;
+				}
+
+				pending.put(arrived.sequence, arrived);
+				for (Document document; (document = pending.remove(next)) != null; next++) {
+					final long begin = System.nanoTime();
+					final long append = Metrics.start();
+					this.dictionary.append(document.storageManager);
+					Metrics.record(Metrics.Stage.APPEND, append);
+					final long busy = System.nanoTime() - begin;
+					Metrics.recordTime(Metrics.Stage.DOCUMENT, document.busy + busy);
+					this.inverter.busy.add(busy);
+					this.inverter.items.increment();
+					this.release(document);
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final RuntimeException e) {
+			this.failure.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * Hands the bytes of a document the pipeline is done with back to the ingester, so the walk can go on
+	 *
+	 * @param document
+	 *            Document appended or dropped
+	 */
+	private void release(final Document document) {
+		if (this.ingester != null) {
+			this.ingester.release(document.bytes);
+		}
+	}
+
+	/**
+	 * Puts an item on a queue, counting the time blocked on a full queue against a stage
+	 *
+	 * @param queue
+	 *            Queue
+	 * @param item
+	 *            Item to put
+	 * @param stage
+	 *            Stage putting the item
+	 * @throws InterruptedException
+	 */
+	private static <T> void put(final BlockingQueue<T> queue, final T item, final Stage stage) throws InterruptedException {
+		if (!queue.offer(item)) {
+			final long begin = System.nanoTime();
+			queue.put(item);
+			stage.blocked.add(System.nanoTime() - begin);
+		}
+	}
+
+	/**
+	 * Takes an item from a queue, counting the time waiting on an empty queue against a stage
+	 *
+	 * @param queue
+	 *            Queue
+	 * @param stage
+	 *            Stage taking the item
+	 * @return Item taken
+	 * @throws InterruptedException
+	 */
+	private static <T> T take(final BlockingQueue<T> queue, final Stage stage) throws InterruptedException {
+		T item = queue.poll();
+		if (item == null) {
+			final long begin = System.nanoTime();
+			item = queue.take();
+			stage.waiting.add(System.nanoTime() - begin);
+		}
+
+		return item;
+	}
+
+	/**
+	 * @return the stages, in pipeline order
+	 */
+	public List<Stage> getStages() {
+		final List<Stage> stages = new ArrayList<>();
+		Collections.addAll(stages, this.reader, this.analyzer, this.inverter);
+		return stages;
+	}
+
+	/**
+	 * @return the wall clock time of the last run in nanoseconds
+	 */
+	public long getElapsed() {
+		return this.elapsed;
+	}
+
+	/**
+	 * @return a table of the documents, busy, waiting and blocked time and utilization of each stage, and the time the walk waited under the in-flight cap
+	 */
+	public OutputFormatter getReport() {
+		final OutputFormatter formatter = new OutputFormatter();
+		formatter.addRow("STAGE", "THREADS", "DOCUMENTS", "BUSY", "WAITING", "BLOCKED", "UTILIZATION");
+		for (final Stage stage : this.getStages()) {
+			formatter.addRow(stage.name,
+					String.valueOf(stage.threads),
+					String.valueOf(stage.getItems()),
+					TimeUnit.NANOSECONDS.toMillis(stage.getBusy()) + " ms",
+					TimeUnit.NANOSECONDS.toMillis(stage.getWaiting()) + " ms",
+					TimeUnit.NANOSECONDS.toMillis(stage.getBlocked()) + " ms",
+					String.format("%.1f%%", 100.0 * stage.getUtilization(this.elapsed)));
+		}
+
+		if (this.ingester != null) {
+			formatter.addRow("Throttled", "", "", TimeUnit.NANOSECONDS.toMillis(this.ingester.getThrottled()) + " ms");
+		}
+
+		formatter.addRow("Elapsed", "", "", TimeUnit.NANOSECONDS.toMillis(this.elapsed) + " ms");
+		return formatter;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,162 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Compares how fast a collection is read by the recursive walk of {@link Parser#parse(File)}, one file at a time on the calling thread, and by a
+ * {@link FileIngester} with an increasing number of reader threads, decoding with a {@link MappedFileReader} if a charset is given. Only reading is
+ * timed, the files are not tokenized, so the table shows the files per second the reader stage of the indexing pipeline can deliver.
+ *
+ * @author Ekal.Golas
+ */
+public class IngestionScaling {
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Command line arguments
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(final String args[]) throws IOException, InterruptedException {
+		final CommandLine cmd = validateArguments(args);
+		final File folder = new File(cmd.getOptionValue("path"));
+		final int passes = Integer.parseInt(cmd.getOptionValue("passes", "3"));
+		final int maxBytes = FileIngester.toBytes(cmd.getOptionValue("inflight", "64"));
+		final Charset charset = cmd.hasOption("charset") ? Charset.forName(cmd.getOptionValue("charset")) : null;
+
+		// The first pass also brings the files into the page cache, so every configuration is timed warm
+		final int[] files = new int[1];
+		long baseline = Long.MAX_VALUE;
+		for (int pass = 0; pass < passes; pass++) {
+			files[0] = 0;
+			final long start = System.nanoTime();
+			walk(folder, files);
+			baseline = Math.min(baseline, System.nanoTime() - start);
+		}
+
+		final OutputFormatter formatter = new OutputFormatter();
+		formatter.addRow("READER", "THREADS", "FILES", "TIME", "FILES/SEC", "SPEEDUP");
+		addRow(formatter, "Recursive walk", 1, files[0], baseline, baseline);
+
+		for (final String value : cmd.getOptionValue("threads", "1,2,4,8,16,32").split(",")) {
+			final int threads = Integer.parseInt(value.trim());
+			long best = Long.MAX_VALUE;
+			long read = 0;
+			for (int pass = 0; pass < passes; pass++) {
+				final FileIngester ingester = new FileIngester(threads, maxBytes, charset);
+				final long start = System.nanoTime();
+				ingester.read(folder, (sequence, file, docno, text, busy, bytes) -> ingester.release(bytes));
+				best = Math.min(best, System.nanoTime() - start);
+				read = ingester.getFiles();
+			}
+
+			addRow(formatter, charset == null ? "File ingester" : "Mapped " + charset.name(), threads, read, best, baseline);
+		}
+
+		System.out.println("Ingestion scaling, best of " + passes + " passes:\n");
+		System.out.println(formatter);
+	}
+
+	/**
+	 * Reads every file in a path and its subdirectories on the calling thread, as the parser does
+	 *
+	 * @param rootFile
+	 *            Path to be read
+	 * @param files
+	 *            Counter of the files read
+	 * @throws IOException
+	 */
+	private static void walk(final File rootFile, final int[] files) throws IOException {
+		for (final File file : rootFile.listFiles()) {
+			if (file.isDirectory()) {
+				walk(file, files);
+				continue;
+			}
+
+			final List<String> lines = new ArrayList<>();
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				for (String line; (line = reader.readLine()) != null;) {
+					lines.add(line);
+				}
+			}
+
+			files[0]++;
+		}
+	}
+
+	/**
+	 * Adds the results of one configuration to the table
+	 *
+	 * @param formatter
+	 *            Table
+	 * @param reader
+	 *            Name of the reader
+	 * @param threads
+	 *            Number of threads reading
+	 * @param files
+	 *            Number of files read
+	 * @param elapsed
+	 *            Time taken in nanoseconds
+	 * @param baseline
+	 *            Time taken by the recursive walk in nanoseconds
+	 */
+	private static void addRow(final OutputFormatter formatter, final String reader, final int threads, final long files, final long elapsed,
+			final long baseline) {
+		formatter.addRow(reader,
+				String.valueOf(threads),
+				String.valueOf(files),
+				String.format("%.1f ms", elapsed / 1e6),
+				String.format("%.0f", files * 1e9 / elapsed),
+				String.format("%.2fx", (double) baseline / elapsed));
+	}
+
+	/**
+	 * Validates and gets the command line arguments provided
+	 *
+	 * @param args
+	 *            Command-line arguments
+	 * @return Validates arguments
+	 */
+	private static CommandLine validateArguments(final String[] args) {
+		// Get options
+		final Options options = new Options();
+		options.addOption("path", "dataPath", true, "Absolute or relative path to the Cranfield database");
+		options.addOption("threads", "readerThreads", true, "Comma separated reader thread counts to time (default 1,2,4,8,16,32)");
+		options.addOption("inflight", "inFlightMegabytes", true, "Cap on the megabytes of files read and not yet released (default 64)");
+		options.addOption("charset", "charset", true, "Charset to memory map and decode the files with, instead of reading them with a FileReader");
+		options.addOption("passes", "passes", true, "Number of passes over the collection per configuration, the best one is reported (default 3)");
+
+		// Parse arguments
+		final CommandLineParser commandLineParser = new DefaultParser();
+		CommandLine cmd = null;
+		try {
+			cmd = commandLineParser.parse(options, args, false);
+		} catch (final ParseException e1) {
+			System.out.println("Invalid arguments provided");
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("IngestionScaling", options);
+			System.exit(1);
+		}
+
+		// Validate
+		if (!cmd.hasOption("path")) {
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("IngestionScaling", options);
+			System.exit(2);
+		}
+
+		return cmd;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+import java.util.List;
+
+/**
+ * Reduces text to the terms that are indexed for it
+ *
+ * @author Ekal.Golas
+ */
+public interface Lemmatizer {
+	/**
+	 * Lemmatizes the text
+	 *
+	 * @param documentText
+	 *            Text to be lemmatized
+	 * @return Lemmatized text
+	 */
+	List<String> lemmatize(String documentText);
+}
\ No newline at end of file
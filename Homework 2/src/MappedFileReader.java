@@ -0,0 +1,204 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads documents into a reusable character buffer and hands their lines over as ranges of it, so that no string is made per line. Files are memory
+ * mapped and decoded straight from the mapping; files smaller than a page or two are read into a reusable direct buffer instead, which costs less than
+ * setting up a mapping. The charset is given explicitly: runs of ASCII are copied without a decoder for UTF-8 and US-ASCII, ISO-8859-1 is widened byte by
+ * byte, and every other charset goes through its decoder. Malformed and unmappable input is replaced, as {@link java.io.FileReader} does. Not safe for
+ * use from many threads, each needs a reader of its own.
+ *
+ * @author Ekal.Golas
+ */
+public class MappedFileReader {
+	private static final int		MAP_THRESHOLD	= 16 * 1024;
+
+	private final Charset			charset;
+	private final CharsetDecoder	decoder;
+	private final boolean			asciiCompatible;
+	private final boolean			latin1;
+	private final ByteBuffer		bytes			= ByteBuffer.allocateDirect(MAP_THRESHOLD);
+	private CharBuffer				chars			= CharBuffer.allocate(MAP_THRESHOLD);
+
+	/**
+	 * Receives the lines of a document
+	 */
+	public interface LineSink {
+		/**
+		 * Receives a line, which is only valid until the method returns
+		 *
+		 * @param text
+		 *            Text holding the line
+		 * @param start
+		 *            Index of the first character of the line
+		 * @param end
+		 *            Index after the last character of the line, before its terminator
+		 * @throws IOException
+		 */
+		void line(CharSequence text, int start, int end) throws IOException;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param charset
+	 *            Charset of the documents
+	 */
+	public MappedFileReader(final Charset charset) {
+		this.charset = charset;
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII);
+		this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Reads a file and hands each of its lines to a sink, the lines being split as {@link java.io.BufferedReader#readLine()} splits them
+	 *
+	 * @param file
+	 *            File to read
+	 * @param sink
+	 *            Sink of the lines
+	 * @throws IOException
+	 */
+	public void read(final File file, final LineSink sink) throws IOException {
+		lines(this.decode(file), sink);
+	}
+
+	/**
+	 * Decodes a file into the reusable character buffer
+	 *
+	 * @param file
+	 *            File to decode
+	 * @return Buffer holding the characters of the file from index 0 to its limit, valid until the next call
+	 * @throws IOException
+	 */
+	public CharBuffer decode(final File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too large to read into memory");
+			}
+
+			final ByteBuffer input;
+			if (size < MAP_THRESHOLD) {
+				input = this.bytes;
+				input.clear().limit((int) size);
+				while (input.hasRemaining() && channel.read(input) >= 0) {
+					continue;
+				}
+
+				input.flip();
+			} else {
+				input = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+
+			return this.decode(input);
+		}
+	}
+
+	/**
+	 * Decodes bytes into the reusable character buffer
+	 *
+	 * @param input
+	 *            Bytes to decode
+	 * @return Buffer holding the characters from index 0 to its limit
+	 */
+	private CharBuffer decode(final ByteBuffer input) {
+		final int capacity = (int) Math.ceil(input.remaining() * (double) this.decoder.maxCharsPerByte());
+		if (this.chars.capacity() < capacity) {
+			this.chars = CharBuffer.allocate(Math.max(capacity, this.chars.capacity() * 2));
+		}
+
+		final char[] array = this.chars.array();
+		final int length = input.remaining();
+		CharBuffer output = this.chars;
+		output.clear();
+
+		// Copy the leading ASCII or all of ISO-8859-1 without the decoder
+		int i = 0;
+		if (this.latin1) {
+			for (; i < length; i++) {
+				array[i] = (char) (input.get(i) & 0xff);
+			}
+		} else if (this.asciiCompatible) {
+			for (byte b; i < length && (b = input.get(i)) >= 0; i++) {
+				array[i] = (char) b;
+			}
+		}
+
+		input.position(i);
+		output.position(i);
+
+		// Decode the rest, growing the buffer if a decoder gives more characters than it promised
+		if (input.hasRemaining()) {
+			this.decoder.reset();
+			while (this.decoder.decode(input, output, true).isOverflow()) {
+				output = grow(output);
+			}
+
+			while (this.decoder.flush(output).isOverflow()) {
+				output = grow(output);
+			}
+
+			this.chars = output;
+		}
+
+		output.flip();
+		return output;
+	}
+
+	/**
+	 * @param buffer
+	 *            Full buffer
+	 * @return Buffer of twice the capacity holding the same characters
+	 */
+	private static CharBuffer grow(final CharBuffer buffer) {
+		final CharBuffer larger = CharBuffer.allocate(buffer.capacity() * 2);
+		buffer.flip();
+		return larger.put(buffer);
+	}
+
+	/**
+	 * Hands each line of a text to a sink. Lines end at "\n", "\r" or "\r\n", and a last line without a terminator is handed over unless it is empty.
+	 *
+	 * @param text
+	 *            Text to split
+	 * @param sink
+	 *            Sink of the lines
+	 * @throws IOException
+	 */
+	public static void lines(final CharSequence text, final LineSink sink) throws IOException {
+		final int length = text.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			final char c = text.charAt(i);
+			if (c == '\n' || c == '\r') {
+				sink.line(text, start, i);
+				if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+					i++;
+				}
+
+				start = i + 1;
+			}
+		}
+
+		if (start < length) {
+			sink.line(text, start, length);
+		}
+	}
+
+	/**
+	 * @return the charset of the documents
+	 */
+	public Charset getCharset() {
+		return this.charset;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lightweight analyzer that reduces a word to its Porter stem. It loads no models, so it starts instantly, at the cost of stems such as "flow" for
+ * "flowing" and "pressur" for "pressure" in place of dictionary lemmas.
+ *
+ * @author Ekal.Golas
+ */
+public class PorterLemmatizer implements Lemmatizer {
+	/*
+	 * (non-Javadoc)
+	 * @see Lemmatizer#lemmatize(java.lang.String)
+	 */
+	@Override
+	public List<String> lemmatize(final String documentText) {
+		return Collections.singletonList(Stemming.stem(documentText));
+	}
+}
\ No newline at end of file
@@ -17,6 +17,10 @@ public class StorageManager {
 	private static Map<String, DocumentProperty>	docProperties	= new HashMap<>();;
 	private static Set<String>						stopwords;
 
+	private File									file;
+	private String									document;
+	private DocumentProperty						property;
+
 	/**
 	 * Default constructor
 	 *
@@ -39,13 +43,18 @@ public class StorageManager {
 	 * @param stem
 	 *            Stem of the word
 	 * @param file
-	 *            File of the document where the word came from
+	 *            File of the document where the word came from, or null if it came from the document set by {@link #setSource(String)}
 	 */
 	public void store(final String word, final List<String> lemma, final String stem, final File file) {
-		// Create document properties
-		final String doc = file.getName().replaceAll("[^\\d]", "");
-		if (!StorageManager.docProperties.containsKey(doc)) {
-			docProperties.put(doc, new DocumentProperty());
+		// Create document properties, once per file or source
+		if (file == null) {
+			if (this.property == null) {
+				this.property = getDocProperty(this.document);
+			}
+		} else if (!file.equals(this.file)) {
+			this.file = file;
+			this.document = file.getName().replaceAll("[^\\d]", "");
+			this.property = getDocProperty(this.document);
 		}
 
 		if (!StorageManager.stopwords.contains(word)) {
@@ -60,14 +69,42 @@ public class StorageManager {
 			}
 
 			// Update the term with maximum frequency for this document
-			if (StorageManager.docProperties.get(doc).getMaxFreq() < count + 1) {
-				StorageManager.docProperties.get(doc).setMaxFreq(count + 1);
+			if (this.property.getMaxFreq() < count + 1) {
+				this.property.setMaxFreq(count + 1);
 			}
 		}
 
 		// Increment number of words in the document
-		final int len = StorageManager.docProperties.get(doc).getDoclen();
-		StorageManager.docProperties.get(doc).setDoclen(len + 1);
+		this.property.setDoclen(this.property.getDoclen() + 1);
+	}
+
+	/**
+	 * Sets the document the words stored without a file come from, for documents that do not have a file of their own, such as those of an archive
+	 *
+	 * @param name
+	 *            Document ID
+	 */
+	public void setSource(final String name) {
+		this.document = name;
+	}
+
+	/**
+	 * Gets the properties of a document, creating them on first use. Storage managers of different documents may call this from different threads.
+	 *
+	 * @param doc
+	 *            Document ID
+	 * @return Properties of the document
+	 */
+	public static final DocumentProperty getDocProperty(final String doc) {
+		synchronized (docProperties) {
+			DocumentProperty property = docProperties.get(doc);
+			if (property == null) {
+				property = new DocumentProperty();
+				docProperties.put(doc, property);
+			}
+
+			return property;
+		}
 	}
 
 	/**
@@ -84,6 +121,20 @@ public class StorageManager {
 		return this.lemmaMap;
 	}
 
+	/**
+	 * @return the ID of the document of the stored words, null if no word has been stored nor source set
+	 */
+	public final String getDocument() {
+		return this.document;
+	}
+
+	/**
+	 * @return the properties of the document of the stored words, null if no word has been stored
+	 */
+	public final DocumentProperty getProperty() {
+		return this.property;
+	}
+
 	/**
 	 * @return the docProperties
 	 */
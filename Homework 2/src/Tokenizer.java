@@ -1,6 +1,7 @@
 
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -9,7 +10,81 @@ import java.util.List;
  * @author Ekal.Golas
  */
 public class Tokenizer {
-	public static StanfordLemmatizer lemmatizer = new StanfordLemmatizer();
+	private static final boolean[]		DROPPED	= new boolean[128];
+	private static volatile Lemmatizer	lemmatizer;
+
+	private char[]						buffer	= new char[256];
+
+	static {
+		for (final char c : "0123456789+^:,?;=%#&~`$!@*_)/(}{.".toCharArray()) {
+			DROPPED[c] = true;
+		}
+	}
+
+	/**
+	 * Gets the analyzer that lemmatizes tokens. Unless another one has been set, the CoreNLP pipeline is created on the first call rather than when the class
+	 * loads, so runs that never lemmatize do not pay for loading its models.
+	 *
+	 * @return Analyzer of the tokens
+	 */
+	public static Lemmatizer getLemmatizer() {
+		Lemmatizer result = lemmatizer;
+		if (result == null) {
+			synchronized (Tokenizer.class) {
+				if (lemmatizer == null) {
+					lemmatizer = new StanfordLemmatizer();
+				}
+
+				result = lemmatizer;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param analyzer
+	 *            Analyzer to lemmatize tokens with
+	 */
+	public static void setLemmatizer(final Lemmatizer analyzer) {
+		lemmatizer = analyzer;
+	}
+
+	/**
+	 * Sets the analyzer of an index by name
+	 *
+	 * @param analyzer
+	 *            "corenlp" for the CoreNLP pipeline, created on first use, "porter" for the Porter stemmer, "wordnet" for the {@link WordNetLemmatizer},
+	 *            or "table" for a {@link LemmaTable} that falls back to CoreNLP for the words it does not hold
+	 * @param lemmas
+	 *            Table file to load when the analyzer is "table" and the file exists, may be null
+	 * @param dict
+	 *            WordNet dict folder of the "wordnet" analyzer
+	 * @throws IOException
+	 */
+	public static void configure(final String analyzer, final File lemmas, final File dict) throws IOException {
+		switch (analyzer) {
+			case "corenlp":
+				setLemmatizer(null);
+				break;
+			case "porter":
+				setLemmatizer(new PorterLemmatizer());
+				break;
+			case "wordnet":
+				setLemmatizer(new WordNetLemmatizer(dict));
+				break;
+			case "table":
+				final LemmaTable table = new LemmaTable(StanfordLemmatizer::new);
+				if (lemmas != null && lemmas.isFile()) {
+					table.load(lemmas);
+				}
+
+				setLemmatizer(table);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown analyzer " + analyzer);
+		}
+	}
 
 	/**
 	 * Tokenizes and stores the index characteristics from the words
@@ -21,24 +96,63 @@ public class Tokenizer {
 	 * @param storageManager
 	 *            Storage manager to be updated
 	 */
-	public void tokenize(final File file, String line, final StorageManager storageManager) {
+	public void tokenize(final File file, final String line, final StorageManager storageManager) {
+		this.tokenize(file, line, 0, line.length(), storageManager);
+	}
+
+	/**
+	 * Tokenizes and stores the index characteristics from the words of a range of characters, so that a reader can hand over the lines of a decoded
+	 * document without making a string of each
+	 *
+	 * @param file
+	 *            File containing the line
+	 * @param text
+	 *            Text holding the line
+	 * @param start
+	 *            Index of the first character of the line
+	 * @param end
+	 *            Index after the last character of the line
+	 * @param storageManager
+	 *            Storage manager to be updated
+	 */
+	public void tokenize(final File file, final CharSequence text, final int start, final int end, final StorageManager storageManager) {
 		// Transform the line in order to tokenize it
-		line = this.transformText(line);
+		final long transform = Metrics.start();
+		final int length = this.transform(text, start, end);
+		Metrics.record(Metrics.Stage.TRANSFORM, transform);
 
 		// Get and read each token
-		final String[] words = line.split(" ");
-		for (final String word : words) {
+		final Lemmatizer lemmatizer = getLemmatizer();
+		int tokens = 0;
+		for (int begin = 0, space; begin < length; begin = space + 1) {
+			space = begin;
+			while (space < length && this.buffer[space] != ' ') {
+				space++;
+			}
+
 			// Skip if word is empty
-			if (word == null || word.length() < 1) {
+			if (space == begin) {
 				continue;
 			}
 
+			final String word = new String(this.buffer, begin, space - begin).toLowerCase();
+
 			// Stem and lemmatize
+			long time = Metrics.start();
 			final String stem = Stemming.stem(word);
+			Metrics.record(Metrics.Stage.STEM, time);
+
+			time = Metrics.start();
 			final List<String> lemma = lemmatizer.lemmatize(word);
+			Metrics.record(Metrics.Stage.LEMMATIZE, time);
 
+			time = Metrics.start();
 			storageManager.store(word, lemma, stem, file);
+			Metrics.record(Metrics.Stage.STORE, time);
+			tokens++;
 		}
+
+		Metrics.addTokens(tokens);
 	}
 
 	/**
@@ -57,30 +171,91 @@ public class Tokenizer {
 	 *            Text to transform
 	 * @return Transformed text
 	 */
-	private String transformText(String text) {
-		// Replacing the SGML tags with space.
-		text = text.replaceAll("\\<.*?>", " ");
+	String transformText(final String text) {
+		return new String(this.buffer, 0, this.transform(text, 0, text.length())).toLowerCase();
+	}
 
-		// Remove digits
-		text = text.replaceAll("[\\d+]", "");
+	/**
+	 * Transforms a range of characters into the buffer, in two passes instead of a regular expression per rule. The first pass replaces SGML tags
+	 * ("\\<.*?>") with a space and drops digits, "+" and the special characters "^:,?;=%#&~`$!@*_)/(}{."; the second, over what is left, drops
+	 * possessives ("'s"), turns the other quotes, dashes and runs of white space into a single space and trims the ends. Words are lower cased by the caller.
+	 *
+	 * @param text
+	 *            Text holding the range
+	 * @param start
+	 *            Index of the first character
+	 * @param end
+	 *            Index after the last character
+	 * @return Length of the transformed text at the start of the buffer
+	 */
+	private int transform(final CharSequence text, final int start, final int end) {
+		if (this.buffer.length < end - start) {
+			this.buffer = new char[Math.max(end - start, this.buffer.length * 2)];
+		}
 
-		// Remove the special characters
-		text = text.replaceAll("[+^:,?;=%#&~`$!@*_)/(}{\\.]", "");
+		// Replace tags, which do not span line terminators, and drop digits and special characters
+		final char[] chars = this.buffer;
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			final char c = text.charAt(i);
+			if (c == '<') {
+				int close = i + 1;
+				while (close < end && text.charAt(close) != '>' && !isLineTerminator(text.charAt(close))) {
+					close++;
+				}
 
-		// Remove possessives
-		text = text.replaceAll("\\'s", "");
+				if (close < end && text.charAt(close) == '>') {
+					chars[length++] = ' ';
+					i = close;
+					continue;
+				}
+			}
+
+			if (c < 128 && DROPPED[c]) {
+				continue;
+			}
+
+			chars[length++] = c;
+		}
+
+		// Drop possessives and collapse quotes, dashes and white space into single spaces
+		int written = 0;
+		boolean space = false;
+		for (int i = 0; i < length; i++) {
+			final char c = chars[i];
+			if (c == '\'' && i + 1 < length && chars[i + 1] == 's') {
+				i++;
+			} else if (c == '\'' || c == '-' || c == ' ' || c >= '\t' && c <= '\r') {
+				if (!space) {
+					chars[written++] = ' ';
+					space = true;
+				}
+			} else {
+				chars[written++] = c;
+				space = false;
+			}
+		}
 
-		// Replace "'" with a space
-		text = text.replaceAll("\\'", " ");
+		// Trim, as String.trim does
+		int first = 0;
+		while (first < written && chars[first] <= ' ') {
+			first++;
+		}
 
-		// Replace - with space to count two words
-		text = text.replaceAll("-", " ");
+		while (written > first && chars[written - 1] <= ' ') {
+			written--;
+		}
 
-		// Remove multiple white spaces
-		text = text.replaceAll("\\s+", " ");
+		System.arraycopy(chars, first, chars, 0, written - first);
+		return written - first;
+	}
 
-		// Trim and set text to lower case
-		text = text.trim().toLowerCase();
-		return text;
+	/**
+	 * @param c
+	 *            Character
+	 * @return True if the character ends a line, so that "." does not match it in a regular expression
+	 */
+	private static boolean isLineTerminator(final char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
 	}
 }
\ No newline at end of file
@@ -0,0 +1,481 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Streams the documents of gzip, zip and tar archives without extracting them to disk. Every file of an archive, a gzipped one inside a tar or zip
+ * included, is decoded as it is read and split into documents at "&lt;DOC&gt;" and "&lt;/DOC&gt;", so only the document being read is held in memory.
+ * Documents are named by their "&lt;DOCNO&gt;"; a file without any "&lt;DOC&gt;" is taken as a single document, named by the digits of its file name as
+ * the parsers name plain files.
+ *
+ * @author Ekal.Golas
+ */
+public class TrecArchiveReader {
+	private static final int	BLOCK		= 512;
+	private static final int	CHUNK		= 8192;
+	private static final String	DOC			= "<DOC>";
+	private static final String	END_DOC		= "</DOC>";
+	private static final String	DOCNO		= "<DOCNO>";
+	private static final String	END_DOCNO	= "</DOCNO>";
+
+	private final Charset		charset;
+	private long				documents;
+
+	/**
+	 * Receives the documents of an archive
+	 */
+	public interface DocumentSink {
+		/**
+		 * Receives a document
+		 *
+		 * @param docno
+		 *            External document ID
+		 * @param text
+		 *            Text of the document, from "&lt;DOC&gt;" to "&lt;/DOC&gt;"
+		 * @throws IOException
+		 * @throws InterruptedException
+		 */
+		void document(String docno, String text) throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param charset
+	 *            Charset of the files in the archives, or null for the platform charset
+	 */
+	public TrecArchiveReader(final Charset charset) {
+		this.charset = charset == null ? Charset.defaultCharset() : charset;
+	}
+
+	/**
+	 * @param file
+	 *            File
+	 * @return True if the file is a gzip, zip or tar archive, by its extension
+	 */
+	public static boolean isArchive(final File file) {
+		final String name = file.getName().toLowerCase(Locale.ROOT);
+		return name.endsWith(".gz") || name.endsWith(".tgz") || name.endsWith(".zip") || name.endsWith(".tar");
+	}
+
+	/**
+	 * Reads every document of an archive, in the order they are stored
+	 *
+	 * @param archive
+	 *            Archive to read
+	 * @param sink
+	 *            Sink of the documents
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void read(final File archive, final DocumentSink sink) throws IOException, InterruptedException {
+		final String name = archive.getName().toLowerCase(Locale.ROOT);
+		try (InputStream input = new BufferedInputStream(new FileInputStream(archive), 1 << 16)) {
+			if (name.endsWith(".zip")) {
+				this.readZip(input, sink);
+			} else if (name.endsWith(".tar")) {
+				this.readTar(input, sink);
+			} else if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+				this.readTar(new GZIPInputStream(input, 1 << 16), sink);
+			} else {
+				this.split(new GZIPInputStream(input, 1 << 16), name.substring(0, name.length() - 3), sink);
+			}
+		}
+	}
+
+	/**
+	 * Reads the files of a zip archive
+	 *
+	 * @param input
+	 *            Stream of the archive
+	 * @param sink
+	 *            Sink of the documents
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void readZip(final InputStream input, final DocumentSink sink) throws IOException, InterruptedException {
+		final ZipInputStream zip = new ZipInputStream(input, this.charset);
+		for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+			if (!entry.isDirectory()) {
+				this.readEntry(zip, entry.getName(), sink);
+			}
+		}
+	}
+
+	/**
+	 * Reads the files of a tar archive, in the ustar format with the GNU and pax extensions for long names
+	 *
+	 * @param input
+	 *            Stream of the archive
+	 * @param sink
+	 *            Sink of the documents
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void readTar(final InputStream input, final DocumentSink sink) throws IOException, InterruptedException {
+		final byte[] header = new byte[BLOCK];
+		String longName = null;
+		while (readBlock(input, header)) {
+			// Two empty blocks end the archive, one is enough to stop
+			if (header[0] == 0) {
+				return;
+			}
+
+			final long size = parseSize(header);
+			final char type = (char) header[156];
+			final String name = longName != null ? longName : parseName(header);
+			longName = null;
+
+			final BoundedInputStream entry = new BoundedInputStream(input, size);
+			if (type == 'L') {
+				// GNU long name of the next entry
+				longName = new String(readAll(entry), StandardCharsets.UTF_8).trim();
+			} else if (type == 'x') {
+				// Pax header, whose path record names the next entry
+				for (final String record : new String(readAll(entry), StandardCharsets.UTF_8).split("\n")) {
+					final int path = record.indexOf(" path=");
+					if (path >= 0) {
+						longName = record.substring(path + 6);
+					}
+				}
+			} else if (type == '0' || type == 0 || type == '7') {
+				this.readEntry(entry, name, sink);
+			}
+
+			// Skip what the entry did not read and the padding of its last block
+			skipFully(input, entry.remaining + (BLOCK - size % BLOCK) % BLOCK);
+		}
+	}
+
+	/**
+	 * Reads a file of an archive, decompressing it if it is gzipped
+	 *
+	 * @param input
+	 *            Stream that ends with the file, which is not closed
+	 * @param name
+	 *            Name of the file in the archive
+	 * @param sink
+	 *            Sink of the documents
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void readEntry(final InputStream input, final String name, final DocumentSink sink) throws IOException, InterruptedException {
+		if (name.toLowerCase(Locale.ROOT).endsWith(".gz")) {
+			this.split(new GZIPInputStream(input, CHUNK), name.substring(0, name.length() - 3), sink);
+		} else {
+			this.split(input, name, sink);
+		}
+	}
+
+	/**
+	 * Splits the text of a file into documents as it is decoded. Text outside "&lt;DOC&gt;" and "&lt;/DOC&gt;" is dropped once a document has been
+	 * found, so memory is bounded by the largest document.
+	 *
+	 * @param input
+	 *            Stream of the file
+	 * @param name
+	 *            Name of the file, to name it if it holds no "&lt;DOC&gt;"
+	 * @param sink
+	 *            Sink of the documents
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void split(final InputStream input, final String name, final DocumentSink sink) throws IOException, InterruptedException {
+		final Reader reader = new InputStreamReader(input, this.charset);
+		final StringBuilder pending = new StringBuilder();
+		final char[] chunk = new char[CHUNK];
+		int start = -1;
+		int scan = 0;
+		int found = 0;
+		for (int count; (count = reader.read(chunk)) >= 0;) {
+			pending.append(chunk, 0, count);
+			while (true) {
+				// Find the start of the next document, then its end
+				if (start < 0) {
+					start = pending.indexOf(DOC, scan);
+					if (start < 0) {
+						scan = Math.max(0, pending.length() - DOC.length() + 1);
+						break;
+					}
+
+					scan = start + DOC.length();
+				}
+
+				final int end = pending.indexOf(END_DOC, scan);
+				if (end < 0) {
+					scan = Math.max(scan, pending.length() - END_DOC.length() + 1);
+					break;
+				}
+
+				final String text = pending.substring(start, end + END_DOC.length());
+				this.documents++;
+				found++;
+				sink.document(docno(text, name), text);
+				pending.delete(0, end + END_DOC.length());
+				start = -1;
+				scan = 0;
+			}
+
+			// Drop the text between documents, keeping what may be the start of a tag
+			if (found > 0 && start < 0 && scan > 0) {
+				pending.delete(0, scan);
+				scan = 0;
+			}
+		}
+
+		// A file without documents is a document of its own
+		if (found == 0 && pending.toString().trim().length() > 0) {
+			final String text = pending.toString();
+			this.documents++;
+			sink.document(docno(text, name), text);
+		}
+	}
+
+	/**
+	 * @param text
+	 *            Text of a document
+	 * @param name
+	 *            Name of the file holding the document
+	 * @return Text between "&lt;DOCNO&gt;" and "&lt;/DOCNO&gt;", trimmed, or else the digits of the base name of the file, or else the base name
+	 */
+	private static String docno(final String text, final String name) {
+		final int start = text.indexOf(DOCNO);
+		final int end = start < 0 ? -1 : text.indexOf(END_DOCNO, start);
+		if (end >= 0) {
+			return text.substring(start + DOCNO.length(), end).trim();
+		}
+
+		final String base = name.substring(name.lastIndexOf('/') + 1);
+		final String digits = base.replaceAll("[^\\d]", "");
+		return digits.isEmpty() ? base : digits;
+	}
+
+	/**
+	 * @param header
+	 *            Tar header
+	 * @return Name of the entry, the ustar prefix included
+	 */
+	private static String parseName(final byte[] header) {
+		final String name = parseString(header, 0, 100);
+		final boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't' && header[260] == 'a' && header[261] == 'r';
+		final String prefix = ustar ? parseString(header, 345, 155) : "";
+		return prefix.isEmpty() ? name : prefix + "/" + name;
+	}
+
+	/**
+	 * @param header
+	 *            Tar header
+	 * @param offset
+	 *            Offset of the field
+	 * @param length
+	 *            Length of the field
+	 * @return Field up to its first NUL
+	 */
+	private static String parseString(final byte[] header, final int offset, final int length) {
+		int end = offset;
+		while (end < offset + length && header[end] != 0) {
+			end++;
+		}
+
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param header
+	 *            Tar header
+	 * @return Size of the entry, in octal or, for large entries, in GNU base-256
+	 */
+	private static long parseSize(final byte[] header) {
+		long size = 0;
+		if ((header[124] & 0x80) != 0) {
+			for (int i = 125; i < 136; i++) {
+				size = size << 8 | header[i] & 0xff;
+			}
+
+			return size;
+		}
+
+		for (int i = 124; i < 136; i++) {
+			if (header[i] >= '0' && header[i] <= '7') {
+				size = size << 3 | header[i] - '0';
+			} else if (size > 0 || header[i] == 0) {
+				break;
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Reads a block of a tar archive
+	 *
+	 * @param input
+	 *            Stream of the archive
+	 * @param block
+	 *            Block to fill
+	 * @return True if a block was read, false at the end of the stream
+	 * @throws IOException
+	 */
+	private static boolean readBlock(final InputStream input, final byte[] block) throws IOException {
+		int read = 0;
+		while (read < block.length) {
+			final int count = input.read(block, read, block.length - read);
+			if (count < 0) {
+				if (read == 0) {
+					return false;
+				}
+
+				throw new EOFException("Truncated tar header");
+			}
+
+			read += count;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param input
+	 *            Stream
+	 * @return Every byte left in the stream
+	 * @throws IOException
+	 */
+	private static byte[] readAll(final InputStream input) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[BLOCK];
+		for (int count; (count = input.read(buffer)) >= 0;) {
+			output.write(buffer, 0, count);
+		}
+
+		return output.toByteArray();
+	}
+
+	/**
+	 * Skips bytes of a stream, reading them if the stream skips fewer than asked
+	 *
+	 * @param input
+	 *            Stream
+	 * @param count
+	 *            Number of bytes to skip
+	 * @throws IOException
+	 */
+	private static void skipFully(final InputStream input, long count) throws IOException {
+		while (count > 0) {
+			long skipped = input.skip(count);
+			if (skipped <= 0) {
+				if (input.read() < 0) {
+					throw new EOFException("Truncated tar entry");
+				}
+
+				skipped = 1;
+			}
+
+			count -= skipped;
+		}
+	}
+
+	/**
+	 * View of an entry of a tar archive, at most a number of bytes of the archive stream, which it leaves open when closed
+	 */
+	private static class BoundedInputStream extends FilterInputStream {
+		private long remaining;
+
+		/**
+		 * Constructor
+		 *
+		 * @param input
+		 *            Underlying stream
+		 * @param limit
+		 *            Number of bytes that can be read
+		 */
+		BoundedInputStream(final InputStream input, final long limit) {
+			super(input);
+			this.remaining = limit;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterInputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+
+			final int b = super.read();
+			if (b >= 0) {
+				this.remaining--;
+			}
+
+			return b;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+
+			final int count = super.read(b, off, (int) Math.min(len, this.remaining));
+			if (count > 0) {
+				this.remaining -= count;
+			}
+
+			return count;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterInputStream#skip(long)
+		 */
+		@Override
+		public long skip(final long n) throws IOException {
+			final long skipped = super.skip(Math.min(n, this.remaining));
+			this.remaining -= skipped;
+			return skipped;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterInputStream#available()
+		 */
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), this.remaining);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.FilterInputStream#close()
+		 */
+		@Override
+		public void close() {
+			// The underlying stream holds the rest of the archive
+		}
+	}
+
+	/**
+	 * @return the number of documents read so far
+	 */
+	public long getDocuments() {
+		return this.documents;
+	}
+}
\ No newline at end of file
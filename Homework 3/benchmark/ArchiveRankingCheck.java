@@ -0,0 +1,187 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Checks that an index built from archives ranks the queries exactly as one built from the directory of the same documents. The generated corpus is
+ * packed into a zip archive and into a single gzip stream, and the queries are read from a file named hw3.queries, whose digits are those of DOCNO 3,
+ * so that a query stored under the ID of a document of the collection would change the scores of that document. Document IDs are compared without
+ * their leading zeros, as the directory names them by their file and the archives by their DOCNO.
+ *
+ * @author Ekal.Golas
+ */
+public class ArchiveRankingCheck {
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Number of documents, 2000 by default
+	 * @throws IOException
+	 */
+	public static void main(final String args[]) throws IOException {
+		final int documents = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		Tokenizer.setLemmatizer(new PorterLemmatizer());
+		final BenchmarkCorpus corpus = new BenchmarkCorpus(documents, 20);
+		try {
+			final File root = corpus.getQueries().getParentFile();
+			final File queries = new File(root, "hw3.queries");
+			Files.copy(corpus.getQueries().toPath(), queries.toPath());
+
+			final List<File> files;
+			try (Stream<Path> paths = Files.walk(corpus.getDocuments().toPath())) {
+				files = paths.filter(Files::isRegularFile).sorted().map(Path::toFile).collect(Collectors.toList());
+			}
+
+			final File zip = new File(root, "cranfield.zip");
+			try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(zip.toPath()))) {
+				for (final File file : files) {
+					output.putNextEntry(new ZipEntry(file.getName()));
+					Files.copy(file.toPath(), output);
+					output.closeEntry();
+				}
+			}
+
+			final File gzip = new File(root, "cranfield.gz");
+			try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzip.toPath()))) {
+				for (final File file : files) {
+					Files.copy(file.toPath(), output);
+				}
+			}
+
+			// Rank the queries over each source and compare with the directory
+			final List<Map<String, Double>> expected = rank(corpus.getDocuments(), corpus.getStopwords(), queries);
+			final OutputFormatter table = new OutputFormatter();
+			table.addRow("SOURCE", "DOCUMENTS", "QUERIES", "SCORES", "MISMATCHES");
+			table.addRow("Directory", String.valueOf(StorageManager.getDocuments().size()), String.valueOf(expected.size() / 2),
+					String.valueOf(count(expected)), "-");
+
+			int failures = 0;
+			for (final File archive : new File[] { zip, gzip }) {
+				final List<Map<String, Double>> actual = rank(archive, corpus.getStopwords(), queries);
+				final int mismatches = compare(expected, actual);
+				failures += mismatches;
+				table.addRow(archive.getName(), String.valueOf(StorageManager.getDocuments().size()), String.valueOf(actual.size() / 2),
+						String.valueOf(count(actual)), String.valueOf(mismatches));
+			}
+
+			System.out.println(table);
+			if (failures > 0) {
+				System.exit(1);
+			}
+		} finally {
+			corpus.delete();
+		}
+	}
+
+	/**
+	 * Indexes a source from scratch and ranks the queries over it
+	 *
+	 * @param source
+	 *            Directory or archive of the documents
+	 * @param stopwords
+	 *            Stop words file
+	 * @param queries
+	 *            Query file
+	 * @return W1 and W2 scores of each query in turn, keyed by document ID without leading zeros
+	 * @throws IOException
+	 */
+	private static List<Map<String, Double>> rank(final File source, final File stopwords, final File queries) throws IOException {
+		StorageManager.reset();
+		final DocumentParser documentParser = new DocumentParser(stopwords);
+		documentParser.parse(source);
+		final Map<String, Properties> lemmaDictionary = documentParser.getDictionary().getLemmaDictionary();
+		final double avgdoclen = new TextCharacteristics().getAverageDocumentLength(lemmaDictionary);
+
+		final QueryParser queryParser = new QueryParser(documentParser.getStopwords());
+		queryParser.readFile(queries);
+		final List<Map<String, Double>> scores = new ArrayList<>();
+		for (final Dictionary dictionary : queryParser.getDictionaries()) {
+			final QueryProcessor processor = new QueryProcessor(lemmaDictionary, avgdoclen);
+			processor.process(dictionary);
+			scores.add(normalize(processor.getW1()));
+			scores.add(normalize(processor.getW2()));
+		}
+
+		return scores;
+	}
+
+	/**
+	 * @param scores
+	 *            Scores keyed by document ID
+	 * @return Scores keyed by document ID without leading zeros
+	 */
+	private static Map<String, Double> normalize(final Map<String, Double> scores) {
+		final Map<String, Double> normalized = new HashMap<>();
+		for (final Map.Entry<String, Double> entry : scores.entrySet()) {
+			normalized.put(entry.getKey().replaceFirst("^0+(?=.)", ""), entry.getValue());
+		}
+
+		return normalized;
+	}
+
+	/**
+	 * Prints every score that differs between two rankings of the queries
+	 *
+	 * @param expected
+	 *            Scores over the directory
+	 * @param actual
+	 *            Scores over an archive
+	 * @return Number of documents scored differently or by only one of the rankings
+	 */
+	private static int compare(final List<Map<String, Double>> expected, final List<Map<String, Double>> actual) {
+		if (expected.size() != actual.size()) {
+			System.out.println(expected.size() / 2 + " queries over the directory, " + actual.size() / 2 + " over the archive");
+			return Math.abs(expected.size() - actual.size());
+		}
+
+		int mismatches = 0;
+		for (int i = 0; i < expected.size(); i++) {
+			final Map<String, Double> left = expected.get(i);
+			final Map<String, Double> right = actual.get(i);
+			for (final Map.Entry<String, Double> entry : left.entrySet()) {
+				final Double score = right.get(entry.getKey());
+				if (score == null || Math.abs(score - entry.getValue()) > TOLERANCE) {
+					System.out.println("Query " + (i / 2 + 1) + " W" + (i % 2 + 1) + ", document " + entry.getKey() + ": " + entry.getValue() + " over the "
+							+ "directory, " + score + " over the archive");
+					mismatches++;
+				}
+			}
+
+			for (final String doc : right.keySet()) {
+				if (!left.containsKey(doc)) {
+					System.out.println("Query " + (i / 2 + 1) + " W" + (i % 2 + 1) + ", document " + doc + " only ranked over the archive");
+					mismatches++;
+				}
+			}
+		}
+
+		return mismatches;
+	}
+
+	/**
+	 * @param scores
+	 *            Scores of the queries
+	 * @return Number of scores
+	 */
+	private static int count(final List<Map<String, Double>> scores) {
+		int count = 0;
+		for (final Map<String, Double> query : scores) {
+			count += query.size();
+		}
+
+		return count;
+	}
+}
\ No newline at end of file
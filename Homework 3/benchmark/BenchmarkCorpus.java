@@ -0,0 +1,107 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic Cranfield-like corpus bundled with the benchmarks. It is written by {@link CorpusGenerator} from a fixed seed into a temporary directory, so
+ * every run indexes the same documents and results stay comparable across changes.
+ *
+ * @author Ekal.Golas
+ */
+public class BenchmarkCorpus {
+	private static final long	SEED			= 6322L;
+	private static final int	VOCABULARY_SIZE	= 5000;
+	private static final int	DOCUMENT_LENGTH	= 90;
+	private static final double	QUERY_TERMS		= 3.0;
+
+	private final File			root;
+	private final File			documents;
+	private final File			stopwords;
+	private final File			queries;
+	private final List<String>	lines;
+	private final List<String>	words;
+
+	/**
+	 * Generates the corpus into a temporary directory
+	 *
+	 * @param size
+	 *            Number of documents to generate
+	 * @param queryCount
+	 *            Number of queries to generate
+	 * @throws IOException
+	 */
+	public BenchmarkCorpus(final int size, final int queryCount) throws IOException {
+		this.root = Files.createTempDirectory("cranfield-bench").toFile();
+		this.documents = new File(this.root, "Cranfield");
+		this.documents.mkdirs();
+		this.stopwords = new File(this.root, "stopwords");
+		this.queries = new File(this.root, "queries");
+
+		// Write stop words, documents and queries
+		final CorpusGenerator generator = new CorpusGenerator(SEED, VOCABULARY_SIZE, 1.0, null, 0.35);
+		CorpusGenerator.writeStopwords(this.stopwords);
+		generator.writeCorpus(this.documents, size, DOCUMENT_LENGTH);
+		generator.writeQueryLog(this.queries, queryCount, Math.max(1, queryCount / 4), QUERY_TERMS, 1.0);
+
+		// Sample lines and words for the per-stage benchmarks
+		this.lines = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			this.lines.add(generator.nextLine(8 + i % 6));
+		}
+
+		final String[] vocabulary = generator.getVocabulary();
+		this.words = Arrays.asList(Arrays.copyOf(vocabulary, Math.min(500, vocabulary.length)));
+	}
+
+	/**
+	 * Deletes the generated files
+	 *
+	 * @throws IOException
+	 */
+	public void delete() throws IOException {
+		try (Stream<Path> paths = Files.walk(this.root.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * @return the documents directory
+	 */
+	public final File getDocuments() {
+		return this.documents;
+	}
+
+	/**
+	 * @return the stop words file
+	 */
+	public final File getStopwords() {
+		return this.stopwords;
+	}
+
+	/**
+	 * @return the queries file
+	 */
+	public final File getQueries() {
+		return this.queries;
+	}
+
+	/**
+	 * @return sample of text lines from the corpus
+	 */
+	public final List<String> getLines() {
+		return this.lines;
+	}
+
+	/**
+	 * @return most frequent words of the corpus
+	 */
+	public final List<String> getWords() {
+		return this.words;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Token counting throughput of the boxed maps the storage managers used to count with, against {@link ObjectIntCounter} and {@link IntIntCounter}. Each
+ * operation counts one token. Documents are counted into a fresh counter each, as the storage manager of a document does, and the collection into a single
+ * one, as the tokenization parser does.
+ *
+ * @author Ekal.Golas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterBenchmark {
+	private static final int	DOCUMENTS	= 100;
+	private static final int	TOKENS		= 100;
+
+	private BenchmarkCorpus		corpus;
+	private String[][]			words;
+	private int[][]				ids;
+
+	/**
+	 * Splits sample lines of the corpus into documents of tokens and their term IDs
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.corpus = new BenchmarkCorpus(1, 1);
+		final Tokenizer tokenizer = new Tokenizer();
+		final List<String> tokens = new ArrayList<>();
+		for (int i = 0; tokens.size() < DOCUMENTS * TOKENS; i++) {
+			for (final String word : tokenizer.transformText(this.corpus.getLines().get(i % this.corpus.getLines().size())).split(" ")) {
+				tokens.add(word);
+			}
+		}
+
+		final Lexicon lexicon = new Lexicon();
+		this.words = new String[DOCUMENTS][TOKENS];
+		this.ids = new int[DOCUMENTS][TOKENS];
+		for (int i = 0; i < DOCUMENTS * TOKENS; i++) {
+			// Copy each token, as the tokenizer makes a new string for every occurrence
+			this.words[i / TOKENS][i % TOKENS] = new String(tokens.get(i));
+			this.ids[i / TOKENS][i % TOKENS] = lexicon.intern(tokens.get(i));
+		}
+	}
+
+	/**
+	 * Deletes the generated corpus
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		this.corpus.delete();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS * TOKENS)
+	public int mapDocuments() {
+		int size = 0;
+		for (final String[] document : this.words) {
+			final Map<String, Integer> map = new HashMap<>();
+			for (final String word : document) {
+				final int count = map.containsKey(word) ? map.get(word) : 0;
+				map.put(word, count + 1);
+			}
+
+			size += map.size();
+		}
+
+		return size;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS * TOKENS)
+	public int counterDocuments() {
+		int size = 0;
+		for (final String[] document : this.words) {
+			final ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+			for (final String word : document) {
+				counter.increment(word);
+			}
+
+			size += counter.size();
+		}
+
+		return size;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS * TOKENS)
+	public int mapIdDocuments() {
+		int size = 0;
+		for (final int[] document : this.ids) {
+			final Map<Integer, Integer> map = new HashMap<>();
+			for (final int id : document) {
+				final int count = map.containsKey(id) ? map.get(id) : 0;
+				map.put(id, count + 1);
+			}
+
+			size += map.size();
+		}
+
+		return size;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS * TOKENS)
+	public int counterIdDocuments() {
+		int size = 0;
+		for (final int[] document : this.ids) {
+			final IntIntCounter counter = new IntIntCounter();
+			for (final int id : document) {
+				counter.increment(id);
+			}
+
+			size += counter.size();
+		}
+
+		return size;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS * TOKENS)
+	public int mapCollection() {
+		final Map<String, Integer> map = new HashMap<>();
+		for (final String[] document : this.words) {
+			for (final String word : document) {
+				final int count = map.containsKey(word) ? map.get(word) : 0;
+				map.put(word, count + 1);
+			}
+		}
+
+		return map.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DOCUMENTS * TOKENS)
+	public int counterCollection() {
+		final ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+		for (final String[] document : this.words) {
+			for (final String word : document) {
+				counter.increment(word);
+			}
+		}
+
+		return counter.size();
+	}
+}
\ No newline at end of file
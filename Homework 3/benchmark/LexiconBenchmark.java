@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Interning throughput of a {@link Lexicon} shared by one, two and four threads, as the analyzer threads of an {@link IndexingPipeline} share the lexicon
+ * of the storage managers. Each operation interns one token of the sample lines of the corpus, most of them already numbered, so the scores show how well
+ * lookups scale with the number of cores.
+ *
+ * @author Ekal.Golas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexiconBenchmark {
+	private static final int	TOKENS	= 10000;
+
+	private BenchmarkCorpus		corpus;
+	private Lexicon				lexicon;
+	private String[]			words;
+
+	/**
+	 * Splits sample lines of the corpus into tokens and interns the first half of them
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.corpus = new BenchmarkCorpus(100, 1);
+		final Tokenizer tokenizer = new Tokenizer();
+		final List<String> tokens = new ArrayList<>();
+		for (int i = 0; tokens.size() < TOKENS; i++) {
+			for (final String word : tokenizer.transformText(this.corpus.getLines().get(i % this.corpus.getLines().size())).split(" ")) {
+				tokens.add(word);
+			}
+		}
+
+		this.lexicon = new Lexicon();
+		this.words = new String[TOKENS];
+		for (int i = 0; i < TOKENS; i++) {
+			// Copy each token, as the tokenizer makes a new string for every occurrence
+			this.words[i] = new String(tokens.get(i));
+			if (i < TOKENS / 2) {
+				this.lexicon.intern(this.words[i]);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the generated corpus
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		this.corpus.delete();
+	}
+
+	@Benchmark
+	@Threads(1)
+	@OperationsPerInvocation(TOKENS)
+	public int intern1() {
+		return this.intern();
+	}
+
+	@Benchmark
+	@Threads(2)
+	@OperationsPerInvocation(TOKENS)
+	public int intern2() {
+		return this.intern();
+	}
+
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(TOKENS)
+	public int intern4() {
+		return this.intern();
+	}
+
+	/**
+	 * @return Sum of the IDs of the tokens
+	 */
+	private int intern() {
+		int sum = 0;
+		for (final String word : this.words) {
+			sum += this.lexicon.intern(word);
+		}
+
+		return sum;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ranks queries over an index with decoded postings lists, and over gamma coded postings lists with caches of decoded lists of several sizes. The query
+ * terms are drawn with a skew towards the most frequent words of the corpus, as query logs are, so a small cache can hold most of the lists queries need.
+ *
+ * @author Ekal.Golas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostingsCacheBenchmark {
+	@Param({ "2000" })
+	public int					documents;
+
+	@Param({ "-1", "0", "64", "1024" })
+	public long					cacheKilobytes;
+
+	private BenchmarkCorpus		corpus;
+	private QueryEngine			engine;
+	private List<List<String>>	queries;
+	private int					cursor;
+
+	/**
+	 * Generates the corpus, builds the index and draws the queries
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException {
+		Tokenizer.setLemmatizer(new PorterLemmatizer());
+		this.corpus = new BenchmarkCorpus(this.documents, 1);
+		final DocumentParser documentParser = new DocumentParser(this.corpus.getStopwords());
+		documentParser.parse(this.corpus.getDocuments());
+		final Map<String, Properties> lemmaDictionary = documentParser.getDictionary().getLemmaDictionary();
+		final ImmutableIndex index = new ImmutableIndex(lemmaDictionary, StorageManager.getDocProperties(),
+				new TextCharacteristics().getAverageDocumentLength(lemmaDictionary), this.cacheKilobytes < 0 ? -1L : this.cacheKilobytes << 10);
+		this.engine = new QueryEngine(index, 1);
+
+		// Three terms a query, most of them among the most frequent words
+		final List<String> words = this.corpus.getWords();
+		final Random random = new Random(6322L);
+		this.queries = new ArrayList<>();
+		for (int i = 0; i < 1024; i++) {
+			final List<String> query = new ArrayList<>();
+			for (int j = 0; j < 3; j++) {
+				query.add(words.get((int) Math.min(words.size() - 1, Math.abs(random.nextGaussian()) * words.size() / 8)));
+			}
+
+			this.queries.add(query);
+		}
+	}
+
+	/**
+	 * Stops the engine and deletes the generated corpus
+	 *
+	 * @throws IOException
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		this.engine.close();
+		this.corpus.delete();
+	}
+
+	@Benchmark
+	public QueryEngine.Result search() {
+		this.cursor = (this.cursor + 1) % this.queries.size();
+		return this.engine.search(this.queries.get(this.cursor), 10, System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Load test of hot index reloads. A {@link SearchServer} serves a generated corpus while client threads query it over HTTP without pause, and the index
+ * is rebuilt and swapped in every few seconds. The latency of each second is printed, marking the seconds a reload ran in, followed by the latency of the
+ * queries that overlapped a reload against those that did not, so a reload that stalled queries would show as a spike.
+ *
+ * @author Ekal.Golas
+ */
+public class ReloadLoadTest {
+	private static final long	SEED	= 6322L;
+
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Command line arguments
+	 * @throws Exception
+	 */
+	public static void main(final String args[]) throws Exception {
+		final CommandLine cmd = validateArguments(args);
+		final int documents = Integer.parseInt(cmd.getOptionValue("documents", "2000"));
+		final int clients = Integer.parseInt(cmd.getOptionValue("clients", "4"));
+		final int threads = Integer.parseInt(cmd.getOptionValue("threads", "4"));
+		final int seconds = Integer.parseInt(cmd.getOptionValue("seconds", "20"));
+		final long interval = TimeUnit.SECONDS.toMillis(Integer.parseInt(cmd.getOptionValue("interval", "5")));
+		Tokenizer.configure(cmd.getOptionValue("analyzer", "porter"), null, new File(cmd.getOptionValue("dict", "../Final/data/dict")));
+
+		final BenchmarkCorpus corpus = new BenchmarkCorpus(documents, 1);
+		try {
+			final DocumentParser documentParser = new DocumentParser(corpus.getStopwords());
+			final ImmutableIndex index = build(documentParser, corpus);
+			try (SearchServer server = new SearchServer(index, documentParser.getStopwords(), null,
+					() -> build(new DocumentParser(corpus.getStopwords()), corpus), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threads,
+					1000, 0)) {
+				server.start();
+				run(server, queries(corpus.getWords()), clients, seconds, interval, threads);
+			}
+		} finally {
+			corpus.delete();
+		}
+	}
+
+	/**
+	 * Builds an index of the corpus from scratch, as a reload does
+	 *
+	 * @param documentParser
+	 *            Empty parser
+	 * @param corpus
+	 *            Corpus to index
+	 * @return Index of the corpus
+	 * @throws IOException
+	 */
+	private static ImmutableIndex build(final DocumentParser documentParser, final BenchmarkCorpus corpus) throws IOException {
+		StorageManager.reset();
+		documentParser.parse(corpus.getDocuments());
+		final Map<String, Properties> lemmaDictionary = documentParser.getDictionary().getLemmaDictionary();
+		return new ImmutableIndex(lemmaDictionary, StorageManager.getDocProperties(), new TextCharacteristics().getAverageDocumentLength(lemmaDictionary));
+	}
+
+	/**
+	 * @param words
+	 *            Most frequent words of the corpus
+	 * @return Queries of two to four of the words, drawn with a fixed seed
+	 */
+	private static List<String> queries(final List<String> words) {
+		final Random random = new Random(SEED);
+		final List<String> queries = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			final StringBuilder query = new StringBuilder();
+			for (int j = 2 + random.nextInt(3); j > 0; j--) {
+				query.append(words.get(random.nextInt(words.size()))).append(' ');
+			}
+
+			queries.add(query.toString().trim());
+		}
+
+		return queries;
+	}
+
+	/**
+	 * Queries the server from the client threads for the given time, reloading it at every interval, and prints the latencies
+	 *
+	 * @param server
+	 *            Server under test
+	 * @param queries
+	 *            Query texts
+	 * @param clients
+	 *            Number of client threads
+	 * @param seconds
+	 *            Length of the test
+	 * @param interval
+	 *            Time between the start of one reload and the next, in milliseconds
+	 * @param threads
+	 *            Number of request threads of the server
+	 * @throws InterruptedException
+	 */
+	private static void run(final SearchServer server, final List<String> queries, final int clients, final int seconds, final long interval,
+			final int threads) throws InterruptedException {
+		final String base = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/search?k=10&q=";
+		final LatencyHistogram[] perSecond = new LatencyHistogram[seconds];
+		final boolean[] reloaded = new boolean[seconds];
+		for (int i = 0; i < seconds; i++) {
+			perSecond[i] = new LatencyHistogram();
+		}
+
+		final LatencyHistogram steady = new LatencyHistogram();
+		final LatencyHistogram overlapping = new LatencyHistogram();
+		final LatencyHistogram reloads = new LatencyHistogram();
+		final AtomicLong errors = new AtomicLong();
+		final List<IndexSnapshot> generations = new ArrayList<>();
+		final long begin = System.nanoTime();
+		final long end = begin + TimeUnit.SECONDS.toNanos(seconds);
+
+		// Clients send queries back to back, each marked by whether a reload ran while it was in flight
+		final List<Thread> workers = new ArrayList<>();
+		for (int c = 0; c < clients; c++) {
+			final Random random = new Random(SEED + c);
+			workers.add(new Thread(() -> {
+				while (System.nanoTime() < end) {
+					final String query = queries.get(random.nextInt(queries.size()));
+					final long generation = server.getGeneration();
+					final boolean reloading = server.isReloading();
+					final long start = System.nanoTime();
+					try {
+						get(base + URLEncoder.encode(query, "UTF-8"));
+					} catch (final IOException e) {
+						errors.incrementAndGet();
+						continue;
+					}
+
+					final long elapsed = System.nanoTime() - start;
+					final int second = (int) TimeUnit.NANOSECONDS.toSeconds(start - begin);
+					if (second < seconds) {
+						perSecond[second].record(elapsed);
+					}
+
+					if (reloading || server.isReloading() || generation != server.getGeneration()) {
+						overlapping.record(elapsed);
+					} else {
+						steady.record(elapsed);
+					}
+				}
+			}, "client-" + c));
+		}
+
+		// Reload at every interval until the test ends
+		final Thread reloader = new Thread(() -> {
+			try {
+				while (true) {
+					Thread.sleep(interval);
+					if (System.nanoTime() >= end) {
+						return;
+					}
+
+					final long start = System.nanoTime();
+					generations.add(server.reload());
+					final long finish = System.nanoTime();
+					reloads.record(finish - start);
+					for (long second = TimeUnit.NANOSECONDS.toSeconds(start - begin); second <= TimeUnit.NANOSECONDS.toSeconds(finish - begin)
+							&& second < seconds; second++) {
+						reloaded[(int) second] = true;
+					}
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (final Exception e) {
+				System.err.println("Reload failed: " + e);
+			}
+		}, "reloader");
+
+		for (final Thread worker : workers) {
+			worker.start();
+		}
+
+		reloader.start();
+		for (final Thread worker : workers) {
+			worker.join();
+		}
+
+		reloader.interrupt();
+		reloader.join();
+
+		// Every generation but the one being served should have drained
+		int drained = 0;
+		for (int i = 0; i < generations.size() - 1; i++) {
+			if (generations.get(i).awaitDrained(1, TimeUnit.SECONDS)) {
+				drained++;
+			}
+		}
+
+		final OutputFormatter table = new OutputFormatter();
+		table.addRow("SECOND", "QUERIES", "P50", "P99", "MAX", "RELOAD");
+		for (int i = 0; i < seconds; i++) {
+			table.addRow(String.valueOf(i + 1),
+					String.valueOf(perSecond[i].getCount()),
+					micros(perSecond[i].getPercentile(50)),
+					micros(perSecond[i].getPercentile(99)),
+					micros(perSecond[i].getMax()),
+					reloaded[i] ? "yes" : "");
+		}
+
+		final OutputFormatter summary = new OutputFormatter();
+		summary.addRow("QUERIES", "COUNT", "P50", "P99", "P99.9", "MAX");
+		addRow(summary, "Steady", steady);
+		addRow(summary, "During reload", overlapping);
+
+		System.out.println("Reload load test, " + clients + " clients, " + threads + " server threads, a reload every " + interval + " ms:\n");
+		System.out.println(table);
+		System.out.println();
+		System.out.println(summary);
+		System.out.println();
+		System.out.println("Reloads: " + reloads.getCount() + ", mean " + TimeUnit.NANOSECONDS.toMillis((long) reloads.getMean()) + " ms, "
+				+ drained + " of " + Math.max(0, generations.size() - 1) + " old generations drained, final generation " + server.getGeneration()
+				+ ", errors " + errors.get());
+	}
+
+	/**
+	 * Sends a GET request and reads the whole response
+	 *
+	 * @param url
+	 *            URL to get
+	 * @throws IOException
+	 *             If the request fails or the status is not 200
+	 */
+	private static void get(final String url) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		if (connection.getResponseCode() != 200) {
+			throw new IOException("Status " + connection.getResponseCode());
+		}
+
+		try (InputStream input = connection.getInputStream()) {
+			final byte[] buffer = new byte[8192];
+			while (input.read(buffer) >= 0) {
+				continue;
+			}
+		}
+	}
+
+	/**
+	 * @param formatter
+	 *            Table
+	 * @param name
+	 *            Name of the queries
+	 * @param latencies
+	 *            Latencies of the queries
+	 */
+	private static void addRow(final OutputFormatter formatter, final String name, final LatencyHistogram latencies) {
+		formatter.addRow(name,
+				String.valueOf(latencies.getCount()),
+				micros(latencies.getPercentile(50)),
+				micros(latencies.getPercentile(99)),
+				micros(latencies.getPercentile(99.9)),
+				micros(latencies.getMax()));
+	}
+
+	/**
+	 * @param nanos
+	 *            Time in nanoseconds
+	 * @return Time in microseconds
+	 */
+	private static String micros(final long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos) + " us";
+	}
+
+	/**
+	 * Validates and gets the command line arguments provided
+	 *
+	 * @param args
+	 *            Command-line arguments
+	 * @return Validates arguments
+	 */
+	private static CommandLine validateArguments(final String[] args) {
+		// Get options
+		final Options options = new Options();
+		options.addOption("documents", "documents", true, "Number of documents of the generated corpus (default 2000)");
+		options.addOption("clients", "clients", true, "Number of client threads querying without pause (default 4)");
+		options.addOption("threads", "threads", true, "Number of request threads of the server (default 4)");
+		options.addOption("seconds", "seconds", true, "Length of the test in seconds (default 20)");
+		options.addOption("interval", "interval", true, "Seconds between the start of one reload and the next (default 5)");
+		options.addOption("analyzer", "analyzer", true, "Analyzer of the index and its queries: corenlp, table, wordnet or porter (default porter)");
+		options.addOption("dict", "wordnetDict", true, "WordNet dict folder of the wordnet analyzer (default ../Final/data/dict)");
+
+		// Parse arguments
+		final CommandLineParser commandLineParser = new DefaultParser();
+		CommandLine cmd = null;
+		try {
+			cmd = commandLineParser.parse(options, args, false);
+		} catch (final ParseException e1) {
+			System.out.println("Invalid arguments provided");
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("ReloadLoadTest", options);
+			System.exit(1);
+		}
+
+		return cmd;
+	}
+}
\ No newline at end of file
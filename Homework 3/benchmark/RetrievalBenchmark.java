@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-stage and end-to-end benchmarks of ranked retrieval. The index and the CoreNLP models are built once per fork during setup, so query benchmarks only
+ * measure query time.
+ *
+ * @author Ekal.Golas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetrievalBenchmark {
+	private static final TextCharacteristics	characteristics	= new TextCharacteristics();
+
+	@Param({ "200" })
+	public int									documents;
+
+	@Param({ "20" })
+	public int									queries;
+
+	private BenchmarkCorpus						corpus;
+	private DocumentParser						documentParser;
+	private Map<String, Properties>				lemmaDictionary;
+	private double								avgdoclen;
+	private Dictionary[]						dictionaries;
+	private QueryProcessor[]					processed;
+	private int									cursor;
+
+	/**
+	 * Generates the corpus, builds the index and analyzes the queries
+	 *
+	 * @throws IOException
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.corpus = new BenchmarkCorpus(this.documents, this.queries);
+		this.documentParser = new DocumentParser(this.corpus.getStopwords());
+		this.documentParser.parse(this.corpus.getDocuments());
+		this.lemmaDictionary = this.documentParser.getDictionary().getLemmaDictionary();
+		this.avgdoclen = characteristics.getAverageDocumentLength(this.lemmaDictionary);
+
+		final QueryParser queryParser = new QueryParser(this.documentParser.getStopwords());
+		queryParser.readFile(this.corpus.getQueries());
+		final List<Dictionary> list = queryParser.getDictionaries();
+		this.dictionaries = list.toArray(new Dictionary[list.size()]);
+
+		// Processed queries for the ranking benchmark
+		this.processed = new QueryProcessor[this.dictionaries.length];
+		for (int i = 0; i < this.dictionaries.length; i++) {
+			this.processed[i] = new QueryProcessor(this.lemmaDictionary, this.avgdoclen);
+			this.processed[i].process(this.dictionaries[i]);
+		}
+	}
+
+	/**
+	 * Deletes the generated corpus
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		this.corpus.delete();
+	}
+
+	/**
+	 * @param length
+	 *            Length of the input array
+	 * @return Index of the next input to use
+	 */
+	private int next(final int length) {
+		this.cursor = (this.cursor + 1) % length;
+		return this.cursor;
+	}
+
+	@Benchmark
+	public QueryProcessor process() {
+		final QueryProcessor processor = new QueryProcessor(this.lemmaDictionary, this.avgdoclen);
+		processor.process(this.dictionaries[this.next(this.dictionaries.length)]);
+		return processor;
+	}
+
+	@Benchmark
+	public OutputFormatter getTopFive() {
+		return characteristics.getTopFive(this.processed[this.next(this.processed.length)].getW1());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Dictionary index() throws IOException {
+		final DocumentParser parser = new DocumentParser(this.corpus.getStopwords());
+		parser.parse(this.corpus.getDocuments());
+		return parser.getDictionary();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int query() throws IOException {
+		// Analyze and rank every query in the query file
+		final QueryParser queryParser = new QueryParser(this.documentParser.getStopwords());
+		queryParser.readFile(this.corpus.getQueries());
+
+		int results = 0;
+		for (final Dictionary dictionary : queryParser.getDictionaries()) {
+			final QueryProcessor processor = new QueryProcessor(this.lemmaDictionary, this.avgdoclen);
+			processor.process(dictionary);
+			results += processor.getW1().size() + processor.getW2().size();
+		}
+
+		return results;
+	}
+}
\ No newline at end of file
@@ -1,21 +1,22 @@
-import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
- * Class to store stems and lemma dictionary
+ * Class to store stems and lemma dictionary. Postings are kept by term ID; the lemma strings are only used as the keys of the dictionary.
  *
  * @author Ekal.Golas
  */
 public class Dictionary {
 	private final Map<String, Properties>	lemmaDictionary;
+	private Properties[]					properties;
 
 	/**
 	 * Default constructor
 	 */
 	public Dictionary() {
 		this.lemmaDictionary = new HashMap<>();
+		this.properties = new Properties[16];
 	}
 
 	/**
@@ -23,51 +24,38 @@ public class Dictionary {
 	 *
 	 * @param manager
 	 *            Storage manager
-	 * @param file
-	 *            File for the map
 	 */
-	public void append(final StorageManager manager, final File file) {
-		final String doc = file.getName().replaceAll("[^\\d]", "");
-		this.appendToDictionary(this.lemmaDictionary, manager.getLemmaMap(), StorageManager.getDocProperties(), doc);
+	public void append(final StorageManager manager) {
+		final int doc = manager.getDocNumber();
+		final int[] ids = manager.getTermIds();
+		final int[] counts = manager.getTermCounts();
+		for (int i = 0; i < manager.getTermCount(); i++) {
+			final Properties temp = this.getProperties(ids[i]);
+
+			// Increment document frequency and add the posting
+			temp.setDocFreq(temp.getDocFreq() + 1);
+			temp.add(doc, counts[i]);
+		}
 	}
 
 	/**
-	 * Appends data to dictionary from a map
+	 * Gets the postings of a term, creating them if it is not in the dictionary yet
 	 *
-	 * @param appendTo
-	 *            Dictionary to append to
-	 * @param appendFrom
-	 *            Map to append from
-	 * @param docProperties
-	 *            Document properties
-	 * @param file
-	 *            File name for this map
+	 * @param id
+	 *            Term ID
+	 * @return Postings of the term
 	 */
-	private void appendToDictionary(final Map<String, Properties> appendTo,
-			final Map<String, Integer> appendFrom,
-			final Map<String, DocumentProperty> docProperties,
-			final String file) {
-		for (final Entry<String, Integer> entry : appendFrom.entrySet()) {
-			Properties temp;
-			if (appendTo.containsKey(entry.getKey())) {
-				// Increment document frequency
-				temp = appendTo.get(entry.getKey());
-				temp.setDocFreq(temp.getDocFreq() + 1);
-
-				final Map<String, Integer> freq = temp.getTermFreq();
-				freq.put(file, entry.getValue());
-				temp.setTermFreq(freq);
-			} else {
-				// If does not exists, create postings file and set document frequency
-				temp = new Properties();
-				temp.setDocFreq(1);
-				temp.getTermFreq().put(file, entry.getValue());
-			}
+	private Properties getProperties(final int id) {
+		if (id >= this.properties.length) {
+			this.properties = Arrays.copyOf(this.properties, Math.max(id + 1, this.properties.length * 2));
+		}
 
-			final DocumentProperty property = docProperties.get(file);
-			temp.getPostingFile().put(file, property);
-			appendTo.put(entry.getKey(), temp);
+		if (this.properties[id] == null) {
+			this.properties[id] = new Properties(id);
+			this.lemmaDictionary.put(StorageManager.getLexicon().getString(id), this.properties[id]);
 		}
+
+		return this.properties[id];
 	}
 
 	/**
@@ -3,6 +3,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,6 +16,10 @@ import java.util.Set;
 public class DocumentParser {
 	private final Set<String>	stopwords;
 	private final Dictionary	dictionary;
+	private Charset				charset;
+	private MappedFileReader	mappedReader;
+	private int					shard;
+	private int					shards		= 1;
 
 	/**
 	 * Default Constructor
@@ -34,13 +40,20 @@ public class DocumentParser {
 	}
 
 	/**
-	 * Parses the data of all the files in the path and its subdirectories
+	 * Parses the data of all the files in the path and its subdirectories. The path may also be a single file, and gzip, zip and tar archives are
+	 * streamed with a {@link TrecArchiveReader}.
 	 *
 	 * @param rootFile
 	 *            Path to be parsed
 	 * @throws IOException
 	 */
 	public void parse(final File rootFile) throws IOException {
+		// A single file, such as an archive, is read on its own
+		if (!rootFile.isDirectory()) {
+			this.readFile(rootFile);
+			return;
+		}
+
 		// Go through every entry in the root path
 		for (final File file : rootFile.listFiles()) {
 			// If entry is a directory, recursively parse it
@@ -53,6 +66,29 @@ public class DocumentParser {
 		}
 	}
 
+	/**
+	 * Parses the data of all the files in the path and its subdirectories with an {@link IndexingPipeline}, reading, analyzing and inverting the documents
+	 * on separate threads
+	 *
+	 * @param rootFile
+	 *            Path to be parsed
+	 * @param analyzers
+	 *            Number of analyzer threads
+	 * @param capacity
+	 *            Capacity of the queues between the stages, in documents
+	 * @param readers
+	 *            Number of threads reading files concurrently, 0 to walk the tree and read on the calling thread
+	 * @param maxBytes
+	 *            Maximum bytes of files read and not yet indexed, with reader threads
+	 * @return Pipeline that parsed the files, with the utilization of its stages
+	 * @throws IOException
+	 */
+	public IndexingPipeline parse(final File rootFile, final int analyzers, final int capacity, final int readers, final int maxBytes) throws IOException {
+		final IndexingPipeline pipeline = new IndexingPipeline(this.stopwords, this.dictionary, analyzers, capacity, readers, maxBytes, this.charset);
+		pipeline.run(rootFile);
+		return pipeline;
+	}
+
 	/**
 	 * Parses a file and tokenizes it
 	 *
@@ -66,17 +102,116 @@ public class DocumentParser {
 			return;
 		}
 
+		if (TrecArchiveReader.isArchive(file)) {
+			this.readArchive(file);
+			return;
+		}
+
+		// Skip the documents of other shards before reading them
+		if (this.shards > 1 && shardOf(file.getName().replaceAll("[^\\d]", ""), this.shards) != this.shard) {
+			return;
+		}
+
 		// Read all lines in this file
+		final long start = Metrics.start();
 		final Tokenizer tokenizer = new Tokenizer();
 		final StorageManager storageManager = new StorageManager(this.stopwords);
-		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-			for (String line; (line = reader.readLine()) != null;) {
-				tokenizer.tokenize(file, line, storageManager);
+		if (this.mappedReader != null) {
+			// Decode the whole file and tokenize its lines as ranges of the buffer
+			final long read = Metrics.start();
+			final CharSequence text = this.mappedReader.decode(file);
+			Metrics.record(Metrics.Stage.READ, read);
+			MappedFileReader.lines(text, (buffer, begin, end) -> tokenizer.tokenize(file, buffer, begin, end, storageManager));
+		} else {
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				long read = Metrics.start();
+				for (String line; (line = reader.readLine()) != null;) {
+					Metrics.record(Metrics.Stage.READ, read);
+					tokenizer.tokenize(file, line, storageManager);
+					read = Metrics.start();
+				}
 			}
 		}
 
 		// Append the parsed tokens to stems and lemma dictionary
-		this.dictionary.append(storageManager, file);
+		final long append = Metrics.start();
+		this.dictionary.append(storageManager);
+		Metrics.record(Metrics.Stage.APPEND, append);
+		Metrics.record(Metrics.Stage.DOCUMENT, start);
+	}
+
+	/**
+	 * Parses the documents of an archive as they are decompressed, each named by its DOCNO
+	 *
+	 * @param archive
+	 *            Archive to parse
+	 * @throws IOException
+	 */
+	private void readArchive(final File archive) throws IOException {
+		final Tokenizer tokenizer = new Tokenizer();
+		try {
+			new TrecArchiveReader(this.charset).read(archive, (docno, text) -> {
+				if (this.shards > 1 && shardOf(docno, this.shards) != this.shard) {
+					return;
+				}
+
+				final long start = Metrics.start();
+				final StorageManager storageManager = new StorageManager(this.stopwords);
+				storageManager.setSource(docno, text);
+				MappedFileReader.lines(text, (buffer, begin, end) -> tokenizer.tokenize(null, buffer, begin, end, storageManager));
+
+				final long append = Metrics.start();
+				this.dictionary.append(storageManager);
+				Metrics.record(Metrics.Stage.APPEND, append);
+				Metrics.record(Metrics.Stage.DOCUMENT, start);
+			});
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading " + archive);
+		}
+	}
+
+	/**
+	 * Sets the charset of the documents, to read them with a {@link MappedFileReader} instead of a {@link FileReader} in the platform charset, and to
+	 * decode the files of archives
+	 *
+	 * @param charset
+	 *            Charset of the documents, or null for the platform charset
+	 */
+	public void setCharset(final Charset charset) {
+		this.charset = charset;
+		this.mappedReader = charset == null ? null : new MappedFileReader(charset);
+	}
+
+	/**
+	 * Restricts parsing to the documents of one shard of a document-partitioned index, as given by {@link #shardOf(String, int)}. Only the sequential
+	 * {@link #parse(File)} honours it.
+	 *
+	 * @param shard
+	 *            Shard to keep, from 0
+	 * @param shards
+	 *            Number of shards
+	 */
+	public void setShard(final int shard, final int shards) {
+		if (shard < 0 || shard >= shards) {
+			throw new IllegalArgumentException("Shard " + shard + " is not one of " + shards + " shards");
+		}
+
+		this.shard = shard;
+		this.shards = shards;
+	}
+
+	/**
+	 * Partitions documents by a hash of their external ID, so that every indexer puts a document in the same shard whatever order it reads them in
+	 *
+	 * @param docID
+	 *            External document ID
+	 * @param shards
+	 *            Number of shards
+	 * @return Shard of the document, from 0
+	 */
+	public static int shardOf(final String docID, final int shards) {
+		return Math.floorMod(docID.hashCode(), shards);
 	}
 
 	/**
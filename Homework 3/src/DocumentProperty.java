@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -10,13 +11,13 @@ public class DocumentProperty {
 	private int					doclen;
 	private int					maxFreq;
 	private String				headline;
-	private final Set<String>	words;
+	private int[]				terms;
 
 	/**
 	 * Default constructor
 	 */
 	public DocumentProperty() {
-		this.words = new HashSet<>();
+		this.terms = new int[0];
 	}
 
 	/**
@@ -65,9 +66,49 @@ public class DocumentProperty {
 	}
 
 	/**
-	 * @return the words
+	 * Adds term IDs to the words of the document
+	 *
+	 * @param ids
+	 *            Distinct term IDs in ascending order
+	 * @param count
+	 *            Number of IDs to add
+	 */
+	public final void addTerms(final int[] ids, final int count) {
+		// Merge the two sorted sets
+		final int[] merged = new int[this.terms.length + count];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < this.terms.length || j < count) {
+			if (j == count || i < this.terms.length && this.terms[i] < ids[j]) {
+				merged[k++] = this.terms[i++];
+			} else if (i == this.terms.length || ids[j] < this.terms[i]) {
+				merged[k++] = ids[j++];
+			} else {
+				merged[k++] = this.terms[i++];
+				j++;
+			}
+		}
+
+		this.terms = k == merged.length ? merged : Arrays.copyOf(merged, k);
+	}
+
+	/**
+	 * @return the term IDs of the words, in ascending order
+	 */
+	public final int[] getTerms() {
+		return this.terms;
+	}
+
+	/**
+	 * @return the words, looked up in the lexicon
 	 */
 	public final Set<String> getWords() {
-		return this.words;
+		final Set<String> words = new HashSet<>();
+		for (final int term : this.terms) {
+			words.add(StorageManager.getLexicon().getString(term));
+		}
+
+		return words;
 	}
 }
\ No newline at end of file
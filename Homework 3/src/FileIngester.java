@@ -0,0 +1,346 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads every file of a directory tree concurrently. The calling thread walks the tree with a directory stream, taking the size of each file from the
+ * attributes the walk already has, and hands the files to a pool of reader threads, so that the open and read latency of many small files on a slow disk
+ * overlap. Files are numbered in walk order, and the bytes of the files read but not yet released are capped: the walk blocks once the cap is reached,
+ * until the consumer releases the bytes of files it is done with. Each file is read whole, with a {@link MappedFileReader} of its own per reader thread when
+ * a charset is given and with a {@link FileReader} in the platform charset otherwise. Gzip, zip and tar archives are streamed on the walking thread
+ * instead, and each of their documents is handed over, and charged against the cap, on its own.
+ *
+ * @author Ekal.Golas
+ */
+public class FileIngester {
+	private final int							threads;
+	private final int							maxBytes;
+	private final Charset						charset;
+	private final ThreadLocal<MappedFileReader>	mappedReaders;
+	private final Semaphore						inFlight;
+	private final AtomicReference<Throwable>	failure;
+	private final LongAdder						files;
+	private final LongAdder						bytes;
+	private final LongAdder						busy;
+	private int									sequence;
+	private long								throttled;
+
+	/**
+	 * Receives the files read
+	 */
+	public interface Sink {
+		/**
+		 * Receives the text of a file, on the reader thread that read it, or of a document of an archive, on the walking thread
+		 *
+		 * @param sequence
+		 *            Position of the file or document in walk order
+		 * @param file
+		 *            File read, null for a document of an archive
+		 * @param docno
+		 *            External ID of a document of an archive, null for a file
+		 * @param text
+		 *            Text of the file or document
+		 * @param busy
+		 *            Time taken to read the file or document in nanoseconds
+		 * @param bytes
+		 *            Bytes charged against the in-flight cap, to hand back to {@link FileIngester#release(int)} once the text is no longer needed
+		 * @throws InterruptedException
+		 */
+		void accept(int sequence, File file, String docno, String text, long busy, int bytes) throws InterruptedException;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param threads
+	 *            Number of reader threads
+	 * @param maxBytes
+	 *            Maximum bytes of files read and not yet released
+	 * @param charset
+	 *            Charset of the files to decode them with a {@link MappedFileReader}, or null to read them with a {@link FileReader}
+	 */
+	public FileIngester(final int threads, final int maxBytes, final Charset charset) {
+		this.threads = threads;
+		this.maxBytes = maxBytes;
+		this.charset = charset;
+		this.mappedReaders = charset == null ? null : ThreadLocal.withInitial(() -> new MappedFileReader(charset));
+		this.inFlight = new Semaphore(maxBytes);
+		this.failure = new AtomicReference<>();
+		this.files = new LongAdder();
+		this.bytes = new LongAdder();
+		this.busy = new LongAdder();
+	}
+
+	/**
+	 * Reads every file in the path and its subdirectories, returning once every file has been handed to the sink
+	 *
+	 * @param rootFile
+	 *            Path to be read
+	 * @param sink
+	 *            Sink of the files read
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void read(final File rootFile, final Sink sink) throws IOException, InterruptedException {
+		// Daemon readers, so a failed run does not keep the JVM alive
+		final AtomicInteger number = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "reader-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		final ExecutorService executor = Executors.newFixedThreadPool(this.threads, factory);
+		try {
+			Files.walkFileTree(rootFile.toPath(), new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(final Path path, final BasicFileAttributes attributes) throws IOException {
+					if (FileIngester.this.failure.get() != null) {
+						return FileVisitResult.TERMINATE;
+					}
+
+					if (!attributes.isRegularFile()) {
+						return FileVisitResult.CONTINUE;
+					}
+
+					try {
+						if (TrecArchiveReader.isArchive(path.toFile())) {
+							FileIngester.this.readArchive(path.toFile(), sink);
+						} else {
+							final int charge = FileIngester.this.acquire(attributes.size());
+							final int sequence = FileIngester.this.sequence++;
+							executor.execute(() -> FileIngester.this.readFile(sequence, path.toFile(), charge, sink));
+						}
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return FileVisitResult.TERMINATE;
+					}
+
+					return FileVisitResult.CONTINUE;
+				}
+			});
+
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+				continue;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedException();
+		}
+
+		// Surface the first failure of any reader
+		final Throwable cause = this.failure.get();
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		} else if (cause != null) {
+			throw new IOException("Reading failed", cause);
+		}
+	}
+
+	/**
+	 * Waits for room under the in-flight cap, on the walking thread
+	 *
+	 * @param size
+	 *            Bytes of a file or document, one that is larger than the cap takes all of it
+	 * @return Bytes charged against the cap
+	 * @throws InterruptedException
+	 */
+	private int acquire(final long size) throws InterruptedException {
+		final int charge = (int) Math.max(1, Math.min(size, this.maxBytes));
+		if (!this.inFlight.tryAcquire(charge)) {
+			final long begin = System.nanoTime();
+			this.inFlight.acquire(charge);
+			this.throttled += System.nanoTime() - begin;
+		}
+
+		return charge;
+	}
+
+	/**
+	 * Streams the documents of an archive and hands them to the sink in order, on the walking thread
+	 *
+	 * @param archive
+	 *            Archive to read
+	 * @param sink
+	 *            Sink of the documents
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void readArchive(final File archive, final Sink sink) throws IOException, InterruptedException {
+		final long[] begin = { System.nanoTime() };
+		new TrecArchiveReader(this.charset).read(archive, (docno, text) -> {
+			// Stop streaming once a reader or the sink has failed
+			final Throwable cause = this.failure.get();
+			if (cause != null) {
+				throw new IOException("Reading stopped", cause);
+			}
+
+			final long busy = System.nanoTime() - begin[0];
+			final int charge = this.acquire(text.length());
+			this.files.increment();
+			this.bytes.add(text.length());
+			this.busy.add(busy);
+			sink.accept(this.sequence++, null, docno, text, busy, charge);
+			begin[0] = System.nanoTime();
+		});
+	}
+
+	/**
+	 * Reads a file and hands it to the sink, on a reader thread
+	 *
+	 * @param sequence
+	 *            Position of the file in walk order
+	 * @param file
+	 *            File to read
+	 * @param charge
+	 *            Bytes charged against the in-flight cap
+	 * @param sink
+	 *            Sink of the files read
+	 */
+	private void readFile(final int sequence, final File file, final int charge, final Sink sink) {
+		if (this.failure.get() != null) {
+			this.release(charge);
+			return;
+		}
+
+		final long begin = System.nanoTime();
+		final String text;
+		try {
+			text = readText(file, this.mappedReaders == null ? null : this.mappedReaders.get());
+		} catch (final IOException | RuntimeException e) {
+			this.failure.compareAndSet(null, e);
+			this.release(charge);
+			return;
+		}
+
+		final long busy = System.nanoTime() - begin;
+		this.files.increment();
+		this.bytes.add(file.length());
+		this.busy.add(busy);
+		try {
+			sink.accept(sequence, file, null, text, busy, charge);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the whole text of a file
+	 *
+	 * @param file
+	 *            File to read
+	 * @param mappedReader
+	 *            Reader to decode the file with, or null to read it with a {@link FileReader} in the platform charset
+	 * @return Text of the file, lines and terminators included
+	 * @throws IOException
+	 */
+	public static String readText(final File file, final MappedFileReader mappedReader) throws IOException {
+		final long read = Metrics.start();
+		final String text;
+		if (mappedReader != null) {
+			text = mappedReader.decode(file).toString();
+		} else {
+			final StringBuilder builder = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+			try (Reader reader = new FileReader(file)) {
+				final char[] chunk = new char[8192];
+				for (int count; (count = reader.read(chunk)) >= 0;) {
+					builder.append(chunk, 0, count);
+				}
+			}
+
+			text = builder.toString();
+		}
+
+		Metrics.record(Metrics.Stage.READ, read);
+		return text;
+	}
+
+	/**
+	 * Converts an in-flight cap given in megabytes on the command line to bytes. A cap beyond 2 GB is clamped to the most permits a semaphore holds.
+	 *
+	 * @param megabytes
+	 *            Cap in megabytes, at least 1
+	 * @return Cap in bytes
+	 */
+	public static int toBytes(final String megabytes) {
+		final long value = Long.parseLong(megabytes);
+		if (value < 1) {
+			throw new IllegalArgumentException("In-flight cap of " + value + " megabytes is not positive");
+		}
+
+		return (int) Math.min(Integer.MAX_VALUE, Math.min(value, Integer.MAX_VALUE) << 20);
+	}
+
+	/**
+	 * Hands back bytes charged against the in-flight cap
+	 *
+	 * @param charge
+	 *            Bytes given to the sink with a file
+	 */
+	public void release(final int charge) {
+		this.inFlight.release(charge);
+	}
+
+	/**
+	 * Stops the walk at the next file, the files already being read are still handed to the sink
+	 *
+	 * @param cause
+	 *            Reason to stop
+	 */
+	public void abort(final Throwable cause) {
+		this.failure.compareAndSet(null, cause);
+	}
+
+	/**
+	 * @return the number of reader threads
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * @return the number of files and documents of archives read
+	 */
+	public long getFiles() {
+		return this.files.sum();
+	}
+
+	/**
+	 * @return the number of bytes read
+	 */
+	public long getBytes() {
+		return this.bytes.sum();
+	}
+
+	/**
+	 * @return the time the reader threads spent reading, in nanoseconds
+	 */
+	public long getBusy() {
+		return this.busy.sum();
+	}
+
+	/**
+	 * @return the time the walk spent waiting for room under the in-flight cap, in nanoseconds
+	 */
+	public long getThrottled() {
+		return this.throttled;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+/**
+ * Packs postings lists into Elias gamma codes, the code {@link ImmutableIndex} keeps compressed postings in. A number n is written as floor(log2 n) ones,
+ * a zero and the bits of n below its leading one, as the gamma code of Homework 2's Compressor, but the codes of a list are packed back to back into one
+ * bit string so that the list can be decoded again. Each posting is the gap from the previous document number, the first counted from -1 so that every
+ * gap is at least 1, followed by the term frequency.
+ *
+ * @author Ekal.Golas
+ */
+public final class GammaCoder {
+	/**
+	 * Bit string being read from the front
+	 */
+	private static final class Reader {
+		private final byte[]	bytes;
+		private long			position;
+
+		/**
+		 * Constructor
+		 *
+		 * @param bytes
+		 *            Bit string, most significant bit of each byte first
+		 */
+		Reader(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * @return Next gamma coded number
+		 */
+		int read() {
+			// Count the ones up to the zero
+			int bits = 0;
+			while (this.bit()) {
+				bits++;
+			}
+
+			int value = 1;
+			for (int i = 0; i < bits; i++) {
+				value = value << 1 | (this.bit() ? 1 : 0);
+			}
+
+			return value;
+		}
+
+		/**
+		 * @return Next bit
+		 */
+		private boolean bit() {
+			final long position = this.position++;
+			return (this.bytes[(int) (position >>> 3)] & 0x80 >>> (position & 7)) != 0;
+		}
+	}
+
+	/**
+	 * Utility class
+	 */
+	private GammaCoder() {
+	}
+
+	/**
+	 * Encodes a postings list
+	 *
+	 * @param docs
+	 *            Document numbers in ascending order
+	 * @param tf
+	 *            Term frequency in each document, at least 1
+	 * @return Gamma codes of the gaps and term frequencies
+	 */
+	public static byte[] encode(final int[] docs, final int[] tf) {
+		// Size the bit string exactly, a code of n takes 2 * floor(log2 n) + 1 bits
+		long bits = 0L;
+		int previous = -1;
+		for (int i = 0; i < docs.length; i++) {
+			bits += length(docs[i] - previous) + length(tf[i]);
+			previous = docs[i];
+		}
+
+		final byte[] bytes = new byte[(int) ((bits + 7) >>> 3)];
+		long position = 0L;
+		previous = -1;
+		for (int i = 0; i < docs.length; i++) {
+			position = write(bytes, position, docs[i] - previous);
+			position = write(bytes, position, tf[i]);
+			previous = docs[i];
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Decodes a postings list
+	 *
+	 * @param bytes
+	 *            Gamma codes written by {@link #encode(int[], int[])}
+	 * @param docs
+	 *            Filled with the document numbers, as long as the list
+	 * @param tf
+	 *            Filled with the term frequencies, as long as the list
+	 */
+	public static void decode(final byte[] bytes, final int[] docs, final int[] tf) {
+		final Reader reader = new Reader(bytes);
+		int doc = -1;
+		for (int i = 0; i < docs.length; i++) {
+			doc += reader.read();
+			docs[i] = doc;
+			tf[i] = reader.read();
+		}
+	}
+
+	/**
+	 * @param number
+	 *            Number to code, at least 1
+	 * @return Length of its gamma code in bits
+	 */
+	private static int length(final int number) {
+		return 2 * (31 - Integer.numberOfLeadingZeros(number)) + 1;
+	}
+
+	/**
+	 * Writes a gamma code into a zeroed bit string
+	 *
+	 * @param bytes
+	 *            Bit string
+	 * @param position
+	 *            Bit to start at
+	 * @param number
+	 *            Number to code, at least 1
+	 * @return Bit after the code
+	 */
+	private static long write(final byte[] bytes, long position, final int number) {
+		final int bits = 31 - Integer.numberOfLeadingZeros(number);
+		for (int i = 0; i < bits; i++) {
+			set(bytes, position++);
+		}
+
+		// The zero ending the unary part is already there
+		position++;
+		for (int i = bits - 1; i >= 0; i--) {
+			if ((number >>> i & 1) != 0) {
+				set(bytes, position);
+			}
+
+			position++;
+		}
+
+		return position;
+	}
+
+	/**
+	 * @param bytes
+	 *            Bit string
+	 * @param position
+	 *            Bit to set
+	 */
+	private static void set(final byte[] bytes, final long position) {
+		bytes[(int) (position >>> 3)] |= 0x80 >>> (position & 7);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,396 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Read-only copy of the lemma dictionary for serving queries. Documents and terms are numbered densely, every postings list is stored as parallel int
+ * arrays, and the postings are also inverted into the terms of each document for feedback. The index can be shared by any number of query threads without
+ * locking.
+ * <p>
+ * The postings lists can instead be kept in the gamma code of {@link GammaCoder}, a fraction of the heap of the arrays, and decoded as queries need them
+ * through a {@link PostingsCache} that keeps the most used lists decoded.
+ *
+ * @author Ekal.Golas
+ */
+public final class ImmutableIndex {
+	private final Map<String, Postings>	postings;
+	private final Postings[]			terms;
+	private final Map<String, Integer>	docNumbers;
+	private final String[]				docIDs;
+	private final int[]					maxFreq;
+	private final int[]					doclen;
+	private final String[]				headlines;
+	private final int[][]				docTerms;
+	private final int[][]				docTf;
+	private final int					collectionSize;
+	private final double				avgdoclen;
+	private final PostingsCache			cache;
+	private final long					postingsBytes;
+
+	/**
+	 * Postings list of a term, either decoded into arrays or gamma coded
+	 */
+	public static final class Postings {
+		final String	term;
+		final int		id;
+		final int		df;
+		final int		count;
+		final int[]		docs;
+		final int[]		tf;
+		final byte[]	coded;
+
+		/**
+		 * Constructor
+		 *
+		 * @param term
+		 *            Lemma term
+		 * @param id
+		 *            Term ID
+		 * @param df
+		 *            Document frequency
+		 * @param docs
+		 *            Document numbers
+		 * @param tf
+		 *            Term frequency in each document
+		 */
+		Postings(final String term, final int id, final int df, final int[] docs, final int[] tf) {
+			this.term = term;
+			this.id = id;
+			this.df = df;
+			this.count = docs.length;
+			this.docs = docs;
+			this.tf = tf;
+			this.coded = null;
+		}
+
+		/**
+		 * Constructor of a gamma coded list
+		 *
+		 * @param term
+		 *            Lemma term
+		 * @param id
+		 *            Term ID
+		 * @param df
+		 *            Document frequency
+		 * @param count
+		 *            Number of documents in the list
+		 * @param coded
+		 *            Gamma codes of the list
+		 */
+		Postings(final String term, final int id, final int df, final int count, final byte[] coded) {
+			this.term = term;
+			this.id = id;
+			this.df = df;
+			this.count = count;
+			this.docs = null;
+			this.tf = null;
+			this.coded = coded;
+		}
+
+		/**
+		 * @return the term
+		 */
+		public String getTerm() {
+			return this.term;
+		}
+
+		/**
+		 * @return the term ID
+		 */
+		public int getId() {
+			return this.id;
+		}
+
+		/**
+		 * @return the document frequency
+		 */
+		public int getDocFreq() {
+			return this.df;
+		}
+
+		/**
+		 * @return the number of documents in the list
+		 */
+		public int size() {
+			return this.count;
+		}
+
+		/**
+		 * @return true if the list is gamma coded
+		 */
+		public boolean isCoded() {
+			return this.coded != null;
+		}
+	}
+
+	/**
+	 * Builds the index from a lemma dictionary, with the postings lists decoded
+	 *
+	 * @param dictionary
+	 *            Lemma dictionary of the index
+	 * @param docProperties
+	 *            Document properties
+	 * @param avgdoclen
+	 *            Average document length in the index
+	 */
+	public ImmutableIndex(final Map<String, Properties> dictionary, final Map<String, DocumentProperty> docProperties, final double avgdoclen) {
+		this(dictionary, docProperties, avgdoclen, -1L);
+	}
+
+	/**
+	 * Builds the index from a lemma dictionary
+	 *
+	 * @param dictionary
+	 *            Lemma dictionary of the index
+	 * @param docProperties
+	 *            Document properties
+	 * @param avgdoclen
+	 *            Average document length in the index
+	 * @param cacheBytes
+	 *            Bytes of the cache of decoded lists if the postings lists are to be gamma coded, 0 to decode them on every query, negative to keep them
+	 *            decoded
+	 */
+	public ImmutableIndex(final Map<String, Properties> dictionary,
+			final Map<String, DocumentProperty> docProperties,
+			final double avgdoclen,
+			final long cacheBytes) {
+		// Number the documents
+		final List<String> docs = new ArrayList<>(docProperties.keySet());
+		Collections.sort(docs);
+		this.docNumbers = new HashMap<>(docs.size() * 4 / 3 + 1);
+		this.docIDs = docs.toArray(new String[docs.size()]);
+		this.maxFreq = new int[this.docIDs.length];
+		this.doclen = new int[this.docIDs.length];
+		this.headlines = new String[this.docIDs.length];
+		for (int i = 0; i < this.docIDs.length; i++) {
+			final DocumentProperty property = docProperties.get(this.docIDs[i]);
+			this.docNumbers.put(this.docIDs[i], i);
+			this.maxFreq[i] = property.getMaxFreq();
+			this.doclen[i] = property.getDoclen();
+			this.headlines[i] = property.getHeadline();
+		}
+
+		// Copy the postings lists into arrays, renumbering the documents
+		final Lexicon documents = StorageManager.getDocuments();
+		final int[] renumber = new int[documents.size()];
+		Arrays.fill(renumber, -1);
+		for (int i = 0; i < this.docIDs.length; i++) {
+			final int number = documents.getId(this.docIDs[i]);
+			if (number >= 0) {
+				renumber[number] = i;
+			}
+		}
+
+		final Map<String, Postings> map = new HashMap<>(dictionary.size() * 4 / 3 + 1);
+		this.terms = new Postings[dictionary.size()];
+		final int[] lengths = new int[this.docIDs.length];
+		for (final Entry<String, Properties> entry : dictionary.entrySet()) {
+			final Properties properties = entry.getValue();
+			final int[] postingDocs = new int[properties.size()];
+			final int[] postingTf = new int[properties.size()];
+			int i = 0;
+			for (int j = 0; j < properties.size(); j++) {
+				final int doc = properties.getDocs()[j];
+				final int number = doc < renumber.length ? renumber[doc] : -1;
+				if (number >= 0) {
+					postingDocs[i] = number;
+					postingTf[i++] = properties.getTermFreqs()[j];
+					lengths[number]++;
+				}
+			}
+
+			final Postings list = new Postings(entry.getKey(), map.size(), properties.getDocFreq(), trim(postingDocs, i), trim(postingTf, i));
+			this.terms[list.id] = list;
+			map.put(entry.getKey(), list);
+		}
+
+		// Invert the postings into the terms of each document
+		this.docTerms = new int[this.docIDs.length][];
+		this.docTf = new int[this.docIDs.length][];
+		for (int doc = 0; doc < this.docIDs.length; doc++) {
+			this.docTerms[doc] = new int[lengths[doc]];
+			this.docTf[doc] = new int[lengths[doc]];
+			lengths[doc] = 0;
+		}
+
+		for (final Postings list : this.terms) {
+			for (int i = 0; i < list.docs.length; i++) {
+				final int doc = list.docs[i];
+				this.docTerms[doc][lengths[doc]] = list.id;
+				this.docTf[doc][lengths[doc]++] = list.tf[i];
+			}
+		}
+
+		// Code the postings lists once the documents have their terms
+		long bytes = 0L;
+		for (int id = 0; id < this.terms.length; id++) {
+			final Postings list = this.terms[id];
+			if (cacheBytes >= 0) {
+				this.terms[id] = new Postings(list.term, id, list.df, list.count, GammaCoder.encode(list.docs, list.tf));
+				map.put(list.term, this.terms[id]);
+				bytes += this.terms[id].coded.length;
+			} else {
+				bytes += 8L * list.count;
+			}
+		}
+
+		this.postings = Collections.unmodifiableMap(map);
+		this.collectionSize = dictionary.size();
+		this.avgdoclen = avgdoclen;
+		this.cache = cacheBytes >= 0 ? new PostingsCache(this.terms.length, cacheBytes) : null;
+		this.postingsBytes = bytes;
+	}
+
+	/**
+	 * @param array
+	 *            Array to trim
+	 * @param length
+	 *            Length to keep
+	 * @return Array of the given length
+	 */
+	private static int[] trim(final int[] array, final int length) {
+		if (array.length == length) {
+			return array;
+		}
+
+		final int[] trimmed = new int[length];
+		System.arraycopy(array, 0, trimmed, 0, length);
+		return trimmed;
+	}
+
+	/**
+	 * @param term
+	 *            Lemma term
+	 * @return Postings list of the term, null if the term is not in the index
+	 */
+	public Postings getPostings(final String term) {
+		return this.postings.get(term);
+	}
+
+	/**
+	 * @param id
+	 *            Term ID
+	 * @return Postings list of the term
+	 */
+	public Postings getPostings(final int id) {
+		return this.terms[id];
+	}
+
+	/**
+	 * @param postings
+	 *            Postings list of a term
+	 * @return The list decoded, from the cache or decoded now if it is gamma coded
+	 */
+	public Postings decode(final Postings postings) {
+		return postings.coded == null ? postings : this.cache.get(postings);
+	}
+
+	/**
+	 * @param docID
+	 *            External document ID
+	 * @return Document number, null if the document is not in the index
+	 */
+	public Integer getDocNumber(final String docID) {
+		return this.docNumbers.get(docID);
+	}
+
+	/**
+	 * @param doc
+	 *            Document number
+	 * @return IDs of the terms of the document, shared and not to be modified
+	 */
+	public int[] getDocTerms(final int doc) {
+		return this.docTerms[doc];
+	}
+
+	/**
+	 * @param doc
+	 *            Document number
+	 * @return Frequencies of the terms of the document, in the order of {@link #getDocTerms(int)}, shared and not to be modified
+	 */
+	public int[] getDocTermFreqs(final int doc) {
+		return this.docTf[doc];
+	}
+
+	/**
+	 * @return the number of documents
+	 */
+	public int getDocumentCount() {
+		return this.docIDs.length;
+	}
+
+	/**
+	 * @param doc
+	 *            Document number
+	 * @return the external document ID
+	 */
+	public String getDocID(final int doc) {
+		return this.docIDs[doc];
+	}
+
+	/**
+	 * @param doc
+	 *            Document number
+	 * @return the maximum term frequency of the document
+	 */
+	public int getMaxFreq(final int doc) {
+		return this.maxFreq[doc];
+	}
+
+	/**
+	 * @param doc
+	 *            Document number
+	 * @return the length of the document
+	 */
+	public int getDoclen(final int doc) {
+		return this.doclen[doc];
+	}
+
+	/**
+	 * @param doc
+	 *            Document number
+	 * @return the headline of the document
+	 */
+	public String getHeadline(final int doc) {
+		return this.headlines[doc];
+	}
+
+	/**
+	 * @return the collection size, as the number of terms in the dictionary like {@link QueryProcessor} counts it
+	 */
+	public int getCollectionSize() {
+		return this.collectionSize;
+	}
+
+	/**
+	 * @return the number of terms in the index
+	 */
+	public int getTermCount() {
+		return this.postings.size();
+	}
+
+	/**
+	 * @return the average document length
+	 */
+	public double getAvgdoclen() {
+		return this.avgdoclen;
+	}
+
+	/**
+	 * @return the cache of decoded lists, null if the postings lists are not coded
+	 */
+	public PostingsCache getPostingsCache() {
+		return this.cache;
+	}
+
+	/**
+	 * @return the bytes of the postings lists as stored, the gamma codes or the arrays
+	 */
+	public long getPostingsBytes() {
+		return this.postingsBytes;
+	}
+}
\ No newline at end of file
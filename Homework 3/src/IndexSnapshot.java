@@ -0,0 +1,110 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One generation of a served index with the engine that ranks over it, shared by reference counting so that it can be swapped for a rebuilt one while
+ * queries run. The holder keeps one reference from creation until it swaps the snapshot out, and each query takes one for as long as it uses the
+ * snapshot. Once the holder has let go and the last query has finished, the snapshot is drained: its engine is shut down and nothing refers to the index
+ * any more, so its memory can be reclaimed.
+ *
+ * @author Ekal.Golas
+ */
+public final class IndexSnapshot {
+	private final ImmutableIndex	index;
+	private final QueryEngine		engine;
+	private final long				generation;
+	private final AtomicInteger		references;
+	private final CountDownLatch	drained;
+
+	/**
+	 * Constructor, holding the first reference for the caller
+	 *
+	 * @param index
+	 *            Index of the generation
+	 * @param feedback
+	 *            Relevance feedback over the index, null for none
+	 * @param generation
+	 *            Number of the generation, from 1
+	 */
+	public IndexSnapshot(final ImmutableIndex index, final RocchioFeedback feedback, final long generation) {
+		this.index = index;
+		this.engine = new QueryEngine(index, 1, feedback);
+		this.generation = generation;
+		this.references = new AtomicInteger(1);
+		this.drained = new CountDownLatch(1);
+	}
+
+	/**
+	 * Takes a reference, unless the snapshot has already drained
+	 *
+	 * @return True if a reference was taken and has to be released
+	 */
+	public boolean tryAcquire() {
+		while (true) {
+			final int count = this.references.get();
+			if (count == 0) {
+				return false;
+			}
+
+			if (this.references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Gives a reference back, draining the snapshot when it was the last one
+	 */
+	public void release() {
+		final int count = this.references.decrementAndGet();
+		if (count == 0) {
+			this.engine.close();
+			this.drained.countDown();
+		} else if (count < 0) {
+			throw new IllegalStateException("Snapshot " + this.generation + " released more often than acquired");
+		}
+	}
+
+	/**
+	 * Waits for the snapshot to drain
+	 *
+	 * @param timeout
+	 *            Time to wait
+	 * @param unit
+	 *            Unit of the time
+	 * @return True if it drained in time
+	 * @throws InterruptedException
+	 */
+	public boolean awaitDrained(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return this.drained.await(timeout, unit);
+	}
+
+	/**
+	 * @return true once the last reference has been released
+	 */
+	public boolean isDrained() {
+		return this.drained.getCount() == 0;
+	}
+
+	/**
+	 * @return the index of the generation
+	 */
+	public ImmutableIndex getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * @return the engine ranking over the index
+	 */
+	public QueryEngine getEngine() {
+		return this.engine;
+	}
+
+	/**
+	 * @return the number of the generation
+	 */
+	public long getGeneration() {
+		return this.generation;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+import java.util.Arrays;
+
+/**
+ * Counts occurrences of non-negative int keys, such as term IDs, without boxing. Keys and counts are kept in parallel arrays with open addressing and linear
+ * probing, so incrementing a count is a single probe sequence. Keys are also kept in order of first occurrence, so the counted keys can be listed without
+ * scanning the table.
+ *
+ * @author Ekal.Golas
+ */
+public class IntIntCounter {
+	private static final int	EMPTY	= -1;
+
+	private int[]				keys;
+	private int[]				counts;
+	private int[]				order;
+	private int					size;
+
+	/**
+	 * Default constructor
+	 */
+	public IntIntCounter() {
+		this(16);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param expected
+	 *            Expected number of keys
+	 */
+	public IntIntCounter(final int expected) {
+		final int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+		this.keys = new int[capacity];
+		this.counts = new int[capacity];
+		this.order = new int[capacity / 2];
+		Arrays.fill(this.keys, EMPTY);
+	}
+
+	/**
+	 * Increments the count of a key by one
+	 *
+	 * @param key
+	 *            Non-negative key to count
+	 * @return New count of the key
+	 */
+	public int increment(final int key) {
+		return this.add(key, 1);
+	}
+
+	/**
+	 * Adds to the count of a key
+	 *
+	 * @param key
+	 *            Non-negative key to count
+	 * @param delta
+	 *            Amount to add
+	 * @return New count of the key
+	 */
+	public int add(final int key, final int delta) {
+		int slot = this.find(key);
+		if (this.keys[slot] == EMPTY) {
+			// Grow at three quarters load, then look the free slot up again
+			if ((this.size + 1) * 4 > this.keys.length * 3) {
+				this.rehash(this.keys.length * 2);
+				slot = this.find(key);
+			}
+
+			if (this.size == this.order.length) {
+				this.order = Arrays.copyOf(this.order, this.size * 2);
+			}
+
+			this.keys[slot] = key;
+			this.order[this.size++] = key;
+		}
+
+		return this.counts[slot] += delta;
+	}
+
+	/**
+	 * @param key
+	 *            Key to look up
+	 * @return Count of the key, 0 if it has not been counted
+	 */
+	public int get(final int key) {
+		final int slot = this.find(key);
+		return this.keys[slot] == EMPTY ? 0 : this.counts[slot];
+	}
+
+	/**
+	 * @param index
+	 *            Index between 0 and {@link #size()}
+	 * @return Key counted in that position, in order of first occurrence
+	 */
+	public int getKey(final int index) {
+		return this.order[index];
+	}
+
+	/**
+	 * @return the number of distinct keys
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the distinct keys in ascending order
+	 */
+	public int[] sortedKeys() {
+		final int[] sorted = Arrays.copyOf(this.order, this.size);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Removes every key
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, EMPTY);
+		Arrays.fill(this.counts, 0);
+		this.size = 0;
+	}
+
+	/**
+	 * Finds the slot of a key
+	 *
+	 * @param key
+	 *            Key to find
+	 * @return Slot holding the key, or the empty slot where it would go
+	 */
+	private int find(final int key) {
+		final int mask = this.keys.length - 1;
+		int slot = mix(key) & mask;
+		while (this.keys[slot] != EMPTY && this.keys[slot] != key) {
+			slot = slot + 1 & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Moves every key to a table of a new capacity
+	 *
+	 * @param capacity
+	 *            Number of slots, a power of two
+	 */
+	private void rehash(final int capacity) {
+		final int[] oldKeys = this.keys;
+		final int[] oldCounts = this.counts;
+		this.keys = new int[capacity];
+		this.counts = new int[capacity];
+		Arrays.fill(this.keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				final int slot = this.find(oldKeys[i]);
+				this.keys[slot] = oldKeys[i];
+				this.counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a key, since dense IDs would otherwise fill runs of neighbouring slots
+	 *
+	 * @param key
+	 *            Key
+	 * @return Mixed hash code
+	 */
+	private static int mix(final int key) {
+		final int h = key * 0x9e3779b9;
+		return h ^ h >>> 16;
+	}
+}
\ No newline at end of file
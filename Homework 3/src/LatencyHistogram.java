@@ -0,0 +1,145 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram. Values below 32 are counted exactly, larger values go to one of 16 linear sub-buckets of their
+ * power of two, which keeps every recorded value within about 6% of its bucket. Recording is lock free, so one histogram can be shared by many threads.
+ *
+ * @author Ekal.Golas
+ */
+public class LatencyHistogram {
+	private static final int		SUB_BUCKET_BITS	= 5;
+	private static final int		HALF_BUCKETS	= 1 << SUB_BUCKET_BITS - 1;
+	private static final int		MAX_MAGNITUDE	= 64 - SUB_BUCKET_BITS;
+
+	private final AtomicLongArray	counts;
+	private final LongAdder			count;
+	private final LongAdder			sum;
+	private final LongAccumulator	max;
+
+	/**
+	 * Default constructor
+	 */
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(HALF_BUCKETS * (MAX_MAGNITUDE + 2));
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.max = new LongAccumulator(Math::max, 0L);
+	}
+
+	/**
+	 * Records a value
+	 *
+	 * @param value
+	 *            Value to record, negative values are recorded as 0
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0L);
+		this.counts.incrementAndGet(index(value));
+		this.count.increment();
+		this.sum.add(value);
+		this.max.accumulate(value);
+	}
+
+	/**
+	 * Gets the bucket of a value
+	 *
+	 * @param value
+	 *            Non-negative value
+	 * @return Index of the bucket
+	 */
+	private static int index(final long value) {
+		// Number of low bits dropped, 0 for values that are counted exactly
+		final int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1);
+		if (magnitude == 0) {
+			return (int) value;
+		}
+
+		return magnitude * HALF_BUCKETS + (int) (value >>> magnitude);
+	}
+
+	/**
+	 * Gets the highest value that falls in a bucket
+	 *
+	 * @param index
+	 *            Index of the bucket
+	 * @return Highest value of the bucket
+	 */
+	private static long highestValue(final int index) {
+		if (index < 2 * HALF_BUCKETS) {
+			return index;
+		}
+
+		final int magnitude = index / HALF_BUCKETS - 1;
+		final long sub = index - magnitude * HALF_BUCKETS;
+		return (sub + 1 << magnitude) - 1;
+	}
+
+	/**
+	 * Gets the value at a percentile
+	 *
+	 * @param percentile
+	 *            Percentile between 0 and 100
+	 * @return Highest value of the bucket holding the percentile, 0 if nothing is recorded
+	 */
+	public long getPercentile(final double percentile) {
+		final long total = this.count.sum();
+		if (total == 0) {
+			return 0;
+		}
+
+		final long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < this.counts.length(); i++) {
+			seen += this.counts.get(i);
+			if (seen >= target) {
+				return Math.min(highestValue(i), this.getMax());
+			}
+		}
+
+		return this.getMax();
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * @return the sum of recorded values
+	 */
+	public long getSum() {
+		return this.sum.sum();
+	}
+
+	/**
+	 * @return the mean of recorded values
+	 */
+	public double getMean() {
+		final long total = this.count.sum();
+		return total == 0 ? 0.0 : this.sum.sum() / (double) total;
+	}
+
+	/**
+	 * @return the largest recorded value
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * Clears all recorded values
+	 */
+	public void reset() {
+		for (int i = 0; i < this.counts.length(); i++) {
+			this.counts.set(i, 0);
+		}
+
+		this.count.reset();
+		this.sum.reset();
+		this.max.reset();
+	}
+}
\ No newline at end of file
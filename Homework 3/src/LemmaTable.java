@@ -0,0 +1,150 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Analyzer that looks words up in a precomputed table of lemmas. Words missing from the table are lemmatized by a fallback analyzer, which is only created
+ * on the first miss, and added to the table. A table saved after indexing holds the lemma of every word of the collection, so queries against that index
+ * are analyzed without loading the models of the fallback. Each line of the table file is a word, a tab and its lemmas separated by spaces. Safe for use
+ * from many threads.
+ *
+ * @author Ekal.Golas
+ */
+public class LemmaTable implements Lemmatizer {
+	private final Map<String, List<String>>	lemmas;
+	private final Supplier<Lemmatizer>		factory;
+	private volatile Lemmatizer				fallback;
+	private final AtomicLong				hits;
+	private final AtomicLong				misses;
+
+	/**
+	 * Constructor
+	 *
+	 * @param factory
+	 *            Creates the analyzer for words missing from the table
+	 */
+	public LemmaTable(final Supplier<Lemmatizer> factory) {
+		this.lemmas = new ConcurrentHashMap<>();
+		this.factory = factory;
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Lemmatizer#lemmatize(java.lang.String)
+	 */
+	@Override
+	public List<String> lemmatize(final String documentText) {
+		final List<String> lemma = this.lemmas.get(documentText);
+		if (lemma != null) {
+			this.hits.incrementAndGet();
+			return lemma;
+		}
+
+		// Lemmatize the word with the fallback and remember it
+		this.misses.incrementAndGet();
+		final List<String> computed = Collections.unmodifiableList(new ArrayList<>(this.getFallback().lemmatize(documentText)));
+		this.lemmas.put(documentText, computed);
+		return computed;
+	}
+
+	/**
+	 * @return the fallback analyzer, created on first use
+	 */
+	private Lemmatizer getFallback() {
+		Lemmatizer fallback = this.fallback;
+		if (fallback == null) {
+			synchronized (this) {
+				if (this.fallback == null) {
+					this.fallback = this.factory.get();
+				}
+
+				fallback = this.fallback;
+			}
+		}
+
+		return fallback;
+	}
+
+	/**
+	 * Adds the words of a table file to the table
+	 *
+	 * @param file
+	 *            Table file
+	 * @throws IOException
+	 */
+	public void load(final File file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int tab = line.indexOf('\t');
+				if (tab < 1) {
+					continue;
+				}
+
+				final String lemma = line.substring(tab + 1).trim();
+				this.lemmas.put(line.substring(0, tab), lemma.isEmpty() ? Collections.<String> emptyList()
+						: Collections.unmodifiableList(Arrays.asList(lemma.split(" "))));
+			}
+		}
+	}
+
+	/**
+	 * Writes the table to a file, sorted by word
+	 *
+	 * @param file
+	 *            Table file
+	 * @throws IOException
+	 */
+	public void save(final File file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (final Map.Entry<String, List<String>> entry : new TreeMap<>(this.lemmas).entrySet()) {
+				writer.write(entry.getKey());
+				writer.write('\t');
+				writer.write(String.join(" ", entry.getValue()));
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of words in the table
+	 */
+	public int size() {
+		return this.lemmas.size();
+	}
+
+	/**
+	 * @return the number of words found in the table
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * @return the number of words lemmatized by the fallback
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return True if the fallback analyzer has been created
+	 */
+	public boolean isFallbackLoaded() {
+		return this.fallback != null;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Compares the {@link WordNetLemmatizer} with a reference analyzer, CoreNLP by default, over the vocabulary of a collection. Prints the share of distinct
+ * words and of tokens both give the same lemmas for, the throughput of each, and the most frequent words they disagree on.
+ *
+ * @author Ekal.Golas
+ */
+public class LemmatizerAgreement {
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Command line arguments
+	 * @throws IOException
+	 */
+	public static void main(final String args[]) throws IOException {
+		final CommandLine cmd = validateArguments(args);
+
+		// Count the words of the collection, as the tokenizer splits them
+		final ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+		count(new File(cmd.getOptionValue("path")), new Tokenizer(), counter);
+		final Map<String, Integer> counts = counter.toMap();
+		final String[] words = counts.keySet().toArray(new String[counts.size()]);
+		Arrays.sort(words, (a, b) -> counts.get(b) - counts.get(a));
+		long tokens = 0;
+		for (final String word : words) {
+			tokens += counts.get(word);
+		}
+
+		// Load both analyzers
+		final String reference = cmd.getOptionValue("analyzer", "corenlp");
+		final File dict = new File(cmd.getOptionValue("dict", "../Final/data/dict"));
+		final File lemmas = cmd.hasOption("lemmas") ? new File(cmd.getOptionValue("lemmas")) : null;
+		long start = System.nanoTime();
+		Tokenizer.configure(reference, lemmas, dict);
+		final Lemmatizer referenceLemmatizer = Tokenizer.getLemmatizer();
+		final long referenceLoad = System.nanoTime() - start;
+		final WordNetLemmatizer wordnet = new WordNetLemmatizer(dict);
+
+		// Lemmatize the vocabulary with the reference once, it is the slow one
+		final String[] expected = new String[words.length];
+		start = System.nanoTime();
+		for (int i = 0; i < words.length; i++) {
+			expected[i] = String.join(" ", referenceLemmatizer.lemmatize(words[i]));
+		}
+
+		final long referenceTime = System.nanoTime() - start;
+
+		// Lemmatize it with WordNet several times and keep the best pass, once the code is warm
+		final int passes = Integer.parseInt(cmd.getOptionValue("passes", "5"));
+		final String[] actual = new String[words.length];
+		long wordnetTime = Long.MAX_VALUE;
+		for (int pass = 0; pass < passes; pass++) {
+			start = System.nanoTime();
+			for (int i = 0; i < words.length; i++) {
+				actual[i] = wordnet.lemma(words[i]);
+			}
+
+			wordnetTime = Math.min(wordnetTime, System.nanoTime() - start);
+		}
+
+		// Count agreement and list the most frequent disagreements
+		final int top = Integer.parseInt(cmd.getOptionValue("top", "25"));
+		final OutputFormatter disagreements = new OutputFormatter();
+		disagreements.addRow("WORD", "TF", reference.toUpperCase(), "WORDNET");
+		int agreed = 0;
+		long agreedTokens = 0;
+		for (int i = 0; i < words.length; i++) {
+			if (expected[i].equals(actual[i])) {
+				agreed++;
+				agreedTokens += counts.get(words[i]);
+			} else if (i - agreed < top) {
+				disagreements.addRow(words[i], String.valueOf(counts.get(words[i])), expected[i], actual[i]);
+			}
+		}
+
+		final OutputFormatter formatter = new OutputFormatter();
+		formatter.addRow("Vocabulary", words.length + " words, " + tokens + " tokens");
+		formatter.addRow("Agreement", String.format("%.2f%% of words, %.2f%% of tokens", 100.0 * agreed / words.length, 100.0 * agreedTokens / tokens));
+		formatter.addRow(reference + " load", String.format("%.1f ms", referenceLoad / 1e6));
+		formatter.addRow(reference + " throughput", String.format("%.0f words/sec", words.length * 1e9 / referenceTime));
+		formatter.addRow("wordnet load", wordnet.getLoadTime() + " ms, " + wordnet.size() + " entries, " + wordnet.getBytes() / 1024 + " KB");
+		formatter.addRow("wordnet throughput", String.format("%.0f words/sec (best of %d passes)", words.length * 1e9 / wordnetTime, passes));
+		System.out.println("Lemmatizer agreement:\n");
+		System.out.println(formatter);
+		System.out.println("\nMost frequent disagreements:\n");
+		System.out.println(disagreements);
+	}
+
+	/**
+	 * Counts the words of every file in a path and its subdirectories
+	 *
+	 * @param rootFile
+	 *            Path to be read
+	 * @param tokenizer
+	 *            Tokenizer to split lines with
+	 * @param counter
+	 *            Counter of the words
+	 * @throws IOException
+	 */
+	private static void count(final File rootFile, final Tokenizer tokenizer, final ObjectIntCounter<String> counter) throws IOException {
+		for (final File file : rootFile.listFiles()) {
+			if (file.isDirectory()) {
+				count(file, tokenizer, counter);
+				continue;
+			}
+
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				for (String line; (line = reader.readLine()) != null;) {
+					for (final String word : tokenizer.transformText(line).split(" ")) {
+						if (!word.isEmpty()) {
+							counter.increment(word);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Validates and gets the command line arguments provided
+	 *
+	 * @param args
+	 *            Command-line arguments
+	 * @return Validates arguments
+	 */
+	private static CommandLine validateArguments(final String[] args) {
+		// Get options
+		final Options options = new Options();
+		options.addOption("path", "dataPath", true, "Absolute or relative path to the Cranfield database");
+		options.addOption("dict", "wordnetDict", true, "WordNet dict folder (default ../Final/data/dict)");
+		options.addOption("analyzer", "analyzer", true, "Reference analyzer: corenlp, table or porter (default corenlp)");
+		options.addOption("lemmas", "lemmasFile", true, "Lemma table of the table analyzer");
+		options.addOption("passes", "passes", true, "Number of WordNet passes over the vocabulary, the best one is reported (default 5)");
+		options.addOption("top", "top", true, "Number of disagreements to list (default 25)");
+
+		// Parse arguments
+		final CommandLineParser commandLineParser = new DefaultParser();
+		CommandLine cmd = null;
+		try {
+			cmd = commandLineParser.parse(options, args, false);
+		} catch (final ParseException e1) {
+			System.out.println("Invalid arguments provided");
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("LemmatizerAgreement", options);
+			System.exit(1);
+		}
+
+		// Validate
+		if (!cmd.hasOption("path")) {
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("LemmatizerAgreement", options);
+			System.exit(2);
+		}
+
+		return cmd;
+	}
+}
\ No newline at end of file
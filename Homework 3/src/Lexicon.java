@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns strings into dense int IDs. Each distinct string is stored once and numbered in order of first appearance, so counters, postings and score tables
+ * can be indexed by ID and the strings only looked up again for output. Safe for use from many threads: a string that already has an ID is looked up in a
+ * {@link ConcurrentHashMap} without locking, so the analyzer threads of an {@link IndexingPipeline} only wait on each other for words not seen before,
+ * which become rare once the common vocabulary has been interned.
+ *
+ * @author Ekal.Golas
+ */
+public class Lexicon {
+	private final ConcurrentHashMap<String, Integer>	ids;
+	private volatile String[]							strings;
+	private volatile int								size;
+
+	/**
+	 * Default constructor
+	 */
+	public Lexicon() {
+		this.ids = new ConcurrentHashMap<>(2048);
+		this.strings = new String[1024];
+	}
+
+	/**
+	 * Gets the ID of a string, numbering it if it has not been seen before
+	 *
+	 * @param string
+	 *            String to intern
+	 * @return ID of the string
+	 */
+	public int intern(final String string) {
+		final Integer id = this.ids.get(string);
+		if (id != null) {
+			return id;
+		}
+
+		return this.add(string);
+	}
+
+	/**
+	 * Numbers a string, unless another thread numbered it first. The string is stored before its ID is published, so a thread that finds the ID also
+	 * finds the string.
+	 *
+	 * @param string
+	 *            String to number
+	 * @return ID of the string
+	 */
+	private synchronized int add(final String string) {
+		final Integer id = this.ids.get(string);
+		if (id != null) {
+			return id;
+		}
+
+		String[] strings = this.strings;
+		if (this.size == strings.length) {
+			strings = Arrays.copyOf(strings, this.size * 2);
+			this.strings = strings;
+		}
+
+		final int number = this.size;
+		strings[number] = string;
+		this.size = number + 1;
+		this.ids.put(string, number);
+		return number;
+	}
+
+	/**
+	 * Gets the ID of a string without numbering it
+	 *
+	 * @param string
+	 *            String to look up
+	 * @return ID of the string, -1 if it has not been interned
+	 */
+	public int getId(final String string) {
+		final Integer id = this.ids.get(string);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id
+	 *            ID of a string
+	 * @return the interned string
+	 */
+	public String getString(final int id) {
+		return this.strings[id];
+	}
+
+	/**
+	 * Forgets every interned string, so that IDs are numbered from 0 again
+	 */
+	public synchronized void clear() {
+		this.ids.clear();
+		this.strings = new String[1024];
+		this.size = 0;
+	}
+
+	/**
+	 * @return the number of interned strings
+	 */
+	public int size() {
+		return this.size;
+	}
+}
\ No newline at end of file
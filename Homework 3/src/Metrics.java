@@ -0,0 +1,308 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-stage counters and latency histograms of the indexing and query pipelines. Metrics are off by default, and while off {@link #start()} and
+ * {@link #record(Stage, long)} only read a static flag, so the instrumented code runs at full speed.
+ *
+ * @author Ekal.Golas
+ */
+public class Metrics implements MetricsMXBean {
+	/**
+	 * Instrumented stages of the pipelines
+	 */
+	public enum Stage {
+		/** Reading a line of a document, or a whole document when it is decoded at once */
+		READ,
+		/** Transforming text before splitting it into tokens */
+		TRANSFORM,
+		/** Lemmatizing a token */
+		LEMMATIZE,
+		/** Stemming a token */
+		STEM,
+		/** Storing a token in the storage manager */
+		STORE,
+		/** Appending a document to the dictionary */
+		APPEND,
+		/** Indexing a whole document */
+		DOCUMENT,
+		/** Tokenizing and lemmatizing a query */
+		ANALYZE,
+		/** Ranking the documents for a query */
+		QUERY
+	}
+
+	private static final String						OBJECT_NAME	= "InformationRetrieval:type=Metrics";
+	private static final Map<Stage, LatencyHistogram>	histograms	= new EnumMap<>(Stage.class);
+	private static final LongAdder					tokens		= new LongAdder();
+	private static boolean							enabled;
+
+	static {
+		for (final Stage stage : Stage.values()) {
+			histograms.put(stage, new LatencyHistogram());
+		}
+	}
+
+	/**
+	 * Turns on metrics collection and registers the MBean. Call it before the pipeline starts.
+	 */
+	public static void enable() {
+		enabled = true;
+		try {
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), name);
+			}
+		} catch (final JMException e) {
+			System.out.println("Unable to register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return true if metrics are being collected
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts timing a stage
+	 *
+	 * @return Start time in nanoseconds, 0 if metrics are off
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Records the time taken by a stage
+	 *
+	 * @param stage
+	 *            Stage that was timed
+	 * @param start
+	 *            Start time returned by {@link #start()}
+	 */
+	public static void record(final Stage stage, final long start) {
+		if (enabled) {
+			histograms.get(stage).record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records a time measured by the caller, such as the time a document spent in the stages of a pipeline, without the time it waited between them
+	 *
+	 * @param stage
+	 *            Stage that was timed
+	 * @param nanos
+	 *            Time taken in nanoseconds
+	 */
+	public static void recordTime(final Stage stage, final long nanos) {
+		if (enabled) {
+			histograms.get(stage).record(nanos);
+		}
+	}
+
+	/**
+	 * Counts indexed tokens
+	 *
+	 * @param count
+	 *            Number of tokens
+	 */
+	public static void addTokens(final int count) {
+		if (enabled) {
+			tokens.add(count);
+		}
+	}
+
+	/**
+	 * @param stage
+	 *            Stage to get the histogram for
+	 * @return Latency histogram of the stage in nanoseconds
+	 */
+	public static LatencyHistogram getHistogram(final Stage stage) {
+		return histograms.get(stage);
+	}
+
+	/**
+	 * Gets the metrics report, with a row per stage that was timed
+	 *
+	 * @return formatter containing the report
+	 */
+	public static OutputFormatter getReport() {
+		final OutputFormatter formatter = new OutputFormatter();
+		formatter.addRow("STAGE", "COUNT", "MEAN (us)", "P50 (us)", "P99 (us)", "MAX (us)", "TOTAL (ms)");
+		for (final Map.Entry<Stage, LatencyHistogram> entry : histograms.entrySet()) {
+			final LatencyHistogram histogram = entry.getValue();
+			if (histogram.getCount() == 0) {
+				continue;
+			}
+
+			formatter.addRow(entry.getKey().name(),
+					String.valueOf(histogram.getCount()),
+					String.format("%.1f", histogram.getMean() / 1000.0),
+					String.valueOf(micros(histogram.getPercentile(50))),
+					String.valueOf(micros(histogram.getPercentile(99))),
+					String.valueOf(micros(histogram.getMax())),
+					String.valueOf(TimeUnit.NANOSECONDS.toMillis(histogram.getSum())));
+		}
+
+		// Add throughput of the pipelines that ran
+		formatter.addRow(" ", " ");
+		final Metrics metrics = new Metrics();
+		if (metrics.getDocuments() > 0) {
+			formatter.addRow("Documents", String.valueOf(metrics.getDocuments()), String.format("%.1f docs/sec", metrics.getDocumentsPerSecond()));
+			formatter.addRow("Tokens", String.valueOf(metrics.getTokens()), String.format("%.1f tokens/sec", metrics.getTokensPerSecond()));
+		}
+
+		if (metrics.getQueries() > 0) {
+			formatter.addRow("Queries", String.valueOf(metrics.getQueries()), String.format("%.1f queries/sec", metrics.getQueriesPerSecond()));
+		}
+
+		return formatter;
+	}
+
+	/**
+	 * @param nanos
+	 *            Time in nanoseconds
+	 * @return Time in microseconds
+	 */
+	private static long micros(final long nanos) {
+		return TimeUnit.NANOSECONDS.toMicros(nanos);
+	}
+
+	/**
+	 * @param count
+	 *            Number of items
+	 * @param stage
+	 *            Stage whose total time the items took
+	 * @return Items per second of the stage time
+	 */
+	private static double rate(final long count, final Stage stage) {
+		final long nanos = histograms.get(stage).getSum();
+		return nanos == 0 ? 0.0 : count * 1e9 / nanos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getDocuments()
+	 */
+	@Override
+	public long getDocuments() {
+		return histograms.get(Stage.DOCUMENT).getCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getTokens()
+	 */
+	@Override
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getQueries()
+	 */
+	@Override
+	public long getQueries() {
+		return histograms.get(Stage.QUERY).getCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getDocumentsPerSecond()
+	 */
+	@Override
+	public double getDocumentsPerSecond() {
+		return rate(this.getDocuments(), Stage.DOCUMENT);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getTokensPerSecond()
+	 */
+	@Override
+	public double getTokensPerSecond() {
+		return rate(this.getTokens(), Stage.DOCUMENT);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getQueriesPerSecond()
+	 */
+	@Override
+	public double getQueriesPerSecond() {
+		return rate(this.getQueries(), Stage.QUERY);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getDocumentLatencyP50()
+	 */
+	@Override
+	public long getDocumentLatencyP50() {
+		return micros(histograms.get(Stage.DOCUMENT).getPercentile(50));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getDocumentLatencyP99()
+	 */
+	@Override
+	public long getDocumentLatencyP99() {
+		return micros(histograms.get(Stage.DOCUMENT).getPercentile(99));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getQueryLatencyP50()
+	 */
+	@Override
+	public long getQueryLatencyP50() {
+		return micros(histograms.get(Stage.QUERY).getPercentile(50));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getQueryLatencyP99()
+	 */
+	@Override
+	public long getQueryLatencyP99() {
+		return micros(histograms.get(Stage.QUERY).getPercentile(99));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#getStageLatencies()
+	 */
+	@Override
+	public Map<String, Double> getStageLatencies() {
+		final Map<String, Double> latencies = new LinkedHashMap<>();
+		for (final Map.Entry<Stage, LatencyHistogram> entry : histograms.entrySet()) {
+			latencies.put(entry.getKey().name(), entry.getValue().getMean() / 1000.0);
+		}
+
+		return latencies;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see MetricsMXBean#reset()
+	 */
+	@Override
+	public void reset() {
+		for (final LatencyHistogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+
+		tokens.reset();
+	}
+}
\ No newline at end of file
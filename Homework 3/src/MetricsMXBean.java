@@ -0,0 +1,68 @@
+import java.util.Map;
+
+/**
+ * Management interface of the pipeline metrics, registered with the platform MBean server when metrics are enabled. Latencies are in microseconds.
+ *
+ * @author Ekal.Golas
+ */
+public interface MetricsMXBean {
+	/**
+	 * @return the number of documents indexed
+	 */
+	long getDocuments();
+
+	/**
+	 * @return the number of tokens indexed
+	 */
+	long getTokens();
+
+	/**
+	 * @return the number of queries ranked
+	 */
+	long getQueries();
+
+	/**
+	 * @return documents indexed per second of indexing time
+	 */
+	double getDocumentsPerSecond();
+
+	/**
+	 * @return tokens indexed per second of indexing time
+	 */
+	double getTokensPerSecond();
+
+	/**
+	 * @return queries ranked per second of query time
+	 */
+	double getQueriesPerSecond();
+
+	/**
+	 * @return median time to index a document
+	 */
+	long getDocumentLatencyP50();
+
+	/**
+	 * @return 99th percentile time to index a document
+	 */
+	long getDocumentLatencyP99();
+
+	/**
+	 * @return median time to rank a query
+	 */
+	long getQueryLatencyP50();
+
+	/**
+	 * @return 99th percentile time to rank a query
+	 */
+	long getQueryLatencyP99();
+
+	/**
+	 * @return mean latency of each stage
+	 */
+	Map<String, Double> getStageLatencies();
+
+	/**
+	 * Clears all counters and histograms
+	 */
+	void reset();
+}
\ No newline at end of file
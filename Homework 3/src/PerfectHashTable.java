@@ -0,0 +1,203 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable map of strings to ints over a perfect hash function, built by hash and displace. Keys are hashed once into buckets of a few keys each, and
+ * every bucket is given the first seed that sends all of its keys to free slots, so a lookup is one hash of the key, one seed and one slot, with no probing.
+ * Keys are packed into a single char array, and the table costs one int per slot and per bucket on top of it. Safe for use from many threads.
+ *
+ * @author Ekal.Golas
+ */
+public class PerfectHashTable {
+	private static final int	KEYS_PER_BUCKET	= 4;
+
+	private final int[]			seeds;
+	private final int[]			offsets;
+	private final char[]		chars;
+	private final int[]			values;
+	private final int			size;
+
+	/**
+	 * Builds the table
+	 *
+	 * @param keys
+	 *            Distinct non-empty keys
+	 * @param values
+	 *            Value of each key
+	 */
+	public PerfectHashTable(final String[] keys, final int[] values) {
+		this.size = keys.length;
+		final int slots = Math.max(1, keys.length + keys.length / 4);
+		this.seeds = new int[Math.max(1, keys.length / KEYS_PER_BUCKET)];
+		this.offsets = new int[slots + 1];
+		this.values = new int[slots];
+
+		// Hash every key once and group the keys by bucket
+		final long[] hashes = new long[keys.length];
+		final List<List<Integer>> buckets = new ArrayList<>(this.seeds.length);
+		for (int b = 0; b < this.seeds.length; b++) {
+			buckets.add(new ArrayList<Integer>());
+		}
+
+		for (int i = 0; i < keys.length; i++) {
+			hashes[i] = hash(keys[i]);
+			buckets.get(bucket(hashes[i], this.seeds.length)).add(i);
+		}
+
+		// Place the largest buckets first, while most slots are free
+		final Integer[] order = new Integer[this.seeds.length];
+		for (int b = 0; b < order.length; b++) {
+			order[b] = b;
+		}
+
+		Arrays.sort(order, Comparator.comparingInt((final Integer b) -> buckets.get(b).size()).reversed());
+
+		final int[] keyOfSlot = new int[slots];
+		Arrays.fill(keyOfSlot, -1);
+		final int[] placed = new int[buckets.get(order[0]).size()];
+		for (final int b : order) {
+			final List<Integer> bucket = buckets.get(b);
+			if (bucket.isEmpty()) {
+				break;
+			}
+
+			for (int seed = 0;; seed++) {
+				int count = 0;
+				for (final int key : bucket) {
+					final int slot = slot(hashes[key], seed, slots);
+					if (keyOfSlot[slot] != -1) {
+						break;
+					}
+
+					keyOfSlot[slot] = key;
+					placed[count++] = slot;
+				}
+
+				if (count == bucket.size()) {
+					this.seeds[b] = seed;
+					break;
+				}
+
+				// Undo the partial placement and try the next seed
+				for (int i = 0; i < count; i++) {
+					keyOfSlot[placed[i]] = -1;
+				}
+			}
+		}
+
+		// Pack the keys in slot order, an empty slot being a key of length zero
+		int length = 0;
+		for (final String key : keys) {
+			length += key.length();
+		}
+
+		this.chars = new char[length];
+		int offset = 0;
+		for (int slot = 0; slot < slots; slot++) {
+			this.offsets[slot] = offset;
+			if (keyOfSlot[slot] != -1) {
+				final String key = keys[keyOfSlot[slot]];
+				key.getChars(0, key.length(), this.chars, offset);
+				offset += key.length();
+				this.values[slot] = values[keyOfSlot[slot]];
+			}
+		}
+
+		this.offsets[slots] = offset;
+	}
+
+	/**
+	 * Looks a key up
+	 *
+	 * @param key
+	 *            Key to look up
+	 * @param missing
+	 *            Value to return if the key is not in the table
+	 * @return Value of the key
+	 */
+	public int get(final CharSequence key, final int missing) {
+		final long hash = hash(key);
+		final int slot = slot(hash, this.seeds[bucket(hash, this.seeds.length)], this.values.length);
+		final int start = this.offsets[slot];
+		if (this.offsets[slot + 1] - start != key.length()) {
+			return missing;
+		}
+
+		for (int i = 0; i < key.length(); i++) {
+			if (this.chars[start + i] != key.charAt(i)) {
+				return missing;
+			}
+		}
+
+		return this.values[slot];
+	}
+
+	/**
+	 * @return the number of keys
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the approximate memory taken by the table in bytes
+	 */
+	public long getBytes() {
+		return 2L * this.chars.length + 4L * (this.seeds.length + this.offsets.length + this.values.length);
+	}
+
+	/**
+	 * Hashes a key, FNV-1a over its characters with a final mix
+	 *
+	 * @param key
+	 *            Key
+	 * @return 64 bit hash
+	 */
+	private static long hash(final CharSequence key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h = (h ^ key.charAt(i)) * 0x100000001b3L;
+		}
+
+		return mix(h);
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of a key
+	 * @param buckets
+	 *            Number of buckets
+	 * @return Bucket of the key, from the high bits of its hash
+	 */
+	private static int bucket(final long hash, final int buckets) {
+		return (int) ((hash >>> 32) * buckets >>> 32);
+	}
+
+	/**
+	 * @param hash
+	 *            Hash of a key
+	 * @param seed
+	 *            Seed of the bucket of the key
+	 * @param slots
+	 *            Number of slots
+	 * @return Slot of the key
+	 */
+	private static int slot(final long hash, final int seed, final int slots) {
+		return (int) ((mix(hash ^ seed * 0x9e3779b97f4a7c15L) & 0xffffffffL) * slots >>> 32);
+	}
+
+	/**
+	 * Spreads the bits of a hash, the finalizer of MurmurHash3
+	 *
+	 * @param hash
+	 *            Hash
+	 * @return Mixed hash
+	 */
+	private static long mix(final long hash) {
+		final long h = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+		final long h2 = (h ^ h >>> 33) * 0xc4ceb93e1a85ec53L;
+		return h2 ^ h2 >>> 33;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of decoded postings lists of a gamma coded {@link ImmutableIndex}, keyed by term ID and bounded by the bytes of the decoded arrays. Popular terms
+ * such as "flow", "pressure" and "boundary" are in most queries and have the longest lists, so keeping them decoded saves most of the decoding for a bounded
+ * amount of heap.
+ * <p>
+ * Admission is frequency aware in the manner of TinyLFU: every lookup counts towards its term, and when the cache is full a decoded list only gets in if its
+ * term has been looked up more often than the least used of a few resident terms sampled at random, which is then evicted. A term seen once therefore
+ * cannot push out a popular one. The counts are halved every ten lookups per term, so that terms that stopped being queried lose their place. Hits read
+ * the slot of the term without locking, and only admission takes the lock, so the cache can be shared by every query thread.
+ *
+ * @author Ekal.Golas
+ */
+public class PostingsCache {
+	private static final int									SAMPLE	= 8;
+
+	private final AtomicReferenceArray<ImmutableIndex.Postings>	entries;
+	private final AtomicIntegerArray							frequencies;
+	private final AtomicInteger									lookups;
+	private final int											period;
+	private final int[]											resident;
+	private final int[]											slots;
+	private int													residents;
+	private final long											maxBytes;
+	private volatile long										bytes;
+	private final LongAdder										hits;
+	private final LongAdder										misses;
+	private final LongAdder										admissions;
+	private final LongAdder										rejections;
+	private final LongAdder										evictions;
+
+	/**
+	 * Constructor
+	 *
+	 * @param terms
+	 *            Number of terms of the index
+	 * @param maxBytes
+	 *            Bound of the bytes of the decoded lists, 0 to decode on every lookup
+	 */
+	public PostingsCache(final int terms, final long maxBytes) {
+		this.entries = new AtomicReferenceArray<>(terms);
+		this.frequencies = new AtomicIntegerArray(terms);
+		this.lookups = new AtomicInteger();
+		this.period = Math.max(1 << 10, 10 * terms);
+		this.resident = new int[terms];
+		this.slots = new int[terms];
+		Arrays.fill(this.slots, -1);
+		this.maxBytes = maxBytes;
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.admissions = new LongAdder();
+		this.rejections = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Gets the decoded postings of a term, decoding them on a miss and offering them for admission
+	 *
+	 * @param coded
+	 *            Gamma coded postings of the term
+	 * @return Decoded postings of the term
+	 */
+	public ImmutableIndex.Postings get(final ImmutableIndex.Postings coded) {
+		final int id = coded.id;
+		this.frequencies.incrementAndGet(id);
+		if (this.lookups.incrementAndGet() >= this.period) {
+			this.age();
+		}
+
+		ImmutableIndex.Postings decoded = this.entries.get(id);
+		if (decoded != null) {
+			this.hits.increment();
+			return decoded;
+		}
+
+		this.misses.increment();
+		final int[] docs = new int[coded.count];
+		final int[] tf = new int[coded.count];
+		GammaCoder.decode(coded.coded, docs, tf);
+		decoded = new ImmutableIndex.Postings(coded.term, id, coded.df, docs, tf);
+		if (this.maxBytes > 0) {
+			this.admit(decoded);
+		}
+
+		return decoded;
+	}
+
+	/**
+	 * Caches a decoded list if there is room, or if its term is used more than the least used of the sampled residents it would replace
+	 *
+	 * @param decoded
+	 *            Decoded postings missing from the cache
+	 */
+	private synchronized void admit(final ImmutableIndex.Postings decoded) {
+		final int id = decoded.id;
+		if (this.slots[id] >= 0) {
+			return;
+		}
+
+		final long size = weigh(decoded);
+		if (size > this.maxBytes) {
+			this.rejections.increment();
+			return;
+		}
+
+		// Pick every victim before evicting any, so that a list turned away costs no resident its place. Picked victims are set aside at the end of
+		// the residents, out of reach of the next samples.
+		final int frequency = this.frequencies.get(id);
+		int candidates = this.residents;
+		long room = this.maxBytes - this.bytes;
+		while (room < size) {
+			final int victim = this.sampleVictim(candidates);
+			if (this.frequencies.get(victim) >= frequency) {
+				this.rejections.increment();
+				return;
+			}
+
+			final int slot = this.slots[victim];
+			final int last = this.resident[--candidates];
+			this.resident[slot] = last;
+			this.slots[last] = slot;
+			this.resident[candidates] = victim;
+			this.slots[victim] = candidates;
+			room += weigh(this.entries.get(victim));
+		}
+
+		while (this.residents > candidates) {
+			this.evict(this.resident[this.residents - 1]);
+		}
+
+		this.slots[id] = this.residents;
+		this.resident[this.residents++] = id;
+		this.bytes += size;
+		this.entries.set(id, decoded);
+		this.admissions.increment();
+	}
+
+	/**
+	 * @param candidates
+	 *            Number of residents, from the first, to pick from
+	 * @return Least used of a few of the resident terms picked at random
+	 */
+	private int sampleVictim(final int candidates) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		int victim = this.resident[random.nextInt(candidates)];
+		for (int i = 1; i < SAMPLE; i++) {
+			final int candidate = this.resident[random.nextInt(candidates)];
+			if (this.frequencies.get(candidate) < this.frequencies.get(victim)) {
+				victim = candidate;
+			}
+		}
+
+		return victim;
+	}
+
+	/**
+	 * @param id
+	 *            Resident term to evict
+	 */
+	private void evict(final int id) {
+		// Move the last resident into the slot of the evicted one
+		final int slot = this.slots[id];
+		final int last = this.resident[--this.residents];
+		this.resident[slot] = last;
+		this.slots[last] = slot;
+		this.slots[id] = -1;
+		this.bytes -= weigh(this.entries.getAndSet(id, null));
+		this.evictions.increment();
+	}
+
+	/**
+	 * Halves every count once a period of lookups has passed. Counts taken while halving may be lost, which only blurs the estimate.
+	 */
+	private synchronized void age() {
+		if (this.lookups.get() < this.period) {
+			return;
+		}
+
+		for (int id = 0; id < this.frequencies.length(); id++) {
+			this.frequencies.set(id, this.frequencies.get(id) >>> 1);
+		}
+
+		this.lookups.set(0);
+	}
+
+	/**
+	 * @param postings
+	 *            Decoded postings
+	 * @return Bytes of the list and its two arrays
+	 */
+	private static long weigh(final ImmutableIndex.Postings postings) {
+		return 72L + 8L * postings.count;
+	}
+
+	/**
+	 * @return the number of cached lists
+	 */
+	public synchronized int size() {
+		return this.residents;
+	}
+
+	/**
+	 * @return the bytes of the cached lists
+	 */
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * @return the bound of the bytes of the cached lists
+	 */
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	/**
+	 * @return the number of lookups that found the list decoded
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups that decoded the list
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return the number of lists cached
+	 */
+	public long getAdmissions() {
+		return this.admissions.sum();
+	}
+
+	/**
+	 * @return the number of decoded lists turned away as less used than the lists they would replace
+	 */
+	public long getRejections() {
+		return this.rejections.sum();
+	}
+
+	/**
+	 * @return the number of lists evicted for more used ones
+	 */
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	/**
+	 * @return the share of the lookups that found the list decoded, 0 before the first lookup
+	 */
+	public double getHitRate() {
+		final long hits = this.hits.sum();
+		final long lookups = hits + this.misses.sum();
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+}
\ No newline at end of file
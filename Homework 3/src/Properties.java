@@ -1,26 +1,52 @@
+import java.util.Arrays;
 
-
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Postings of a term, as the numbers of the documents it occurs in and its frequency in each
+ *
+ * @author Ekal.Golas
+ */
 public class Properties {
-	private int								docFreq;
-	private Map<String, DocumentProperty>	postingFile	= new HashMap<>();
-	private Map<String, Integer>			termFreq	= new HashMap<>();
+	private final int	id;
+	private int			docFreq;
+	private int[]		docs;
+	private int[]		termFreqs;
+	private int			size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param id
+	 *            Term ID in the lexicon
+	 */
+	public Properties(final int id) {
+		this.id = id;
+		this.docs = new int[4];
+		this.termFreqs = new int[4];
+	}
 
 	/**
-	 * @return the termFreq
+	 * Adds a posting
+	 *
+	 * @param doc
+	 *            Document number
+	 * @param tf
+	 *            Term frequency in the document
 	 */
-	public final Map<String, Integer> getTermFreq() {
-		return this.termFreq;
+	public final void add(final int doc, final int tf) {
+		if (this.size == this.docs.length) {
+			this.docs = Arrays.copyOf(this.docs, this.size * 2);
+			this.termFreqs = Arrays.copyOf(this.termFreqs, this.size * 2);
+		}
+
+		this.docs[this.size] = doc;
+		this.termFreqs[this.size++] = tf;
 	}
 
 	/**
-	 * @param termFreq
-	 *            the termFreq to set
+	 * @return the term ID
 	 */
-	public final void setTermFreq(final Map<String, Integer> termFreq) {
-		this.termFreq = termFreq;
+	public final int getId() {
+		return this.id;
 	}
 
 	/**
@@ -39,18 +65,23 @@ public class Properties {
 	}
 
 	/**
-	 * @return the postingFile
+	 * @return the document numbers of the postings, valid up to {@link #size()}
 	 */
-	public final Map<String, DocumentProperty> getPostingFile() {
-		return this.postingFile;
+	public final int[] getDocs() {
+		return this.docs;
 	}
 
 	/**
-	 * @param postingFile
-	 *            the postingFile to set
+	 * @return the term frequencies of the postings, in the order of {@link #getDocs()}
 	 */
-	public final void setPostingFile(final Map<String, DocumentProperty> postingFile) {
-		this.postingFile = postingFile;
+	public final int[] getTermFreqs() {
+		return this.termFreqs;
 	}
 
+	/**
+	 * @return the number of postings
+	 */
+	public final int size() {
+		return this.size;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Least recently used cache bounded by an estimate of the heap its entries take, for the repeated queries of a query stream. The entries are spread over
+ * segments by the hash of their key, each a {@link LinkedHashMap} in access order with its own lock and an equal share of the bound, so that threads
+ * looking up different queries rarely wait on each other; the least recently used entry of a segment is evicted when an insert takes the segment over
+ * its share. Hits, misses and evictions are counted for reporting.
+ *
+ * @author Ekal.Golas
+ * @param <K>
+ *            Type of the keys
+ * @param <V>
+ *            Type of the values
+ */
+public class QueryCache<K, V> {
+	private final Segment<K, V>[]			segments;
+	private final ToLongBiFunction<K, V>	weigher;
+	private final long						maxBytes;
+	private final LongAdder					hits;
+	private final LongAdder					misses;
+	private final LongAdder					evictions;
+
+	/**
+	 * Entries of one segment in access order, with the bytes they take
+	 */
+	private static class Segment<K, V> {
+		private final LinkedHashMap<K, Entry<V>>	entries;
+		private final long							maxBytes;
+		private long								bytes;
+
+		/**
+		 * Constructor
+		 *
+		 * @param maxBytes
+		 *            Share of the bound of the segment
+		 */
+		Segment(final long maxBytes) {
+			this.entries = new LinkedHashMap<>(16, 0.75f, true);
+			this.maxBytes = maxBytes;
+		}
+	}
+
+	/**
+	 * Cached value with its weight
+	 */
+	private static class Entry<V> {
+		private final V		value;
+		private final long	bytes;
+
+		/**
+		 * Constructor
+		 *
+		 * @param value
+		 *            Cached value
+		 * @param bytes
+		 *            Estimated heap of the entry
+		 */
+		Entry(final V value, final long bytes) {
+			this.value = value;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxBytes
+	 *            Bound of the estimated heap of all the entries
+	 * @param segments
+	 *            Number of segments, rounded up to a power of two
+	 * @param weigher
+	 *            Estimates the heap an entry takes, in bytes, from its key and value
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public QueryCache(final long maxBytes, final int segments, final ToLongBiFunction<K, V> weigher) {
+		final int count = segments <= 1 ? 1 : Integer.highestOneBit((segments - 1) << 1);
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			this.segments[i] = new Segment<>(maxBytes / count);
+		}
+
+		this.weigher = weigher;
+		this.maxBytes = maxBytes;
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	/**
+	 * Looks up a value, making it the most recently used of its segment
+	 *
+	 * @param key
+	 *            Key of the value
+	 * @return Cached value, null on a miss
+	 */
+	public V get(final K key) {
+		final Segment<K, V> segment = this.segment(key);
+		final Entry<V> entry;
+		synchronized (segment) {
+			entry = segment.entries.get(key);
+		}
+
+		if (entry == null) {
+			this.misses.increment();
+			return null;
+		}
+
+		this.hits.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Caches a value, evicting the least recently used entries of its segment until the segment fits its share again. A value heavier than the share is
+	 * not cached at all.
+	 *
+	 * @param key
+	 *            Key of the value
+	 * @param value
+	 *            Value to cache
+	 */
+	public void put(final K key, final V value) {
+		final Segment<K, V> segment = this.segment(key);
+		final long bytes = this.weigher.applyAsLong(key, value);
+		if (bytes > segment.maxBytes) {
+			return;
+		}
+
+		synchronized (segment) {
+			final Entry<V> previous = segment.entries.put(key, new Entry<>(value, bytes));
+			segment.bytes += bytes - (previous == null ? 0L : previous.bytes);
+
+			// Least recently used first
+			final Iterator<Entry<V>> eldest = segment.entries.values().iterator();
+			while (segment.bytes > segment.maxBytes) {
+				segment.bytes -= eldest.next().bytes;
+				eldest.remove();
+				this.evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Drops an entry
+	 *
+	 * @param key
+	 *            Key of the value
+	 */
+	public void remove(final K key) {
+		final Segment<K, V> segment = this.segment(key);
+		synchronized (segment) {
+			final Entry<V> entry = segment.entries.remove(key);
+			if (entry != null) {
+				segment.bytes -= entry.bytes;
+			}
+		}
+	}
+
+	/**
+	 * Drops every entry, keeping the counts
+	 */
+	public void clear() {
+		for (final Segment<K, V> segment : this.segments) {
+			synchronized (segment) {
+				segment.entries.clear();
+				segment.bytes = 0L;
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 *            Key of a value
+	 * @return Segment of the key, picked by its spread hash
+	 */
+	private Segment<K, V> segment(final K key) {
+		final int hash = key.hashCode();
+		return this.segments[(hash ^ hash >>> 16) & this.segments.length - 1];
+	}
+
+	/**
+	 * @return the number of cached entries
+	 */
+	public int size() {
+		int size = 0;
+		for (final Segment<K, V> segment : this.segments) {
+			synchronized (segment) {
+				size += segment.entries.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return the estimated heap of the cached entries in bytes
+	 */
+	public long getBytes() {
+		long bytes = 0L;
+		for (final Segment<K, V> segment : this.segments) {
+			synchronized (segment) {
+				bytes += segment.bytes;
+			}
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * @return the bound of the estimated heap in bytes
+	 */
+	public long getMaxBytes() {
+		return this.maxBytes;
+	}
+
+	/**
+	 * @return the number of lookups that found a value
+	 */
+	public long getHits() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * @return the number of lookups that found nothing
+	 */
+	public long getMisses() {
+		return this.misses.sum();
+	}
+
+	/**
+	 * @return the number of entries evicted to stay within the bound
+	 */
+	public long getEvictions() {
+		return this.evictions.sum();
+	}
+
+	/**
+	 * @return the share of the lookups that found a value, 0 before the first lookup
+	 */
+	public double getHitRate() {
+		final long hits = this.hits.sum();
+		final long lookups = hits + this.misses.sum();
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+}
\ No newline at end of file
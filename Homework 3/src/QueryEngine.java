@@ -0,0 +1,486 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves ranked queries over an {@link ImmutableIndex} from a fixed pool of worker threads. Every query carries a deadline; a query that is still queued when
+ * its deadline passes is not evaluated, and one that runs past it stops between terms and returns the partial ranking, marked as expired. With a
+ * {@link RocchioFeedback} every query is re-run once with its feedback query before it is returned.
+ *
+ * @author Ekal.Golas
+ */
+public class QueryEngine implements Closeable {
+	private final ImmutableIndex			index;
+	private final ExecutorService			executor;
+	private final ThreadLocal<Accumulator>	accumulators;
+	private final LatencyHistogram			latencies;
+	private final RocchioFeedback			feedback;
+
+	/**
+	 * Result of a query, ranked by both weighting functions
+	 */
+	public static class Result {
+		private final List<ScoredDocument>	W1;
+		private final List<ScoredDocument>	W2;
+		private final boolean				expired;
+
+		/**
+		 * Constructor
+		 *
+		 * @param W1
+		 *            Top documents by W1
+		 * @param W2
+		 *            Top documents by W2
+		 * @param expired
+		 *            True if the deadline passed before the query was fully evaluated
+		 */
+		public Result(final List<ScoredDocument> W1, final List<ScoredDocument> W2, final boolean expired) {
+			this.W1 = W1;
+			this.W2 = W2;
+			this.expired = expired;
+		}
+
+		/**
+		 * @return top documents by W1
+		 */
+		public final List<ScoredDocument> getW1() {
+			return this.W1;
+		}
+
+		/**
+		 * @return top documents by W2
+		 */
+		public final List<ScoredDocument> getW2() {
+			return this.W2;
+		}
+
+		/**
+		 * @return true if the deadline passed before the query was fully evaluated
+		 */
+		public final boolean isExpired() {
+			return this.expired;
+		}
+	}
+
+	/**
+	 * Per-thread score accumulators. A document's scores are only valid when its stamp matches the current query, so nothing has to be cleared between
+	 * queries.
+	 */
+	private static class Accumulator {
+		private final double[]	W1;
+		private final double[]	W2;
+		private final int[]		stamps;
+		private final int[]		touched;
+		private int				stamp;
+		private int				count;
+
+		/**
+		 * Constructor
+		 *
+		 * @param size
+		 *            Number of documents in the index
+		 */
+		Accumulator(final int size) {
+			this.W1 = new double[size];
+			this.W2 = new double[size];
+			this.stamps = new int[size];
+			this.touched = new int[size];
+		}
+
+		/**
+		 * Starts a new query
+		 */
+		void reset() {
+			this.stamp++;
+			this.count = 0;
+		}
+
+		/**
+		 * Adds weights to a document
+		 *
+		 * @param doc
+		 *            Document number
+		 * @param w1
+		 *            W1 weight
+		 * @param w2
+		 *            W2 weight
+		 */
+		void add(final int doc, final double w1, final double w2) {
+			if (this.stamps[doc] != this.stamp) {
+				this.stamps[doc] = this.stamp;
+				this.W1[doc] = 0.0;
+				this.W2[doc] = 0.0;
+				this.touched[this.count++] = doc;
+			}
+
+			this.W1[doc] += w1;
+			this.W2[doc] += w2;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param index
+	 *            Index to serve
+	 * @param threads
+	 *            Number of worker threads
+	 */
+	public QueryEngine(final ImmutableIndex index, final int threads) {
+		this(index, threads, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param index
+	 *            Index to serve
+	 * @param threads
+	 *            Number of worker threads
+	 * @param feedback
+	 *            Relevance feedback to apply to every submitted query, null for none
+	 */
+	public QueryEngine(final ImmutableIndex index, final int threads, final RocchioFeedback feedback) {
+		this.index = index;
+		this.feedback = feedback;
+		this.latencies = new LatencyHistogram();
+		this.accumulators = ThreadLocal.withInitial(() -> new Accumulator(index.getDocumentCount()));
+
+		// Daemon workers, so an abandoned engine does not keep the JVM alive
+		final AtomicInteger number = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "query-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = Executors.newFixedThreadPool(threads, factory);
+	}
+
+	/**
+	 * Submits a query to the worker pool
+	 *
+	 * @param terms
+	 *            Lemmas of the query
+	 * @param k
+	 *            Number of documents to return
+	 * @param timeout
+	 *            Time allowed for the query, from submission, in milliseconds
+	 * @return Future of the result
+	 */
+	public Future<Result> submit(final Collection<String> terms, final int k, final long timeout) {
+		final long submitted = System.nanoTime();
+		final long deadline = submitted + TimeUnit.MILLISECONDS.toNanos(timeout);
+		final Callable<Result> task = () -> {
+			final Result result = this.feedback == null ? this.search(terms, k, deadline) : this.feedback.search(this, terms, k, deadline);
+			this.latencies.record(System.nanoTime() - submitted);
+			return result;
+		};
+
+		return this.executor.submit(task);
+	}
+
+	/**
+	 * Ranks the documents for a query on the calling thread
+	 *
+	 * @param terms
+	 *            Lemmas of the query
+	 * @param k
+	 *            Number of documents to return
+	 * @param deadline
+	 *            {@link System#nanoTime()} after which evaluation stops
+	 * @return Result of the query
+	 */
+	public Result search(final Collection<String> terms, final int k, final long deadline) {
+		final long start = Metrics.start();
+		final Accumulator accumulator = this.accumulators.get();
+		accumulator.reset();
+
+		// Accumulate weights of each query term
+		boolean expired = false;
+		final int collectionSize = this.index.getCollectionSize();
+		final double avgdoclen = this.index.getAvgdoclen();
+		for (final String term : terms) {
+			if (System.nanoTime() - deadline > 0) {
+				expired = true;
+				break;
+			}
+
+			// Skip if query term does not exist in the index
+			final ImmutableIndex.Postings postings = this.index.getPostings(term);
+			if (postings == null) {
+				continue;
+			}
+
+			this.accumulate(accumulator, postings, postings.df, 1.0, 1.0, collectionSize, avgdoclen);
+		}
+
+		final Result result = new Result(this.top(accumulator, accumulator.W1, k), this.top(accumulator, accumulator.W2, k), expired);
+		Metrics.record(Metrics.Stage.QUERY, start);
+		return result;
+	}
+
+	/**
+	 * Ranks the documents for a query on the calling thread with collection statistics given by the caller, as a shard does with the statistics of the
+	 * whole sharded collection so that its scores add up to those of a single index
+	 *
+	 * @param terms
+	 *            Lemmas of the query
+	 * @param docFreqs
+	 *            Document frequency of each lemma in the whole collection
+	 * @param collectionSize
+	 *            Collection size of the whole collection
+	 * @param avgdoclen
+	 *            Average document length of the whole collection
+	 * @param k
+	 *            Number of documents to return
+	 * @param deadline
+	 *            {@link System#nanoTime()} after which evaluation stops
+	 * @return Result of the query
+	 */
+	public Result search(final String[] terms, final int[] docFreqs, final int collectionSize, final double avgdoclen, final int k, final long deadline) {
+		final long start = Metrics.start();
+		final Accumulator accumulator = this.accumulators.get();
+		accumulator.reset();
+
+		// Accumulate weights of each query term this index holds
+		boolean expired = false;
+		for (int i = 0; i < terms.length; i++) {
+			if (System.nanoTime() - deadline > 0) {
+				expired = true;
+				break;
+			}
+
+			final ImmutableIndex.Postings postings = this.index.getPostings(terms[i]);
+			if (postings != null) {
+				this.accumulate(accumulator, postings, docFreqs[i], 1.0, 1.0, collectionSize, avgdoclen);
+			}
+		}
+
+		final Result result = new Result(this.top(accumulator, accumulator.W1, k), this.top(accumulator, accumulator.W2, k), expired);
+		Metrics.record(Metrics.Stage.QUERY, start);
+		return result;
+	}
+
+	/**
+	 * Ranks the documents for a weighted query on the calling thread. Each weighting function has its own query vector, as given by relevance feedback.
+	 *
+	 * @param w1Terms
+	 *            Term IDs of the W1 query
+	 * @param w1Weights
+	 *            Query weights of the W1 terms
+	 * @param w2Terms
+	 *            Term IDs of the W2 query
+	 * @param w2Weights
+	 *            Query weights of the W2 terms
+	 * @param k
+	 *            Number of documents to return
+	 * @param deadline
+	 *            {@link System#nanoTime()} after which evaluation stops
+	 * @return Result of the query
+	 */
+	public Result search(final int[] w1Terms, final double[] w1Weights, final int[] w2Terms, final double[] w2Weights, final int k, final long deadline) {
+		final long start = Metrics.start();
+		final Accumulator accumulator = this.accumulators.get();
+		accumulator.reset();
+
+		// Accumulate weights of the terms of both queries
+		boolean expired = false;
+		final int collectionSize = this.index.getCollectionSize();
+		final double avgdoclen = this.index.getAvgdoclen();
+		for (int i = 0; i < w1Terms.length + w2Terms.length; i++) {
+			if (System.nanoTime() - deadline > 0) {
+				expired = true;
+				break;
+			}
+
+			if (i < w1Terms.length) {
+				final ImmutableIndex.Postings postings = this.index.getPostings(w1Terms[i]);
+				this.accumulate(accumulator, postings, postings.df, w1Weights[i], 0.0, collectionSize, avgdoclen);
+			} else {
+				final ImmutableIndex.Postings postings = this.index.getPostings(w2Terms[i - w1Terms.length]);
+				this.accumulate(accumulator, postings, postings.df, 0.0, w2Weights[i - w1Terms.length], collectionSize, avgdoclen);
+			}
+		}
+
+		final Result result = new Result(this.top(accumulator, accumulator.W1, k), this.top(accumulator, accumulator.W2, k), expired);
+		Metrics.record(Metrics.Stage.QUERY, start);
+		return result;
+	}
+
+	/**
+	 * Adds the weights of a postings list to the accumulators
+	 *
+	 * @param accumulator
+	 *            Accumulator of the query
+	 * @param postings
+	 *            Postings list of a query term
+	 * @param df
+	 *            Document frequency of the term
+	 * @param w1Weight
+	 *            Query weight of the term for W1
+	 * @param w2Weight
+	 *            Query weight of the term for W2
+	 * @param collectionSize
+	 *            Collection size
+	 * @param avgdoclen
+	 *            Average document length
+	 */
+	private void accumulate(final Accumulator accumulator,
+			final ImmutableIndex.Postings postings,
+			final int df,
+			final double w1Weight,
+			final double w2Weight,
+			final int collectionSize,
+			final double avgdoclen) {
+		final ImmutableIndex.Postings decoded = this.index.decode(postings);
+		for (int i = 0; i < decoded.count; i++) {
+			final int doc = decoded.docs[i];
+			final int tf = decoded.tf[i];
+			final double w1 = w1Weight == 0.0 ? 0.0 : w1Weight * QueryProcessor.W1(tf, this.index.getMaxFreq(doc), df, collectionSize);
+			final double w2 = w2Weight == 0.0 ? 0.0 : w2Weight * QueryProcessor.W2(tf, this.index.getDoclen(doc), avgdoclen, df, collectionSize);
+			accumulator.add(doc, w1, w2);
+		}
+	}
+
+	/**
+	 * Selects the highest scoring documents with a bounded min-heap
+	 *
+	 * @param accumulator
+	 *            Accumulator of the query
+	 * @param scores
+	 *            Scores to rank by
+	 * @param k
+	 *            Number of documents to return
+	 * @return Documents in descending order of score
+	 */
+	private List<ScoredDocument> top(final Accumulator accumulator, final double[] scores, final int k) {
+		if (k <= 0 || accumulator.count == 0) {
+			return Collections.emptyList();
+		}
+
+		// Keep the k best documents, the worst of them at the root
+		final int[] heap = new int[Math.min(k, accumulator.count)];
+		int size = 0;
+		for (int i = 0; i < accumulator.count; i++) {
+			final int doc = accumulator.touched[i];
+			if (size < heap.length) {
+				heap[size] = doc;
+				siftUp(heap, size++, scores);
+			} else if (scores[doc] > scores[heap[0]]) {
+				heap[0] = doc;
+				siftDown(heap, size, scores);
+			}
+		}
+
+		// Drain the heap from the worst to the best
+		final ScoredDocument[] ranked = new ScoredDocument[size];
+		while (size > 0) {
+			final int doc = heap[0];
+			ranked[--size] = new ScoredDocument(this.index.getDocID(doc), scores[doc], this.index.getHeadline(doc));
+			heap[0] = heap[size];
+			siftDown(heap, size, scores);
+		}
+
+		final List<ScoredDocument> list = new ArrayList<>(ranked.length);
+		Collections.addAll(list, ranked);
+		return list;
+	}
+
+	/**
+	 * @param heap
+	 *            Min-heap of document numbers, or of term IDs when pruning feedback
+	 * @param position
+	 *            Position of the new element
+	 * @param scores
+	 *            Scores of the heap elements
+	 */
+	static void siftUp(final int[] heap, int position, final double[] scores) {
+		final int doc = heap[position];
+		while (position > 0) {
+			final int parent = position - 1 >>> 1;
+			if (scores[heap[parent]] <= scores[doc]) {
+				break;
+			}
+
+			heap[position] = heap[parent];
+			position = parent;
+		}
+
+		heap[position] = doc;
+	}
+
+	/**
+	 * @param heap
+	 *            Min-heap of document numbers, or of term IDs when pruning feedback
+	 * @param size
+	 *            Number of elements in the heap
+	 * @param scores
+	 *            Scores of the heap elements
+	 */
+	static void siftDown(final int[] heap, final int size, final double[] scores) {
+		if (size == 0) {
+			return;
+		}
+
+		final int doc = heap[0];
+		int position = 0;
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) {
+				child++;
+			}
+
+			if (scores[doc] <= scores[heap[child]]) {
+				break;
+			}
+
+			heap[position] = heap[child];
+			position = child;
+		}
+
+		heap[position] = doc;
+	}
+
+	/**
+	 * @return the index being served
+	 */
+	public ImmutableIndex getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * @return relevance feedback applied to submitted queries, null for none
+	 */
+	public RocchioFeedback getFeedback() {
+		return this.feedback;
+	}
+
+	/**
+	 * @return latencies of submitted queries in nanoseconds, from submission to completion
+	 */
+	public LatencyHistogram getLatencies() {
+		return this.latencies;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		this.executor.shutdown();
+	}
+}
\ No newline at end of file
@@ -50,12 +50,14 @@ public class QueryParser {
 		// Get a dictionary for each query
 		final Tokenizer tokenizer = new Tokenizer();
 		for (final String query : queries) {
-			final StorageManager storageManager = new StorageManager(this.stopwords);
+			final long start = Metrics.start();
+			final StorageManager storageManager = new StorageManager(this.stopwords, true);
 			tokenizer.tokenize(file, query, storageManager);
 
 			final Dictionary dictionary = new Dictionary();
-			dictionary.append(storageManager, file);
+			dictionary.append(storageManager);
 			this.dictionaries.add(dictionary);
+			Metrics.record(Metrics.Stage.ANALYZE, start);
 		}
 	}
 
@@ -1,19 +1,33 @@
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Class to process a query and build W1 and W2 tables for it
+ * Class to process a query and build W1 and W2 tables for it. Weights are accumulated by document number and term ID, only for the documents in the
+ * postings of the query terms, and the tables keyed by external document ID and lemma are only built when they are asked for.
  *
  * @author Ekal.Golas
  */
 public class QueryProcessor {
 	private final Map<String, Properties>			index;
-	private final Map<String, Double>				W1;
-	private final Map<String, Double>				W2;
-	private final Map<String, Map<String, Double>>	W1Doc;
-	private final Map<String, Map<String, Double>>	W2Doc;
+	private Map<String, Double>						W1;
+	private Map<String, Double>						W2;
+	private Map<String, Map<String, Double>>		W1Doc;
+	private Map<String, Map<String, Double>>		W2Doc;
 	private final double							avgdoclen;
 
+	// Document weights of a query, by position of the document among those the query touched
+	private IntIntCounter							positions;
+	private double[]								docW1;
+	private double[]								docW2;
+
+	// Weight of each (document, term) pair of a query
+	private int[]									pairDocs;
+	private int[]									pairTerms;
+	private double[]								pairW1;
+	private double[]								pairW2;
+	private int										pairCount;
+
 	/**
 	 * Constructor
 	 *
@@ -34,28 +48,31 @@ public class QueryProcessor {
 	 */
 	public void process() {
 		final int collectionSize = this.index.size();
-		for (final String term : this.index.keySet()) {
-			// Get df and postings file
-			final Properties properties = this.index.get(term);
+		for (final Map.Entry<String, Properties> entry : this.index.entrySet()) {
+			// Get df and postings
+			final Properties properties = entry.getValue();
 			final int df = properties.getDocFreq();
-			final Map<String, DocumentProperty> postingFile = properties.getPostingFile();
+			final int[] postings = properties.getDocs();
+			final int[] termFreqs = properties.getTermFreqs();
 
-			// For each doc in postings file
-			for (final String docID : postingFile.keySet()) {
+			// For each doc in postings
+			double w1 = 0.0;
+			double w2 = 0.0;
+			for (int i = 0; i < properties.size(); i++) {
 				// Get maxtf, doc and tf
-				final int maxtf = postingFile.get(docID).getMaxFreq();
-				final int doclen = postingFile.get(docID).getDoclen();
-				final int tf = properties.getTermFreq().get(docID);
-
-				// Add w1 to the table
-				final double w1 = this.W1(tf, maxtf, df, collectionSize);
-				double weight = this.W1.containsKey(term) ? this.W1.get(term) : 0.0;
-				this.W1.put(term, weight + w1);
-
-				// Add w2 to the table
-				final double w2 = this.W2(tf, doclen, this.avgdoclen, df, collectionSize);
-				weight = this.W2.containsKey(term) ? this.W2.get(term) : 0.0;
-				this.W2.put(term, weight + w2);
+				final DocumentProperty document = StorageManager.getDocProperty(postings[i]);
+				final int maxtf = document.getMaxFreq();
+				final int doclen = document.getDoclen();
+				final int tf = termFreqs[i];
+
+				// Add w1 and w2 to the table
+				w1 += W1(tf, maxtf, df, collectionSize);
+				w2 += W2(tf, doclen, this.avgdoclen, df, collectionSize);
+			}
+
+			if (properties.size() > 0) {
+				this.W1.put(entry.getKey(), w1);
+				this.W2.put(entry.getKey(), w2);
 			}
 		}
 	}
@@ -68,6 +85,26 @@ public class QueryProcessor {
 	 */
 	public void process(final Dictionary query) {
 		final int collectionSize = this.index.size();
+
+		// Size the weights by the postings of the query terms, which bound the documents the query touches
+		int bound = 0;
+		for (final String term : query.getLemmaDictionary().keySet()) {
+			final Properties properties = this.index.get(term);
+			if (properties != null) {
+				bound += properties.size();
+			}
+		}
+
+		final int expected = Math.max(1, Math.min(bound, StorageManager.getDocuments().size()));
+		this.positions = new IntIntCounter(expected);
+		this.docW1 = new double[expected];
+		this.docW2 = new double[expected];
+		this.pairDocs = new int[16];
+		this.pairTerms = new int[16];
+		this.pairW1 = new double[16];
+		this.pairW2 = new double[16];
+		this.pairCount = 0;
+
 		for (final String term : query.getLemmaDictionary().keySet()) {
 			// Skip if query term does not exist in the index built
 			final Properties properties = this.index.get(term);
@@ -75,34 +112,42 @@ public class QueryProcessor {
 				continue;
 			}
 
-			// Get df and postings file
+			// Get df and postings
 			final int df = properties.getDocFreq();
-			final Map<String, DocumentProperty> postingFile = properties.getPostingFile();
+			final int[] postings = properties.getDocs();
+			final int[] termFreqs = properties.getTermFreqs();
 
-			// For each doc in postings file
-			for (final String docID : postingFile.keySet()) {
+			// For each doc in postings
+			for (int i = 0; i < properties.size(); i++) {
 				// Get maxtf, doc and tf
-				final int maxtf = postingFile.get(docID).getMaxFreq();
-				final int doclen = postingFile.get(docID).getDoclen();
-				final int tf = properties.getTermFreq().get(docID);
+				final DocumentProperty document = StorageManager.getDocProperty(postings[i]);
+				final int maxtf = document.getMaxFreq();
+				final int doclen = document.getDoclen();
+				final int tf = termFreqs[i];
 
 				// Update w1 and w2 weights
-				this.updateWeights(collectionSize, term, df, docID, maxtf, doclen, tf);
+				this.updateWeights(collectionSize, properties.getId(), df, postings[i], maxtf, doclen, tf);
 			}
 		}
+
+		// Tables are built from the weights when asked for
+		this.W1 = null;
+		this.W2 = null;
+		this.W1Doc = null;
+		this.W2Doc = null;
 	}
 
 	/**
-	 * Updates w1 and w2 weights in the maps
+	 * Updates w1 and w2 weights in the arrays
 	 *
 	 * @param the
 	 *            number of documents in the collection
 	 * @param term
-	 *            Lemma term
+	 *            Term ID
 	 * @param df
 	 *            Document frequency
-	 * @param docID
-	 *            Document ID
+	 * @param doc
+	 *            Document number
 	 * @param maxtf
 	 *            Maximum term frequency
 	 * @param doclen
@@ -110,32 +155,32 @@ public class QueryProcessor {
 	 * @param tf
 	 *            term frequency
 	 */
-	private void updateWeights(final int collectionSize, final String term, final int df, final String docID, final int maxtf, final int doclen, final int tf) {
-		// Add w1 to the table
-		final double w1 = this.W1(tf, maxtf, df, collectionSize);
-		double weight = this.W1.containsKey(docID) ? this.W1.get(docID) : 0.0;
-		this.W1.put(docID, weight + w1);
-
-		// Add w1 to doc representation
-		if (this.W1Doc.get(docID) == null) {
-			this.W1Doc.put(docID, new HashMap<String, Double>());
+	private void updateWeights(final int collectionSize, final int term, final int df, final int doc, final int maxtf, final int doclen, final int tf) {
+		// Add w1 and w2 to the document
+		final double w1 = W1(tf, maxtf, df, collectionSize);
+		final double w2 = W2(tf, doclen, this.avgdoclen, df, collectionSize);
+		// Positions are counted from 1, so that a document not touched yet has 0
+		int position = this.positions.get(doc) - 1;
+		if (position < 0) {
+			position = this.positions.size();
+			this.positions.add(doc, position + 1);
 		}
 
-		weight = this.W1Doc.get(docID).containsKey(term) ? this.W1Doc.get(docID).get(term) : 0.0;
-		this.W1Doc.get(docID).put(term, weight + w1);
+		this.docW1[position] += w1;
+		this.docW2[position] += w2;
 
-		// Add w2 to the table
-		final double w2 = this.W2(tf, doclen, this.avgdoclen, df, collectionSize);
-		weight = this.W2.containsKey(docID) ? this.W2.get(docID) : 0.0;
-		this.W2.put(docID, weight + w2);
-
-		// Add w2 to doc representation
-		if (this.W2Doc.get(docID) == null) {
-			this.W2Doc.put(docID, new HashMap<String, Double>());
+		// Add w1 and w2 to doc representation
+		if (this.pairCount == this.pairDocs.length) {
+			this.pairDocs = Arrays.copyOf(this.pairDocs, this.pairCount * 2);
+			this.pairTerms = Arrays.copyOf(this.pairTerms, this.pairCount * 2);
+			this.pairW1 = Arrays.copyOf(this.pairW1, this.pairCount * 2);
+			this.pairW2 = Arrays.copyOf(this.pairW2, this.pairCount * 2);
 		}
 
-		weight = this.W2Doc.get(docID).containsKey(term) ? this.W2Doc.get(docID).get(term) : 0.0;
-		this.W2Doc.get(docID).put(term, weight + w2);
+		this.pairDocs[this.pairCount] = doc;
+		this.pairTerms[this.pairCount] = term;
+		this.pairW1[this.pairCount] = w1;
+		this.pairW2[this.pairCount++] = w2;
 	}
 
 	/**
@@ -151,7 +196,7 @@ public class QueryProcessor {
 	 *            Collection size excluding stopwords
 	 * @return W1 as double
 	 */
-	public double W1(final int tf, final int maxtf, final int df, final int collectionSize) {
+	public static double W1(final int tf, final int maxtf, final int df, final int collectionSize) {
 		double temp = 0;
 		try {
 			temp = (0.4 + 0.6 * Math.log(tf + 0.5) / Math.log(maxtf + 1.0)) * (Math.log(collectionSize / (double) df) / Math.log(collectionSize));
@@ -178,7 +223,7 @@ public class QueryProcessor {
 	 *            Collection size excluding stopwords
 	 * @return W2 as double
 	 */
-	public double W2(final int tf, final int doclen, final double avgdoclen, final int df, final int collectionSize) {
+	public static double W2(final int tf, final int doclen, final double avgdoclen, final int df, final int collectionSize) {
 		double temp = 0;
 		try {
 			temp = 0.4 + 0.6 * (tf / (tf + 0.5 + 1.5 * (doclen / avgdoclen))) * Math.log(collectionSize / (double) df) / Math.log(collectionSize);
@@ -190,10 +235,43 @@ public class QueryProcessor {
 		return temp;
 	}
 
+	/**
+	 * Builds the W1 and W2 tables of a processed query from the weight arrays
+	 */
+	private void buildTables() {
+		final Lexicon lexicon = StorageManager.getLexicon();
+		final Lexicon documents = StorageManager.getDocuments();
+		this.W1 = new HashMap<>();
+		this.W2 = new HashMap<>();
+		for (int i = 0; i < this.positions.size(); i++) {
+			final String docID = documents.getString(this.positions.getKey(i));
+			this.W1.put(docID, this.docW1[i]);
+			this.W2.put(docID, this.docW2[i]);
+		}
+
+		this.W1Doc = new HashMap<>();
+		this.W2Doc = new HashMap<>();
+		for (int i = 0; i < this.pairCount; i++) {
+			final String docID = documents.getString(this.pairDocs[i]);
+			if (this.W1Doc.get(docID) == null) {
+				this.W1Doc.put(docID, new HashMap<String, Double>());
+				this.W2Doc.put(docID, new HashMap<String, Double>());
+			}
+
+			final String term = lexicon.getString(this.pairTerms[i]);
+			this.W1Doc.get(docID).put(term, this.pairW1[i]);
+			this.W2Doc.get(docID).put(term, this.pairW2[i]);
+		}
+	}
+
 	/**
 	 * @return W1 table
 	 */
 	public Map<String, Double> getW1() {
+		if (this.W1 == null) {
+			this.buildTables();
+		}
+
 		return this.W1;
 	}
 
@@ -201,6 +279,10 @@ public class QueryProcessor {
 	 * @return W2 table
 	 */
 	public Map<String, Double> getW2() {
+		if (this.W2 == null) {
+			this.buildTables();
+		}
+
 		return this.W2;
 	}
 
@@ -208,6 +290,10 @@ public class QueryProcessor {
 	 * @return the w1Doc
 	 */
 	public final Map<String, Map<String, Double>> getW1Doc() {
+		if (this.W1Doc == null) {
+			this.buildTables();
+		}
+
 		return this.W1Doc;
 	}
 
@@ -215,6 +301,10 @@ public class QueryProcessor {
 	 * @return the w2Doc
 	 */
 	public final Map<String, Map<String, Double>> getW2Doc() {
+		if (this.W2Doc == null) {
+			this.buildTables();
+		}
+
 		return this.W2Doc;
 	}
 }
\ No newline at end of file
@@ -1,6 +1,17 @@
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -28,25 +39,164 @@ public class RankedRetrieval {
 		// Validate command line arguments
 		final long start = System.currentTimeMillis();
 		final CommandLine cmd = validateArguments(args);
+		if (cmd.hasOption("metrics")) {
+			Metrics.enable();
+		}
+
+		// Pick the analyzer of the index, the CoreNLP models are only loaded if a word needs them
+		final File lemmas = cmd.hasOption("lemmas") ? new File(cmd.getOptionValue("lemmas")) : null;
+		if (cmd.hasOption("analyzer")) {
+			Tokenizer.configure(cmd.getOptionValue("analyzer"), lemmas, new File(cmd.getOptionValue("dict", "../Final/data/dict")));
+		}
+
+		// Query the shard servers of a sharded index, or index the collection here
+		if (cmd.hasOption("shards")) {
+			searchShards(cmd);
+		} else {
+			search(cmd, lemmas);
+		}
+
+		System.out.println("\nTotal running time: " + (System.currentTimeMillis() - start) + " milliseconds");
+
+		// Display metrics
+		if (Metrics.isEnabled()) {
+			System.out.println("\nMetrics:\n");
+			System.out.println(Metrics.getReport());
+		}
+	}
 
+	/**
+	 * Indexes the collection and processes the queries against it
+	 *
+	 * @param cmd
+	 *            Command line arguments
+	 * @param lemmas
+	 *            Lemma table file of the table analyzer, null for none
+	 * @throws IOException
+	 */
+	private static void search(final CommandLine cmd, final File lemmas) throws IOException {
 		// Call document parser
-		final File folder = new File(cmd.getOptionValue("path"));
-		final File stopwords = new File(cmd.getOptionValue("stop"));
-		final DocumentParser documentParser = new DocumentParser(stopwords);
-		documentParser.parse(folder);
+		final DocumentParser documentParser = new DocumentParser(new File(cmd.getOptionValue("stop")));
+		final IndexingPipeline pipeline = parse(documentParser, cmd);
 
 		// Get average document length
 		final Map<String, Properties> lemmaDictionary = documentParser.getDictionary().getLemmaDictionary();
 		final double avgdoclen = characteristics.getAverageDocumentLength(lemmaDictionary);
 
+		// Take the serving copy of the index before the queries add their own document properties
+		final ImmutableIndex index = cmd.hasOption("serve") || cmd.hasOption("http")
+				? new ImmutableIndex(lemmaDictionary, StorageManager.getDocProperties(), avgdoclen, postingsCacheBytes(cmd)) : null;
+
+		// Serve the index over HTTP, the server keeps running after main returns
+		if (cmd.hasOption("http")) {
+			if (pipeline != null) {
+				System.out.println("\nIndexing pipeline:\n");
+				System.out.println(pipeline.getReport());
+			}
+
+			serveHttp(index, documentParser.getStopwords(), cmd);
+			return;
+		}
+
 		// Call query parser
 		final File query = new File(cmd.getOptionValue("query"));
 		final QueryParser queryParser = new QueryParser(documentParser.getStopwords());
 		queryParser.readFile(query);
 
-		// Process the queries and display results
-		displayResults(lemmaDictionary, avgdoclen, queryParser);
-		System.out.println("\nTotal running time: " + (System.currentTimeMillis() - start) + " milliseconds");
+		// Save the lemmas of the index and its queries, so the next run with this table does not need CoreNLP
+		if (lemmas != null && Tokenizer.getLemmatizer() instanceof LemmaTable) {
+			((LemmaTable) Tokenizer.getLemmatizer()).save(lemmas);
+		}
+
+		// Process the queries and display results, or serve them from the worker pool
+		if (index != null) {
+			serve(index, queryParser, cmd);
+		} else {
+			displayResults(lemmaDictionary, avgdoclen, queryParser);
+		}
+
+		// Display the utilization of the indexing stages
+		if (pipeline != null) {
+			System.out.println("\nIndexing pipeline:\n");
+			System.out.println(pipeline.getReport());
+		}
+	}
+
+	/**
+	 * Processes the queries against the shard servers of a document-partitioned index with a {@link ShardBroker}. Prints the top 5 documents of each query
+	 * by both weighting functions, then the latency of the scatter and gather.
+	 *
+	 * @param cmd
+	 *            Command line arguments
+	 * @throws IOException
+	 */
+	private static void searchShards(final CommandLine cmd) throws IOException {
+		// Analyze the queries here, the shards only see their lemmas
+		final QueryParser queryParser = new QueryParser(new DocumentParser(new File(cmd.getOptionValue("stop"))).getStopwords());
+		queryParser.readFile(new File(cmd.getOptionValue("query")));
+		final long deadline = Long.parseLong(cmd.getOptionValue("deadline", "1000"));
+
+		try (ShardBroker broker = new ShardBroker(ShardBroker.parseAddresses(cmd.getOptionValue("shards")))) {
+			int number = 1;
+			int expired = 0;
+			for (final Dictionary dictionary : queryParser.getDictionaries()) {
+				final QueryEngine.Result result = broker.search(dictionary.getLemmaDictionary().keySet(), 5,
+						System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadline));
+				if (result.isExpired()) {
+					expired++;
+				}
+
+				System.out.println("#################################################################################");
+				System.out.println("Results for Query " + number++ + "\n");
+				System.out.println("Table for W1:\n");
+				System.out.println(characteristics.getTopFive(result.getW1()));
+				System.out.println("\nTable for W2:\n");
+				System.out.println(characteristics.getTopFive(result.getW2()));
+			}
+
+			System.out.println("#################################################################################");
+
+			final LatencyHistogram latencies = broker.getLatencies();
+			final OutputFormatter formatter = new OutputFormatter();
+			formatter.addRow("Shards", String.valueOf(broker.getShardCount()));
+			formatter.addRow("Documents", String.valueOf(broker.getDocumentCount()));
+			formatter.addRow("Terms", String.valueOf(broker.getTermCount()));
+			formatter.addRow("Queries", String.valueOf(latencies.getCount()));
+			formatter.addRow("Expired", String.valueOf(expired) + " (deadline " + deadline + " ms)");
+			formatter.addRow("Latency p50", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50)) + " us");
+			formatter.addRow("Latency p99", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99)) + " us");
+			formatter.addRow("Latency max", TimeUnit.NANOSECONDS.toMicros(latencies.getMax()) + " us");
+			System.out.println("\nSharded results:\n");
+			System.out.println(formatter);
+		}
+	}
+
+	/**
+	 * Parses the collection, on the calling thread or with an {@link IndexingPipeline} as the command line asks
+	 *
+	 * @param documentParser
+	 *            Parser to fill
+	 * @param cmd
+	 *            Command line arguments
+	 * @return Pipeline that parsed the collection, null if it was parsed on the calling thread
+	 * @throws IOException
+	 */
+	private static IndexingPipeline parse(final DocumentParser documentParser, final CommandLine cmd) throws IOException {
+		final File folder = new File(cmd.getOptionValue("path"));
+		if (cmd.hasOption("charset")) {
+			documentParser.setCharset(Charset.forName(cmd.getOptionValue("charset")));
+		}
+
+		if (cmd.hasOption("pipeline") || cmd.hasOption("readers")) {
+			return documentParser.parse(folder,
+					Integer.parseInt(cmd.getOptionValue("pipeline", "1")),
+					Integer.parseInt(cmd.getOptionValue("queue", "64")),
+					Integer.parseInt(cmd.getOptionValue("readers", "0")),
+					FileIngester.toBytes(cmd.getOptionValue("inflight", "64")));
+		}
+
+		documentParser.parse(folder);
+		return null;
 	}
 
 	/**
@@ -63,8 +213,10 @@ public class RankedRetrieval {
 		// Get query processor for each query and process it
 		int number = 1;
 		for (final Dictionary dictionary : queryParser.getDictionaries()) {
+			final long start = Metrics.start();
 			final QueryProcessor processor = new QueryProcessor(lemmaDictionary, avgdoclen);
 			processor.process(dictionary);
+			Metrics.record(Metrics.Stage.QUERY, start);
 
 			System.out.println("#################################################################################");
 			System.out.println("Results for Query " + number + "\n");
@@ -93,6 +245,160 @@ public class RankedRetrieval {
 		System.out.println("#################################################################################");
 	}
 
+	/**
+	 * Serves the queries concurrently from an immutable copy of the index and prints throughput and tail latency. Only the rankings are computed, the query
+	 * representation printed by {@link #displayResults(Map, double, QueryParser)} is skipped.
+	 *
+	 * @param index
+	 *            Immutable index to serve
+	 * @param queryParser
+	 *            Query parser containing all the queries
+	 * @param cmd
+	 *            Command line arguments
+	 */
+	private static void serve(final ImmutableIndex index, final QueryParser queryParser, final CommandLine cmd) {
+		final int threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		final long deadline = Long.parseLong(cmd.getOptionValue("deadline", "1000"));
+		final int repeat = Integer.parseInt(cmd.getOptionValue("repeat", "1"));
+
+		// Get the lemmas of each query once
+		final List<List<String>> queries = new ArrayList<>();
+		for (final Dictionary dictionary : queryParser.getDictionaries()) {
+			queries.add(new ArrayList<>(dictionary.getLemmaDictionary().keySet()));
+		}
+
+		// Re-run every query with Rocchio feedback if asked to
+		final RocchioFeedback feedback = cmd.hasOption("feedback") ? new RocchioFeedback(index, Integer.parseInt(cmd.getOptionValue("feedbackDocs", "10")),
+				Integer.parseInt(cmd.getOptionValue("feedbackTerms", "20"))) : null;
+
+		try (QueryEngine engine = new QueryEngine(index, threads, feedback)) {
+			// Submit every query, repeating the query log as asked
+			final long start = System.nanoTime();
+			final List<Future<QueryEngine.Result>> futures = new ArrayList<>();
+			for (int i = 0; i < repeat; i++) {
+				for (final List<String> query : queries) {
+					futures.add(engine.submit(query, 5, deadline));
+				}
+			}
+
+			// Wait for all of them
+			int expired = 0;
+			int failed = 0;
+			for (final Future<QueryEngine.Result> future : futures) {
+				try {
+					if (future.get().isExpired()) {
+						expired++;
+					}
+				} catch (final ExecutionException e) {
+					failed++;
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+
+			final long elapsed = System.nanoTime() - start;
+			final LatencyHistogram latencies = engine.getLatencies();
+			final OutputFormatter formatter = new OutputFormatter();
+			formatter.addRow("Documents", String.valueOf(index.getDocumentCount()));
+			formatter.addRow("Terms", String.valueOf(index.getTermCount()));
+			formatter.addRow("Analyzer", describe(cmd.getOptionValue("analyzer", "corenlp")));
+			formatter.addRow("Threads", String.valueOf(threads));
+			formatter.addRow("Queries", String.valueOf(futures.size()));
+			formatter.addRow("Expired", String.valueOf(expired) + " (deadline " + deadline + " ms)");
+			formatter.addRow("Failed", String.valueOf(failed));
+			formatter.addRow("Elapsed", TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+			formatter.addRow("Throughput", String.format("%.1f queries/sec", futures.size() * 1e9 / elapsed));
+			formatter.addRow("Latency p50", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50)) + " us");
+			formatter.addRow("Latency p99", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99)) + " us");
+			formatter.addRow("Latency p99.9", TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99.9)) + " us");
+			formatter.addRow("Latency max", TimeUnit.NANOSECONDS.toMicros(latencies.getMax()) + " us");
+			if (index.getPostingsCache() != null) {
+				final PostingsCache cache = index.getPostingsCache();
+				formatter.addRow("Postings", (index.getPostingsBytes() >> 10) + " KB gamma coded");
+				formatter.addRow("Postings cache", cache.size() + " lists, " + (cache.getBytes() >> 10) + " of " + (cache.getMaxBytes() >> 10) + " KB");
+				formatter.addRow("Cache hits", cache.getHits() + " (" + String.format("%.1f%%", 100.0 * cache.getHitRate()) + "), " + cache.getMisses()
+						+ " decoded");
+				formatter.addRow("Cache admissions", cache.getAdmissions() + ", " + cache.getRejections() + " rejected, " + cache.getEvictions() + " evicted");
+			}
+
+			if (feedback != null) {
+				final LatencyHistogram overhead = feedback.getOverhead();
+				formatter.addRow("Feedback", feedback.getDocs() + " documents, " + feedback.getTerms() + " terms, " + overhead.getCount() + " queries");
+				formatter.addRow("Feedback mean", String.format("%.1f us", overhead.getMean() / 1000.0));
+				formatter.addRow("Feedback p50", TimeUnit.NANOSECONDS.toMicros(overhead.getPercentile(50)) + " us");
+				formatter.addRow("Feedback p99", TimeUnit.NANOSECONDS.toMicros(overhead.getPercentile(99)) + " us");
+			}
+			System.out.println("Serving results:\n");
+			System.out.println(formatter);
+		}
+	}
+
+	/**
+	 * Starts a {@link SearchServer} over the index, stopped when the JVM shuts down. A reload parses the collection again from scratch the same way.
+	 *
+	 * @param index
+	 *            Immutable index to serve
+	 * @param stopwords
+	 *            Stop words of the index
+	 * @param cmd
+	 *            Command line arguments
+	 * @throws IOException
+	 */
+	private static void serveHttp(final ImmutableIndex index, final Set<String> stopwords, final CommandLine cmd) throws IOException {
+		final int threads = Integer.parseInt(cmd.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		final int feedbackDocs = Integer.parseInt(cmd.getOptionValue("feedbackDocs", "10"));
+		final int feedbackTerms = Integer.parseInt(cmd.getOptionValue("feedbackTerms", "20"));
+		final Function<ImmutableIndex, RocchioFeedback> feedback = cmd.hasOption("feedback")
+				? generation -> new RocchioFeedback(generation, feedbackDocs, feedbackTerms) : null;
+
+		// Forget the documents of the generation being served before parsing again, its index holds copies of them
+		final Callable<ImmutableIndex> loader = () -> {
+			StorageManager.reset();
+			final DocumentParser documentParser = new DocumentParser(new File(cmd.getOptionValue("stop")));
+			parse(documentParser, cmd);
+			final Map<String, Properties> lemmaDictionary = documentParser.getDictionary().getLemmaDictionary();
+			return new ImmutableIndex(lemmaDictionary, StorageManager.getDocProperties(), characteristics.getAverageDocumentLength(lemmaDictionary),
+					postingsCacheBytes(cmd));
+		};
+
+		final InetAddress host = cmd.hasOption("bind") ? InetAddress.getByName(cmd.getOptionValue("bind")) : InetAddress.getLoopbackAddress();
+		final long cacheBytes = Long.parseLong(cmd.getOptionValue("cache", "0")) << 20;
+		final SearchServer server = new SearchServer(index, stopwords, feedback, loader,
+				new InetSocketAddress(host, Integer.parseInt(cmd.getOptionValue("http"))), threads, Long.parseLong(cmd.getOptionValue("deadline", "1000")),
+				cacheBytes);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close, "http-shutdown"));
+		server.start();
+
+		final InetSocketAddress address = server.getAddress();
+		System.out.println("Serving " + index.getDocumentCount() + " documents with " + describe(cmd.getOptionValue("analyzer", "corenlp")) + " on "
+				+ threads + " threads at http://" + address.getHostString() + ":" + address.getPort() + "/search?q=&k=&model=, /stats and /reload");
+	}
+
+	/**
+	 * @param cmd
+	 *            Command line arguments
+	 * @return Bytes of the cache of decoded postings lists if the serving index is to keep them gamma coded, -1 to keep them decoded
+	 */
+	private static long postingsCacheBytes(final CommandLine cmd) {
+		return cmd.hasOption("compress") ? Long.parseLong(cmd.getOptionValue("compress")) << 20 : -1L;
+	}
+
+	/**
+	 * @param analyzer
+	 *            Name of the analyzer of the index
+	 * @return Name of the analyzer, with the table hits and misses when it is a lemma table
+	 */
+	private static String describe(final String analyzer) {
+		if (!(Tokenizer.getLemmatizer() instanceof LemmaTable)) {
+			return analyzer;
+		}
+
+		final LemmaTable table = (LemmaTable) Tokenizer.getLemmatizer();
+		return analyzer + " (" + table.size() + " words, " + table.getHits() + " hits, " + table.getMisses() + " misses, CoreNLP "
+				+ (table.isFallbackLoaded() ? "loaded" : "not loaded") + ")";
+	}
+
 	/**
 	 * Validates and gets the command line arguments provided
 	 *
@@ -106,6 +412,27 @@ public class RankedRetrieval {
 		options.addOption("path", "dataPath", true, "Absolute or relative path to the Cranfield database");
 		options.addOption("stop", "stopWords", true, "Absolute or relative path to the Stop Words file");
 		options.addOption("query", "queriesFile", true, "Absolute or relative path to the Queries file");
+		options.addOption("metrics", "metrics", false, "Collect per-stage metrics, print them at the end and expose them over JMX");
+		options.addOption("serve", "serve", false, "Serve the queries concurrently and report throughput and latency instead of printing results");
+		options.addOption("threads", "threads", true, "Number of worker threads when serving, over HTTP too (default number of processors)");
+		options.addOption("deadline", "deadline", true, "Deadline of each query in milliseconds when serving or querying shards (default 1000)");
+		options.addOption("repeat", "repeat", true, "Number of times to submit the query log when serving (default 1)");
+		options.addOption("feedback", "feedback", false, "Re-run every query with Rocchio pseudo-relevance feedback when serving");
+		options.addOption("feedbackDocs", "feedbackDocs", true, "Number of top documents taken as relevant for feedback (default 10)");
+		options.addOption("feedbackTerms", "feedbackTerms", true, "Number of terms kept in the feedback query (default 20)");
+		options.addOption("analyzer", "analyzer", true, "Analyzer of the index and its queries: corenlp, table, wordnet or porter (default corenlp)");
+		options.addOption("lemmas", "lemmasFile", true, "Lemma table to load and save with the table analyzer");
+		options.addOption("pipeline", "pipeline", true, "Index with a pipeline of a reader, N analyzer threads and an inverter");
+		options.addOption("queue", "queueCapacity", true, "Capacity of the queues between the pipeline stages, in documents (default 64)");
+		options.addOption("readers", "readerThreads", true, "Read files concurrently on N reader threads of the pipeline");
+		options.addOption("inflight", "inFlightMegabytes", true, "Cap on the megabytes of files read by the reader threads and not yet indexed (default 64)");
+		options.addOption("charset", "charset", true, "Charset of the documents, which are then memory mapped and decoded without a string per line");
+		options.addOption("dict", "wordnetDict", true, "WordNet dict folder of the wordnet analyzer (default ../Final/data/dict)");
+		options.addOption("http", "httpPort", true, "Serve the index over HTTP on this port after indexing, instead of processing a queries file");
+		options.addOption("bind", "bindAddress", true, "Address the HTTP server listens on (default the loopback address)");
+		options.addOption("cache", "cacheMegabytes", true, "Megabytes of heap for caching analyzed queries and rankings over HTTP (default 0, no caching)");
+		options.addOption("compress", "compressPostings", true, "Keep the postings of the serving index gamma coded, caching the decoded lists of the most used terms in this many megabytes");
+		options.addOption("shards", "shardAddresses", true, "Comma separated host:port of shard servers to query instead of indexing the Cranfield database");
 
 		// Parse arguments
 		final CommandLineParser commandLineParser = new DefaultParser();
@@ -120,7 +447,7 @@ public class RankedRetrieval {
 		}
 
 		// Validate
-		if (!cmd.hasOption("path") || !cmd.hasOption("stop") || !cmd.hasOption("query")) {
+		if (!cmd.hasOption("path") && !cmd.hasOption("shards") || !cmd.hasOption("stop") || !cmd.hasOption("query") && !cmd.hasOption("http")) {
 			final HelpFormatter formatter = new HelpFormatter();
 			formatter.printHelp("RankedRetrieval", options);
 			System.exit(2);
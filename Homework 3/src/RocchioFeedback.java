@@ -0,0 +1,247 @@
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pseudo-relevance feedback by the Rocchio method. The top documents of a query are taken as relevant; for each weighting function their term vectors,
+ * weighted by W1 or W2, are averaged into a centroid, added to the original query and pruned to the heaviest terms, and the query is run again:
+ *
+ * <pre>
+ * q' = ALPHA * q + BETA * (1 / |R|) * sum of d over R
+ * </pre>
+ *
+ * Terms found in more than {@link #MAX_DF} of the documents are not added from the centroid: they hardly change the ranking, and their long postings
+ * lists would dominate the cost of the second run. Vectors are sparse over term IDs and kept in per-thread primitive arrays, so feedback allocates little
+ * more than the new query and can run inline on every query. Safe for use from many threads.
+ *
+ * @author Ekal.Golas
+ */
+public class RocchioFeedback {
+	public static final double			ALPHA	= 1.0;
+	public static final double			BETA	= 0.75;
+	public static final double			MAX_DF	= 0.1;
+
+	private final ImmutableIndex		index;
+	private final int					docs;
+	private final int					terms;
+	private final ThreadLocal<Vector[]>	vectors;
+	private final LatencyHistogram		overhead;
+
+	/**
+	 * Sparse query vector over term IDs. A term's weight is only valid when its stamp matches the current query, so nothing has to be cleared between
+	 * queries.
+	 */
+	private static class Vector {
+		private final double[]	weights;
+		private final int[]		stamps;
+		private final int[]		touched;
+		private int				stamp;
+		private int				count;
+
+		/**
+		 * Constructor
+		 *
+		 * @param size
+		 *            Number of terms in the index
+		 */
+		Vector(final int size) {
+			this.weights = new double[size];
+			this.stamps = new int[size];
+			this.touched = new int[size];
+		}
+
+		/**
+		 * Starts a new query
+		 */
+		void reset() {
+			this.stamp++;
+			this.count = 0;
+		}
+
+		/**
+		 * Adds weight to a term
+		 *
+		 * @param term
+		 *            Term ID
+		 * @param weight
+		 *            Weight to add
+		 */
+		void add(final int term, final double weight) {
+			if (this.stamps[term] != this.stamp) {
+				this.stamps[term] = this.stamp;
+				this.weights[term] = 0.0;
+				this.touched[this.count++] = term;
+			}
+
+			this.weights[term] += weight;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param index
+	 *            Index the queries are run on
+	 * @param docs
+	 *            Number of top documents taken as relevant
+	 * @param terms
+	 *            Number of terms kept in the feedback query
+	 */
+	public RocchioFeedback(final ImmutableIndex index, final int docs, final int terms) {
+		this.index = index;
+		this.docs = docs;
+		this.terms = terms;
+		this.overhead = new LatencyHistogram();
+		this.vectors = ThreadLocal.withInitial(() -> new Vector[] { new Vector(index.getTermCount()), new Vector(index.getTermCount()) });
+	}
+
+	/**
+	 * Runs a query, then runs its feedback query on the calling thread. A query whose first run expires is returned as it is.
+	 *
+	 * @param engine
+	 *            Engine to run the queries with
+	 * @param query
+	 *            Lemmas of the query
+	 * @param k
+	 *            Number of documents to return
+	 * @param deadline
+	 *            {@link System#nanoTime()} after which evaluation stops
+	 * @return Result of the feedback query
+	 */
+	public QueryEngine.Result search(final QueryEngine engine, final Collection<String> query, final int k, final long deadline) {
+		final QueryEngine.Result initial = engine.search(query, Math.max(k, this.docs), deadline);
+		if (initial.isExpired()) {
+			return new QueryEngine.Result(head(initial.getW1(), k), head(initial.getW2(), k), true);
+		}
+
+		// Build both feedback queries, then rank with them
+		final long start = System.nanoTime();
+		final Vector[] vector = this.vectors.get();
+		final int[] w1Terms = this.expand(vector[0], query, initial.getW1(), true);
+		final double[] w1Weights = weights(vector[0], w1Terms);
+		final int[] w2Terms = this.expand(vector[1], query, initial.getW2(), false);
+		final double[] w2Weights = weights(vector[1], w2Terms);
+		final QueryEngine.Result result = engine.search(w1Terms, w1Weights, w2Terms, w2Weights, k, deadline);
+		this.overhead.record(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Builds the feedback query of one weighting function
+	 *
+	 * @param vector
+	 *            Vector to build the query in
+	 * @param query
+	 *            Lemmas of the original query
+	 * @param ranking
+	 *            Ranking of the original query
+	 * @param w1
+	 *            True to weight document terms by W1, false for W2
+	 * @return IDs of the heaviest terms, their weights left in the vector
+	 */
+	private int[] expand(final Vector vector, final Collection<String> query, final List<ScoredDocument> ranking, final boolean w1) {
+		vector.reset();
+
+		// Original query
+		for (final String term : query) {
+			final ImmutableIndex.Postings postings = this.index.getPostings(term);
+			if (postings != null) {
+				vector.add(postings.id, ALPHA);
+			}
+		}
+
+		// Centroid of the relevant documents
+		final int relevant = Math.min(this.docs, ranking.size());
+		final int collectionSize = this.index.getCollectionSize();
+		final double avgdoclen = this.index.getAvgdoclen();
+		final int maxDf = (int) (MAX_DF * this.index.getDocumentCount());
+		for (int r = 0; r < relevant; r++) {
+			final int doc = this.index.getDocNumber(ranking.get(r).getDocID());
+			final int[] docTerms = this.index.getDocTerms(doc);
+			final int[] docTf = this.index.getDocTermFreqs(doc);
+			for (int i = 0; i < docTerms.length; i++) {
+				final int df = this.index.getPostings(docTerms[i]).df;
+				if (df > maxDf && vector.stamps[docTerms[i]] != vector.stamp) {
+					continue;
+				}
+
+				final double weight = w1 ? QueryProcessor.W1(docTf[i], this.index.getMaxFreq(doc), df, collectionSize)
+						: QueryProcessor.W2(docTf[i], this.index.getDoclen(doc), avgdoclen, df, collectionSize);
+				vector.add(docTerms[i], BETA * weight / relevant);
+			}
+		}
+
+		// Prune to the heaviest terms with a bounded min-heap
+		final int[] heap = new int[Math.min(this.terms, vector.count)];
+		int size = 0;
+		for (int i = 0; i < vector.count; i++) {
+			final int term = vector.touched[i];
+			if (vector.weights[term] <= 0.0) {
+				continue;
+			}
+
+			if (size < heap.length) {
+				heap[size] = term;
+				QueryEngine.siftUp(heap, size++, vector.weights);
+			} else if (vector.weights[term] > vector.weights[heap[0]]) {
+				heap[0] = term;
+				QueryEngine.siftDown(heap, size, vector.weights);
+			}
+		}
+
+		if (size == heap.length) {
+			return heap;
+		}
+
+		final int[] kept = new int[size];
+		System.arraycopy(heap, 0, kept, 0, size);
+		return kept;
+	}
+
+	/**
+	 * @param vector
+	 *            Vector of a feedback query
+	 * @param terms
+	 *            Term IDs kept in the query
+	 * @return Weights of the terms
+	 */
+	private static double[] weights(final Vector vector, final int[] terms) {
+		final double[] weights = new double[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			weights[i] = vector.weights[terms[i]];
+		}
+
+		return weights;
+	}
+
+	/**
+	 * @param ranking
+	 *            Ranking
+	 * @param k
+	 *            Number of documents to keep
+	 * @return The first k documents of the ranking
+	 */
+	private static List<ScoredDocument> head(final List<ScoredDocument> ranking, final int k) {
+		return ranking.size() > k ? ranking.subList(0, k) : ranking;
+	}
+
+	/**
+	 * @return the number of top documents taken as relevant
+	 */
+	public int getDocs() {
+		return this.docs;
+	}
+
+	/**
+	 * @return the number of terms kept in the feedback query
+	 */
+	public int getTerms() {
+		return this.terms;
+	}
+
+	/**
+	 * @return time spent on feedback per query in nanoseconds, from building the feedback queries to ranking with them
+	 */
+	public LatencyHistogram getOverhead() {
+		return this.overhead;
+	}
+}
\ No newline at end of file
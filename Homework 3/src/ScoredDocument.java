@@ -0,0 +1,56 @@
+/**
+ * A ranked document with its score and headline
+ *
+ * @author Ekal.Golas
+ */
+public class ScoredDocument {
+	private final String	docID;
+	private final double	score;
+	private final String	headline;
+
+	/**
+	 * Constructor
+	 *
+	 * @param docID
+	 *            Document ID
+	 * @param score
+	 *            Score of the document for the query
+	 * @param headline
+	 *            Headline of the document
+	 */
+	public ScoredDocument(final String docID, final double score, final String headline) {
+		this.docID = docID;
+		this.score = score;
+		this.headline = headline;
+	}
+
+	/**
+	 * @return the document ID
+	 */
+	public final String getDocID() {
+		return this.docID;
+	}
+
+	/**
+	 * @return the score
+	 */
+	public final double getScore() {
+		return this.score;
+	}
+
+	/**
+	 * @return the headline
+	 */
+	public final String getHeadline() {
+		return this.headline;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "cranfield" + this.docID + " : " + this.score;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,691 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a long-lived {@link ImmutableIndex} over HTTP with the JDK's built-in server, so that the index is built once and queried many times.
+ *
+ * <pre>
+ *  GET /search?q=TEXT&amp;k=10&amp;model=w1   ranks the documents for a free text query by W1 or W2 and returns the top k as JSON
+ *  GET /stats                          returns the size of the index and the request counts and latencies as JSON
+ *  POST /reload                        rebuilds the index in the background and swaps it in once it is built
+ * </pre>
+ *
+ * Queries are analyzed with the analyzer of the index, on a {@link Tokenizer} per thread, and ranked on the thread handling the request. Requests are
+ * handled on a fixed pool of threads, or on the server's dispatcher thread if the pool has no threads, so that throughput can be measured against the pool
+ * size. The index is held as a reference-counted {@link IndexSnapshot}: a reload builds the next generation while queries keep running on the current one,
+ * then swaps it in atomically. Queries that started before the swap finish on the old generation, which drains once the last of them is done.
+ * <p>
+ * Repeated queries can be answered from two {@link QueryCache}s: the first maps the raw text of a query to its analyzed terms, skipping the lemmatizer,
+ * and the second maps the terms and k to the ranking of a generation, skipping the scoring. The rankings are keyed by generation and dropped on reload,
+ * while the analyzed terms do not depend on the index and are kept.
+ *
+ * @author Ekal.Golas
+ */
+public class SearchServer implements Closeable {
+	private static final int								MAX_K			= 1000;
+	private static final int								CACHE_SEGMENTS	= 16;
+
+	private final AtomicReference<IndexSnapshot>			snapshot;
+	private final Function<ImmutableIndex, RocchioFeedback>	feedback;
+	private final Callable<ImmutableIndex>					loader;
+	private final AtomicBoolean								reloading;
+	private final Queue<IndexSnapshot>						retired;
+	private final LongAdder									reloads;
+	private volatile long									reloadMillis;
+	private volatile String									reloadError;
+	private final Set<String>								stopwords;
+	private final long										timeout;
+	private final ThreadLocal<Tokenizer>					tokenizers;
+	private final QueryCache<String, Set<String>>			analyzed;
+	private final QueryCache<ResultKey, QueryEngine.Result>	results;
+	private final HttpServer								server;
+	private final ExecutorService							executor;
+	private final int										threads;
+	private final LatencyHistogram							latencies;
+	private final LongAdder									searches;
+	private final LongAdder									expired;
+	private final LongAdder									errors;
+	private final long										started;
+
+	/**
+	 * Exception carrying an HTTP status for a request that cannot be served
+	 */
+	private static class RequestException extends Exception {
+		private static final long	serialVersionUID	= 1L;
+		private final int			status;
+
+		/**
+		 * Constructor
+		 *
+		 * @param status
+		 *            HTTP status of the response
+		 * @param message
+		 *            Reason given to the client
+		 */
+		RequestException(final int status, final String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Key of a cached ranking: the generation it was ranked on, the analyzed terms in query order and the number of documents
+	 */
+	private static class ResultKey {
+		private final long			generation;
+		private final int			k;
+		private final List<String>	terms;
+		private final int			hash;
+
+		/**
+		 * Constructor
+		 *
+		 * @param generation
+		 *            Generation of the index
+		 * @param k
+		 *            Number of documents ranked
+		 * @param terms
+		 *            Analyzed terms of the query
+		 */
+		ResultKey(final long generation, final int k, final Set<String> terms) {
+			this.generation = generation;
+			this.k = k;
+			this.terms = new ArrayList<>(terms);
+			this.hash = 31 * (31 * Long.hashCode(generation) + k) + this.terms.hashCode();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof ResultKey)) {
+				return false;
+			}
+
+			final ResultKey other = (ResultKey) object;
+			return this.generation == other.generation && this.k == other.k && this.terms.equals(other.terms);
+		}
+	}
+
+	/**
+	 * Constructor, binding the server
+	 *
+	 * @param index
+	 *            Index to serve first
+	 * @param stopwords
+	 *            Stop words of the index
+	 * @param feedback
+	 *            Relevance feedback to apply to every query over an index, null for none
+	 * @param loader
+	 *            Builds the index again from the collection for a reload, null if the index cannot be reloaded
+	 * @param address
+	 *            Address to listen on
+	 * @param threads
+	 *            Number of threads handling requests, 0 to handle them on the dispatcher thread
+	 * @param timeout
+	 *            Time allowed for ranking a query, in milliseconds
+	 * @param cacheBytes
+	 *            Bound of the heap of the query caches in bytes, a quarter for the analyzed queries and the rest for the rankings, 0 for no caching
+	 * @throws IOException
+	 */
+	public SearchServer(final ImmutableIndex index,
+			final Set<String> stopwords,
+			final Function<ImmutableIndex, RocchioFeedback> feedback,
+			final Callable<ImmutableIndex> loader,
+			final InetSocketAddress address,
+			final int threads,
+			final long timeout,
+			final long cacheBytes) throws IOException {
+		this.feedback = feedback;
+		this.loader = loader;
+		this.snapshot = new AtomicReference<>(new IndexSnapshot(index, feedback == null ? null : feedback.apply(index), 1));
+		this.reloading = new AtomicBoolean();
+		this.retired = new ConcurrentLinkedQueue<>();
+		this.reloads = new LongAdder();
+		this.stopwords = stopwords;
+		this.timeout = timeout;
+		this.tokenizers = ThreadLocal.withInitial(Tokenizer::new);
+		this.analyzed = cacheBytes > 0 ? new QueryCache<>(cacheBytes / 4, CACHE_SEGMENTS, SearchServer::weigh) : null;
+		this.results = cacheBytes > 0 ? new QueryCache<>(cacheBytes - cacheBytes / 4, CACHE_SEGMENTS, SearchServer::weigh) : null;
+		this.threads = threads;
+		this.latencies = new LatencyHistogram();
+		this.searches = new LongAdder();
+		this.expired = new LongAdder();
+		this.errors = new LongAdder();
+		this.started = System.nanoTime();
+
+		// Daemon handlers, the dispatcher thread keeps the JVM alive until the server is stopped
+		final AtomicInteger number = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "http-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = threads > 0 ? Executors.newFixedThreadPool(threads, factory) : null;
+
+		this.server = HttpServer.create(address, 0);
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/search", exchange -> this.handle(exchange, "GET", 200, () -> this.search(parseQuery(exchange.getRequestURI().getRawQuery()))));
+		this.server.createContext("/stats", exchange -> this.handle(exchange, "GET", 200, this::getStats));
+		this.server.createContext("/reload", exchange -> this.handle(exchange, "POST", 202, this::startReload));
+	}
+
+	/**
+	 * Response body of an endpoint
+	 */
+	private interface Endpoint {
+		/**
+		 * @return Response as JSON
+		 * @throws RequestException
+		 */
+		String respond() throws RequestException;
+	}
+
+	/**
+	 * Starts serving requests
+	 */
+	public void start() {
+		this.server.start();
+	}
+
+	/**
+	 * Answers a request and closes the exchange
+	 *
+	 * @param exchange
+	 *            Request and response
+	 * @param method
+	 *            HTTP method of the endpoint
+	 * @param success
+	 *            HTTP status of a successful response
+	 * @param endpoint
+	 *            Endpoint answering the request
+	 * @throws IOException
+	 */
+	private void handle(final HttpExchange exchange, final String method, final int success, final Endpoint endpoint) throws IOException {
+		int status = success;
+		String body;
+		try {
+			if (!method.equals(exchange.getRequestMethod())) {
+				throw new RequestException(405, "Only " + method + " is supported");
+			}
+
+			body = endpoint.respond();
+		} catch (final RequestException e) {
+			status = e.status;
+			body = error(e.getMessage());
+		} catch (final RuntimeException e) {
+			this.errors.increment();
+			status = 500;
+			body = error(String.valueOf(e));
+		}
+
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * Analyzes and ranks a query
+	 *
+	 * @param parameters
+	 *            Parameters of the request
+	 * @return Top documents as JSON
+	 * @throws RequestException
+	 */
+	private String search(final Map<String, String> parameters) throws RequestException {
+		final long start = System.nanoTime();
+		final String text = parameters.get("q");
+		if (text == null || text.trim().isEmpty()) {
+			throw new RequestException(400, "Missing query parameter q");
+		}
+
+		final int k;
+		try {
+			k = Integer.parseInt(parameters.getOrDefault("k", "10"));
+		} catch (final NumberFormatException e) {
+			throw new RequestException(400, "k is not a number");
+		}
+
+		if (k < 1 || k > MAX_K) {
+			throw new RequestException(400, "k must be between 1 and " + MAX_K);
+		}
+
+		final String model = parameters.getOrDefault("model", "w1").toLowerCase();
+		if (!model.equals("w1") && !model.equals("w2")) {
+			throw new RequestException(400, "model must be w1 or w2");
+		}
+
+		// Analyze the query as the index was analyzed, unless the same text was analyzed before
+		final long analyze = Metrics.start();
+		Set<String> terms = this.analyzed == null ? null : this.analyzed.get(text);
+		if (terms == null) {
+			terms = Collections.unmodifiableSet(this.tokenizers.get().analyze(text, this.stopwords));
+			if (this.analyzed != null) {
+				this.analyzed.put(text, terms);
+			}
+		}
+
+		Metrics.record(Metrics.Stage.ANALYZE, analyze);
+
+		// Rank it on the current generation, unless it was ranked there before. A ranking cut short by the deadline, or of a generation swapped out
+		// meanwhile, is not cached.
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeout);
+		final IndexSnapshot snapshot = this.acquire();
+		final ResultKey key = this.results == null ? null : new ResultKey(snapshot.getGeneration(), k, terms);
+		QueryEngine.Result result = key == null ? null : this.results.get(key);
+		final boolean cached = result != null;
+		try {
+			if (!cached) {
+				final QueryEngine engine = snapshot.getEngine();
+				result = engine.getFeedback() == null ? engine.search(terms, k, deadline) : engine.getFeedback().search(engine, terms, k, deadline);
+				if (key != null && !result.isExpired() && snapshot.getGeneration() == this.getGeneration()) {
+					this.results.put(key, result);
+
+					// A reload that swapped generations meanwhile may have cleared the rankings before the put
+					if (snapshot.getGeneration() != this.getGeneration()) {
+						this.results.remove(key);
+					}
+				}
+			}
+		} finally {
+			snapshot.release();
+		}
+
+		final List<ScoredDocument> ranked = model.equals("w1") ? result.getW1() : result.getW2();
+
+		final StringBuilder json = new StringBuilder(128 + ranked.size() * 128);
+		json.append("{\"query\":");
+		appendString(json, text);
+		json.append(",\"terms\":[");
+		int count = 0;
+		for (final String term : terms) {
+			json.append(count++ > 0 ? "," : "");
+			appendString(json, term);
+		}
+
+		json.append("],\"generation\":").append(snapshot.getGeneration());
+		json.append(",\"model\":\"").append(model).append("\",\"k\":").append(k).append(",\"expired\":").append(result.isExpired());
+		json.append(",\"cached\":").append(cached).append(",\"results\":[");
+		for (int i = 0; i < ranked.size(); i++) {
+			final ScoredDocument document = ranked.get(i);
+			json.append(i > 0 ? "," : "").append("{\"rank\":").append(i + 1).append(",\"doc\":");
+			appendString(json, document.getDocID());
+			json.append(",\"score\":").append(document.getScore()).append(",\"headline\":");
+			appendString(json, document.getHeadline());
+			json.append('}');
+		}
+
+		final long elapsed = System.nanoTime() - start;
+		json.append("],\"micros\":").append(TimeUnit.NANOSECONDS.toMicros(elapsed)).append('}');
+		this.latencies.record(elapsed);
+		this.searches.increment();
+		if (result.isExpired()) {
+			this.expired.increment();
+		}
+
+		return json.toString();
+	}
+
+	/**
+	 * @return Size of the index and request counts and latencies as JSON
+	 */
+	private String getStats() {
+		final LatencyHistogram latencies = this.latencies;
+		final StringBuilder json = new StringBuilder(512);
+		final IndexSnapshot snapshot = this.acquire();
+		try {
+			final ImmutableIndex index = snapshot.getIndex();
+			json.append("{\"index\":{\"generation\":").append(snapshot.getGeneration());
+			json.append(",\"documents\":").append(index.getDocumentCount());
+			json.append(",\"terms\":").append(index.getTermCount());
+			json.append(",\"avgdoclen\":").append(index.getAvgdoclen());
+			json.append(",\"postingsBytes\":").append(index.getPostingsBytes());
+			final PostingsCache postings = index.getPostingsCache();
+			json.append(",\"postingsCache\":");
+			if (postings == null) {
+				json.append("null");
+			} else {
+				json.append("{\"lists\":").append(postings.size());
+				json.append(",\"bytes\":").append(postings.getBytes());
+				json.append(",\"maxBytes\":").append(postings.getMaxBytes());
+				json.append(",\"hits\":").append(postings.getHits());
+				json.append(",\"misses\":").append(postings.getMisses());
+				json.append(",\"admissions\":").append(postings.getAdmissions());
+				json.append(",\"rejections\":").append(postings.getRejections());
+				json.append(",\"evictions\":").append(postings.getEvictions());
+				json.append(",\"hitRate\":").append(String.format(Locale.ROOT, "%.3f", postings.getHitRate()));
+				json.append('}');
+			}
+		} finally {
+			snapshot.release();
+		}
+
+		// Forget the old generations that have drained
+		this.retired.removeIf(IndexSnapshot::isDrained);
+		json.append("},\"reload\":{\"reloads\":").append(this.reloads.sum());
+		json.append(",\"reloading\":").append(this.reloading.get());
+		json.append(",\"draining\":").append(this.retired.size());
+		json.append(",\"lastMillis\":").append(this.reloadMillis);
+		json.append(",\"lastError\":");
+		appendString(json, this.reloadError);
+		json.append("},\"server\":{\"threads\":").append(this.threads);
+		json.append(",\"uptimeSeconds\":").append(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.started));
+		json.append(",\"searches\":").append(this.searches.sum());
+		json.append(",\"expired\":").append(this.expired.sum());
+		json.append(",\"errors\":").append(this.errors.sum());
+		json.append("},\"cache\":");
+		if (this.results == null) {
+			json.append("null");
+		} else {
+			json.append("{\"queries\":");
+			appendCache(json, this.analyzed);
+			json.append(",\"results\":");
+			appendCache(json, this.results);
+			json.append('}');
+		}
+
+		json.append(",\"latencyMicros\":{\"count\":").append(latencies.getCount());
+		json.append(",\"mean\":").append(String.format(Locale.ROOT, "%.1f", latencies.getMean() / 1000.0));
+		json.append(",\"p50\":").append(TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50)));
+		json.append(",\"p99\":").append(TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99)));
+		json.append(",\"p999\":").append(TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99.9)));
+		json.append(",\"max\":").append(TimeUnit.NANOSECONDS.toMicros(latencies.getMax()));
+		json.append("}}");
+		return json.toString();
+	}
+
+	/**
+	 * Starts a reload on a background thread
+	 *
+	 * @return Generation being served as JSON
+	 * @throws RequestException
+	 */
+	private String startReload() throws RequestException {
+		if (this.loader == null) {
+			throw new RequestException(501, "This index cannot be reloaded");
+		}
+
+		if (this.reloading.get()) {
+			throw new RequestException(409, "A reload is already running");
+		}
+
+		final Thread thread = new Thread(() -> {
+			try {
+				this.reload();
+			} catch (final IllegalStateException e) {
+				// Another reload started first
+			} catch (final Exception e) {
+				this.reloadError = String.valueOf(e);
+			}
+		}, "index-reload");
+		thread.setDaemon(true);
+		thread.start();
+		return "{\"generation\":" + this.snapshot.get().getGeneration() + ",\"reloading\":true}";
+	}
+
+	/**
+	 * Builds the next generation of the index on the calling thread while queries keep running on the current one, then swaps it in
+	 *
+	 * @return Generation swapped in
+	 * @throws Exception
+	 *             If the loader fails, in which case the current generation stays, or if a reload is already running
+	 */
+	public IndexSnapshot reload() throws Exception {
+		if (this.loader == null) {
+			throw new UnsupportedOperationException("This index cannot be reloaded");
+		}
+
+		if (!this.reloading.compareAndSet(false, true)) {
+			throw new IllegalStateException("A reload is already running");
+		}
+
+		try {
+			final long start = System.nanoTime();
+			final ImmutableIndex index = this.loader.call();
+			final IndexSnapshot next = new IndexSnapshot(index, this.feedback == null ? null : this.feedback.apply(index),
+					this.snapshot.get().getGeneration() + 1);
+
+			// New queries take the next generation from here on, the holder's reference to the previous one is let go
+			final IndexSnapshot previous = this.snapshot.getAndSet(next);
+			this.retired.add(previous);
+			previous.release();
+
+			// The rankings of the previous generation can no longer be hit
+			if (this.results != null) {
+				this.results.clear();
+			}
+
+			this.reloads.increment();
+			this.reloadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			this.reloadError = null;
+			return next;
+		} finally {
+			this.reloading.set(false);
+		}
+	}
+
+	/**
+	 * Takes a reference to the current generation. A generation can only drain after it has been swapped out, so a failed attempt finds the next one.
+	 *
+	 * @return Current generation, to be released once the query is done with it
+	 */
+	private IndexSnapshot acquire() {
+		while (true) {
+			final IndexSnapshot snapshot = this.snapshot.get();
+			if (snapshot.tryAcquire()) {
+				return snapshot;
+			}
+		}
+	}
+
+	/**
+	 * Appends the size and counts of a cache
+	 *
+	 * @param json
+	 *            JSON being built
+	 * @param cache
+	 *            Cache to describe
+	 */
+	private static void appendCache(final StringBuilder json, final QueryCache<?, ?> cache) {
+		json.append("{\"entries\":").append(cache.size());
+		json.append(",\"bytes\":").append(cache.getBytes());
+		json.append(",\"maxBytes\":").append(cache.getMaxBytes());
+		json.append(",\"hits\":").append(cache.getHits());
+		json.append(",\"misses\":").append(cache.getMisses());
+		json.append(",\"evictions\":").append(cache.getEvictions());
+		json.append(",\"hitRate\":").append(String.format(Locale.ROOT, "%.3f", cache.getHitRate()));
+		json.append('}');
+	}
+
+	/**
+	 * Estimates the heap of a cached analysis: the strings, the map entries of the set and the object headers
+	 *
+	 * @param text
+	 *            Raw text of the query
+	 * @param terms
+	 *            Analyzed terms of the query
+	 * @return Estimated bytes
+	 */
+	private static long weigh(final String text, final Set<String> terms) {
+		long bytes = 160L + 2L * text.length();
+		for (final String term : terms) {
+			bytes += 88L + 2L * term.length();
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Estimates the heap of a cached ranking: the key, and the documents of both weighting functions without their headlines, which the index holds
+	 *
+	 * @param key
+	 *            Key of the ranking
+	 * @param result
+	 *            Ranking of the query
+	 * @return Estimated bytes
+	 */
+	private static long weigh(final ResultKey key, final QueryEngine.Result result) {
+		long bytes = 160L;
+		for (final String term : key.terms) {
+			bytes += 48L + 2L * term.length();
+		}
+
+		for (final ScoredDocument document : result.getW1()) {
+			bytes += 88L + 2L * document.getDocID().length();
+		}
+
+		for (final ScoredDocument document : result.getW2()) {
+			bytes += 88L + 2L * document.getDocID().length();
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Parses the parameters of a request
+	 *
+	 * @param query
+	 *            Raw query string of the request URI, may be null
+	 * @return Decoded parameters, the first value of each name
+	 * @throws RequestException
+	 */
+	private static Map<String, String> parseQuery(final String query) throws RequestException {
+		final Map<String, String> parameters = new HashMap<>();
+		if (query == null) {
+			return parameters;
+		}
+
+		try {
+			for (final String pair : query.split("&")) {
+				final int equals = pair.indexOf('=');
+				final String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+				final String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+				parameters.putIfAbsent(name, value);
+			}
+		} catch (final IllegalArgumentException | UnsupportedEncodingException e) {
+			throw new RequestException(400, "Malformed query string");
+		}
+
+		return parameters;
+	}
+
+	/**
+	 * @param message
+	 *            Reason a request failed
+	 * @return Error as JSON
+	 */
+	private static String error(final String message) {
+		final StringBuilder json = new StringBuilder("{\"error\":");
+		appendString(json, message);
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Appends a JSON string, escaping quotes, backslashes and control characters
+	 *
+	 * @param json
+	 *            JSON being built
+	 * @param value
+	 *            String to append, null for an empty string
+	 */
+	private static void appendString(final StringBuilder json, final String value) {
+		json.append('"');
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				final char c = value.charAt(i);
+				if (c == '"' || c == '\\') {
+					json.append('\\').append(c);
+				} else if (c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				} else {
+					json.append(c);
+				}
+			}
+		}
+
+		json.append('"');
+	}
+
+	/**
+	 * @return the address the server listens on
+	 */
+	public InetSocketAddress getAddress() {
+		return this.server.getAddress();
+	}
+
+	/**
+	 * @return true while a reload is building the next generation
+	 */
+	public boolean isReloading() {
+		return this.reloading.get();
+	}
+
+	/**
+	 * @return the generation being served
+	 */
+	public long getGeneration() {
+		return this.snapshot.get().getGeneration();
+	}
+
+	/**
+	 * @return latencies of the searches in nanoseconds, from parsing the request to writing the results
+	 */
+	public LatencyHistogram getLatencies() {
+		return this.latencies;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		this.server.stop(1);
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+
+		this.snapshot.get().release();
+	}
+}
\ No newline at end of file
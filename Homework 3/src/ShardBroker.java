@@ -0,0 +1,403 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Scatters queries to the {@link ShardServer}s of a document-partitioned index and gathers their rankings. On connecting, the broker adds up the document
+ * frequencies of every shard into those of the whole collection, and counts its terms and average document length the way
+ * {@link TextCharacteristics#getAverageDocumentLength(Map)} does; each query is sent to every shard with these statistics, so a document scores the same
+ * as in a single index, and the top documents of the shards are merged into the top documents of the collection. Connections are pooled per shard and
+ * reused across queries, and the broker can be shared by any number of query threads. A shard that has not replied shortly after the deadline, stalled
+ * or cut off mid-reply, is left out of the ranking, which is marked as expired, and its connection is closed rather than reused.
+ *
+ * @author Ekal.Golas
+ */
+public class ShardBroker implements Closeable {
+	private static final long						GRACE	= TimeUnit.MILLISECONDS.toNanos(250);
+
+	private final List<InetSocketAddress>			shards;
+	private final List<BlockingQueue<Connection>>	pools;
+	private final ExecutorService					executor;
+	private final Map<String, Integer>				docFreqs;
+	private final int								documentCount;
+	private final int								collectionSize;
+	private final double							avgdoclen;
+	private final LatencyHistogram					latencies;
+
+	/**
+	 * Connection to a shard
+	 */
+	private static class Connection implements Closeable {
+		private final Socket			socket;
+		private final DataInputStream	input;
+		private final DataOutputStream	output;
+
+		/**
+		 * Constructor, connecting to a shard
+		 *
+		 * @param address
+		 *            Address of the shard
+		 * @throws IOException
+		 */
+		Connection(final InetSocketAddress address) throws IOException {
+			this.socket = new Socket(address.getAddress(), address.getPort());
+			this.socket.setTcpNoDelay(true);
+			this.input = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+			this.output = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.io.Closeable#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			this.socket.close();
+		}
+	}
+
+	/**
+	 * Constructor, connecting to every shard to gather the statistics of the collection
+	 *
+	 * @param shards
+	 *            Addresses of the shard servers
+	 * @throws IOException
+	 */
+	public ShardBroker(final List<InetSocketAddress> shards) throws IOException {
+		this.shards = new ArrayList<>(shards);
+		this.pools = new ArrayList<>();
+		for (int i = 0; i < shards.size(); i++) {
+			this.pools.add(new LinkedBlockingQueue<>());
+		}
+
+		// Daemon workers, so an abandoned broker does not keep the JVM alive
+		final AtomicInteger number = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "broker-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = Executors.newCachedThreadPool(factory);
+		this.latencies = new LatencyHistogram();
+
+		// Add up the document frequencies of the shards, a document being in exactly one of them
+		this.docFreqs = new HashMap<>();
+		int documents = 0;
+		for (int shard = 0; shard < shards.size(); shard++) {
+			final Connection connection = this.borrow(shard);
+			connection.output.writeByte(ShardServer.STATS);
+			connection.output.flush();
+			documents += connection.input.readInt();
+			final int terms = connection.input.readInt();
+			for (int i = 0; i < terms; i++) {
+				this.docFreqs.merge(connection.input.readUTF(), connection.input.readInt(), Integer::sum);
+			}
+
+			this.pools.get(shard).add(connection);
+		}
+
+		double sum = 0.0;
+		for (final int df : this.docFreqs.values()) {
+			sum += df;
+		}
+
+		this.documentCount = documents;
+		this.collectionSize = this.docFreqs.size();
+		this.avgdoclen = sum / this.docFreqs.size();
+	}
+
+	/**
+	 * Parses shard addresses
+	 *
+	 * @param addresses
+	 *            Comma separated host:port of each shard, in any order
+	 * @return Addresses of the shards
+	 */
+	public static List<InetSocketAddress> parseAddresses(final String addresses) {
+		final List<InetSocketAddress> shards = new ArrayList<>();
+		for (final String address : addresses.split(",")) {
+			final int colon = address.lastIndexOf(':');
+			if (colon < 0) {
+				throw new IllegalArgumentException("Shard address " + address + " is not host:port");
+			}
+
+			shards.add(new InetSocketAddress(address.substring(0, colon).trim(), Integer.parseInt(address.substring(colon + 1).trim())));
+		}
+
+		return shards;
+	}
+
+	/**
+	 * Ranks the documents of every shard for a query and merges the rankings, waiting on the calling thread
+	 *
+	 * @param terms
+	 *            Lemmas of the query
+	 * @param k
+	 *            Number of documents to return
+	 * @param deadline
+	 *            {@link System#nanoTime()} after which the shards stop evaluating
+	 * @return Result of the query, expired if any shard expired
+	 * @throws IOException
+	 */
+	public QueryEngine.Result search(final Collection<String> terms, final int k, final long deadline) throws IOException {
+		final long start = System.nanoTime();
+
+		// Send each shard the collection statistics of the terms, skipping the terms no shard holds
+		final List<String> known = new ArrayList<>(terms.size());
+		final List<Integer> frequencies = new ArrayList<>(terms.size());
+		for (final String term : terms) {
+			final Integer df = this.docFreqs.get(term);
+			if (df != null) {
+				known.add(term);
+				frequencies.add(df);
+			}
+		}
+
+		// Scatter the query to every shard
+		final List<Future<QueryEngine.Result>> futures = new ArrayList<>(this.shards.size());
+		final AtomicReferenceArray<Connection> connections = new AtomicReferenceArray<>(this.shards.size());
+		for (int shard = 0; shard < this.shards.size(); shard++) {
+			final int target = shard;
+			final Callable<QueryEngine.Result> task = () -> this.search(target, connections, known, frequencies, k, deadline);
+			futures.add(this.executor.submit(task));
+		}
+
+		// Gather the rankings of the shards
+		final List<List<ScoredDocument>> W1 = new ArrayList<>(futures.size());
+		final List<List<ScoredDocument>> W2 = new ArrayList<>(futures.size());
+		boolean expired = false;
+		try {
+			for (int shard = 0; shard < futures.size(); shard++) {
+				final QueryEngine.Result result;
+				try {
+					result = futures.get(shard).get(Math.max(0L, deadline + GRACE - System.nanoTime()), TimeUnit.NANOSECONDS);
+				} catch (final TimeoutException e) {
+					// Rank without a shard that stalled, dropping its connection halfway through the reply
+					final Connection stalled = connections.getAndSet(shard, null);
+					if (stalled != null) {
+						stalled.close();
+					}
+
+					expired = true;
+					continue;
+				}
+
+				W1.add(result.getW1());
+				W2.add(result.getW2());
+				expired |= result.isExpired();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the shards");
+		} catch (final ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException("Searching a shard failed", e.getCause());
+		} finally {
+			for (final Future<QueryEngine.Result> future : futures) {
+				future.cancel(true);
+			}
+		}
+
+		final QueryEngine.Result result = new QueryEngine.Result(merge(W1, k), merge(W2, k), expired);
+		this.latencies.record(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Ranks the documents of one shard over a pooled connection
+	 *
+	 * @param shard
+	 *            Shard to search
+	 * @param connections
+	 *            Connection in use to each shard, cleared by the query when it stops waiting for the shard
+	 * @param terms
+	 *            Lemmas of the query held by some shard
+	 * @param docFreqs
+	 *            Document frequency of each lemma in the whole collection
+	 * @param k
+	 *            Number of documents to return
+	 * @param deadline
+	 *            {@link System#nanoTime()} after which the shard stops evaluating
+	 * @return Result of the shard, empty and expired if the shard does not reply in time
+	 * @throws IOException
+	 */
+	private QueryEngine.Result search(final int shard, final AtomicReferenceArray<Connection> connections, final List<String> terms,
+			final List<Integer> docFreqs, final int k, final long deadline) throws IOException {
+		final Connection connection = this.borrow(shard);
+		connections.set(shard, connection);
+		try {
+			// Send the time left rather than the deadline, the shard's clock is not ours
+			final DataOutputStream output = connection.output;
+			output.writeByte(ShardServer.SEARCH);
+			output.writeInt(k);
+			output.writeLong(Math.max(0L, deadline - System.nanoTime()));
+			output.writeInt(this.collectionSize);
+			output.writeDouble(this.avgdoclen);
+			output.writeInt(terms.size());
+			for (int i = 0; i < terms.size(); i++) {
+				output.writeUTF(terms.get(i));
+				output.writeInt(docFreqs.get(i));
+			}
+
+			output.flush();
+
+			// Give up on a shard that goes silent past the deadline, rather than blocking on the socket
+			final long left = TimeUnit.NANOSECONDS.toMillis(deadline + GRACE - System.nanoTime());
+			connection.socket.setSoTimeout((int) Math.max(1L, Math.min(Integer.MAX_VALUE, left)));
+			final DataInputStream input = connection.input;
+			final boolean expired = input.readBoolean();
+			final QueryEngine.Result result = new QueryEngine.Result(readDocuments(input), readDocuments(input), expired);
+
+			// Pool the connection, unless the query stopped waiting and closed it
+			if (connections.compareAndSet(shard, connection, null)) {
+				this.pools.get(shard).add(connection);
+			}
+
+			return result;
+		} catch (final SocketTimeoutException e) {
+			connection.close();
+			return new QueryEngine.Result(Collections.<ScoredDocument> emptyList(), Collections.<ScoredDocument> emptyList(), true);
+		} catch (final IOException | RuntimeException e) {
+			// The connection may be halfway through a reply, so it is not reused
+			connection.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param input
+	 *            Stream from a shard
+	 * @return Ranked documents
+	 * @throws IOException
+	 */
+	private static List<ScoredDocument> readDocuments(final DataInputStream input) throws IOException {
+		final int size = input.readInt();
+		final List<ScoredDocument> documents = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			documents.add(new ScoredDocument(input.readUTF(), input.readDouble(), input.readUTF()));
+		}
+
+		return documents;
+	}
+
+	/**
+	 * @param shard
+	 *            Shard to connect to
+	 * @return Idle connection to the shard, opened if there is none
+	 * @throws IOException
+	 */
+	private Connection borrow(final int shard) throws IOException {
+		final Connection connection = this.pools.get(shard).poll();
+		return connection != null ? connection : new Connection(this.shards.get(shard));
+	}
+
+	/**
+	 * Merges the rankings of the shards, each in descending order of score, with a heap of the best remaining document of each
+	 *
+	 * @param rankings
+	 *            Ranking of each shard
+	 * @param k
+	 *            Number of documents to return
+	 * @return Top documents of the collection in descending order of score
+	 */
+	static List<ScoredDocument> merge(final List<List<ScoredDocument>> rankings, final int k) {
+		if (k <= 0) {
+			return Collections.emptyList();
+		}
+
+		// Cursors of the rankings as {ranking, position}, the best head first
+		final PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, rankings.size()),
+				(a, b) -> Double.compare(rankings.get(b[0]).get(b[1]).getScore(), rankings.get(a[0]).get(a[1]).getScore()));
+		for (int i = 0; i < rankings.size(); i++) {
+			if (!rankings.get(i).isEmpty()) {
+				heads.add(new int[] { i, 0 });
+			}
+		}
+
+		final List<ScoredDocument> merged = new ArrayList<>(k);
+		while (merged.size() < k && !heads.isEmpty()) {
+			final int[] head = heads.poll();
+			final List<ScoredDocument> ranking = rankings.get(head[0]);
+			merged.add(ranking.get(head[1]++));
+			if (head[1] < ranking.size()) {
+				heads.add(head);
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * @return the number of shards
+	 */
+	public int getShardCount() {
+		return this.shards.size();
+	}
+
+	/**
+	 * @return the number of documents in all the shards
+	 */
+	public int getDocumentCount() {
+		return this.documentCount;
+	}
+
+	/**
+	 * @return the number of distinct terms in all the shards, which is also the collection size the shards score with
+	 */
+	public int getTermCount() {
+		return this.collectionSize;
+	}
+
+	/**
+	 * @return the average document length of the collection
+	 */
+	public double getAvgdoclen() {
+		return this.avgdoclen;
+	}
+
+	/**
+	 * @return latencies of the queries in nanoseconds, from scatter to merge
+	 */
+	public LatencyHistogram getLatencies() {
+		return this.latencies;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.executor.shutdownNow();
+		for (final BlockingQueue<Connection> pool : this.pools) {
+			for (Connection connection; (connection = pool.poll()) != null;) {
+				connection.close();
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,298 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Serves one shard of a document-partitioned index to a {@link ShardBroker} over a socket. Each connection is served by a thread of its own and carries
+ * any number of requests in turn: {@link #STATS} returns the number of documents and the document frequency of every term of the shard, so the broker can
+ * add them up into the statistics of the whole collection, and {@link #SEARCH} ranks the documents of the shard with the statistics the broker sends along,
+ * returning the top documents of the shard by both weighting functions.
+ *
+ * @author Ekal.Golas
+ */
+public class ShardServer implements Closeable {
+	static final byte				STATS	= 1;
+	static final byte				SEARCH	= 2;
+
+	private final ImmutableIndex	index;
+	private final QueryEngine		engine;
+	private final ServerSocket		socket;
+	private final ExecutorService	connections;
+
+	/**
+	 * Constructor, binding the socket
+	 *
+	 * @param index
+	 *            Index of the shard
+	 * @param address
+	 *            Address to listen on, port 0 for any free port
+	 * @throws IOException
+	 */
+	public ShardServer(final ImmutableIndex index, final InetSocketAddress address) throws IOException {
+		this.index = index;
+		this.engine = new QueryEngine(index, 1);
+		this.socket = new ServerSocket();
+		this.socket.bind(address);
+
+		// Daemon connection threads, so an open connection does not keep the JVM alive
+		final AtomicInteger number = new AtomicInteger();
+		final ThreadFactory factory = runnable -> {
+			final Thread thread = new Thread(runnable, "shard-connection-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.connections = Executors.newCachedThreadPool(factory);
+	}
+
+	/**
+	 * Main function
+	 *
+	 * @param args
+	 *            Command line arguments
+	 * @throws IOException
+	 */
+	public static void main(final String args[]) throws IOException {
+		final CommandLine cmd = validateArguments(args);
+		final int shard = Integer.parseInt(cmd.getOptionValue("shard"));
+		final int shards = Integer.parseInt(cmd.getOptionValue("shards"));
+
+		// Use the analyzer the broker analyzes the queries with
+		final File lemmas = cmd.hasOption("lemmas") ? new File(cmd.getOptionValue("lemmas")) : null;
+		if (cmd.hasOption("analyzer")) {
+			Tokenizer.configure(cmd.getOptionValue("analyzer"), lemmas, new File(cmd.getOptionValue("dict", "../Final/data/dict")));
+		}
+
+		// Index the documents of this shard only
+		final long start = System.currentTimeMillis();
+		final DocumentParser documentParser = new DocumentParser(new File(cmd.getOptionValue("stop")));
+		if (cmd.hasOption("charset")) {
+			documentParser.setCharset(Charset.forName(cmd.getOptionValue("charset")));
+		}
+
+		documentParser.setShard(shard, shards);
+		documentParser.parse(new File(cmd.getOptionValue("path")));
+		final Map<String, Properties> lemmaDictionary = documentParser.getDictionary().getLemmaDictionary();
+		final double avgdoclen = new TextCharacteristics().getAverageDocumentLength(lemmaDictionary);
+		final ImmutableIndex index = new ImmutableIndex(lemmaDictionary, StorageManager.getDocProperties(), avgdoclen);
+
+		final InetAddress host = cmd.hasOption("bind") ? InetAddress.getByName(cmd.getOptionValue("bind")) : InetAddress.getLoopbackAddress();
+		try (ShardServer server = new ShardServer(index, new InetSocketAddress(host, Integer.parseInt(cmd.getOptionValue("port", "0"))))) {
+			System.out.println("Shard " + shard + " of " + shards + ": " + index.getDocumentCount() + " documents, " + index.getTermCount() + " terms, indexed in "
+					+ (System.currentTimeMillis() - start) + " milliseconds, listening on " + server.getAddress());
+			server.run();
+		}
+	}
+
+	/**
+	 * Accepts connections on the calling thread until the server is closed
+	 */
+	public void run() {
+		while (!this.socket.isClosed()) {
+			try {
+				final Socket connection = this.socket.accept();
+				this.connections.execute(() -> this.serve(connection));
+			} catch (final IOException e) {
+				if (!this.socket.isClosed()) {
+					System.err.println("Accepting a connection failed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accepts connections on a background thread
+	 */
+	public void start() {
+		final Thread acceptor = new Thread(this::run, "shard-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Serves the requests of a connection until the broker closes it
+	 *
+	 * @param connection
+	 *            Connection from a broker
+	 */
+	private void serve(final Socket connection) {
+		try (Socket socket = connection;
+				DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			socket.setTcpNoDelay(true);
+			while (true) {
+				final byte request;
+				try {
+					request = input.readByte();
+				} catch (final EOFException e) {
+					return;
+				}
+
+				if (request == STATS) {
+					this.writeStats(output);
+				} else if (request == SEARCH) {
+					this.search(input, output);
+				} else {
+					throw new IOException("Unknown request " + request);
+				}
+
+				output.flush();
+			}
+		} catch (final SocketException e) {
+			// The broker went away
+		} catch (final IOException | RuntimeException e) {
+			System.err.println("Serving a connection failed: " + e);
+		}
+	}
+
+	/**
+	 * Writes the number of documents of the shard and the document frequency of each of its terms
+	 *
+	 * @param output
+	 *            Stream to the broker
+	 * @throws IOException
+	 */
+	private void writeStats(final DataOutputStream output) throws IOException {
+		output.writeInt(this.index.getDocumentCount());
+		output.writeInt(this.index.getTermCount());
+		for (int id = 0; id < this.index.getTermCount(); id++) {
+			final ImmutableIndex.Postings postings = this.index.getPostings(id);
+			output.writeUTF(postings.getTerm());
+			output.writeInt(postings.getDocFreq());
+		}
+	}
+
+	/**
+	 * Reads a query with the statistics of the whole collection, ranks the documents of the shard and writes the top ones
+	 *
+	 * @param input
+	 *            Stream from the broker
+	 * @param output
+	 *            Stream to the broker
+	 * @throws IOException
+	 */
+	private void search(final DataInputStream input, final DataOutputStream output) throws IOException {
+		final int k = input.readInt();
+		final long deadline = System.nanoTime() + input.readLong();
+		final int collectionSize = input.readInt();
+		final double avgdoclen = input.readDouble();
+		final String[] terms = new String[input.readInt()];
+		final int[] docFreqs = new int[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			terms[i] = input.readUTF();
+			docFreqs[i] = input.readInt();
+		}
+
+		final QueryEngine.Result result = this.engine.search(terms, docFreqs, collectionSize, avgdoclen, k, deadline);
+		output.writeBoolean(result.isExpired());
+		writeDocuments(output, result.getW1());
+		writeDocuments(output, result.getW2());
+	}
+
+	/**
+	 * @param output
+	 *            Stream to the broker
+	 * @param documents
+	 *            Ranked documents
+	 * @throws IOException
+	 */
+	private static void writeDocuments(final DataOutputStream output, final List<ScoredDocument> documents) throws IOException {
+		output.writeInt(documents.size());
+		for (final ScoredDocument document : documents) {
+			output.writeUTF(document.getDocID());
+			output.writeDouble(document.getScore());
+			output.writeUTF(document.getHeadline() == null ? "" : document.getHeadline());
+		}
+	}
+
+	/**
+	 * @return the address the server listens on
+	 */
+	public InetSocketAddress getAddress() {
+		return (InetSocketAddress) this.socket.getLocalSocketAddress();
+	}
+
+	/**
+	 * @return the index of the shard
+	 */
+	public ImmutableIndex getIndex() {
+		return this.index;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.socket.close();
+		this.connections.shutdownNow();
+		this.engine.close();
+	}
+
+	/**
+	 * Validates and gets the command line arguments provided
+	 *
+	 * @param args
+	 *            Command-line arguments
+	 * @return Validates arguments
+	 */
+	private static CommandLine validateArguments(final String[] args) {
+		// Get options
+		final Options options = new Options();
+		options.addOption("path", "dataPath", true, "Absolute or relative path to the Cranfield database");
+		options.addOption("stop", "stopWords", true, "Absolute or relative path to the Stop Words file");
+		options.addOption("shard", "shard", true, "Shard of the collection to index and serve, from 0");
+		options.addOption("shards", "shards", true, "Number of shards the collection is partitioned into");
+		options.addOption("port", "port", true, "Port to listen on (default any free port)");
+		options.addOption("bind", "bindAddress", true, "Address to listen on (default the loopback address)");
+		options.addOption("analyzer", "analyzer", true, "Analyzer of the index and its queries: corenlp, table, wordnet or porter (default corenlp)");
+		options.addOption("lemmas", "lemmasFile", true, "Lemma table to load with the table analyzer");
+		options.addOption("charset", "charset", true, "Charset of the documents, which are then memory mapped and decoded without a string per line");
+		options.addOption("dict", "wordnetDict", true, "WordNet dict folder of the wordnet analyzer (default ../Final/data/dict)");
+
+		// Parse arguments
+		final CommandLineParser commandLineParser = new DefaultParser();
+		CommandLine cmd = null;
+		try {
+			cmd = commandLineParser.parse(options, args, false);
+		} catch (final ParseException e1) {
+			System.out.println("Invalid arguments provided");
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("ShardServer", options);
+			System.exit(1);
+		}
+
+		// Validate
+		if (!cmd.hasOption("path") || !cmd.hasOption("stop") || !cmd.hasOption("shard") || !cmd.hasOption("shards")) {
+			final HelpFormatter formatter = new HelpFormatter();
+			formatter.printHelp("ShardServer", options);
+			System.exit(2);
+		}
+
+		return cmd;
+	}
+}
\ No newline at end of file
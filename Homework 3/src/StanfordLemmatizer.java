@@ -17,7 +17,7 @@ import edu.stanford.nlp.util.CoreMap;
  *
  * @author Ekal.Golas
  */
-public class StanfordLemmatizer {
+public class StanfordLemmatizer implements Lemmatizer {
 	protected StanfordCoreNLP	pipeline;
 
 	/**
@@ -30,13 +30,11 @@ public class StanfordLemmatizer {
 		this.pipeline = new StanfordCoreNLP(props);
 	}
 
-	/**
-	 * Lemmatizes the text
-	 *
-	 * @param documentText
-	 *            Text to be lemmatized
-	 * @return Lemmatized text
+	/*
+	 * (non-Javadoc)
+	 * @see Lemmatizer#lemmatize(java.lang.String)
 	 */
+	@Override
 	public List<String> lemmatize(final String documentText) {
 		final List<String> lemmas = new LinkedList<String>();
 		final Annotation document = new Annotation(documentText);
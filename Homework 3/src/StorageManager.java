@@ -1,6 +1,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,15 +9,32 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
- * Class to store all the characteristics of the indexes
+ * Class to store all the characteristics of the indexes. Lemmas and documents are interned into process-wide {@link Lexicon}s, and the lemmas of a
+ * document are counted by term ID until they are appended to a {@link Dictionary}. Queries are stored as documents of their own, kept apart from those
+ * of the collection and numbered from {@link Integer#MIN_VALUE}, so that a query never shares the ID of a document it is ranked against.
  *
  * @author Ekal.Golas
  */
 public class StorageManager {
-	private final Map<String, Integer>				lemmaMap;
-	private static Map<String, DocumentProperty>	docProperties	= new HashMap<>();;
+	private static Map<String, DocumentProperty>	docProperties	= new HashMap<>();
+	private static final List<DocumentProperty>		documentList	= new ArrayList<>();
+	private static final Lexicon					lexicon			= new Lexicon();
+	private static final Lexicon					documents		= new Lexicon();
+	private static final Lexicon					queries			= new Lexicon();
+	private static final List<DocumentProperty>		queryList		= new ArrayList<>();
 	private static Set<String>						stopwords;
 
+	private File									file;
+	private String									source;
+	private String									sourceText;
+	private int										doc				= -1;
+	private DocumentProperty						property;
+	private final boolean							query;
+	private final IntIntCounter						counts;
+	private int[]									termIds;
+	private int[]									termCounts;
+	private int										termCount;
+
 	/**
 	 * Default constructor
 	 *
@@ -24,7 +42,20 @@ public class StorageManager {
 	 *            Set of stop words
 	 */
 	public StorageManager(final Set<String> stopwords) {
-		this.lemmaMap = new HashMap<>();
+		this(stopwords, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param stopwords
+	 *            Set of stop words
+	 * @param query
+	 *            True to store the words of a query, which is not registered as a document of the collection
+	 */
+	public StorageManager(final Set<String> stopwords, final boolean query) {
+		this.query = query;
+		this.counts = new IntIntCounter(64);
 		StorageManager.stopwords = stopwords;
 	}
 
@@ -36,40 +67,100 @@ public class StorageManager {
 	 * @param lemma
 	 *            Lemma of the word
 	 * @param file
-	 *            File of the document where the word came from
+	 *            File of the document where the word came from, or null if it came from the document set by {@link #setSource(String, String)}
 	 * @throws IOException
 	 */
 	public void store(final String word, final List<String> lemma, final File file) throws IOException {
-		// Create document properties
-		final String doc = file.getName().replaceAll("[^\\d]", "");
-		if (!docProperties.containsKey(doc)) {
-			docProperties.put(doc, new DocumentProperty());
+		// Create document properties and set the headline, once per file or source
+		if (file == null) {
+			if (this.property == null) {
+				this.setDocument(this.source);
+				this.property.setHeadline(getHeadLine(this.sourceText));
+			}
+		} else if (!file.equals(this.file)) {
+			this.file = file;
+			this.setDocument(file.getName().replaceAll("[^\\d]", ""));
+			this.property.setHeadline(getHeadLine(file));
 		}
 
-		// Set document headline
-		final String headline = getHeadLine(file);
-		docProperties.get(doc).setHeadline(headline);
-
 		if (!StorageManager.stopwords.contains(word)) {
-			int count = 0;
-
-			// Increment occurrence of this lemma
+			// Increment occurrence of the term ID of each lemma
 			for (final String string : lemma) {
-				count = this.lemmaMap.containsKey(string) ? this.lemmaMap.get(string) : 0;
-				this.lemmaMap.put(string, count + 1);
+				this.counts.increment(lexicon.intern(string));
+			}
+
+			this.termIds = null;
+
+			// Increment number of words in the document
+			this.property.setDoclen(this.property.getDoclen() + 1);
+		}
+	}
+
+	/**
+	 * Sets the document the words stored without a file come from, for documents that do not have a file of their own, such as those of an archive
+	 *
+	 * @param name
+	 *            External document ID
+	 * @param text
+	 *            Text of the document, to take the headline from
+	 */
+	public void setSource(final String name, final String text) {
+		this.source = name;
+		this.sourceText = text;
+	}
 
-				// Add this word to set of words
-				docProperties.get(doc).getWords().add(string);
+	/**
+	 * Sets the document the words are stored for
+	 *
+	 * @param name
+	 *            External document ID
+	 */
+	private void setDocument(final String name) {
+		if (this.query) {
+			synchronized (queries) {
+				final int number = queries.intern(name);
+				if (number == queryList.size()) {
+					queryList.add(new DocumentProperty());
+				}
+
+				this.doc = Integer.MIN_VALUE + number;
+				this.property = queryList.get(number);
 			}
 
-			// Update the term with maximum frequency for this document
-			if (docProperties.get(doc).getMaxFreq() < count + 1) {
-				docProperties.get(doc).setMaxFreq(count + 1);
+			return;
+		}
+
+		synchronized (documents) {
+			this.doc = documents.intern(name);
+			if (this.doc == documentList.size()) {
+				documentList.add(new DocumentProperty());
+				docProperties.put(name, documentList.get(this.doc));
 			}
 
-			// Increment number of words in the document
-			final int len = docProperties.get(doc).getDoclen();
-			docProperties.get(doc).setDoclen(len + 1);
+			this.property = documentList.get(this.doc);
+		}
+	}
+
+	/**
+	 * Lists the counted term IDs in ascending order with their counts, and updates the maximum term frequency and the set of words of the document
+	 */
+	private void count() {
+		this.termIds = this.counts.sortedKeys();
+		this.termCount = this.termIds.length;
+		this.termCounts = new int[this.termCount];
+		for (int i = 0; i < this.termCount; i++) {
+			this.termCounts[i] = this.counts.get(this.termIds[i]);
+		}
+
+		// Update the term with maximum frequency and the words of the document
+		if (this.property != null) {
+			for (int i = 0; i < this.termCount; i++) {
+				if (this.property.getMaxFreq() < this.termCounts[i]) {
+					this.property.setMaxFreq(this.termCounts[i]);
+				}
+			}
+
+			this.property.addTerms(this.termIds, this.termCount);
 		}
 	}
 
@@ -82,9 +173,17 @@ public class StorageManager {
 	 * @throws IOException
 	 */
 	private static String getHeadLine(final File file) throws IOException {
-		// Read file
-		final String data = new String(Files.readAllBytes(file.toPath()));
+		return getHeadLine(new String(Files.readAllBytes(file.toPath())));
+	}
 
+	/**
+	 * Get document headline
+	 *
+	 * @param data
+	 *            Text of the document
+	 * @return Headline as a string
+	 */
+	private static String getHeadLine(final String data) {
 		// Match the title part and return the value
 		final Pattern pattern = Pattern.compile("<.?title>", Pattern.CASE_INSENSITIVE);
 		final String[] parts = pattern.split(data);
@@ -96,10 +195,62 @@ public class StorageManager {
 	}
 
 	/**
-	 * @return the lemmaMap
+	 * @return the document number of the stored words, from {@link Integer#MIN_VALUE} for a query, -1 if no word has been stored
+	 */
+	public final int getDocNumber() {
+		return this.doc;
+	}
+
+	/**
+	 * @return the number of distinct term IDs stored
+	 */
+	public final int getTermCount() {
+		if (this.termIds == null) {
+			this.count();
+		}
+
+		return this.termCount;
+	}
+
+	/**
+	 * @return the distinct term IDs stored, in ascending order, valid up to {@link #getTermCount()}
+	 */
+	public final int[] getTermIds() {
+		if (this.termIds == null) {
+			this.count();
+		}
+
+		return this.termIds;
+	}
+
+	/**
+	 * @return the frequency of each term ID, in the order of {@link #getTermIds()}
 	 */
-	public final Map<String, Integer> getLemmaMap() {
-		return this.lemmaMap;
+	public final int[] getTermCounts() {
+		if (this.termIds == null) {
+			this.count();
+		}
+
+		return this.termCounts;
+	}
+
+	/**
+	 * Forgets every document and lemma indexed so far, so that the collection can be indexed again from scratch, as a reload does. Indexes already built
+	 * from them, such as an {@link ImmutableIndex}, hold copies and are not affected. Not to be called while documents are being indexed.
+	 */
+	public static void reset() {
+		synchronized (documents) {
+			documents.clear();
+			documentList.clear();
+			docProperties = new HashMap<>();
+		}
+
+		synchronized (queries) {
+			queries.clear();
+			queryList.clear();
+		}
+
+		lexicon.clear();
 	}
 
 	/**
@@ -108,4 +259,35 @@ public class StorageManager {
 	public static final Map<String, DocumentProperty> getDocProperties() {
 		return StorageManager.docProperties;
 	}
+
+	/**
+	 * @param doc
+	 *            Document number, or the number of a query
+	 * @return Properties of the document
+	 */
+	public static final DocumentProperty getDocProperty(final int doc) {
+		if (doc < 0) {
+			synchronized (queries) {
+				return queryList.get(doc - Integer.MIN_VALUE);
+			}
+		}
+
+		synchronized (documents) {
+			return documentList.get(doc);
+		}
+	}
+
+	/**
+	 * @return the lexicon of lemmas
+	 */
+	public static final Lexicon getLexicon() {
+		return StorageManager.lexicon;
+	}
+
+	/**
+	 * @return the lexicon of external document IDs
+	 */
+	public static final Lexicon getDocuments() {
+		return StorageManager.documents;
+	}
 }
\ No newline at end of file
@@ -1,3 +1,4 @@
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -61,6 +62,28 @@ public class TextCharacteristics {
 		return formatter;
 	}
 
+	/**
+	 * Get the rank, score, external document identifier, and headline, for each of the documents ranked by a {@link QueryEngine} or {@link ShardBroker}
+	 *
+	 * @param ranked
+	 *            Documents in descending order of score
+	 * @return Output formatted in a string
+	 */
+	public OutputFormatter getTopFive(final List<ScoredDocument> ranked) {
+		final OutputFormatter formatter = new OutputFormatter();
+		formatter.addRow("RANK", "SCORE", "EXTERNAL DOCUMENT IDENTIFIER", "HEADLINE");
+		int count = 0;
+		for (final ScoredDocument document : ranked) {
+			if (++count > 5) {
+				break;
+			}
+
+			formatter.addRow(String.valueOf(count), String.valueOf(document.getScore()), "cranfield" + document.getDocID(), document.getHeadline());
+		}
+
+		return formatter;
+	}
+
 	/**
 	 * Gets vector representation of top 5 ranked documents
 	 *
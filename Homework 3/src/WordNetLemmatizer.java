@@ -0,0 +1,242 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table driven lemmatizer over the WordNet dict files, the morphy algorithm without a POS tagger. A word is looked up in the noun exception list,
+ * kept if it is a noun or verb lemma itself, looked up in the exception lists of verbs, adjectives and adverbs, and otherwise reduced by the first
+ * suffix rule that gives a lemma of the rule's part of speech. Exceptions and lemmas are held in a single {@link PerfectHashTable}, so a word costs a
+ * few hashes and no allocation beyond the candidates. Without an index.noun file, as in the dict folder of the Final project, plural nouns that no
+ * rule turns into a known lemma are reduced the way CoreNLP reduces plural nouns. Safe for use from many threads.
+ *
+ * @author Ekal.Golas
+ */
+public class WordNetLemmatizer implements Lemmatizer {
+	private static final int		NOUN		= 1;
+	private static final int		VERB		= 2;
+	private static final int		ADJECTIVE	= 4;
+	private static final int		OTHER_ROOT	= 16;
+	private static final int		POS_BITS	= 5;
+
+	private static final String[]	SUFFIXES	= { "noun", "verb", "adj", "adv" };
+	private static final Rule[]		RULES		= { new Rule("s", "", NOUN), new Rule("ses", "s", NOUN), new Rule("xes", "x", NOUN),
+			new Rule("zes", "z", NOUN), new Rule("ches", "ch", NOUN), new Rule("shes", "sh", NOUN), new Rule("men", "man", NOUN), new Rule("ies", "y", NOUN),
+			new Rule("s", "", VERB), new Rule("ies", "y", VERB), new Rule("es", "e", VERB), new Rule("es", "", VERB), new Rule("ed", "e", VERB),
+			new Rule("ed", "", VERB), new Rule("ing", "e", VERB), new Rule("ing", "", VERB), new Rule("er", "", ADJECTIVE), new Rule("est", "", ADJECTIVE),
+			new Rule("er", "e", ADJECTIVE), new Rule("est", "e", ADJECTIVE) };
+
+	private final PerfectHashTable	table;
+	private final String[]			roots;
+	private final boolean			nouns;
+	private final long				loadTime;
+
+	/**
+	 * Suffix rule of morphy: an inflected ending, the ending of the lemma that replaces it, and the part of speech the lemma must have
+	 */
+	private static class Rule {
+		private final String	suffix;
+		private final String	ending;
+		private final int		pos;
+
+		/**
+		 * Constructor
+		 *
+		 * @param suffix
+		 *            Inflected ending
+		 * @param ending
+		 *            Ending of the lemma
+		 * @param pos
+		 *            Part of speech bit of the lemma
+		 */
+		Rule(final String suffix, final String ending, final int pos) {
+			this.suffix = suffix;
+			this.ending = ending;
+			this.pos = pos;
+		}
+	}
+
+	/**
+	 * Loads the index and exception files of a dict folder
+	 *
+	 * @param dict
+	 *            WordNet dict folder
+	 * @throws IOException
+	 */
+	public WordNetLemmatizer(final File dict) throws IOException {
+		final long start = System.currentTimeMillis();
+		final Map<String, Integer> entries = new HashMap<>();
+		final Map<String, Integer> rootIds = new HashMap<>();
+		final List<String> rootList = new ArrayList<>();
+
+		// Exception roots, the first part of speech listing a form wins
+		for (int pos = 0; pos < SUFFIXES.length; pos++) {
+			final File file = new File(dict, SUFFIXES[pos] + ".exc");
+			if (!file.exists()) {
+				continue;
+			}
+
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				for (String line; (line = reader.readLine()) != null;) {
+					final String[] parts = line.trim().split(" ");
+					if (parts.length < 2 || entries.containsKey(parts[0]) && entries.get(parts[0]) >>> POS_BITS != 0) {
+						continue;
+					}
+
+					Integer root = rootIds.get(parts[1]);
+					if (root == null) {
+						root = rootList.size();
+						rootIds.put(parts[1], root);
+						rootList.add(parts[1]);
+					}
+
+					final Integer entry = entries.get(parts[0]);
+					entries.put(parts[0], (entry == null ? 0 : entry) | root + 1 << POS_BITS | (pos == 0 ? 0 : OTHER_ROOT));
+
+					// Roots of nouns are noun lemmas, whether there is a noun index or not
+					if (pos == 0) {
+						final Integer rootEntry = entries.get(parts[1]);
+						entries.put(parts[1], (rootEntry == null ? 0 : rootEntry) | NOUN);
+					}
+				}
+			}
+		}
+
+		// Lemmas of each part of speech
+		boolean nouns = false;
+		for (int pos = 0; pos < SUFFIXES.length; pos++) {
+			final File file = new File(dict, "index." + SUFFIXES[pos]);
+			if (!file.exists()) {
+				continue;
+			}
+
+			nouns |= pos == 0;
+			try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+				for (String line; (line = reader.readLine()) != null;) {
+					// Skip the license header, whose lines start with spaces
+					if (line.isEmpty() || line.charAt(0) == ' ') {
+						continue;
+					}
+
+					final int end = line.indexOf(' ');
+					final String lemma = end < 0 ? line : line.substring(0, end);
+					final Integer entry = entries.get(lemma);
+					entries.put(lemma, (entry == null ? 0 : entry) | 1 << pos);
+				}
+			}
+		}
+
+		// Freeze the entries into the perfect hash table
+		final String[] keys = new String[entries.size()];
+		final int[] values = new int[entries.size()];
+		int i = 0;
+		for (final Map.Entry<String, Integer> entry : entries.entrySet()) {
+			keys[i] = entry.getKey();
+			values[i++] = entry.getValue();
+		}
+
+		this.table = new PerfectHashTable(keys, values);
+		this.roots = rootList.toArray(new String[rootList.size()]);
+		this.nouns = nouns;
+		this.loadTime = System.currentTimeMillis() - start;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see Lemmatizer#lemmatize(java.lang.String)
+	 */
+	@Override
+	public List<String> lemmatize(final String documentText) {
+		return Collections.singletonList(this.lemma(documentText));
+	}
+
+	/**
+	 * Reduces a word to its lemma
+	 *
+	 * @param word
+	 *            Lower case word
+	 * @return Lemma, or the word itself if it has none
+	 */
+	public String lemma(final String word) {
+		// Noun exception roots, then noun and verb lemmas, then the other exception roots, so that "ground" is not taken for a form of "grind"
+		final int entry = this.table.get(word, 0);
+		if (entry >>> POS_BITS != 0 && (entry & OTHER_ROOT) == 0) {
+			return this.roots[(entry >>> POS_BITS) - 1];
+		}
+
+		if ((entry & (NOUN | VERB)) != 0) {
+			return word;
+		}
+
+		if (entry >>> POS_BITS != 0) {
+			return this.roots[(entry >>> POS_BITS) - 1];
+		}
+
+		// Suffix rules whose candidate is a lemma of the rule's part of speech
+		for (final Rule rule : RULES) {
+			if (word.length() > rule.suffix.length() && word.endsWith(rule.suffix)) {
+				final String candidate = word.substring(0, word.length() - rule.suffix.length()) + rule.ending;
+				if ((this.table.get(candidate, 0) & rule.pos) != 0) {
+					return candidate;
+				}
+			}
+		}
+
+		// Adjectives and adverbs are only kept once no rule applies, since participles such as "based" are adjective lemmas too
+		if (entry != 0 || this.nouns) {
+			return word;
+		}
+
+		return plural(word);
+	}
+
+	/**
+	 * Reduces a word that looks like a plural noun to its singular, as CoreNLP does for words tagged NNS
+	 *
+	 * @param word
+	 *            Lower case word
+	 * @return Singular, or the word itself if it does not look plural
+	 */
+	private static String plural(final String word) {
+		final int length = word.length();
+		if (length < 4 || word.charAt(length - 1) != 's' || word.endsWith("ss") || word.endsWith("us") || word.endsWith("is")) {
+			return word;
+		}
+
+		if (word.endsWith("ies")) {
+			return word.substring(0, length - 3) + "y";
+		}
+
+		if (word.endsWith("sses") || word.endsWith("ches") || word.endsWith("shes") || word.endsWith("xes") || word.endsWith("zes")) {
+			return word.substring(0, length - 2);
+		}
+
+		return word.substring(0, length - 1);
+	}
+
+	/**
+	 * @return the number of exception forms and lemmas in the table
+	 */
+	public int size() {
+		return this.table.size();
+	}
+
+	/**
+	 * @return the approximate memory taken by the table in bytes
+	 */
+	public long getBytes() {
+		return this.table.getBytes();
+	}
+
+	/**
+	 * @return the time taken to load the dict folder and build the table in milliseconds
+	 */
+	public long getLoadTime() {
+		return this.loadTime;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,186 @@
+package tokenization;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts occurrences of objects without boxing. Keys and counts are kept in parallel arrays with open addressing and linear probing, so incrementing a
+ * count is a single probe sequence, instead of the containsKey, get and put of a {@code HashMap<K, Integer>} and the Integer it allocates.
+ *
+ * @param <K>
+ *            Type of the keys
+ * @author Ekal.Golas
+ */
+public class ObjectIntCounter<K> {
+	private Object[]	keys;
+	private int[]		counts;
+	private int			size;
+
+	/**
+	 * Default constructor
+	 */
+	public ObjectIntCounter() {
+		this(16);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param expected
+	 *            Expected number of keys
+	 */
+	public ObjectIntCounter(final int expected) {
+		final int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+		this.keys = new Object[capacity];
+		this.counts = new int[capacity];
+	}
+
+	/**
+	 * Increments the count of a key by one
+	 *
+	 * @param key
+	 *            Key to count
+	 * @return New count of the key
+	 */
+	public int increment(final K key) {
+		return this.add(key, 1);
+	}
+
+	/**
+	 * Adds to the count of a key
+	 *
+	 * @param key
+	 *            Key to count
+	 * @param delta
+	 *            Amount to add
+	 * @return New count of the key
+	 */
+	public int add(final K key, final int delta) {
+		int slot = this.find(key);
+		if (this.keys[slot] == null) {
+			// Grow at three quarters load, then look the free slot up again
+			if (++this.size * 4 > this.keys.length * 3) {
+				this.rehash(this.keys.length * 2);
+				slot = this.find(key);
+			}
+
+			this.keys[slot] = key;
+		}
+
+		return this.counts[slot] += delta;
+	}
+
+	/**
+	 * @param key
+	 *            Key to look up
+	 * @return Count of the key, 0 if it has not been counted
+	 */
+	public int get(final Object key) {
+		final int slot = this.find(key);
+		return this.keys[slot] == null ? 0 : this.counts[slot];
+	}
+
+	/**
+	 * @param key
+	 *            Key to look up
+	 * @return True if the key has been counted
+	 */
+	public boolean containsKey(final Object key) {
+		return this.keys[this.find(key)] != null;
+	}
+
+	/**
+	 * @return the number of distinct keys
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Copies the counts into a map, for output
+	 *
+	 * @return Map of keys to their counts
+	 */
+	@SuppressWarnings("unchecked")
+	public HashMap<K, Integer> toMap() {
+		final HashMap<K, Integer> map = new HashMap<>(this.size * 4 / 3 + 1);
+		for (int slot = 0; slot < this.keys.length; slot++) {
+			if (this.keys[slot] != null) {
+				map.put((K) this.keys[slot], this.counts[slot]);
+			}
+		}
+
+		return map;
+	}
+
+	/**
+	 * Adds every count of a map
+	 *
+	 * @param map
+	 *            Map of keys to counts
+	 */
+	public void addAll(final Map<? extends K, Integer> map) {
+		for (final Map.Entry<? extends K, Integer> entry : map.entrySet()) {
+			this.add(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Removes every key
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.counts, 0);
+		this.size = 0;
+	}
+
+	/**
+	 * Finds the slot of a key
+	 *
+	 * @param key
+	 *            Key to find
+	 * @return Slot holding the key, or the empty slot where it would go
+	 */
+	private int find(final Object key) {
+		final int mask = this.keys.length - 1;
+		int slot = mix(key.hashCode()) & mask;
+		while (this.keys[slot] != null && !this.keys[slot].equals(key)) {
+			slot = slot + 1 & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Moves every key to a table of a new capacity
+	 *
+	 * @param capacity
+	 *            Number of slots, a power of two
+	 */
+	private void rehash(final int capacity) {
+		final Object[] oldKeys = this.keys;
+		final int[] oldCounts = this.counts;
+		this.keys = new Object[capacity];
+		this.counts = new int[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				final int slot = this.find(oldKeys[i]);
+				this.keys[slot] = oldKeys[i];
+				this.counts[slot] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a hash code, since keys such as strings that differ in their last characters have close hash codes
+	 *
+	 * @param hash
+	 *            Hash code
+	 * @return Mixed hash code
+	 */
+	private static int mix(final int hash) {
+		final int h = hash * 0x9e3779b9;
+		return h ^ h >>> 16;
+	}
+}
\ No newline at end of file
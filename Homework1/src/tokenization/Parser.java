@@ -12,15 +12,16 @@ import java.util.HashMap;
  * @author Ekal.Golas
  */
 public class Parser {
-	private HashMap<String, Integer>	tokenMap;
-	private int							totalWords;
-	private int							totalDocuments;
+	private final ObjectIntCounter<String>	tokenCounts;
+	private HashMap<String, Integer>		tokenMap;
+	private int								totalWords;
+	private int								totalDocuments;
 
 	/**
 	 * Default constructor
 	 */
 	public Parser() {
-		this.setTokenMap(new HashMap<String, Integer>());
+		this.tokenCounts = new ObjectIntCounter<>(1 << 14);
 	}
 
 	/**
@@ -60,6 +61,7 @@ public class Parser {
 		}
 
 		// Read all lines in this file
+		this.tokenMap = null;
 		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
 			for (String line; (line = reader.readLine()) != null;) {
 				// Transform the line in order to tokenize it
@@ -73,9 +75,8 @@ public class Parser {
 						continue;
 					}
 
-					// Increment occurrence of this word in token map
-					final int count = this.getTokenMap().containsKey(word) ? this.getTokenMap().get(word) : 0;
-					this.getTokenMap().put(word, count + 1);
+					// Increment occurrence of this word in token counts
+					this.tokenCounts.increment(word);
 
 					// Increment the count of total words
 					this.setTotalWords(this.getTotalWords() + 1);
@@ -128,18 +129,14 @@ public class Parser {
 	}
 
 	/**
-	 * @return the token map
+	 * @return the token map, copied from the token counts the first time it is asked for
 	 */
 	public HashMap<String, Integer> getTokenMap() {
-		return this.tokenMap;
-	}
+		if (this.tokenMap == null) {
+			this.tokenMap = this.tokenCounts.toMap();
+		}
 
-	/**
-	 * @param token
-	 *            the token map to set
-	 */
-	public void setTokenMap(final HashMap<String, Integer> token) {
-		this.tokenMap = token;
+		return this.tokenMap;
 	}
 
 	/**
@@ -1,5 +1,7 @@
 package solution;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -12,6 +14,7 @@ import java.util.Set;
 
 import tokenizer.Tokenizer;
 import util.OutputFormatter;
+import util.ReportWriter;
 import util.StorageManager;
 
 /**
@@ -20,6 +23,11 @@ import util.StorageManager;
  * @author Ekal.Golas
  */
 public class DisplayResults {
+	private static final int			BINARY			= 0;
+	private static final int			RAW				= 1;
+	private static final int			TF_IDF			= 2;
+	private static final DecimalFormat	WEIGHT_FORMAT	= new DecimalFormat("0.####");
+
 	/**
 	 * Takes a query and prints the results from the dictionary
 	 *
@@ -174,58 +182,74 @@ public class DisplayResults {
 	}
 
 	/**
+	 * Streams the binary, raw and tf-idf weight tables to the console, one row per word
+	 *
 	 * @param manager
 	 *            Storage manager containing dictionary
+	 * @throws IOException
 	 */
-	public static void displayWeights(final StorageManager manager) {
-		// Get formatters
-		final OutputFormatter binary = new OutputFormatter();
-		final OutputFormatter raw = new OutputFormatter();
-		final OutputFormatter tf_idf = new OutputFormatter();
-
+	public static void displayWeights(final StorageManager manager) throws IOException {
 		// Create headers by sorting the order of documents
 		final List<String> docs = new ArrayList<>(manager.getDoclen().keySet());
 		Collections.sort(docs);
 		docs.add(0, "Word");
 		final String[] array = docs.toArray(new String[docs.size()]);
-		binary.addRow(array);
-		raw.addRow(array);
-		tf_idf.addRow(array);
 
 		// Get sorted words
 		final List<String> words = new ArrayList<>(manager.getTermFreq().keySet());
 		Collections.sort(words);
 
-		// For all words, do
-		for (final String string : words) {
-			final String[] b = new String[docs.size()];
-			final String[] r = new String[docs.size()];
-			final String[] tfidf = new String[docs.size()];
-			b[0] = string;
-			r[0] = string;
-			tfidf[0] = string;
-			for (int i = 1; i < b.length; i++) {
-				// Get binary weight
-				b[i] = String.valueOf(manager.getDocList().get(string).containsKey(String.valueOf(i)) ? 1 : 0);
-
-				// Get raw weight
-				r[i] = String.valueOf(manager.getDocList().get(string).getOrDefault(String.valueOf(i), 0));
-
-				// Get tf-idf
-				final double value = (manager.getDocList().get(string).containsKey(String.valueOf(i))
-						? 1 + Math.log10(manager.getDocList().get(string).get(String.valueOf(i))) : 0) *
-						Math.log10((docs.size() - 1.0) / manager.getDocFreq().get(string));
-				final DecimalFormat format = new DecimalFormat("0.####");
-				tfidf[i] = String.valueOf(format.format(value));
+		// Stream each table, one after the other
+		final Writer console = ReportWriter.console();
+		for (final int weighting : new int[] { BINARY, RAW, TF_IDF }) {
+			final ReportWriter table = new ReportWriter(console, ReportWriter.Format.TABLE);
+			table.addRow(array);
+			for (final String string : words) {
+				table.addRow(getWeights(manager, string, docs.size(), weighting));
 			}
 
-			binary.addRow(b);
-			raw.addRow(r);
-			tf_idf.addRow(tfidf);
+			table.flush();
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Gets a row of weights of a word for all the documents
+	 *
+	 * @param manager
+	 *            Storage manager containing dictionary
+	 * @param string
+	 *            Word to get weights for
+	 * @param size
+	 *            Number of columns in the row
+	 * @param weighting
+	 *            One of binary, raw or tf-idf weighting
+	 * @return Row with the word followed by its weight in each document
+	 */
+	private static String[] getWeights(final StorageManager manager, final String string, final int size, final int weighting) {
+		final String[] row = new String[size];
+		row[0] = string;
+
+		final Map<String, Integer> postings = manager.getDocList().get(string);
+		for (int i = 1; i < row.length; i++) {
+			final String doc = String.valueOf(i);
+			switch (weighting) {
+				case BINARY:
+					// Get binary weight
+					row[i] = String.valueOf(postings.containsKey(doc) ? 1 : 0);
+					break;
+				case RAW:
+					// Get raw weight
+					row[i] = String.valueOf(postings.getOrDefault(doc, 0));
+					break;
+				default:
+					// Get tf-idf
+					final double value = (postings.containsKey(doc) ? 1 + Math.log10(postings.get(doc)) : 0) *
+							Math.log10((size - 1.0) / manager.getDocFreq().get(string));
+					row[i] = String.valueOf(WEIGHT_FORMAT.format(value));
+			}
 		}
 
-		System.out.println(binary);
-		System.out.println(raw);
-		System.out.println(tf_idf);
+		return row;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Streams the command output row by row to a writer. Unlike {@link OutputFormatter}, rows are not kept until the whole report is known, so a report over the
+ * full vocabulary uses constant memory. Table column widths are either fixed up front or sampled from the first rows of the report.
+ *
+ * @author Ekal.Golas
+ */
+public class ReportWriter implements Closeable, Flushable {
+	/**
+	 * Output formats supported by the report writer
+	 */
+	public enum Format {
+		/** Padded columns, same layout as {@link OutputFormatter} */
+		TABLE,
+		/** Tab separated values */
+		TSV,
+		/** One JSON object per line, keyed on the header row */
+		JSON
+	}
+
+	private static final int	DEFAULT_SAMPLE_SIZE	= 100;
+
+	private final Writer		writer;
+	private final Format		format;
+	private final int			sampleSize;
+	private List<String[]>		sample;
+	private int[]				widths;
+	private String[]			header;
+
+	/**
+	 * Constructor for a report with widths sampled from the first 100 rows
+	 *
+	 * @param writer
+	 *            Writer to stream the rows to
+	 * @param format
+	 *            Output format
+	 */
+	public ReportWriter(final Writer writer, final Format format) {
+		this(writer, format, DEFAULT_SAMPLE_SIZE);
+	}
+
+	/**
+	 * Constructor for a report with widths sampled from the first rows
+	 *
+	 * @param writer
+	 *            Writer to stream the rows to
+	 * @param format
+	 *            Output format
+	 * @param sampleSize
+	 *            Number of rows to buffer for computing column widths
+	 */
+	public ReportWriter(final Writer writer, final Format format, final int sampleSize) {
+		this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+		this.format = format;
+		this.sampleSize = Math.max(sampleSize, 1);
+		this.sample = format == Format.TABLE ? new ArrayList<String[]>() : null;
+	}
+
+	/**
+	 * Constructor for a table with fixed column widths
+	 *
+	 * @param writer
+	 *            Writer to stream the rows to
+	 * @param widths
+	 *            Width of each column
+	 */
+	public ReportWriter(final Writer writer, final int... widths) {
+		this(writer, Format.TABLE);
+		this.widths = widths;
+		this.sample = null;
+	}
+
+	/**
+	 * Gets a writer over the standard output. Flush it instead of closing it, so that the standard output stays open.
+	 *
+	 * @return Buffered writer for the console
+	 */
+	public static Writer console() {
+		return new BufferedWriter(new OutputStreamWriter(System.out));
+	}
+
+	/**
+	 * Add a row to output. The first row is treated as the header.
+	 *
+	 * @param cols
+	 *            Data in columns
+	 * @throws IOException
+	 */
+	public void addRow(final String... cols) throws IOException {
+		if (this.header == null) {
+			this.header = cols;
+			if (this.format == Format.JSON) {
+				return;
+			}
+		}
+
+		// Buffer the row while the column widths are still being sampled
+		if (this.sample != null) {
+			this.sample.add(cols);
+			if (this.sample.size() >= this.sampleSize) {
+				this.drainSample();
+			}
+
+			return;
+		}
+
+		this.writeRow(cols);
+	}
+
+	/**
+	 * Computes the column widths from the sampled rows and writes them out
+	 *
+	 * @throws IOException
+	 */
+	private void drainSample() throws IOException {
+		final List<String[]> rows = this.sample;
+		this.sample = null;
+
+		int cols = 0;
+		for (final String[] row : rows) {
+			cols = Math.max(cols, row.length);
+		}
+
+		this.widths = new int[cols];
+		for (final String[] row : rows) {
+			for (int colNum = 0; colNum < row.length; colNum++) {
+				this.widths[colNum] = Math.max(this.widths[colNum], StringUtils.length(row[colNum]));
+			}
+		}
+
+		for (final String[] row : rows) {
+			this.writeRow(row);
+		}
+	}
+
+	/**
+	 * Writes a single row in the output format
+	 *
+	 * @param row
+	 *            Data in columns
+	 * @throws IOException
+	 */
+	private void writeRow(final String[] row) throws IOException {
+		switch (this.format) {
+			case TABLE:
+				for (int colNum = 0; colNum < row.length; colNum++) {
+					final int width = colNum < this.widths.length ? this.widths[colNum] : 0;
+					this.writer.write(StringUtils.rightPad(StringUtils.defaultString(row[colNum]), width));
+					this.writer.write('\t');
+				}
+
+				break;
+			case TSV:
+				for (int colNum = 0; colNum < row.length; colNum++) {
+					if (colNum > 0) {
+						this.writer.write('\t');
+					}
+
+					this.writer.write(StringUtils.defaultString(row[colNum]).replaceAll("[\\t\\r\\n]", " "));
+				}
+
+				break;
+			case JSON:
+				this.writer.write('{');
+				for (int colNum = 0; colNum < row.length; colNum++) {
+					if (colNum > 0) {
+						this.writer.write(',');
+					}
+
+					final String key = colNum < this.header.length ? this.header[colNum] : String.valueOf(colNum);
+					this.writeJsonString(key);
+					this.writer.write(':');
+					this.writeJsonString(row[colNum]);
+				}
+
+				this.writer.write('}');
+				break;
+		}
+
+		this.writer.write('\n');
+	}
+
+	/**
+	 * Writes a quoted and escaped JSON string
+	 *
+	 * @param value
+	 *            Value to write, null is written as JSON null
+	 * @throws IOException
+	 */
+	private void writeJsonString(final String value) throws IOException {
+		if (value == null) {
+			this.writer.write("null");
+			return;
+		}
+
+		this.writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					this.writer.write("\\\"");
+					break;
+				case '\\':
+					this.writer.write("\\\\");
+					break;
+				case '\n':
+					this.writer.write("\\n");
+					break;
+				case '\r':
+					this.writer.write("\\r");
+					break;
+				case '\t':
+					this.writer.write("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						this.writer.write(String.format("\\u%04x", (int) c));
+					} else {
+						this.writer.write(c);
+					}
+			}
+		}
+
+		this.writer.write('"');
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Flushable#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.sample != null) {
+			this.drainSample();
+		}
+
+		this.writer.flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.flush();
+		this.writer.close();
+	}
+}
\ No newline at end of file
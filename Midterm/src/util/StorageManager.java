@@ -7,17 +7,22 @@ import java.util.Map;
 import java.util.Set;
 
 /**
- * Class to store all the characteristics of the indexes
+ * Class to store all the characteristics of the indexes. Counts are kept in {@link ObjectIntCounter}s while storing, and copied into maps the first time
+ * they are asked for.
  *
  * @author Ekal.Golas
  */
 public class StorageManager {
-	private final Map<String, Integer>				tf;
-	private final Map<String, Integer>				df;
-	private final Map<String, Map<String, Integer>>	docList;
-	private final Map<String, Integer>				doclen;
-	private final Set<String>						stopwords;
-	private final Map<String, Set<String>>			docs;
+	private final ObjectIntCounter<String>						tfCounts;
+	private final ObjectIntCounter<String>						dfCounts;
+	private final Map<String, ObjectIntCounter<String>>			postings;
+	private final ObjectIntCounter<String>						doclenCounts;
+	private final Set<String>									stopwords;
+	private final Map<String, Set<String>>						docs;
+	private Map<String, Integer>								tf;
+	private Map<String, Integer>								df;
+	private Map<String, Map<String, Integer>>					docList;
+	private Map<String, Integer>								doclen;
 
 	/**
 	 * Default constructor
@@ -26,10 +31,10 @@ public class StorageManager {
 	 *            Set of stop words
 	 */
 	public StorageManager(final Set<String> stopwords) {
-		this.tf = new HashMap<>();
-		this.df = new HashMap<>();
-		this.docList = new HashMap<>();
-		this.doclen = new HashMap<>();
+		this.tfCounts = new ObjectIntCounter<>();
+		this.dfCounts = new ObjectIntCounter<>();
+		this.postings = new HashMap<>();
+		this.doclenCounts = new ObjectIntCounter<>();
 		this.stopwords = stopwords;
 		this.docs = new HashMap<>();
 	}
@@ -49,26 +54,38 @@ public class StorageManager {
 			// word = Stemming.stem(word);
 
 			// Increment occurrence of this word in term frequency
-			this.tf.put(word, this.tf.getOrDefault(word, 0) + 1);
-
-			// If document list does not contain the word or the word map does not contain the doc
-			if (!this.docList.containsKey(word) || !this.docList.get(word).containsKey(doc)) {
-				// Increment occurrence of this word in document frequency
-				this.df.put(word, this.df.getOrDefault(word, 0) + 1);
-			}
+			this.tfCounts.increment(word);
 
 			// Increment occurrence in document list
-			this.docList.putIfAbsent(word, new HashMap<>());
-			this.docList.get(word).put(doc, this.docList.get(word).getOrDefault(doc, 0) + 1);
+			ObjectIntCounter<String> counts = this.postings.get(word);
+			if (counts == null) {
+				counts = new ObjectIntCounter<>(4);
+				this.postings.put(word, counts);
+			}
 
-			// Increment number of words in the document
-			if (this.docList.get(word).getOrDefault(doc, 0) == 1) {
-				this.doclen.put(doc, this.doclen.getOrDefault(doc, 0) + 1);
+			// On the first occurrence in the document, increment document frequency and number of words in the document, and add word to docs
+			if (counts.increment(doc) == 1) {
+				this.dfCounts.increment(word);
+				this.doclenCounts.increment(doc);
+				this.docs.putIfAbsent(doc, new HashSet<>());
+				this.docs.get(doc).add(word);
 			}
 
-			// Add word to docs
-			this.docs.putIfAbsent(doc, new HashSet<>());
-			this.docs.get(doc).add(word);
+			// The maps are copied again when next asked for
+			this.tf = null;
+		}
+	}
+
+	/**
+	 * Copies the counts into maps
+	 */
+	private void copy() {
+		this.tf = this.tfCounts.toMap();
+		this.df = this.dfCounts.toMap();
+		this.doclen = this.doclenCounts.toMap();
+		this.docList = new HashMap<>();
+		for (final Map.Entry<String, ObjectIntCounter<String>> entry : this.postings.entrySet()) {
+			this.docList.put(entry.getKey(), entry.getValue().toMap());
 		}
 	}
 
@@ -76,6 +93,10 @@ public class StorageManager {
 	 * @return the termFreq
 	 */
 	public final Map<String, Integer> getTermFreq() {
+		if (this.tf == null) {
+			this.copy();
+		}
+
 		return this.tf;
 	}
 
@@ -83,6 +104,10 @@ public class StorageManager {
 	 * @return the docFreq
 	 */
 	public final Map<String, Integer> getDocFreq() {
+		if (this.tf == null) {
+			this.copy();
+		}
+
 		return this.df;
 	}
 
@@ -90,6 +115,10 @@ public class StorageManager {
 	 * @return the docList
 	 */
 	public final Map<String, Map<String, Integer>> getDocList() {
+		if (this.tf == null) {
+			this.copy();
+		}
+
 		return this.docList;
 	}
 
@@ -97,6 +126,10 @@ public class StorageManager {
 	 * @return the doclen
 	 */
 	public final Map<String, Integer> getDoclen() {
+		if (this.tf == null) {
+			this.copy();
+		}
+
 		return this.doclen;
 	}
 
@@ -113,4 +146,4 @@ public class StorageManager {
 	public final Map<String, Set<String>> getDocs() {
 		return this.docs;
 	}
-}
+}
\ No newline at end of file
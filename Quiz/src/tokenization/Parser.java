@@ -18,6 +18,7 @@ import java.util.Set;
 public class Parser {
 	private final HashMap<String, Map<Integer, Integer>>	tokenMap;
 	private final Set<String>								stopwords;
+	private final PositionalIndex							positionalIndex;
 	private static int										index;
 
 	/**
@@ -30,6 +31,7 @@ public class Parser {
 	 */
 	public Parser(final File file) throws FileNotFoundException, IOException {
 		this.tokenMap = new HashMap<>();
+		this.positionalIndex = new PositionalIndex();
 		this.stopwords = new HashSet<>();
 		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
 			for (String line; (line = reader.readLine()) != null;) {
@@ -95,6 +97,7 @@ public class Parser {
 					}
 
 					this.tokenMap.get(word).put(index, num);
+					this.positionalIndex.add(word, index, num);
 				}
 			}
 		}
@@ -146,4 +149,11 @@ public class Parser {
 	public HashMap<String, Map<Integer, Integer>> getTokenMap() {
 		return this.tokenMap;
 	}
+
+	/**
+	 * @return the positional index, with every position of each word
+	 */
+	public final PositionalIndex getPositionalIndex() {
+		return this.positionalIndex;
+	}
 }
\ No newline at end of file
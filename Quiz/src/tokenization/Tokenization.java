@@ -55,6 +55,8 @@ public class Tokenization
 		final Map<String, Set<String>> stemsMap = stemming.getStemsMap();
 		displayResults(stemsMap, "Si : After stemming the vocabulary");
 
+		// Correlate every pair of positions through the positional index
+		final PositionalIndex positionalIndex = parser.getPositionalIndex();
 		final Element[][] matrix = new Element[tokenMap.size()][tokenMap.size()];
 		final String[] stems = stemsMap.keySet().toArray(new String[stemsMap.size()]);
 		for (int i = 0; i < stems.length; i++) {
@@ -68,13 +70,7 @@ public class Tokenization
 				final Set<String> jStrings = stemsMap.get(stems[j]);
 				for (final String string1 : iStrings) {
 					for (final String string2 : jStrings) {
-						final Map<Integer, Integer> iMap = tokenMap.get(string1);
-						final Map<Integer, Integer> jMap = tokenMap.get(string2);
-						for (final Integer integer : iMap.keySet()) {
-							if (jMap.containsKey(integer)) {
-								cuv += 1.0 / Math.abs(iMap.get(integer) - jMap.get(integer));
-							}
-						}
+						cuv += positionalIndex.inverseDistanceSum(string1, string2);
 					}
 				}
 